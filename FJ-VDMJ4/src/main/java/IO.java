@@ -67,7 +67,7 @@ public class IO implements Serializable
 		Console.out.print(text);
 		Console.out.flush();
 
-		return new BooleanValue(true);
+		return BooleanValue.TRUE;
 	}
 
 	public static Value fwriteval(Value fval, Value tval, Value dval)
@@ -87,10 +87,10 @@ public class IO implements Serializable
 		catch (IOException e)
 		{
 			lastError = e.getMessage();
-			return new BooleanValue(false);
+			return BooleanValue.FALSE;
 		}
 
-		return new BooleanValue(true);
+		return BooleanValue.TRUE;
 	}
 
 	// Note that this method is not callable via the native interface, since it
@@ -119,14 +119,14 @@ public class IO implements Serializable
 			ip.typeCheck(tcexp);
 			INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
 			
-			result.add(new BooleanValue(true));
+			result.add(BooleanValue.TRUE);
 			result.add(inexp.eval(ctxt));
 		}
 		catch (Exception e)
 		{
 			lastError = e.toString();
 			result = new ValueList();
-			result.add(new BooleanValue(false));
+			result.add(BooleanValue.FALSE);
 			result.add(new NilValue());
 		}
 
@@ -158,11 +158,11 @@ public class IO implements Serializable
 			catch (IOException e)
 			{
 				lastError = e.getMessage();
-				return new BooleanValue(false);
+				return BooleanValue.FALSE;
 			}
 		}
 
-		return new BooleanValue(true);
+		return BooleanValue.TRUE;
 	}
 
 	public static Value ferror()
@@ -182,6 +182,11 @@ public class IO implements Serializable
 		{
 			SeqValue sv = (SeqValue)val;
 
+			if (sv.values.isString())
+			{
+				return sv.values.getString();
+			}
+
 			for (Value v: sv.values)
 			{
 				v = v.deref();
@@ -23,11 +23,12 @@
 
 // This must be in the default package to work with VDMJ's native delegation.
 
+import java.math.BigInteger;
 import java.util.Random;
 
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.IntegerValue;
-import com.fujitsu.vdmj.values.NaturalOneValue;
+import com.fujitsu.vdmj.values.NumericValue;
 import com.fujitsu.vdmj.values.RealValue;
 import com.fujitsu.vdmj.values.Value;
 
@@ -123,11 +124,18 @@ public class MATH
 
 	public static Value fac(Value arg) throws ValueException, Exception
 	{
-		return new NaturalOneValue(factorial(arg.natValue(null)));
+		return NumericValue.valueOf(factorial(arg.natValue(null)), null);
 	}
 
-	private static long factorial(long n)
+	private static BigInteger factorial(long n)
 	{
-		return (n < 1) ? 1 : n * factorial(n-1);
+		BigInteger result = BigInteger.ONE;
+
+		for (long i=2; i<=n; i++)
+		{
+			result = result.multiply(BigInteger.valueOf(i));
+		}
+
+		return result;
 	}
 }
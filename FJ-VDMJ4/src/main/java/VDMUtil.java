@@ -67,15 +67,22 @@ public class VDMUtil
 		try
 		{
 			SeqValue seq = (SeqValue) arg;
-			StringBuilder expression = new StringBuilder();
+			String expression = seq.values.getString();
 			
-			for (Value v: seq.values)
+			if (expression == null)
 			{
-				CharacterValue ch = (CharacterValue) v;
-				expression.append(ch.unicode);
+				StringBuilder sb = new StringBuilder();
+
+				for (Value v: seq.values)
+				{
+					CharacterValue ch = (CharacterValue) v;
+					sb.append(ch.unicode);
+				}
+
+				expression = sb.toString();
 			}
 			
-			LexTokenReader ltr = new LexTokenReader(expression.toString(), Dialect.VDM_PP);
+			LexTokenReader ltr = new LexTokenReader(expression, Dialect.VDM_PP);
 			ExpressionReader reader = new ExpressionReader(ltr);
 			reader.setCurrentModule("VDMUtil");
 			ASTExpression exp = reader.readExpression();
@@ -84,7 +91,7 @@ public class VDMUtil
 			ip.typeCheck(tcexp);
 			INExpression inexp = ClassMapper.getInstance(INNode.MAPPINGS).convert(tcexp);
 
-			result.add(new BooleanValue(true));
+			result.add(BooleanValue.TRUE);
 			Context ctxt = new Context(null, "seq_of_char2val", null);
 			ctxt.setThreadState(null);
 			result.add(inexp.eval(ctxt));
@@ -92,7 +99,7 @@ public class VDMUtil
 		catch (Exception e)
 		{
 			result = new ValueList();
-			result.add(new BooleanValue(false));
+			result.add(BooleanValue.FALSE);
 			result.add(new NilValue());
 		}
 
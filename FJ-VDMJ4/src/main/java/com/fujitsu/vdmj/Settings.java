@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import com.fujitsu.vdmj.lex.Dialect;
 
 /**
@@ -39,6 +42,7 @@ public class Settings
 	public static boolean dynamictypechecks = true;
 	public static boolean measureChecks = true;
 	public static boolean exceptions = false;
+	public static Set<String> memoFunctions = new HashSet<String>();
 
 	public static boolean usingCmdLine = false;
 }
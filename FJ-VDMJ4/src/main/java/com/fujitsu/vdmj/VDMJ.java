@@ -216,6 +216,17 @@ abstract public class VDMJ
     		{
     			Settings.measureChecks = false;
     		}
+    		else if (arg.equals("-memo"))
+    		{
+    			if (i.hasNext())
+    			{
+    				Settings.memoFunctions.addAll(Arrays.asList(i.next().split(",")));
+    			}
+    			else
+    			{
+    				usage("-memo option requires a list of function names");
+    			}
+    		}
     		else if (arg.equals("-log"))
     		{
     			if (i.hasNext())
@@ -479,6 +490,7 @@ abstract public class VDMJ
 		System.err.println("-dtc: disable all dynamic type checking");
 		System.err.println("-exceptions: raise pre/post/inv violations as <RuntimeError>");
 		System.err.println("-measures: disable recursive measure checking");
+		System.err.println("-memo <names>: memoise the results of pure functions (comma separated)");
 		System.err.println("-log <filename>: enable real-time event logging");
 		System.err.println("-remote <class>: enable remote control");
 		System.err.println("-verbose: display detailed startup information");
@@ -68,6 +68,7 @@ import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.traces.TraceReductionType;
 import com.fujitsu.vdmj.values.BooleanValue;
 import com.fujitsu.vdmj.values.FunctionValue;
+import com.fujitsu.vdmj.values.MemoTable;
 import com.fujitsu.vdmj.values.OperationValue;
 import com.fujitsu.vdmj.values.Value;
 
@@ -304,6 +305,10 @@ abstract public class CommandReader
 				{
 					carryOn = doLog(line);
 				}
+				else if(line.equals("memo") || line.equals("memo clear"))
+				{
+					carryOn = doMemo(line);
+				}
 				else if (line.startsWith("print ") || line.startsWith("p "))
 				{
 					carryOn = doEvaluate(line);
@@ -841,6 +846,33 @@ abstract public class CommandReader
 		return true;
 	}
 
+	protected boolean doMemo(String line)
+	{
+		if (line.equals("memo"))
+		{
+			if (MemoTable.getTables().isEmpty())
+			{
+				println("No functions are memoised");
+			}
+
+			for (MemoTable table: MemoTable.getTables())
+			{
+				println(table.toString());
+			}
+		}
+		else	// memo clear
+		{
+			for (MemoTable table: MemoTable.getTables())
+			{
+				table.clear();
+			}
+
+			println("Cleared all memoised results");
+		}
+
+		return true;
+	}
+
 	protected boolean doEnv(@SuppressWarnings("unused") String line)
 	{
 		print(interpreter.getInitialContext().toString());
@@ -1482,6 +1514,7 @@ abstract public class CommandReader
 		println("word [<files>] - generate Word HTML line coverage files");
 		println("files - list files in the current specification");
 		println("set [<pre|post|inv|dtc|measures> <on|off>] - set runtime checks");
+		println("memo [clear] - show or clear memoised function results");
 		println("reload - reload the current specification files");
 		println("load <files or dirs> - replace current loaded specification files");
 		println("save [<files>] - generate Word/ODF source extract files");
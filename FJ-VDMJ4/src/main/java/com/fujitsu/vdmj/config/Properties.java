@@ -56,6 +56,9 @@ public class Properties extends ConfigBase
 	/** Enable InstVarChange RT log entries. */
 	public static boolean rt_log_instvarchanges = false;
 
+	/** The stack size of VDM threads in bytes, for deep recursion. Zero for the JVM default. */
+	public static int scheduler_stack_size = 0;
+
 	/** Maximum period thread overlaps allowed per object */
 	public static int rt_max_periodic_overlaps = 20;
 
@@ -65,6 +68,21 @@ public class Properties extends ConfigBase
 	/** Enable extra RT log diagnostics for timesteps. */
 	public static boolean diags_timestep = false;
 
+	/** Enable self tail calls of functions without recursion, losing their stack frames. */
+	public static boolean tailcalls_enabled = false;
+
+	/** The calls of a function before its body is JIT compiled, zero to disable. */
+	public static int jit_threshold = 0;
+
+	/** The maximum number of results held for each memoised function. */
+	public static int memo_max_entries = 10000;
+
+	/** The bindings in a function's quantifier or comprehension before it is evaluated in parallel, zero to disable. */
+	public static int parallel_threshold = 0;
+
+	/** The threads used for parallel evaluation, zero for one per processor. */
+	public static int parallel_threads = 0;
+
 	/**
 	 * When the class is initialized, we call the ConfigBase init method, which
 	 * uses the properties file passed to update the static fields above.
@@ -1007,7 +1007,7 @@ public class DBGPReader extends DebugLink
 		
 		if (value instanceof SetValue)
 		{
-			results.addAll(((SetValue)value).values);
+			results.addAll(((SetValue)value).getValues());
 		}
 		else if (value instanceof SeqValue)
 		{
@@ -1056,7 +1056,7 @@ public class DBGPReader extends DebugLink
 		
 		if (value instanceof SetValue)
 		{
-			return ((SetValue)value).values.size();
+			return ((SetValue)value).getValues().size();
 		}
 		else if (value instanceof SeqValue)
 		{
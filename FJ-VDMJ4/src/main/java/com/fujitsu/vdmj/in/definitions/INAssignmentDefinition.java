@@ -26,6 +26,7 @@ package com.fujitsu.vdmj.in.definitions;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.values.NameValuePair;
@@ -98,4 +99,10 @@ public class INAssignmentDefinition extends INDefinition
 	{
 		return expression.getValues(ctxt);
 	}
+
+	@Override
+	public TCNameList getVariableNames()
+	{
+		return new TCNameList(name);
+	}
 }
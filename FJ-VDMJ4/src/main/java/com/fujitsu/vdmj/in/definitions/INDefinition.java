@@ -112,6 +112,15 @@ public abstract class INDefinition extends INNode implements Serializable, Compa
 		return new TCNameList();
 	}
 
+	/**
+	 * Return the names of the variables that the definition binds in a let or
+	 * block, which its Frame holds in slots. Local functions are not included.
+	 */
+	public TCNameList getVariableNames()
+	{
+		return new TCNameList();
+	}
+
 	/**
 	 * Return the static type of the definition. For example, the type of a
 	 * function or operation definition would be its parameter/result signature;
@@ -168,6 +168,18 @@ public class INDefinitionList extends INMappedList<TCDefinition, INDefinition>
 		return list;
 	}
 
+	public TCNameList getVariableNames()
+	{
+		TCNameList list = new TCNameList();
+
+		for (INDefinition d: this)
+		{
+			list.addAll(d.getVariableNames());
+		}
+
+		return list;
+	}
+
 	public boolean hasSubclassResponsibility()
 	{
 		for (INDefinition d: this)
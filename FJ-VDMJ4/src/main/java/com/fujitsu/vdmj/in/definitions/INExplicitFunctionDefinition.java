@@ -29,11 +29,13 @@ import java.util.Map;
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.expressions.INSubclassResponsibilityExpression;
+import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.in.patterns.INPatternList;
 import com.fujitsu.vdmj.in.patterns.INPatternListList;
 import com.fujitsu.vdmj.in.types.Instantiate;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCFunctionType;
@@ -62,6 +64,8 @@ public class INExplicitFunctionDefinition extends INDefinition
 	public final INExplicitFunctionDefinition predef;
 	public final INExplicitFunctionDefinition postdef;
 	public final INClassDefinition classdef;
+	/** The parameter names, if the function is not curried. */
+	public final Frame frame;
 	
 	private Map<TCTypeList, FunctionValue> polyfuncs = null;
 
@@ -89,6 +93,24 @@ public class INExplicitFunctionDefinition extends INDefinition
 		this.classdef = classdef;
 
 		type.instantiated = (typeParams == null) ? null : false;
+		body.markTailCalls();
+
+		if (isCurried)
+		{
+			frame = null;	// The later parameters are bound by curried functions
+		}
+		else
+		{
+			TCNameList names = new TCNameList();
+
+			for (INPattern p: parameters.get(0))
+			{
+				names.addAll(p.getVariableNames());
+			}
+
+			frame = new Frame(names);
+			frame.resolve(body);
+		}
 	}
 
 	@Override
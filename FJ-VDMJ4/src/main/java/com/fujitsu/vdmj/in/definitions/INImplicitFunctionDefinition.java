@@ -31,6 +31,7 @@ import java.util.Vector;
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.expressions.INSubclassResponsibilityExpression;
+import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.in.patterns.INPatternList;
 import com.fujitsu.vdmj.in.types.INPatternListTypePair;
 import com.fujitsu.vdmj.in.types.INPatternListTypePairList;
@@ -38,6 +39,7 @@ import com.fujitsu.vdmj.in.types.INPatternTypePair;
 import com.fujitsu.vdmj.in.types.Instantiate;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCFunctionType;
@@ -65,6 +67,8 @@ public class INImplicitFunctionDefinition extends INDefinition
 	public final INExplicitFunctionDefinition postdef;
 	public final INClassDefinition classdef;
 	public final TCFunctionType type;
+	/** The parameter names, if the function has a body. */
+	public final Frame frame;
 
 	private Map<TCTypeList, FunctionValue> polyfuncs = null;
 
@@ -101,6 +105,27 @@ public class INImplicitFunctionDefinition extends INDefinition
 		// NB: implicit functions are always +> total, apparently
 		type = new TCFunctionType(location, ptypes, false, result.type);
 		type.instantiated = (typeParams == null) ? null : false;
+
+		if (body != null)
+		{
+			body.markTailCalls();
+			TCNameList names = new TCNameList();
+
+			for (INPatternListTypePair ptp: parameterPatterns)
+			{
+				for (INPattern p: ptp.patterns)
+				{
+					names.addAll(p.getVariableNames());
+				}
+			}
+
+			frame = new Frame(names);
+			frame.resolve(body);
+		}
+		else
+		{
+			frame = null;
+		}
 	}
 
 	@Override
@@ -115,7 +115,7 @@ public class INSystemDefinition extends INClassDefinition
     			{
     				ValueList args = new ValueList();
 
-    				args.add(new QuoteValue("FCFS"));	// Default policy
+    				args.add(QuoteValue.valueOf("FCFS"));	// Default policy
     				args.add(new RealValue(0));			// Default speed
 
     				cpu = (CPUValue)instance.newInstance(null, args, initialContext);
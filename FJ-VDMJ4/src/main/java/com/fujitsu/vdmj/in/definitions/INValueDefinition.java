@@ -143,4 +143,10 @@ public class INValueDefinition extends INDefinition
 	{
 		return exp.getOldNames();
 	}
+
+	@Override
+	public TCNameList getVariableNames()
+	{
+		return pattern.getVariableNames();
+	}
 }
@@ -26,6 +26,7 @@ package com.fujitsu.vdmj.in.expressions;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.IntegerValue;
 import com.fujitsu.vdmj.values.NumericValue;
 import com.fujitsu.vdmj.values.Value;
 
@@ -51,7 +52,14 @@ public class INAbsoluteExpression extends INUnaryExpression
 
 		try
 		{
-			return NumericValue.valueOf(Math.abs(exp.eval(ctxt).realValue(ctxt)), ctxt);
+			Value v = exp.eval(ctxt);
+
+			if (v instanceof IntegerValue && !NumericValue.isSmall(v))
+			{
+				return NumericValue.valueOf(v.bigintValue(ctxt).abs(), ctxt);
+			}
+
+			return NumericValue.valueOf(Math.abs(v.realValue(ctxt)), ctxt);
 		}
 		catch (ValueException e)
 		{
@@ -68,7 +68,7 @@ public class INAndExpression extends INBooleanBinaryExpression
 				return rv;
 			}
 
-			return new BooleanValue(false);
+			return BooleanValue.FALSE;
 		}
 		catch (ValueException e)
 		{
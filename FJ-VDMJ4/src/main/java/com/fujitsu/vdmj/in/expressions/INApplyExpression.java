@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.in.expressions;
 
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ThreadState;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.util.Utils;
@@ -31,6 +32,7 @@ import com.fujitsu.vdmj.values.FunctionValue;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.OperationValue;
 import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.TailCallValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
 
@@ -41,6 +43,9 @@ public class INApplyExpression extends INExpression
 	public final INExpression root;
 	public final INExpressionList args;
 
+	/** Set if this is in tail position of a function body */
+	private boolean tail = false;
+
 	public INApplyExpression(INExpression root)
 	{
 		super(root);
@@ -73,72 +78,114 @@ public class INApplyExpression extends INExpression
 		return args.findExpression(lineno);
 	}
 
+	@Override
+	public void markTailCalls()
+	{
+		tail = true;
+	}
+
 	@Override
 	public Value eval(Context ctxt)
+	{
+		boolean endstop = enter(ctxt);
+		Value object = root.eval(ctxt).deref();
+
+		if (object instanceof FunctionValue)
+		{
+			ValueList argvals = new ValueList(args.size());
+
+			for (INExpression arg: args)
+			{
+				argvals.add(arg.eval(ctxt));
+			}
+
+			return apply((FunctionValue)object, argvals, endstop, ctxt);
+		}
+		else
+		{
+			return apply(object, endstop, ctxt);
+		}
+	}
+
+	/**
+	 * The evaluation is split into these three parts, so that code compiled by
+	 * the JITCompiler can evaluate the root and arguments itself. The enter
+	 * method checks the breakpoint and returns whether to stop on return.
+	 */
+	public boolean enter(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
 		location.hits--;	// This is counted below when root is evaluated
-		boolean endstop = breakpoint.catchReturn(ctxt);
-
-    	try
-    	{
-    		Value object = root.eval(ctxt).deref();
-
-			if (object instanceof FunctionValue)
-    		{
-        		ValueList argvals = new ValueList();
-
-         		for (INExpression arg: args)
-        		{
-        			argvals.add(arg.eval(ctxt));
-        		}
-
-           		FunctionValue fv = object.functionValue(ctxt);
-           		Value rv = fv.eval(location, argvals, ctxt);
-           		
-           		if (endstop && !breakpoint.isContinue(ctxt))
-           		{
-           			breakpoint.enterDebugger(ctxt);
-           		}
-           		
-           		return rv;
-    		}
-			else if (object instanceof OperationValue)
-    		{
-        		ValueList argvals = new ValueList();
-
-         		for (INExpression arg: args)
-        		{
-        			argvals.add(arg.eval(ctxt));
-        		}
-
-         		OperationValue ov = object.operationValue(ctxt);
-           		Value rv = ov.eval(location, argvals, ctxt);
-           		
-           		if (endstop && !breakpoint.isContinue(ctxt))
-           		{
-           			breakpoint.enterDebugger(ctxt);
-           		}
-           		
-           		return rv;
-    		}
+		return breakpoint.catchReturn(ctxt);
+	}
+
+	public Value apply(FunctionValue fv, ValueList argvals, boolean endstop, Context ctxt)
+	{
+		if (tail && !ThreadState.anyStepped() && ctxt.getRoot().function == fv)
+		{
+			// A call to the function whose body we are in, which its FunctionValue
+			// makes when this value is returned from the body. This is not done
+			// once a debugger has stepped, as "next" relies on the context chain.
+			return new TailCallValue(location, argvals);
+		}
+
+		try
+		{
+			Value rv = fv.eval(location, argvals, ctxt);
+
+			if (endstop && !breakpoint.isContinue(ctxt))
+			{
+				breakpoint.enterDebugger(ctxt);
+			}
+
+			return rv;
+		}
+		catch (ValueException e)
+		{
+			return abort(e);
+		}
+	}
+
+	public Value apply(Value object, boolean endstop, Context ctxt)
+	{
+		try
+		{
+			if (object instanceof OperationValue)
+			{
+				ValueList argvals = new ValueList(args.size());
+
+				for (INExpression arg: args)
+				{
+					argvals.add(arg.eval(ctxt));
+				}
+
+				OperationValue ov = object.operationValue(ctxt);
+				Value rv = ov.eval(location, argvals, ctxt);
+
+				if (endstop && !breakpoint.isContinue(ctxt))
+				{
+					breakpoint.enterDebugger(ctxt);
+				}
+
+				return rv;
+			}
 			else if (object instanceof SeqValue)
-    		{
-    			Value arg = args.get(0).eval(ctxt);
-    			SeqValue sv = (SeqValue)object;
-    			return sv.get(arg, ctxt);
-    		}
+			{
+				Value arg = args.get(0).eval(ctxt);
+				SeqValue sv = (SeqValue)object;
+				return sv.get(arg, ctxt);
+			}
 			else if (object instanceof MapValue)
-    		{
-    			Value arg = args.get(0).eval(ctxt);
-    			MapValue mv = (MapValue)object;
-    			return mv.lookup(arg, ctxt);
-    		}
+			{
+				Value arg = args.get(0).eval(ctxt);
+				MapValue mv = (MapValue)object;
+				return mv.lookup(arg, ctxt);
+			}
 			else
 			{
-    			return abort(4003, "Value " + object + " cannot be applied", ctxt);
+				return abort(4003, "Value " + object + " cannot be applied", ctxt);
 			}
-    	}
+		}
 		catch (ValueException e)
 		{
 			return abort(e);
@@ -50,6 +50,6 @@ public class INBooleanLiteralExpression extends INExpression
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		return new BooleanValue(value.value);
+		return BooleanValue.valueOf(value.value);
 	}
 }
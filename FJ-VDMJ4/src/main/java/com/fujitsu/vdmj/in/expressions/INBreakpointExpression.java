@@ -75,6 +75,6 @@ public class INBreakpointExpression extends INExpression
 				break;
 		}
 
-		return new BooleanValue(rv);
+		return BooleanValue.valueOf(rv);
 	}
 }
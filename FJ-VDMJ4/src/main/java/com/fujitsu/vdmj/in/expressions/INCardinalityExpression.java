@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ExceptionHandler;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.NaturalValue;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.Value;
 
 public class INCardinalityExpression extends INUnaryExpression
@@ -53,7 +54,14 @@ public class INCardinalityExpression extends INUnaryExpression
 
 		try
 		{
-			return new NaturalValue(exp.eval(ctxt).setValue(ctxt).size());
+			Value set = exp.eval(ctxt).deref();
+
+			if (set instanceof RangeSetValue)
+			{
+				return NaturalValue.valueOf(((RangeSetValue)set).size());
+			}
+
+			return NaturalValue.valueOf(set.setValue(ctxt).size());
 		}
 		catch (ValueException e)
 		{
@@ -57,13 +57,23 @@ public class INCaseAlternative implements Serializable
 	}
 
 	public Value eval(Value val, Context ctxt)
+	{
+		Context evalContext = match(val, ctxt);
+		return (evalContext == null) ? null : result.eval(evalContext);
+	}
+
+	/**
+	 * Return the context of the result if the pattern matches, else null. This
+	 * is also used by JITCompiler code, which evaluates the result itself.
+	 */
+	public Context match(Value val, Context ctxt)
 	{
 		Context evalContext = new Context(location, "case alternative", ctxt);
 
 		try
 		{
 			evalContext.putList(pattern.getNamedValues(val, ctxt));
-			return result.eval(evalContext);
+			return evalContext;
 		}
 		catch (PatternMatchException e)
 		{
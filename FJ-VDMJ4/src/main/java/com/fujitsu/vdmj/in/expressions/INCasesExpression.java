@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import com.fujitsu.vdmj.in.patterns.INPatternList;
+import com.fujitsu.vdmj.in.patterns.PatternDispatcher;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
@@ -37,6 +39,9 @@ public class INCasesExpression extends INExpression
 	public final INCaseAlternativeList cases;
 	public final INExpression others;
 
+	/** The alternatives that may match each value, built when first used. */
+	private transient PatternDispatcher dispatcher = null;
+
 	public INCasesExpression(LexLocation location, INExpression exp,
 					INCaseAlternativeList cases, INExpression others)
 	{
@@ -73,6 +78,20 @@ public class INCasesExpression extends INExpression
 				others != null ? others.findExpression(lineno) : null;
 	}
 
+	@Override
+	public void markTailCalls()
+	{
+		for (INCaseAlternative c: cases)
+		{
+			c.result.markTailCalls();
+		}
+
+		if (others != null)
+		{
+			others.markTailCalls();
+		}
+	}
+
 	@Override
 	public Value eval(Context ctxt)
 	{
@@ -80,9 +99,9 @@ public class INCasesExpression extends INExpression
 
 		Value val = exp.eval(ctxt);
 
-		for (INCaseAlternative c: cases)
+		for (int i: getDispatcher().getCandidates(val, ctxt))
 		{
-			Value rv = c.eval(val, ctxt);
+			Value rv = cases.get(i).eval(val, ctxt);
 			if (rv != null) return rv;
 		}
 
@@ -91,6 +110,15 @@ public class INCasesExpression extends INExpression
 			return others.eval(ctxt);
 		}
 
+		return noMatch(val, ctxt);
+	}
+
+	/**
+	 * Raise the error for a value that no alternative matches. This is also
+	 * used by JITCompiler code, which evaluates the alternatives itself.
+	 */
+	public Value noMatch(Value val, Context ctxt)
+	{
 		return abort(4004, "No cases apply for " + val, ctxt);
 	}
 
@@ -148,4 +176,21 @@ public class INCasesExpression extends INExpression
 		subs.add(this);
 		return subs;
 	}
+
+	private PatternDispatcher getDispatcher()
+	{
+		if (dispatcher == null)
+		{
+			INPatternList patterns = new INPatternList();
+
+			for (INCaseAlternative c: cases)
+			{
+				patterns.add(c.pattern);
+			}
+
+			dispatcher = new PatternDispatcher(patterns);
+		}
+
+		return dispatcher;
+	}
 }
@@ -42,13 +42,13 @@ public class INCharLiteralExpression extends INExpression
 	@Override
 	public String toString()
 	{
-		return new CharacterValue(value.unicode).toString();
+		return CharacterValue.valueOf(value.unicode).toString();
 	}
 
 	@Override
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		return new CharacterValue(value.unicode);
+		return CharacterValue.valueOf(value.unicode);
 	}
 }
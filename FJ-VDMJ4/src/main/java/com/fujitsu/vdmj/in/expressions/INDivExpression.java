@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -39,27 +41,41 @@ public class INDivExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		if (rv == 0 || (lv == Long.MIN_VALUE && rv == -1))
+		{
+			return null;	// Error or overflow
+		}
 
-		try
+		return NumericValue.valueOf(lv / rv, ctxt);	// Truncates, as div
+	}
+
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
+	{
+		if (!NumericValue.areSmallIntegers(l, r))
 		{
-    		double lv = left.eval(ctxt).intValue(ctxt);
-    		double rv = right.eval(ctxt).intValue(ctxt);
+			BigInteger lb = l.bigintValue(ctxt);
+			BigInteger rb = r.bigintValue(ctxt);
 
-    		if (rv == 0)
-    		{
-    			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
-    		}
+			if (rb.signum() == 0)
+			{
+				throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
+			}
+
+			return NumericValue.valueOf(lb.divide(rb), ctxt);
+		}
+
+		double lv = l.intValue(ctxt);
+		double rv = r.intValue(ctxt);
+
+		if (rv == 0)
+		{
+			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
+		}
 
-    		return NumericValue.valueOf(div(lv, rv), ctxt);
-        }
-        catch (ValueException e)
-        {
-        	return abort(e);
-        }
+		return NumericValue.valueOf(div(lv, rv), ctxt);
 	}
 
 	static public long div(double lv, double rv)
@@ -39,21 +39,23 @@ public class INDivideExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
-
-		try
-		{
-    		double lv = left.eval(ctxt).realValue(ctxt);
-    		double rv = right.eval(ctxt).realValue(ctxt);
-
-    		return NumericValue.valueOf(lv / rv, ctxt);
-        }
-        catch (ValueException e)
-        {
-        	return abort(e);
-        }
+		return NumericValue.valueOf((double)lv / (double)rv, ctxt);
+	}
+
+	@Override
+	protected Value evalReals(double lv, double rv, Context ctxt) throws ValueException
+	{
+		return NumericValue.valueOf(lv / rv, ctxt);
+	}
+
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
+	{
+		double lv = l.realValue(ctxt);
+		double rv = r.realValue(ctxt);
+
+		return NumericValue.valueOf(lv / rv, ctxt);
 	}
 }
@@ -50,15 +50,25 @@ public class INDomainResByExpression extends INBinaryExpression
 		{
     		ValueSet set = left.eval(ctxt).setValue(ctxt);
     		ValueMap map = right.eval(ctxt).mapValue(ctxt);
-    		ValueMap modified = new ValueMap(map);
+    		ValueMap modified = new ValueMap(map);		// Shares map
 
-    		for (Value k: map.keySet())
+    		if (set.size() < map.size())
     		{
-    			if (set.contains(k))
+    			for (Value k: set)
     			{
     				modified.remove(k);
     			}
     		}
+    		else
+    		{
+        		for (Value k: map.keySet())
+        		{
+        			if (set.contains(k))
+        			{
+        				modified.remove(k);
+        			}
+        		}
+    		}
 
     		return new MapValue(modified);
         }
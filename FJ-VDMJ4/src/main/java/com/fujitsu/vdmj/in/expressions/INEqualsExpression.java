@@ -57,6 +57,6 @@ public class INEqualsExpression extends INBinaryExpression
 			return rv;
 		}
 
-		return new BooleanValue(lv.equals(rv));
+		return BooleanValue.valueOf(lv.equals(rv));
 	}
 }
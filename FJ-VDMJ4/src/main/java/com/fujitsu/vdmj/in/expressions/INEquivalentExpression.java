@@ -55,7 +55,7 @@ public class INEquivalentExpression extends INBooleanBinaryExpression
 				return new UndefinedValue();
 			}
 
-			return new BooleanValue(lv.boolValue(ctxt) == rv.boolValue(ctxt));
+			return BooleanValue.valueOf(lv.boolValue(ctxt) == rv.boolValue(ctxt));
         }
         catch (ValueException e)
         {
@@ -24,11 +24,15 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.in.patterns.INMultipleBind;
 import com.fujitsu.vdmj.in.patterns.INMultipleBindList;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
+import com.fujitsu.vdmj.runtime.ParallelEvaluator;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.values.BooleanValue;
@@ -44,12 +48,16 @@ public class INExistsExpression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INMultipleBindList bindList;
 	public final INExpression predicate;
+	private final Frame frame;
 
 	public INExistsExpression(LexLocation location, INMultipleBindList bindList, INExpression predicate)
 	{
 		super(location);
 		this.bindList = bindList;
 		this.predicate = predicate;
+		this.frame = new Frame(bindList.getVariableNames());
+
+		frame.resolve(predicate);
 	}
 
 	@Override
@@ -75,6 +83,7 @@ public class INExistsExpression extends INExpression
 		try
 		{
 			QuantifierList quantifiers = new QuantifierList();
+			long combinations = 1;
 
 			for (INMultipleBind mb: bindList)
 			{
@@ -84,14 +93,22 @@ public class INExistsExpression extends INExpression
 				{
 					Quantifier q = new Quantifier(p, bvals);
 					quantifiers.add(q);
+					combinations *= bvals.size();
 				}
 			}
 
 			quantifiers.init(ctxt, true);
 
+			if (ParallelEvaluator.isWanted(combinations, ctxt))
+			{
+				return evalParallel(quantifiers, ctxt);
+			}
+
+			Context evalContext = new Context(location, "exists", ctxt, frame);
+
 			while (quantifiers.hasNext())
 			{
-				Context evalContext = new Context(location, "exists", ctxt);
+				evalContext.clear();	// Re-used for each binding
 				NameValuePairList nvpl = quantifiers.next();
 				boolean matches = true;
 
@@ -115,7 +132,7 @@ public class INExistsExpression extends INExpression
 
 				if (matches && predicate.eval(evalContext).boolValue(ctxt))
 				{
-					return new BooleanValue(true);
+					return BooleanValue.TRUE;
 				}
 			}
 		}
@@ -124,7 +141,31 @@ public class INExistsExpression extends INExpression
 	    	abort(e);
 	    }
 
-		return new BooleanValue(false);
+		return BooleanValue.FALSE;
+	}
+
+	/**
+	 * Evaluate the predicate for each binding in parallel, see ParallelEvaluator.
+	 */
+	private Value evalParallel(QuantifierList quantifiers, final Context ctxt) throws ValueException
+	{
+		List<Value> results = ParallelEvaluator.evaluate(location, "exists",
+			ParallelEvaluator.getBindings(quantifiers), new ParallelEvaluator.Binding<Value>()
+			{
+				@Override
+				public Value eval(NameValuePairList nvpl, Context evalContext) throws ValueException
+				{
+					return predicate.eval(evalContext).boolValue(ctxt) ? BooleanValue.TRUE : null;
+				}
+
+				@Override
+				public boolean isDecisive(Value result)
+				{
+					return true;
+				}
+			}, ctxt);
+
+		return results.isEmpty() ? BooleanValue.FALSE : BooleanValue.TRUE;
 	}
 
 	@Override
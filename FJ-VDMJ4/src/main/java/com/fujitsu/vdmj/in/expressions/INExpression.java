@@ -118,6 +118,17 @@ public abstract class INExpression extends INNode implements Serializable
 		return (location.startLine == lineno) ? this : null;
 	}
 
+	/**
+	 * Mark the applications in tail position of a function body, which are
+	 * evaluated by a loop in FunctionValue rather than by a recursive call if
+	 * they call the function itself. Expressions that return the value of a
+	 * sub-expression pass the mark on to it.
+	 */
+	public void markTailCalls()
+	{
+		return;		// Default, for expressions that are not applications
+	}
+
 	/**
 	 * Return a list of all the updatable values read by the expression. This
 	 * is used to add listeners to values that affect permission guards, so
@@ -130,7 +130,7 @@ public class INHistoryExpression extends INExpression
     		}
 
     		location.hit();
-    		return new NaturalValue(result);
+    		return NaturalValue.valueOf(result);
 		}
 		catch (ValueException e)
 		{
@@ -95,6 +95,22 @@ public class INIfExpression extends INExpression
 		return found;
 	}
 
+	@Override
+	public void markTailCalls()
+	{
+		thenExp.markTailCalls();
+
+		for (INElseIfExpression elseif: elseList)
+		{
+			elseif.thenExp.markTailCalls();
+		}
+
+		if (elseExp != null)
+		{
+			elseExp.markTailCalls();
+		}
+	}
+
 	@Override
 	public Value eval(Context ctxt)
 	{
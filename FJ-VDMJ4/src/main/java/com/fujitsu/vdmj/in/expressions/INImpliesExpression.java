@@ -60,7 +60,7 @@ public class INImpliesExpression extends INBooleanBinaryExpression
 				return right.eval(ctxt);
 			}
 
-			return new BooleanValue(true);
+			return BooleanValue.TRUE;
 		}
 		catch (ValueException e)
 		{
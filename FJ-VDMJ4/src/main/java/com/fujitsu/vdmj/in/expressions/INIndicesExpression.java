@@ -27,10 +27,9 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.NaturalOneValue;
-import com.fujitsu.vdmj.values.SetValue;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
-import com.fujitsu.vdmj.values.ValueSet;
 
 public class INIndicesExpression extends INUnaryExpression
 {
@@ -55,22 +54,11 @@ public class INIndicesExpression extends INUnaryExpression
 		try
 		{
     		ValueList seq = exp.eval(ctxt).seqValue(ctxt);
-    		ValueSet result = new ValueSet();
-
-    		for (int i=1; i<= seq.size(); i++)
-    		{
-    			result.addNoCheck(new NaturalOneValue(i));
-    		}
-
-    		return new SetValue(result);
+    		return new RangeSetValue(1, seq.size(), NaturalOneValue.class);
         }
         catch (ValueException e)
         {
         	return abort(e);
         }
-		catch (Exception e)
-		{
-			return abort(4065, e.getMessage(), ctxt);
-		}
 	}
 }
@@ -26,6 +26,7 @@ package com.fujitsu.vdmj.in.expressions;
 import com.fujitsu.vdmj.in.patterns.INBind;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
@@ -37,12 +38,16 @@ public class INIotaExpression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INBind bind;
 	public final INExpression predicate;
+	private final Frame frame;
 
 	public INIotaExpression(LexLocation location, INBind bind, INExpression predicate)
 	{
 		super(location);
 		this.bind = bind;
 		this.predicate = predicate;
+		this.frame = new Frame(bind.pattern.getVariableNames());
+
+		frame.resolve(predicate);
 	}
 
 	@Override
@@ -67,11 +72,13 @@ public class INIotaExpression extends INExpression
 			abort(e);
 		}
 
+		Context evalContext = new Context(location, "iota", ctxt, frame);
+
 		for (Value val: allValues)
 		{
 			try
 			{
-				Context evalContext = new Context(location, "iota", ctxt);
+				evalContext.clear();	// Re-used for each value
 				evalContext.putList(bind.pattern.getNamedValues(val, ctxt));
 
 				if (predicate.eval(evalContext).boolValue(ctxt))
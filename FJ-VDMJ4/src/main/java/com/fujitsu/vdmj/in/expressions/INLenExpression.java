@@ -52,7 +52,7 @@ public class INLenExpression extends INUnaryExpression
 
 		try
 		{
-			return new NaturalValue(exp.eval(ctxt).seqValue(ctxt).size());
+			return NaturalValue.valueOf(exp.eval(ctxt).seqValue(ctxt).size());
 		}
         catch (ValueException e)
         {
@@ -38,24 +38,30 @@ public class INLessExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt)
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		return BooleanValue.valueOf(lv < rv);
+	}
 
-		Value lv = left.eval(ctxt);
-		Value rv = right.eval(ctxt);
-		
-		if (lv.isOrdered() && rv.isOrdered())
+	@Override
+	protected Value evalReals(double lv, double rv, Context ctxt)
+	{
+		return BooleanValue.valueOf(lv < rv);
+	}
+
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt)
+	{
+		if (l.isOrdered() && r.isOrdered())
 		{
-			int cmp = lv.compareTo(rv);
+			int cmp = l.compareTo(r);
 			
 			if (cmp != Integer.MIN_VALUE)	// Indicates comparable
 			{
-				return new BooleanValue(cmp < 0);
+				return BooleanValue.valueOf(cmp < 0);
 			}
 		}
 
-		return abort(4172, "Values cannot be compared: " + lv + ", " + rv, ctxt);
+		return abort(4172, "Values cannot be compared: " + l + ", " + r, ctxt);
 	}
 }
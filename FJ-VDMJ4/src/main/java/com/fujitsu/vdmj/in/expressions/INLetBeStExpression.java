@@ -28,6 +28,7 @@ import com.fujitsu.vdmj.in.patterns.INMultipleBind;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.values.NameValuePair;
@@ -44,6 +45,7 @@ public class INLetBeStExpression extends INExpression
 	public final INExpression suchThat;
 	public final INExpression value;
 	public final INMultiBindListDefinition def;
+	private final Frame frame;
 
 	public INLetBeStExpression(LexLocation location,
 				INMultipleBind bind, INExpression suchThat, INExpression value,
@@ -54,6 +56,9 @@ public class INLetBeStExpression extends INExpression
 		this.suchThat = suchThat;
 		this.value = value;
 		this.def = def;
+		this.frame = new Frame(bind.getVariableNames());
+
+		frame.resolve(suchThat, value);
 	}
 
 	@Override
@@ -78,6 +83,12 @@ public class INLetBeStExpression extends INExpression
 		return value.findExpression(lineno);
 	}
 
+	@Override
+	public void markTailCalls()
+	{
+		value.markTailCalls();
+	}
+
 	@Override
 	public Value eval(Context ctxt)
 	{
@@ -100,9 +111,11 @@ public class INLetBeStExpression extends INExpression
 
 			quantifiers.init(ctxt, true);
 
+			Context evalContext = new Context(location, "let be st expression", ctxt, frame);
+
 			while (quantifiers.hasNext())
 			{
-				Context evalContext = new Context(location, "let be st expression", ctxt);
+				evalContext.clear();	// Re-used for each binding
 				NameValuePairList nvpl = quantifiers.next();
 				boolean matches = true;
 
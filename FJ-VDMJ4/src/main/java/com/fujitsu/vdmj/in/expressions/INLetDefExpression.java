@@ -28,6 +28,7 @@ import com.fujitsu.vdmj.in.definitions.INDefinitionList;
 import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.util.Utils;
@@ -43,12 +44,16 @@ public class INLetDefExpression extends INExpression
 	private static final long serialVersionUID = 1L;
 	public final INDefinitionList localDefs;
 	public final INExpression expression;
+	private final Frame frame;
 
 	public INLetDefExpression(LexLocation location, INDefinitionList localDefs, INExpression expression)
 	{
 		super(location);
 		this.localDefs = localDefs;
 		this.expression = expression;
+		this.frame = new Frame(localDefs.getVariableNames());
+
+		frame.resolve(localDefs, expression);
 	}
 
 	@Override
@@ -69,12 +74,27 @@ public class INLetDefExpression extends INExpression
 		return expression.findExpression(lineno);
 	}
 
+	@Override
+	public void markTailCalls()
+	{
+		expression.markTailCalls();
+	}
+
 	@Override
 	public Value eval(Context ctxt)
+	{
+		return expression.eval(getContext(ctxt));
+	}
+
+	/**
+	 * Check the breakpoint and create the context of the let body. This is also
+	 * used by JITCompiler code, which evaluates the body itself.
+	 */
+	public Context getContext(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
 
-		Context evalContext = new Context(location, "let expression", ctxt);
+		Context evalContext = new Context(location, "let expression", ctxt, frame);
 
 		TCNameToken sname = new TCNameToken(location, location.module, "self");
 		ObjectValue self = (ObjectValue)ctxt.check(sname);
@@ -98,7 +118,7 @@ public class INLetDefExpression extends INExpression
 			evalContext.putList(values);
 		}
 
-		return expression.eval(evalContext);
+		return evalContext;
 	}
 
 	@Override
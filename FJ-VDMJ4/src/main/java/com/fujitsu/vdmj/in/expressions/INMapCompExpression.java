@@ -23,11 +23,14 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.in.patterns.INMultipleBind;
 import com.fujitsu.vdmj.in.patterns.INMultipleBindList;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ParallelEvaluator;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.util.Utils;
@@ -72,6 +75,7 @@ public class INMapCompExpression extends INMapExpression
 		try
 		{
 			QuantifierList quantifiers = new QuantifierList();
+			long combinations = 1;
 
 			for (INMultipleBind mb: bindings)
 			{
@@ -81,11 +85,17 @@ public class INMapCompExpression extends INMapExpression
 				{
 					Quantifier q = new Quantifier(p, bvals);
 					quantifiers.add(q);
+					combinations *= bvals.size();
 				}
 			}
 
 			quantifiers.init(ctxt, false);
 
+			if (ParallelEvaluator.isWanted(combinations, ctxt))
+			{
+				return evalParallel(quantifiers, ctxt);
+			}
+
 			while (quantifiers.hasNext())
 			{
 				Context evalContext = new Context(location, "map comprehension", ctxt);
@@ -135,6 +145,49 @@ public class INMapCompExpression extends INMapExpression
 		return new MapValue(map);
 	}
 
+	/**
+	 * Evaluate the maplets for each binding in parallel, see ParallelEvaluator.
+	 * The maplets are added to the map in order, so duplicate keys are found as
+	 * they would be sequentially.
+	 */
+	private Value evalParallel(QuantifierList quantifiers, final Context ctxt) throws ValueException
+	{
+		List<ValueList> results = ParallelEvaluator.evaluate(location, "map comprehension",
+			ParallelEvaluator.getBindings(quantifiers), new ParallelEvaluator.Binding<ValueList>()
+			{
+				@Override
+				public ValueList eval(NameValuePairList nvpl, Context evalContext) throws ValueException
+				{
+					if (predicate == null || predicate.eval(evalContext).boolValue(ctxt))
+					{
+						ValueList maplet = new ValueList(2);
+						maplet.add(first.left.eval(evalContext));
+						maplet.add(first.right.eval(evalContext));
+						first.location.hit();
+						return maplet;
+					}
+
+					return null;
+				}
+			}, ctxt);
+
+		ValueMap map = new ValueMap();
+
+		for (ValueList maplet: results)
+		{
+			Value dom = maplet.get(0);
+			Value rng = maplet.get(1);
+			Value old = map.put(dom, rng);
+
+			if (old != null && !old.equals(rng))
+			{
+				abort(4016, "Duplicate map keys have different values: " + dom, ctxt);
+			}
+		}
+
+		return new MapValue(map);
+	}
+
 	@Override
 	public INExpression findExpression(int lineno)
 	{
@@ -58,8 +58,7 @@ public class INMapUnionExpression extends INBinaryExpression
 			return abort(e);
 		}
 
-		ValueMap result = new ValueMap();
-		result.putAll(lm);
+		ValueMap result = new ValueMap(lm);		// Shares lm
 
 		for (Value k: rm.keySet())
 		{
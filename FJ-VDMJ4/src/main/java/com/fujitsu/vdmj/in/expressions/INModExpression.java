@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -39,42 +41,75 @@ public class INModExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
+	{
+		if (rv == 0)
+		{
+			return null;	// Error
+		}
+
+		long mod = lv % rv;		// Takes the sign of lv, so adjust to the sign of rv
+
+		if (mod != 0 && (mod < 0) != (rv < 0))
+		{
+			mod = mod + rv;
+		}
+
+		return NumericValue.valueOf(mod, ctxt);
+	}
+
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		/*
+		 * Remainder x rem y and modulus x mod y are the same if the signs of x
+		 * and y are the same, otherwise they differ and rem takes the sign of x and
+		 * mod takes the sign of y. The formulas for remainder and modulus are:
+		 *
+		 *		x rem y = x - y * (x div y)
+		 *		x mod y = x - y * floor(x/y)
+		 *
+		 * Hence, -14 rem 3 equals -2 and -14 mod 3 equals 1. One can view these
+		 * results by walking the real axis, starting at -14 and making jumps of 3.
+		 * The remainder will be the last negative number one visits, because the first
+		 * argument corresponding to x is negative, while the modulus will be the first
+		 * positive number one visit, because the second argument corresponding to y
+		 * is positive.
+		 */
 
-		try
+		if (!NumericValue.areSmallIntegers(l, r))
 		{
-			/*
-			 * Remainder x rem y and modulus x mod y are the same if the signs of x
-			 * and y are the same, otherwise they differ and rem takes the sign of x and
-			 * mod takes the sign of y. The formulas for remainder and modulus are:
-			 *
-			 *		x rem y = x - y * (x div y)
-			 *		x mod y = x - y * floor(x/y)
-			 *
-			 * Hence, -14 rem 3 equals -2 and -14 mod 3 equals 1. One can view these
-			 * results by walking the real axis, starting at -14 and making jumps of 3.
-			 * The remainder will be the last negative number one visits, because the first
-			 * argument corresponding to x is negative, while the modulus will be the first
-			 * positive number one visit, because the second argument corresponding to y
-			 * is positive.
-			 */
-
-    		double lv = left.eval(ctxt).intValue(ctxt);
-    		double rv = right.eval(ctxt).intValue(ctxt);
-
-    		if (rv == 0)
-    		{
-    			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
-    		}
-
-    		return NumericValue.valueOf(lv - rv * (long)Math.floor(lv/rv), ctxt);
+			BigInteger lb = l.bigintValue(ctxt);
+			BigInteger rb = r.bigintValue(ctxt);
+
+			if (rb.signum() == 0)
+			{
+				throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
+			}
+
+			return NumericValue.valueOf(mod(lb, rb), ctxt);
+		}
+
+		double lv = l.intValue(ctxt);
+		double rv = r.intValue(ctxt);
+
+		if (rv == 0)
+		{
+			throw new ValueException(4134, "Infinite or NaN trouble", ctxt);
 		}
-		catch (ValueException e)
+
+		return NumericValue.valueOf(lv - rv * (long)Math.floor(lv/rv), ctxt);
+	}
+
+	private BigInteger mod(BigInteger x, BigInteger y)
+	{
+		BigInteger r = x.remainder(y);	// Takes the sign of x, so adjust to the sign of y
+
+		if (r.signum() != 0 && r.signum() != y.signum())
 		{
-			return abort(e);
+			r = r.add(y);
 		}
+
+		return r;
 	}
 }
@@ -27,6 +27,7 @@ import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.BooleanValue;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.Value;
 
 public class INNotInSetExpression extends INBinaryExpression
@@ -45,11 +46,16 @@ public class INNotInSetExpression extends INBinaryExpression
 		location.hit();		// Mark as covered
 
 		Value elem = left.eval(ctxt);
-		Value set = right.eval(ctxt);
+		Value set = right.eval(ctxt).deref();
 
 		try
 		{
-			return new BooleanValue(!set.setValue(ctxt).contains(elem));
+			if (set instanceof RangeSetValue)
+			{
+				return BooleanValue.valueOf(!((RangeSetValue)set).contains(elem));
+			}
+
+			return BooleanValue.valueOf(!set.setValue(ctxt).contains(elem));
 		}
 		catch (ValueException e)
 		{
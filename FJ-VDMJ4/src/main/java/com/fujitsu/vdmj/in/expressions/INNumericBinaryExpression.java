@@ -24,13 +24,149 @@
 package com.fujitsu.vdmj.in.expressions;
 
 import com.fujitsu.vdmj.ast.lex.LexToken;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.NumericValue;
+import com.fujitsu.vdmj.values.UpdatableValue;
+import com.fujitsu.vdmj.values.Value;
 
+/**
+ * The numeric binary operators. Any one of these usually sees operands of one
+ * sort: integers that fit in a long, or reals. So each node records what it
+ * has seen, and specialises itself to evaluate longs or doubles directly,
+ * without the generic checks and conversions. A node that sees anything else
+ * becomes generic, permanently.
+ *
+ * Each fast evaluation is guarded by a check of its operands, so a node whose
+ * state is stale (say, in another thread) is slower, but still correct.
+ */
 abstract public class INNumericBinaryExpression extends INBinaryExpression
 {
 	private static final long serialVersionUID = 1L;
 
+	private static final byte UNSEEN = 0;
+	private static final byte LONGS = 1;
+	private static final byte REALS = 2;
+	private static final byte GENERIC = 3;
+
+	/** The operands seen so far, which selects the evaluation used. */
+	private transient byte state = UNSEEN;
+
 	public INNumericBinaryExpression(INExpression left, LexToken op, INExpression right)
 	{
 		super(left, op, right);
 	}
+
+	@Override
+	public Value eval(Context ctxt)
+	{
+		// breakpoint.check(location, ctxt);
+		return eval(left.eval(ctxt), right.eval(ctxt), ctxt);
+	}
+
+	/**
+	 * Evaluate the operator for operand values. This is also used by JITCompiler
+	 * code, which evaluates the operands itself.
+	 */
+	public Value eval(Value l, Value r, Context ctxt)
+	{
+		location.hit();		// Mark as covered
+
+		try
+		{
+			if (state == UNSEEN)
+			{
+				Value ln = unwrap(l);
+				Value rn = unwrap(r);
+				state = NumericValue.areLongs(ln, rn) ? LONGS : areReals(ln, rn) ? REALS : GENERIC;
+			}
+
+			if (state == LONGS)
+			{
+				Value ln = unwrap(l);
+				Value rn = unwrap(r);
+
+				if (NumericValue.areLongs(ln, rn))
+				{
+					Value result = evalLongs(ln.intValue(ctxt), rn.intValue(ctxt), ctxt);
+
+					if (result != null)
+					{
+						return result;
+					}
+				}
+				else
+				{
+					state = GENERIC;
+				}
+			}
+			else if (state == REALS)
+			{
+				Value ln = unwrap(l);
+				Value rn = unwrap(r);
+
+				if (areReals(ln, rn))
+				{
+					Value result = evalReals(ln.realValue(ctxt), rn.realValue(ctxt), ctxt);
+
+					if (result != null)
+					{
+						return result;
+					}
+				}
+				else
+				{
+					state = GENERIC;
+				}
+			}
+
+			return evalGeneric(l, r, ctxt);
+		}
+		catch (ValueException e)
+		{
+			return abort(e);
+		}
+	}
+
+	/**
+	 * Remove the updatable wrapper of a dcl or state variable, so that its value
+	 * can be evaluated quickly. InvariantValues are kept, since their ordering
+	 * or equality may matter, so these are always evaluated generically.
+	 */
+	private Value unwrap(Value v)
+	{
+		return (v instanceof UpdatableValue) ? v.getConstant() : v;
+	}
+
+	/**
+	 * Numeric values that are not both integers, which the operators evaluate
+	 * with doubles.
+	 */
+	private boolean areReals(Value l, Value r)
+	{
+		return l instanceof NumericValue && r instanceof NumericValue && !NumericValue.areIntegers(l, r);
+	}
+
+	/**
+	 * Evaluate the operator for two longs, returning null if the result needs
+	 * the generic evaluation (for example, on overflow).
+	 */
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
+	{
+		return null;
+	}
+
+	/**
+	 * Evaluate the operator for two reals, returning null if the result needs
+	 * the generic evaluation.
+	 */
+	protected Value evalReals(double lv, double rv, Context ctxt) throws ValueException
+	{
+		return null;
+	}
+
+	/**
+	 * Evaluate the operator for any operands.
+	 */
+	abstract protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException;
 }
@@ -66,7 +66,7 @@ public class INOrExpression extends INBooleanBinaryExpression
 
 				if (lb || rb)
 				{
-					return new BooleanValue(true);
+					return BooleanValue.TRUE;
 				}
 				else
 				{
@@ -39,47 +39,49 @@ public class INPlusExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		long sum = lv + rv;
+		return overflows(lv, rv, sum) ? null : NumericValue.valueOf(sum, ctxt);
+	}
 
-		try
-		{
-    		Value l = left.eval(ctxt);
-    		Value r = right.eval(ctxt);
+	@Override
+	protected Value evalReals(double lv, double rv, Context ctxt) throws ValueException
+	{
+		return NumericValue.valueOf(lv + rv, ctxt);
+	}
 
-			if (NumericValue.areIntegers(l, r))
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
+	{
+		if (NumericValue.areIntegers(l, r))
+		{
+			if (NumericValue.areLongs(l, r))
 			{
 				long lv = l.intValue(ctxt);
 				long rv = r.intValue(ctxt);
-				long sum = addExact(lv, rv, ctxt);
-				return NumericValue.valueOf(sum, ctxt);
-			}
-			else
-			{
-				double lv = l.realValue(ctxt);
-				double rv = r.realValue(ctxt);
-	    		return NumericValue.valueOf(lv + rv, ctxt);
+				long sum = lv + rv;
+
+				if (!overflows(lv, rv, sum))
+				{
+					return NumericValue.valueOf(sum, ctxt);
+				}
 			}
-    	}
-    	catch (ValueException e)
-    	{
-    		return abort(e);
-    	}
+
+			return NumericValue.valueOf(l.bigintValue(ctxt).add(r.bigintValue(ctxt)), ctxt);
+		}
+		else
+		{
+			double lv = l.realValue(ctxt);
+			double rv = r.realValue(ctxt);
+			return NumericValue.valueOf(lv + rv, ctxt);
+		}
 	}
 	
-	// This is included in Java 8 Math.java
-	private long addExact(long x, long y, Context ctxt) throws ValueException
+	// As Java 8 Math.addExact, but overflow moves to BigInteger arithmetic
+	private boolean overflows(long x, long y, long r)
 	{
-		long r = x + y;
 		// HD 2-12 Overflow iff both arguments have the opposite sign of the result
-		
-		if (((x ^ r) & (y ^ r)) < 0)
-		{
-			throw new ValueException(4169, "Arithmetic overflow", ctxt);
-		}
-		
-		return r;
+		return ((x ^ r) & (y ^ r)) < 0;
 	}
 }
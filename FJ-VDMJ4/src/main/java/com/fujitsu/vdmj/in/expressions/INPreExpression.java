@@ -89,7 +89,7 @@ public class INPreExpression extends INExpression
 
 			if (pref == null)
 			{
-				return new BooleanValue(true);
+				return BooleanValue.TRUE;
 			}
 
 			if (pref.type.parameters.size() <= args.size())
@@ -115,6 +115,14 @@ public class INPreExpression extends INExpression
 			// else true, below.
 		}
 
-		return new BooleanValue(true);
+		return BooleanValue.TRUE;
+	}
+
+	@Override
+	public ValueList getValues(Context ctxt)
+	{
+		ValueList list = args.getValues(ctxt);
+		list.addAll(function.getValues(ctxt));
+		return list;
 	}
 }
@@ -108,7 +108,7 @@ public class INPreOpExpression extends INExpression
     			}
     		}
 
-    		return new BooleanValue(result);
+    		return BooleanValue.valueOf(result);
     	}
     	catch (ValueException e)
     	{
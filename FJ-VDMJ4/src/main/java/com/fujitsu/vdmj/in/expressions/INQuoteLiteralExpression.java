@@ -50,6 +50,6 @@ public class INQuoteLiteralExpression extends INExpression
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		return new QuoteValue(type.value);
+		return QuoteValue.valueOf(type.value);
 	}
 }
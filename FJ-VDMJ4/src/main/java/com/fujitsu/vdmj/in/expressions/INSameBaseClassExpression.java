@@ -61,7 +61,7 @@ public class INSameBaseClassExpression extends INExpression
 			if (!l.isType(ObjectValue.class) ||
 				!r.isType(ObjectValue.class))
 			{
-				return new BooleanValue(false);
+				return BooleanValue.FALSE;
 			}
 
 			ObjectValue lv = l.objectValue(ctxt);
@@ -74,11 +74,11 @@ public class INSameBaseClassExpression extends INExpression
 			{
 				if (rbases.contains(ltype))
 				{
-					return new BooleanValue(true);
+					return BooleanValue.TRUE;
 				}
 			}
 
-			return new BooleanValue(false);
+			return BooleanValue.FALSE;
 		}
 		catch (ValueException e)
 		{
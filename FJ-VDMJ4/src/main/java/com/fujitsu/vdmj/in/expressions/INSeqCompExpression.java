@@ -24,11 +24,14 @@
 package com.fujitsu.vdmj.in.expressions;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.in.patterns.INBind;
 import com.fujitsu.vdmj.in.patterns.INSetBind;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ParallelEvaluator;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
@@ -77,7 +80,11 @@ public class INSeqCompExpression extends INSeqExpression
 			abort(e);
 		}
 		
-		if (bind instanceof INSetBind)
+		if (ParallelEvaluator.isWanted(allValues.size(), ctxt))
+		{
+			return evalParallel(allValues, ctxt);
+		}
+		else if (bind instanceof INSetBind)
 		{
 			return evalSetBind(allValues, ctxt);
 		}
@@ -135,6 +142,7 @@ public class INSeqCompExpression extends INSeqExpression
 			sorted.add(map.get(bv));
 		}
 
+		sorted.pack();		// If all numbers
 		return new SeqValue(sorted);
 	}
 
@@ -166,9 +174,104 @@ public class INSeqCompExpression extends INSeqExpression
 			}
 		}
 
+		seq.pack();		// If all numbers
 		return new SeqValue(seq);
 	}
 
+	/**
+	 * Evaluate the members for each binding in parallel, see ParallelEvaluator.
+	 * Each result holds the binding's sort value, for set binds, and the member.
+	 * These are put in order as they are by evalSetBind and evalSeqBind.
+	 */
+	private Value evalParallel(ValueList allValues, final Context ctxt)
+	{
+		final boolean setBind = (bind instanceof INSetBind);
+		List<NameValuePairList> bindings = new Vector<NameValuePairList>(allValues.size());
+
+		for (Value val: allValues)
+		{
+			try
+			{
+				bindings.add(bind.pattern.getNamedValues(val, ctxt));
+			}
+			catch (PatternMatchException e)
+			{
+				// Ignore mismatches
+			}
+		}
+
+		try
+		{
+			List<ValueList> results = ParallelEvaluator.evaluate(location, "seq comprehension",
+				bindings, new ParallelEvaluator.Binding<ValueList>()
+				{
+					@Override
+					public ValueList eval(NameValuePairList nvpl, Context evalContext) throws ValueException
+					{
+						ValueList result = new ValueList(2);
+
+						if (setBind)
+						{
+							Value sortOn = nvpl.get(0).value;
+
+							if (nvpl.size() != 1 || !sortOn.isOrdered())
+							{
+								abort(4029, "Sequence comprehension bindings must be one ordered value", ctxt);
+							}
+
+							result.add(sortOn);
+						}
+
+						if (predicate == null || predicate.eval(evalContext).boolValue(ctxt))
+						{
+							result.add(first.eval(evalContext));
+							return result;
+						}
+
+						return null;
+					}
+				}, ctxt);
+
+			ValueList members = new ValueList(results.size());
+
+			if (setBind)
+			{
+				ValueSet seq = new ValueSet();	// INBind variable values
+				ValueMap map = new ValueMap();	// Map bind values to output values
+
+				for (ValueList result: results)
+				{
+					if (map.get(result.get(0)) == null)
+					{
+						seq.add(result.get(0));
+						map.put(result.get(0), result.get(1));
+					}
+				}
+
+				Collections.sort(seq);	// Using compareTo
+
+				for (Value bv: seq)
+				{
+					members.add(map.get(bv));
+				}
+			}
+			else
+			{
+				for (ValueList result: results)
+				{
+					members.add(result.get(0));
+				}
+			}
+
+			members.pack();		// If all numbers
+			return new SeqValue(members);
+		}
+		catch (ValueException e)
+		{
+			return abort(e);
+		}
+	}
+
 	@Override
 	public INExpression findExpression(int lineno)
 	{
@@ -50,8 +50,7 @@ public class INSeqConcatExpression extends INBinaryExpression
     		Value lv = left.eval(ctxt);
     		Value rv = right.eval(ctxt);
 
-    		ValueList result = new ValueList();
-    		result.addAll(lv.seqValue(ctxt));
+    		ValueList result = new ValueList(lv.seqValue(ctxt));	// Appends in place, if possible
     		result.addAll(rv.seqValue(ctxt));
 
     		return new SeqValue(result);
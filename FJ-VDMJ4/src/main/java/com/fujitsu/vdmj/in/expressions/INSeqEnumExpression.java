@@ -60,6 +60,7 @@ public class INSeqEnumExpression extends INSeqExpression
 			values.add(e.eval(ctxt));
 		}
 
+		values.pack();		// If all numbers
 		return new SeqValue(values);
 	}
 
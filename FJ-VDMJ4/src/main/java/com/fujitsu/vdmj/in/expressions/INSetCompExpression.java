@@ -23,11 +23,14 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.in.patterns.INMultipleBind;
 import com.fujitsu.vdmj.in.patterns.INMultipleBindList;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ParallelEvaluator;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.util.Utils;
@@ -72,6 +75,7 @@ public class INSetCompExpression extends INSetExpression
 		try
 		{
 			QuantifierList quantifiers = new QuantifierList();
+			long combinations = 1;
 
 			for (INMultipleBind mb: bindings)
 			{
@@ -81,11 +85,17 @@ public class INSetCompExpression extends INSetExpression
 				{
 					Quantifier q = new Quantifier(p, bvals);
 					quantifiers.add(q);
+					combinations *= bvals.size();
 				}
 			}
 
 			quantifiers.init(ctxt, false);
 
+			if (ParallelEvaluator.isWanted(combinations, ctxt))
+			{
+				return evalParallel(quantifiers, ctxt);
+			}
+
 			while (quantifiers.hasNext())
 			{
 				Context evalContext = new Context(location, "set comprehension", ctxt);
@@ -126,6 +136,36 @@ public class INSetCompExpression extends INSetExpression
 		}
 	}
 
+	/**
+	 * Evaluate the members for each binding in parallel, see ParallelEvaluator.
+	 */
+	private Value evalParallel(QuantifierList quantifiers, final Context ctxt) throws ValueException
+	{
+		List<Value> results = ParallelEvaluator.evaluate(location, "set comprehension",
+			ParallelEvaluator.getBindings(quantifiers), new ParallelEvaluator.Binding<Value>()
+			{
+				@Override
+				public Value eval(NameValuePairList nvpl, Context evalContext) throws ValueException
+				{
+					if (predicate == null || predicate.eval(evalContext).boolValue(ctxt))
+					{
+						return first.eval(evalContext);
+					}
+
+					return null;
+				}
+			}, ctxt);
+
+		ValueSet set = new ValueSet();
+
+		for (Value member: results)
+		{
+			set.add(member);
+		}
+
+		return new SetValue(set);
+	}
+
 	@Override
 	public INExpression findExpression(int lineno)
 	{
@@ -52,12 +52,7 @@ public class INSetDifferenceExpression extends INBinaryExpression
 		{
 			togo = right.eval(ctxt).setValue(ctxt);
 			result.addAll(left.eval(ctxt).setValue(ctxt));
-
-			for (Value r: togo)
-			{
-				result.remove(r);
-			}
-
+			result.removeAll(togo);
 			return new SetValue(result);
 		}
 		catch (ValueException e)
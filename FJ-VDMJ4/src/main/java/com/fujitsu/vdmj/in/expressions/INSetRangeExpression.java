@@ -26,10 +26,11 @@ package com.fujitsu.vdmj.in.expressions;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.values.IntegerValue;
-import com.fujitsu.vdmj.values.SetValue;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueSet;
+import com.fujitsu.vdmj.values.ValueList;
 
 public class INSetRangeExpression extends INSetExpression
 {
@@ -59,14 +60,7 @@ public class INSetRangeExpression extends INSetExpression
 		{
     		long from = (long)Math.ceil(first.eval(ctxt).realValue(ctxt));
     		long to = (long)Math.floor(last.eval(ctxt).realValue(ctxt));
-    		ValueSet set = new ValueSet();
-
-    		for (long i=from; i<= to; i++)
-    		{
-    			set.addNoCheck(new IntegerValue(i));
-    		}
-
-    		return new SetValue(set);
+    		return new RangeSetValue(from, to, IntegerValue.class);
 		}
 		catch (ValueException e)
 		{
@@ -88,4 +82,20 @@ public class INSetRangeExpression extends INSetExpression
 
 		return null;
 	}
+
+	@Override
+	public ValueList getValues(Context ctxt)
+	{
+		ValueList list = first.getValues(ctxt);
+		list.addAll(last.getValues(ctxt));
+		return list;
+	}
+
+	@Override
+	public TCNameList getOldNames()
+	{
+		TCNameList list = first.getOldNames();
+		list.addAll(last.getOldNames());
+		return list;
+	}
 }
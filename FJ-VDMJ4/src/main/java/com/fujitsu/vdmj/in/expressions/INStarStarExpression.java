@@ -23,10 +23,13 @@
 
 package com.fujitsu.vdmj.in.expressions;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.ast.lex.LexToken;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.FunctionValue;
+import com.fujitsu.vdmj.values.IntegerValue;
 import com.fujitsu.vdmj.values.IterFunctionValue;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.NumericValue;
@@ -37,6 +40,9 @@ public class INStarStarExpression extends INBinaryExpression
 {
 	private static final long serialVersionUID = 1L;
 
+	/** The most bits that an integer power may have, about 300,000 digits */
+	private static final long MAX_POWER_BITS = 1000000;
+
 	public INStarStarExpression(INExpression left, LexToken op, INExpression right)
 	{
 		super(left, op, right);
@@ -92,8 +98,30 @@ public class INStarStarExpression extends INBinaryExpression
     		{
     			double ld = lv.realValue(ctxt);
     			double rd = rv.realValue(ctxt);
+    			double result = Math.pow(ld, rd);
+
+    			if (lv instanceof IntegerValue && rv instanceof IntegerValue &&
+    				rd >= 0 && rd <= Integer.MAX_VALUE && !NumericValue.isSmall(result))
+    			{
+    				BigInteger base = lv.bigintValue(ctxt);
+
+    				// The result has at most this many bits, so check before trying
+    				if ((long)base.bitLength() * (long)rd > MAX_POWER_BITS)
+    				{
+    					return abort(4169, "Arithmetic overflow: " + lv + " ** " + rv, ctxt);
+    				}
+
+    				try
+    				{
+    					return NumericValue.valueOf(base.pow((int)rd), ctxt);
+    				}
+    				catch (ArithmeticException e)
+    				{
+    					return abort(4169, "Arithmetic overflow: " + e.getMessage(), ctxt);
+    				}
+    			}
 
-    			return NumericValue.valueOf(Math.pow(ld, rd), ctxt);
+    			return NumericValue.valueOf(result, ctxt);
     		}
 
     		return abort(4031,
@@ -65,7 +65,7 @@ public class INStateInitExpression extends INExpression
 				return invariant.eval(location, rv, ctxt);
 			}
 
-			return new BooleanValue(true);
+			return BooleanValue.TRUE;
 		}
 		catch (ValueException e)
 		{
@@ -74,14 +74,12 @@ public class INSubseqExpression extends INExpression
     			ti = list.size();
     		}
 
-    		ValueList result = new ValueList();
-
-    		if (fi <= ti)
+    		if (fi > ti)
     		{
-        		result.addAll(list.subList(fi-1, ti));
+    			return new SeqValue();
     		}
 
-    		return new SeqValue(result);
+    		return new SeqValue(new ValueList(list, fi-1, ti));	// Shares list
 		}
 		catch (ValueException e)
 		{
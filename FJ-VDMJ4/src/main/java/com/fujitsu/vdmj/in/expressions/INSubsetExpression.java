@@ -50,7 +50,7 @@ public class INSubsetExpression extends INBinaryExpression
     		ValueSet set1 = left.eval(ctxt).setValue(ctxt);
     		ValueSet set2 = right.eval(ctxt).setValue(ctxt);
 
-    		return new BooleanValue(set2.containsAll(set1));
+    		return BooleanValue.valueOf(set2.containsAll(set1));
 		}
 		catch (ValueException e)
 		{
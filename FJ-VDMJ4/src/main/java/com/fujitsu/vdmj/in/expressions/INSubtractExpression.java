@@ -39,48 +39,50 @@ public class INSubtractExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		long diff = lv - rv;
+		return overflows(lv, rv, diff) ? null : NumericValue.valueOf(diff, ctxt);
+	}
 
-		try
-		{
-    		Value l = left.eval(ctxt);
-    		Value r = right.eval(ctxt);
+	@Override
+	protected Value evalReals(double lv, double rv, Context ctxt) throws ValueException
+	{
+		return NumericValue.valueOf(lv - rv, ctxt);
+	}
 
-			if (NumericValue.areIntegers(l, r))
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
+	{
+		if (NumericValue.areIntegers(l, r))
+		{
+			if (NumericValue.areLongs(l, r))
 			{
 				long lv = l.intValue(ctxt);
 				long rv = r.intValue(ctxt);
-				long diff = subtractExact(lv, rv, ctxt);
-				return NumericValue.valueOf(diff, ctxt);
-			}
-			else
-			{
-				double lv = l.realValue(ctxt);
-				double rv = r.realValue(ctxt);
-	    		return NumericValue.valueOf(lv - rv, ctxt);
+				long diff = lv - rv;
+
+				if (!overflows(lv, rv, diff))
+				{
+					return NumericValue.valueOf(diff, ctxt);
+				}
 			}
+
+			return NumericValue.valueOf(l.bigintValue(ctxt).subtract(r.bigintValue(ctxt)), ctxt);
 		}
-		catch (ValueException e)
+		else
 		{
-			return abort(e);
+			double lv = l.realValue(ctxt);
+			double rv = r.realValue(ctxt);
+			return NumericValue.valueOf(lv - rv, ctxt);
 		}
 	}
 	
-	// This is included in Java 8 Math.java
-	private long subtractExact(long x, long y, Context ctxt) throws ValueException
+	// As Java 8 Math.subtractExact, but overflow moves to BigInteger arithmetic
+	private boolean overflows(long x, long y, long r)
 	{
-		long r = x - y;
 		// HD 2-12 Overflow iff the arguments have different signs and
 		// the sign of the result is different than the sign of x
-
-		if (((x ^ y) & (x ^ r)) < 0)
-		{
-			throw new ValueException(4169, "Arithmetic overflow", ctxt);
-		}
-
-		return r;
+		return ((x ^ y) & (x ^ r)) < 0;
 	}
 }
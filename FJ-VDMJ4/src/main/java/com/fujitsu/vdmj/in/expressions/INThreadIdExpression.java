@@ -43,7 +43,7 @@ public class INThreadIdExpression extends INExpression
 		try
 		{
 			location.hit();
-			return new NaturalValue(ctxt.threadState.threadId);
+			return NaturalValue.valueOf(ctxt.threadState.threadId);
 		}
 		catch (Exception e)
 		{
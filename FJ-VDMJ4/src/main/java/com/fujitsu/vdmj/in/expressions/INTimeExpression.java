@@ -45,7 +45,7 @@ public class INTimeExpression extends INExpression
 
 		try
         {
-	        return new NaturalValue(SystemClock.getWallTime());
+	        return NaturalValue.valueOf(SystemClock.getWallTime());
         }
         catch (Exception e)
         {
@@ -39,40 +39,48 @@ public class INTimesExpression extends INNumericBinaryExpression
 	}
 
 	@Override
-	public Value eval(Context ctxt)
+	protected Value evalLongs(long lv, long rv, Context ctxt) throws ValueException
 	{
-		// breakpoint.check(location, ctxt);
-		location.hit();		// Mark as covered
+		long mult = lv * rv;
+		return overflows(lv, rv, mult) ? null : NumericValue.valueOf(mult, ctxt);
+	}
 
-		try
-		{
-    		Value l = left.eval(ctxt);
-    		Value r = right.eval(ctxt);
+	@Override
+	protected Value evalReals(double lv, double rv, Context ctxt) throws ValueException
+	{
+		return NumericValue.valueOf(lv * rv, ctxt);
+	}
 
-			if (NumericValue.areIntegers(l, r))
+	@Override
+	protected Value evalGeneric(Value l, Value r, Context ctxt) throws ValueException
+	{
+		if (NumericValue.areIntegers(l, r))
+		{
+			if (NumericValue.areLongs(l, r))
 			{
 				long lv = l.intValue(ctxt);
 				long rv = r.intValue(ctxt);
-				long mult = multiplyExact(lv, rv, ctxt);
-				return NumericValue.valueOf(mult, ctxt);
-			}
-			else
-			{
-				double lv = l.realValue(ctxt);
-				double rv = r.realValue(ctxt);
-	    		return NumericValue.valueOf(lv * rv, ctxt);
+				long mult = lv * rv;
+
+				if (!overflows(lv, rv, mult))
+				{
+					return NumericValue.valueOf(mult, ctxt);
+				}
 			}
+
+			return NumericValue.valueOf(l.bigintValue(ctxt).multiply(r.bigintValue(ctxt)), ctxt);
 		}
-		catch (ValueException e)
+		else
 		{
-			return abort(e);
+			double lv = l.realValue(ctxt);
+			double rv = r.realValue(ctxt);
+			return NumericValue.valueOf(lv * rv, ctxt);
 		}
 	}
 	
-	// This is included in Java 8 Math.java
-    private long multiplyExact(long x, long y, Context ctxt) throws ValueException
+	// As Java 8 Math.multiplyExact, but overflow moves to BigInteger arithmetic
+    private boolean overflows(long x, long y, long r)
     {
-    	long r = x * y;
     	long ax = Math.abs(x);
     	long ay = Math.abs(y);
 
@@ -80,10 +88,10 @@ public class INTimesExpression extends INNumericBinaryExpression
     	{
     		if (((y != 0) && (r / y != x)) || (x == Long.MIN_VALUE && y == -1))
     		{
-    			throw new ValueException(4169, "Arithmetic overflow", ctxt);
+    			return true;
     		}
     	}
 
-    	return r;
+    	return false;
     }
 }
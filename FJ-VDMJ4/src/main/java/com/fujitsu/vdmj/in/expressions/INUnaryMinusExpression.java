@@ -26,6 +26,7 @@ package com.fujitsu.vdmj.in.expressions;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.IntegerValue;
 import com.fujitsu.vdmj.values.NumericValue;
 import com.fujitsu.vdmj.values.Value;
 
@@ -51,8 +52,14 @@ public class INUnaryMinusExpression extends INUnaryExpression
 
 		try
 		{
-			double v = exp.eval(ctxt).realValue(ctxt);
-			return NumericValue.valueOf(-v, ctxt);
+			Value v = exp.eval(ctxt);
+
+			if (v instanceof IntegerValue && !NumericValue.isSmall(v))
+			{
+				return NumericValue.valueOf(v.bigintValue(ctxt).negate(), ctxt);
+			}
+
+			return NumericValue.valueOf(-v.realValue(ctxt), ctxt);
 		}
 		catch (ValueException e)
 		{
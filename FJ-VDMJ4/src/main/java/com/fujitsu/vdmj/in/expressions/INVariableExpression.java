@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.in.expressions;
 
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.UpdatableValue;
@@ -36,12 +37,34 @@ public class INVariableExpression extends INExpression
 
 	public final TCNameToken name;
 
+	/** The frame that binds the name, and its slot, if resolved. */
+	private Frame frame = null;
+	private int slot = -1;
+
 	public INVariableExpression(TCNameToken name)
 	{
 		super(name.getLocation());
 		this.name = name;
 	}
 
+	/**
+	 * Resolve the name to a slot of a frame that binds it, unless an inner
+	 * frame has done so already. See {@link Frame#resolve(Object...)}.
+	 */
+	public void setFrame(Frame frame)
+	{
+		if (this.frame == null)
+		{
+			int index = frame.indexOf(name);
+
+			if (index >= 0)
+			{
+				this.frame = frame;
+				this.slot = index;
+			}
+		}
+	}
+
 	@Override
 	public String toString()
 	{
@@ -52,7 +75,7 @@ public class INVariableExpression extends INExpression
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		return ctxt.lookup(name);
+		return (frame == null) ? ctxt.lookup(name) : ctxt.lookup(name, frame, slot);
 	}
 
 	@Override
@@ -0,0 +1,404 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+
+package com.fujitsu.vdmj.in.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * A minimal class file writer for the JITCompiler. It writes a public class
+ * with a default constructor and one public method, whose code is built by the
+ * methods below. The class file version is 49 (Java 5), so that the JVM infers
+ * the stack map itself, and the writer only has to track the stack depth.
+ */
+public class ClassBuilder
+{
+	public static final int ICONST_0 = 0x03;
+	public static final int BIPUSH = 0x10;
+	public static final int SIPUSH = 0x11;
+	public static final int ILOAD = 0x15;
+	public static final int ALOAD = 0x19;
+	public static final int ALOAD_0 = 0x2a;
+	public static final int AALOAD = 0x32;
+	public static final int ISTORE = 0x36;
+	public static final int ASTORE = 0x3a;
+	public static final int POP = 0x57;
+	public static final int DUP = 0x59;
+	public static final int IFEQ = 0x99;
+	public static final int IFNE = 0x9a;
+	public static final int GOTO = 0xa7;
+	public static final int ARETURN = 0xb0;
+	public static final int RETURN = 0xb1;
+	public static final int GETFIELD = 0xb4;
+	public static final int INVOKEVIRTUAL = 0xb6;
+	public static final int INVOKESPECIAL = 0xb7;
+	public static final int INVOKESTATIC = 0xb8;
+	public static final int NEW = 0xbb;
+	public static final int CHECKCAST = 0xc0;
+	public static final int INSTANCEOF = 0xc1;
+	public static final int IFNULL = 0xc6;
+	public static final int IFNONNULL = 0xc7;
+
+	private static final int CONSTANT_Utf8 = 1;
+	private static final int CONSTANT_Class = 7;
+	private static final int CONSTANT_Fieldref = 9;
+	private static final int CONSTANT_Methodref = 10;
+	private static final int CONSTANT_NameAndType = 12;
+
+	private final String name;
+	private final String superName;
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolData = new DataOutputStream(pool);
+	private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+	private final List<Label> labels = new Vector<Label>();
+	private int depth = 0;
+	private int maxDepth = 0;
+	private int maxLocals;
+
+	/**
+	 * A branch target. Jumps are written with a zero offset, which is fixed when
+	 * the class is written. The stack depth is recorded at the first jump, so
+	 * that it can be restored at the target after an unconditional jump.
+	 */
+	public static class Label
+	{
+		private int position = -1;
+		private int depth = -1;
+		private final List<Integer> jumps = new Vector<Integer>();
+	}
+
+	/**
+	 * Create a class, with internal names like "java/lang/Object", and the
+	 * number of local variable slots used by the method's parameters.
+	 */
+	public ClassBuilder(String name, String superName, int paramSlots)
+	{
+		this.name = name;
+		this.superName = superName;
+		this.maxLocals = paramSlots;
+	}
+
+	public int newLocal()
+	{
+		return maxLocals++;
+	}
+
+	public Label newLabel()
+	{
+		Label label = new Label();
+		labels.add(label);
+		return label;
+	}
+
+	public void mark(Label label)
+	{
+		label.position = code.size();
+
+		if (label.depth >= 0)
+		{
+			depth = label.depth;	// Code before may be unreachable
+		}
+	}
+
+	public void op(int opcode, int delta)
+	{
+		code.write(opcode);
+		stack(delta);
+	}
+
+	public void local(int opcode, int slot)
+	{
+		if (slot > 255)
+		{
+			throw new IllegalStateException("Too many locals");
+		}
+
+		code.write(opcode);
+		code.write(slot);
+		stack(opcode == ALOAD || opcode == ILOAD ? 1 : -1);
+	}
+
+	public void constant(int value)
+	{
+		if (value >= 0 && value <= 5)
+		{
+			code.write(ICONST_0 + value);
+		}
+		else if (value < 128)
+		{
+			code.write(BIPUSH);
+			code.write(value);
+		}
+		else if (value < 32768)
+		{
+			code.write(SIPUSH);
+			write16(value);
+		}
+		else
+		{
+			throw new IllegalStateException("Too many constants");
+		}
+
+		stack(1);
+	}
+
+	public void type(int opcode, String type)
+	{
+		code.write(opcode);
+		write16(classRef(type));
+		stack(opcode == NEW ? 1 : 0);
+	}
+
+	public void field(int opcode, String owner, String field, String desc)
+	{
+		code.write(opcode);
+		write16(memberRef(CONSTANT_Fieldref, owner, field, desc));
+		stack(0);	// GETFIELD only
+	}
+
+	public void invoke(int opcode, String owner, String method, String desc)
+	{
+		code.write(opcode);
+		write16(memberRef(CONSTANT_Methodref, owner, method, desc));
+
+		// Arguments are references, booleans or ints, which are one slot each
+		int args = 0;
+		int i = 1;
+
+		while (desc.charAt(i) != ')')
+		{
+			if (desc.charAt(i) == 'L')
+			{
+				i = desc.indexOf(';', i);
+			}
+
+			args++;
+			i++;
+		}
+
+		int result = desc.endsWith(")V") ? 0 : 1;
+		stack(result - args - (opcode == INVOKESTATIC ? 0 : 1));
+	}
+
+	public void jump(int opcode, Label label)
+	{
+		stack(opcode == GOTO ? 0 : -1);
+		label.jumps.add(code.size());
+		code.write(opcode);
+		write16(0);
+
+		if (label.depth < 0)
+		{
+			label.depth = depth;
+		}
+	}
+
+	/**
+	 * Write the class file, with the method built above.
+	 */
+	public byte[] toByteArray(String method, String desc) throws IOException
+	{
+		byte[] body = code.toByteArray();
+
+		for (Label label: labels)
+		{
+			for (int jump: label.jumps)
+			{
+				int offset = label.position - jump;
+
+				if (label.position < 0 || offset != (short)offset)
+				{
+					throw new IllegalStateException("Bad jump");
+				}
+
+				body[jump + 1] = (byte)(offset >> 8);
+				body[jump + 2] = (byte)offset;
+			}
+		}
+
+		int thisClass = classRef(name);
+		int superClass = classRef(superName);
+		int init = utf8("<init>");
+		int initDesc = utf8("()V");
+		int superInit = memberRef(CONSTANT_Methodref, superName, "<init>", "()V");
+		int evalName = utf8(method);
+		int evalDesc = utf8(desc);
+		int codeName = utf8("Code");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);		// Minor
+		out.writeShort(49);		// Major, Java 5
+		out.writeShort(poolCount);
+		out.write(pool.toByteArray());
+		out.writeShort(0x0021);	// ACC_PUBLIC | ACC_SUPER
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(0);		// Interfaces
+		out.writeShort(0);		// Fields
+		out.writeShort(2);		// Methods
+
+		// public <init>() { super(); }
+		out.writeShort(0x0001);
+		out.writeShort(init);
+		out.writeShort(initDesc);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + 5);
+		out.writeShort(1);		// Max stack
+		out.writeShort(1);		// Max locals
+		out.writeInt(5);
+		out.writeByte(ALOAD_0);
+		out.writeByte(INVOKESPECIAL);
+		out.writeShort(superInit);
+		out.writeByte(RETURN);
+		out.writeShort(0);		// Exceptions
+		out.writeShort(0);		// Attributes
+
+		// public <method><desc> { <code> }
+		out.writeShort(0x0001);
+		out.writeShort(evalName);
+		out.writeShort(evalDesc);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + body.length);
+		out.writeShort(maxDepth);
+		out.writeShort(maxLocals);
+		out.writeInt(body.length);
+		out.write(body);
+		out.writeShort(0);		// Exceptions
+		out.writeShort(0);		// Attributes
+
+		out.writeShort(0);		// Class attributes
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	public int codeSize()
+	{
+		return code.size();
+	}
+
+	private void stack(int delta)
+	{
+		depth = depth + delta;
+
+		if (depth > maxDepth)
+		{
+			maxDepth = depth;
+		}
+	}
+
+	private void write16(int value)
+	{
+		code.write(value >> 8);
+		code.write(value);
+	}
+
+	private int utf8(String value)
+	{
+		Integer index = poolIndex.get("U" + value);
+
+		if (index == null)
+		{
+			try
+			{
+				poolData.writeByte(CONSTANT_Utf8);
+				poolData.writeUTF(value);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException(e);	// Not reached
+			}
+
+			index = poolCount++;
+			poolIndex.put("U" + value, index);
+		}
+
+		return index;
+	}
+
+	private int classRef(String type)
+	{
+		Integer index = poolIndex.get("C" + type);
+
+		if (index == null)
+		{
+			int utf = utf8(type);
+			index = entry(CONSTANT_Class, utf, -1);
+			poolIndex.put("C" + type, index);
+		}
+
+		return index;
+	}
+
+	private int memberRef(int tag, String owner, String member, String desc)
+	{
+		String key = "M" + owner + "." + member + desc;
+		Integer index = poolIndex.get(key);
+
+		if (index == null)
+		{
+			int cls = classRef(owner);
+			int nat = entry(CONSTANT_NameAndType, utf8(member), utf8(desc));
+			index = entry(tag, cls, nat);
+			poolIndex.put(key, index);
+		}
+
+		return index;
+	}
+
+	private int entry(int tag, int first, int second)
+	{
+		try
+		{
+			poolData.writeByte(tag);
+			poolData.writeShort(first);
+
+			if (second >= 0)
+			{
+				poolData.writeShort(second);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);		// Not reached
+		}
+
+		return poolCount++;
+	}
+}
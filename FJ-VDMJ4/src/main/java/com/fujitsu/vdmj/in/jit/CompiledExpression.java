@@ -0,0 +1,67 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+
+package com.fujitsu.vdmj.in.jit;
+
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * The superclass of the classes generated by the JITCompiler. The eval method
+ * of a subclass evaluates an expression in the same way as the INExpression
+ * tree that it was compiled from, which is held in the nodes array.
+ */
+abstract public class CompiledExpression
+{
+	/** The tree nodes used by the compiled code, set by the JITCompiler */
+	protected Object[] nodes;
+
+	abstract public Value eval(Context ctxt);
+
+	/**
+	 * Check an expression's breakpoint, as its eval method would.
+	 */
+	protected static void check(INExpression exp, Context ctxt)
+	{
+		exp.breakpoint.check(exp.location, ctxt);
+	}
+
+	/**
+	 * Test the value of an if or elseif condition, as its eval method would.
+	 */
+	protected static boolean test(INExpression exp, Value value, Context ctxt)
+	{
+		try
+		{
+			return value.boolValue(ctxt);
+		}
+		catch (ValueException e)
+		{
+			exp.abort(e);
+			return false;	// Not reached
+		}
+	}
+}
@@ -0,0 +1,390 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+
+package com.fujitsu.vdmj.in.jit;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.in.expressions.INApplyExpression;
+import com.fujitsu.vdmj.in.expressions.INCaseAlternative;
+import com.fujitsu.vdmj.in.expressions.INCasesExpression;
+import com.fujitsu.vdmj.in.expressions.INElseIfExpression;
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.expressions.INIfExpression;
+import com.fujitsu.vdmj.in.expressions.INLetDefExpression;
+import com.fujitsu.vdmj.in.expressions.INNumericBinaryExpression;
+import com.fujitsu.vdmj.in.jit.ClassBuilder.Label;
+
+import static com.fujitsu.vdmj.in.jit.ClassBuilder.*;
+
+/**
+ * Compile the body of a hot function to a JVM class. The generated code does
+ * what the eval methods of the tree do for if, elseif, let, cases, apply and
+ * numeric operators, calling the same methods of the nodes to check
+ * breakpoints, match patterns and make calls. So the semantics, contexts and
+ * errors are the same as the interpreter's, but the JVM can compile the body
+ * as one method, without the virtual eval call of each node.
+ *
+ * Any other expression is evaluated by calling its eval method, so the
+ * interpreter is used for anything that is not supported here.
+ */
+public class JITCompiler
+{
+	private static final String PACKAGE = "com/fujitsu/vdmj/in/jit/";
+	private static final String EXPRESSION = "com/fujitsu/vdmj/in/expressions/INExpression";
+	private static final String FUNCTION = "com/fujitsu/vdmj/values/FunctionValue";
+	private static final String VALUELIST = "com/fujitsu/vdmj/values/ValueList";
+	private static final String CONTEXT = "Lcom/fujitsu/vdmj/runtime/Context;";
+	private static final String VALUE = "Lcom/fujitsu/vdmj/values/Value;";
+
+	private static final int CTXT = 1;
+	private static final int NODES = 2;
+
+	/** Compiled bodies, shared by all FunctionValues for the same definition */
+	private static Map<INExpression, CompiledExpression> cache =
+		new IdentityHashMap<INExpression, CompiledExpression>();
+
+	private static int count = 0;
+
+	private final ClassBuilder builder;
+	private final List<Object> nodes = new Vector<Object>();
+
+	private JITCompiler(String name)
+	{
+		this.builder = new ClassBuilder(name, PACKAGE + "CompiledExpression", 3);	// this, ctxt, nodes
+	}
+
+	/**
+	 * Clear the cache, which refers to the expressions of the last specification
+	 * initialized.
+	 */
+	public static synchronized void init()
+	{
+		cache = new IdentityHashMap<INExpression, CompiledExpression>();
+	}
+
+	/**
+	 * Compile a function body, returning null if it cannot be compiled or if
+	 * the result would be no faster than the interpreter.
+	 */
+	public static synchronized CompiledExpression compile(INExpression body)
+	{
+		if (cache.containsKey(body))
+		{
+			return cache.get(body);
+		}
+
+		CompiledExpression result = null;
+
+		if (isCompiled(body))
+		{
+			String name = PACKAGE + "CompiledExpression" + (++count);
+			JITCompiler compiler = new JITCompiler(name);
+
+			try
+			{
+				result = compiler.build(name, body);
+			}
+			catch (Exception e)
+			{
+				result = null;		// Too large etc, so interpret
+			}
+			catch (LinkageError e)
+			{
+				result = null;		// Should not happen, but interpret
+			}
+		}
+
+		cache.put(body, result);
+		return result;
+	}
+
+	private CompiledExpression build(String name, INExpression body) throws IOException
+	{
+		builder.op(ALOAD_0, 1);
+		builder.field(GETFIELD, PACKAGE + "CompiledExpression", "nodes", "[Ljava/lang/Object;");
+		builder.local(ASTORE, NODES);
+		compile(body, CTXT);
+		builder.op(ARETURN, -1);
+
+		byte[] bytes = builder.toByteArray("eval", "(" + CONTEXT + ")" + VALUE);
+		Class<?> cls = new Loader().define(name.replace('/', '.'), bytes);
+		CompiledExpression compiled = null;
+
+		// These are not expected, as the class has a public default constructor
+
+		try
+		{
+			compiled = (CompiledExpression)cls.getDeclaredConstructor().newInstance();
+		}
+		catch (NoSuchMethodException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (InstantiationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+
+		compiled.nodes = nodes.toArray();
+
+		return compiled;
+	}
+
+	/**
+	 * True for the expressions that are compiled to more than an eval call.
+	 */
+	private static boolean isCompiled(INExpression exp)
+	{
+		return exp instanceof INNumericBinaryExpression ||
+			exp instanceof INIfExpression ||
+			exp instanceof INLetDefExpression ||
+			exp instanceof INCasesExpression ||
+			exp instanceof INApplyExpression;
+	}
+
+	/**
+	 * Generate code to leave the value of the expression on the stack, where
+	 * ctxt is the local that holds the Context to evaluate it in.
+	 */
+	private void compile(INExpression exp, int ctxt)
+	{
+		if (exp instanceof INNumericBinaryExpression)
+		{
+			INNumericBinaryExpression nexp = (INNumericBinaryExpression)exp;
+			String type = node(nexp);
+			compile(nexp.left, ctxt);
+			compile(nexp.right, ctxt);
+			builder.local(ALOAD, ctxt);
+			builder.invoke(INVOKEVIRTUAL, type, "eval", "(" + VALUE + VALUE + CONTEXT + ")" + VALUE);
+		}
+		else if (exp instanceof INIfExpression)
+		{
+			compileIf((INIfExpression)exp, ctxt);
+		}
+		else if (exp instanceof INLetDefExpression)
+		{
+			INLetDefExpression lexp = (INLetDefExpression)exp;
+			String type = node(lexp);
+			builder.local(ALOAD, ctxt);
+			builder.invoke(INVOKEVIRTUAL, type, "getContext", "(" + CONTEXT + ")" + CONTEXT);
+			int letctxt = builder.newLocal();
+			builder.local(ASTORE, letctxt);
+			compile(lexp.expression, letctxt);
+		}
+		else if (exp instanceof INCasesExpression)
+		{
+			compileCases((INCasesExpression)exp, ctxt);
+		}
+		else if (exp instanceof INApplyExpression)
+		{
+			compileApply((INApplyExpression)exp, ctxt);
+		}
+		else
+		{
+			String type = node(exp);
+			builder.local(ALOAD, ctxt);
+			builder.invoke(INVOKEVIRTUAL, type, "eval", "(" + CONTEXT + ")" + VALUE);
+		}
+	}
+
+	private void compileIf(INIfExpression exp, int ctxt)
+	{
+		Label end = builder.newLabel();
+		Label next = builder.newLabel();
+
+		check(exp, ctxt);
+		test(exp, exp.ifExp, ctxt, next);
+		compile(exp.thenExp, ctxt);
+		builder.jump(GOTO, end);
+		builder.mark(next);
+
+		for (INElseIfExpression elseif: exp.elseList)
+		{
+			next = builder.newLabel();
+			check(elseif, ctxt);
+			test(elseif, elseif.elseIfExp, ctxt, next);
+			compile(elseif.thenExp, ctxt);
+			builder.jump(GOTO, end);
+			builder.mark(next);
+		}
+
+		compile(exp.elseExp, ctxt);
+		builder.mark(end);
+	}
+
+	private void compileCases(INCasesExpression exp, int ctxt)
+	{
+		Label end = builder.newLabel();
+
+		check(exp, ctxt);
+		compile(exp.exp, ctxt);
+		int val = builder.newLocal();
+		builder.local(ASTORE, val);
+
+		for (INCaseAlternative alt: exp.cases)
+		{
+			Label next = builder.newLabel();
+			String type = node(alt);
+			builder.local(ALOAD, val);
+			builder.local(ALOAD, ctxt);
+			builder.invoke(INVOKEVIRTUAL, type, "match", "(" + VALUE + CONTEXT + ")" + CONTEXT);
+			int altctxt = builder.newLocal();
+			builder.op(DUP, 1);
+			builder.local(ASTORE, altctxt);
+			builder.jump(IFNULL, next);
+			compile(alt.result, altctxt);
+			builder.jump(GOTO, end);
+			builder.mark(next);
+		}
+
+		if (exp.others != null)
+		{
+			compile(exp.others, ctxt);
+		}
+		else
+		{
+			String type = node(exp);
+			builder.local(ALOAD, val);
+			builder.local(ALOAD, ctxt);
+			builder.invoke(INVOKEVIRTUAL, type, "noMatch", "(" + VALUE + CONTEXT + ")" + VALUE);
+		}
+
+		builder.mark(end);
+	}
+
+	private void compileApply(INApplyExpression exp, int ctxt)
+	{
+		Label other = builder.newLabel();
+		Label end = builder.newLabel();
+
+		String type = node(exp);
+		builder.local(ALOAD, ctxt);
+		builder.invoke(INVOKEVIRTUAL, type, "enter", "(" + CONTEXT + ")Z");
+		int endstop = builder.newLocal();
+		builder.local(ISTORE, endstop);
+
+		node(exp);
+		compile(exp.root, ctxt);
+		builder.invoke(INVOKEVIRTUAL, "com/fujitsu/vdmj/values/Value", "deref", "()" + VALUE);
+		builder.op(DUP, 1);
+		builder.type(INSTANCEOF, FUNCTION);
+		builder.jump(IFEQ, other);
+
+		builder.type(CHECKCAST, FUNCTION);
+		builder.type(NEW, VALUELIST);
+		builder.op(DUP, 1);
+		builder.invoke(INVOKESPECIAL, VALUELIST, "<init>", "()V");
+
+		for (INExpression arg: exp.args)
+		{
+			builder.op(DUP, 1);
+			compile(arg, ctxt);
+			builder.invoke(INVOKEVIRTUAL, VALUELIST, "add", "(" + VALUE + ")Z");
+			builder.op(POP, -1);
+		}
+
+		builder.local(ILOAD, endstop);
+		builder.local(ALOAD, ctxt);
+		builder.invoke(INVOKEVIRTUAL, type, "apply",
+			"(L" + FUNCTION + ";L" + VALUELIST + ";Z" + CONTEXT + ")" + VALUE);
+		builder.jump(GOTO, end);
+
+		builder.mark(other);
+		builder.local(ILOAD, endstop);
+		builder.local(ALOAD, ctxt);
+		builder.invoke(INVOKEVIRTUAL, type, "apply", "(" + VALUE + "Z" + CONTEXT + ")" + VALUE);
+		builder.mark(end);
+	}
+
+	/**
+	 * Generate a breakpoint check for an expression.
+	 */
+	private void check(INExpression exp, int ctxt)
+	{
+		node(exp);
+		builder.local(ALOAD, ctxt);
+		builder.invoke(INVOKESTATIC, PACKAGE + "CompiledExpression", "check",
+			"(L" + EXPRESSION + ";" + CONTEXT + ")V");
+	}
+
+	/**
+	 * Generate the test of a condition, jumping to the label if it is false.
+	 */
+	private void test(INExpression exp, INExpression condition, int ctxt, Label label)
+	{
+		node(exp);
+		compile(condition, ctxt);
+		builder.local(ALOAD, ctxt);
+		builder.invoke(INVOKESTATIC, PACKAGE + "CompiledExpression", "test",
+			"(L" + EXPRESSION + ";" + VALUE + CONTEXT + ")Z");
+		builder.jump(IFEQ, label);
+	}
+
+	/**
+	 * Generate code to push a tree node from the nodes array, returning its type.
+	 */
+	private String node(Object node)
+	{
+		String type = node.getClass().getName().replace('.', '/');
+
+		builder.local(ALOAD, NODES);
+		builder.constant(nodes.size());
+		builder.op(AALOAD, -1);
+		builder.type(CHECKCAST, type);
+		nodes.add(node);
+
+		return type;
+	}
+
+	/**
+	 * Each compiled class has its own loader, so that it can be unloaded when
+	 * the cache is cleared.
+	 */
+	private static class Loader extends ClassLoader
+	{
+		public Loader()
+		{
+			super(JITCompiler.class.getClassLoader());
+		}
+
+		public Class<?> define(String name, byte[] bytes)
+		{
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
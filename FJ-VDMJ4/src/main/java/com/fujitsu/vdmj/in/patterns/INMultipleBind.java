@@ -74,6 +74,19 @@ public abstract class INMultipleBind implements Serializable
 	/** Return a list of old names used by the bind. */
 	abstract public TCNameList getOldNames();
 
+	/** Return the names of the variables bound by the patterns. */
+	public TCNameList getVariableNames()
+	{
+		TCNameList list = new TCNameList();
+
+		for (INPattern p: plist)
+		{
+			list.addAll(p.getVariableNames());
+		}
+
+		return list;
+	}
+
 	/**
 	 * @see org.INDefinition.vdmj.definitions.Definition#abort
 	 */
@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.in.patterns;
 
 import com.fujitsu.vdmj.in.INMappedList;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.patterns.TCMultipleBind;
 import com.fujitsu.vdmj.tc.patterns.TCMultipleBindList;
 
@@ -40,4 +41,16 @@ public class INMultipleBindList extends INMappedList<TCMultipleBind, INMultipleB
 	{
 		super(from);
 	}
+
+	public TCNameList getVariableNames()
+	{
+		TCNameList list = new TCNameList();
+
+		for (INMultipleBind mb: this)
+		{
+			list.addAll(mb.getVariableNames());
+		}
+
+		return list;
+	}
 }
@@ -27,6 +27,7 @@ import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.SetValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
@@ -54,8 +55,15 @@ public class INMultipleSetBind extends INMultipleBind
 	{
 		try
 		{
+			Value setval = set.eval(ctxt).deref();
+
+			if (setval instanceof RangeSetValue)
+			{
+				return ((RangeSetValue)setval).valueList();
+			}
+
 			ValueList vl = new ValueList();
-			ValueSet vs = set.eval(ctxt).setValue(ctxt);
+			ValueSet vs = setval.setValue(ctxt);
 			vs.sort();
 
 			for (Value v: vs)
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.patterns;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCRecordType;
+import com.fujitsu.vdmj.values.BooleanValue;
+import com.fujitsu.vdmj.values.CharacterValue;
+import com.fujitsu.vdmj.values.NilValue;
+import com.fujitsu.vdmj.values.NumericValue;
+import com.fujitsu.vdmj.values.QuoteValue;
+import com.fujitsu.vdmj.values.RecordValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * A table that selects the alternatives of a cases expression or statement
+ * that may match a value, without trying the others. Trying a pattern that does
+ * not match raises a PatternMatchException, so a cases with many alternatives
+ * raises and catches many exceptions for each evaluation.
+ *
+ * Literal, quote, nil and record patterns have a key, which is the same as the
+ * key of every value they can match. The table holds, for each key, the list of
+ * alternatives with that key or with no key, in their original order. So if the
+ * alternatives all have keys, the one that matches is found by a single lookup.
+ * Keys of different kinds may be equal (a quote and a string, say), but that
+ * only adds an alternative that is tried and fails, as before.
+ *
+ * The keys mirror the tests made by the getAllNamedValues methods of the
+ * patterns, so these must be kept in step.
+ */
+public class PatternDispatcher
+{
+	/** The key of the nil pattern and value */
+	private static final Object NIL = new Object();
+
+	private final Map<Object, int[]> table = new HashMap<Object, int[]>();
+	private final int[] unkeyed;		// For values whose key is not in the table
+	private final boolean strings;		// True if seq values need a key
+
+	public PatternDispatcher(INPatternList patterns)
+	{
+		int count = patterns.size();
+		Object[] keys = new Object[count];
+		boolean hasStrings = false;
+
+		for (int i=0; i<count; i++)
+		{
+			INPattern p = patterns.get(i);
+			keys[i] = getKey(p);
+			hasStrings = hasStrings || p instanceof INStringPattern;
+		}
+
+		for (int i=0; i<count; i++)
+		{
+			if (keys[i] != null && !table.containsKey(keys[i]))
+			{
+				table.put(keys[i], select(keys, keys[i]));
+			}
+		}
+
+		unkeyed = select(keys, null);
+		strings = hasStrings;
+	}
+
+	/**
+	 * The indexes of the patterns that may match the value, in order.
+	 */
+	public int[] getCandidates(Value value, Context ctxt)
+	{
+		Object key = getKey(value, ctxt);
+
+		if (key != null)
+		{
+			int[] candidates = table.get(key);
+
+			if (candidates != null)
+			{
+				return candidates;
+			}
+		}
+
+		return unkeyed;
+	}
+
+	private static int[] select(Object[] keys, Object key)
+	{
+		int count = 0;
+
+		for (Object k: keys)
+		{
+			if (k == null || k.equals(key))
+			{
+				count++;
+			}
+		}
+
+		int[] selected = new int[count];
+		int s = 0;
+
+		for (int i=0; i<keys.length; i++)
+		{
+			if (keys[i] == null || keys[i].equals(key))
+			{
+				selected[s++] = i;
+			}
+		}
+
+		return selected;
+	}
+
+	private static Object getKey(INPattern p)
+	{
+		if (p instanceof INBooleanPattern)
+		{
+			return Boolean.valueOf(((INBooleanPattern)p).value.value);
+		}
+		else if (p instanceof INCharacterPattern)
+		{
+			return Character.valueOf(((INCharacterPattern)p).value.unicode);
+		}
+		else if (p instanceof INIntegerPattern)
+		{
+			return numericKey(((INIntegerPattern)p).value.value);
+		}
+		else if (p instanceof INRealPattern)
+		{
+			return numericKey(((INRealPattern)p).value.value);
+		}
+		else if (p instanceof INQuotePattern)
+		{
+			return ((INQuotePattern)p).value.value;
+		}
+		else if (p instanceof INStringPattern)
+		{
+			return ((INStringPattern)p).value.value;
+		}
+		else if (p instanceof INNilPattern)
+		{
+			return NIL;
+		}
+		else if (p instanceof INRecordPattern)
+		{
+			INRecordPattern rp = (INRecordPattern)p;
+
+			if (rp.type instanceof TCRecordType)
+			{
+				return rp.type;		// Equal to the types of records that match
+			}
+		}
+
+		return null;	// May match anything
+	}
+
+	private Object getKey(Value value, Context ctxt)
+	{
+		Value v = value.deref();
+
+		if (v instanceof BooleanValue)
+		{
+			return Boolean.valueOf(((BooleanValue)v).value);
+		}
+		else if (v instanceof CharacterValue)
+		{
+			return Character.valueOf(((CharacterValue)v).unicode);
+		}
+		else if (v instanceof NumericValue)
+		{
+			try
+			{
+				return numericKey(v.realValue(ctxt));
+			}
+			catch (ValueException e)
+			{
+				return null;
+			}
+		}
+		else if (v instanceof QuoteValue)
+		{
+			return ((QuoteValue)v).value;
+		}
+		else if (v instanceof SeqValue && strings)
+		{
+			return ((SeqValue)v).stringValue(ctxt);
+		}
+		else if (v instanceof NilValue)
+		{
+			return NIL;
+		}
+		else if (v instanceof RecordValue)
+		{
+			return ((RecordValue)v).type;
+		}
+
+		return null;	// Only matches patterns with no key
+	}
+
+	private static Object numericKey(double value)
+	{
+		return Double.valueOf(value + 0.0);		// Makes -0.0 equal to 0.0
+	}
+}
@@ -28,6 +28,7 @@ import com.fujitsu.vdmj.in.definitions.INDefinitionList;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.values.Value;
 
 public class INBlockStatement extends INSimpleBlockStatement
@@ -35,11 +36,15 @@ public class INBlockStatement extends INSimpleBlockStatement
 	private static final long serialVersionUID = 1L;
 
 	public final INDefinitionList assignmentDefs;
+	private final Frame frame;
 
 	public INBlockStatement(LexLocation location, INDefinitionList assignmentDefs, INStatementList stmts)
 	{
 		super(location, stmts);
 		this.assignmentDefs = assignmentDefs;
+		this.frame = new Frame(assignmentDefs.getVariableNames());
+
+		frame.resolve(assignmentDefs, statements);
 	}
 
 	@Override
@@ -73,7 +78,7 @@ public class INBlockStatement extends INSimpleBlockStatement
 	{
 		breakpoint.check(location, ctxt);
 
-		Context evalContext = new Context(location, "block statement", ctxt);
+		Context evalContext = new Context(location, "block statement", ctxt, frame);
 
 		for (INDefinition d: assignmentDefs)
 		{
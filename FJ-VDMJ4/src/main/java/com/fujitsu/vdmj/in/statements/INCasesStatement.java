@@ -24,6 +24,8 @@
 package com.fujitsu.vdmj.in.statements;
 
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.patterns.INPatternList;
+import com.fujitsu.vdmj.in.patterns.PatternDispatcher;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.values.Value;
@@ -36,6 +38,9 @@ public class INCasesStatement extends INStatement
 	public final INCaseStmtAlternativeList cases;
 	public final INStatement others;
 
+	/** The alternatives that may match each value, built when first used. */
+	private transient PatternDispatcher dispatcher = null;
+
 	public INCasesStatement(LexLocation location,
 		INExpression exp, INCaseStmtAlternativeList cases, INStatement others)
 	{
@@ -103,9 +108,9 @@ public class INCasesStatement extends INStatement
 
 		Value val = exp.eval(ctxt);
 
-		for (INCaseStmtAlternative c: cases)
+		for (int i: getDispatcher().getCandidates(val, ctxt))
 		{
-			Value rv = c.eval(val, ctxt);
+			Value rv = cases.get(i).eval(val, ctxt);
 			if (rv != null) return rv;
 		}
 
@@ -116,4 +121,21 @@ public class INCasesStatement extends INStatement
 
 		return new VoidValue();
 	}
+
+	private PatternDispatcher getDispatcher()
+	{
+		if (dispatcher == null)
+		{
+			INPatternList patterns = new INPatternList();
+
+			for (INCaseStmtAlternative c: cases)
+			{
+				patterns.add(c.pattern);
+			}
+
+			dispatcher = new PatternDispatcher(patterns);
+		}
+
+		return dispatcher;
+	}
 }
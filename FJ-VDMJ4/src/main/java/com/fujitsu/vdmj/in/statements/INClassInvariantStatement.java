@@ -57,7 +57,7 @@ public class INClassInvariantStatement extends INStatement
 			{
 				if (!invdef.expression.eval(ctxt).boolValue(ctxt))
 				{
-					return new BooleanValue(false);
+					return BooleanValue.FALSE;
 				}
 			}
 			catch (ValueException e)
@@ -66,7 +66,7 @@ public class INClassInvariantStatement extends INStatement
 			}
 		}
 
-		return new BooleanValue(true);
+		return BooleanValue.TRUE;
 	}
 
 	@Override
@@ -30,6 +30,7 @@ import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.ObjectValue;
 import com.fujitsu.vdmj.values.RecordValue;
+import com.fujitsu.vdmj.values.UpdatableValue;
 import com.fujitsu.vdmj.values.Value;
 
 public class INFieldDesignator extends INStateDesignator
@@ -60,7 +61,16 @@ public class INFieldDesignator extends INStateDesignator
 
 		try
 		{
-			result = object.eval(ctxt).deref();
+			Value root = object.eval(ctxt);
+			UpdatableValue ur = null;
+
+			if (root instanceof UpdatableValue)
+			{
+				// The record is copied if it is shared (see set)
+				ur = ((UpdatableValue)root).copyOnWrite();
+			}
+
+			result = root.deref();
 
 			if (result instanceof ObjectValue && objectfield != null)
 			{
@@ -83,6 +93,11 @@ public class INFieldDesignator extends INStateDesignator
     			{
     				ExceptionHandler.abort(location, 4037, "No such field: " + field, ctxt);
     			}
+    			else if (ur != null && !(result instanceof UpdatableValue))
+    			{
+    				result = ur.getUpdatableChild(result);
+    				rec.fieldmap.replace(field.getName(), result);
+    			}
 
     			return result;
 			}
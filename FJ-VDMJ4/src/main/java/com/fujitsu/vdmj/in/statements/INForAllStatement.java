@@ -23,14 +23,16 @@
 
 package com.fujitsu.vdmj.in.statements;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.RangeSetValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueSet;
 import com.fujitsu.vdmj.values.VoidValue;
 
 public class INForAllStatement extends INStatement
@@ -78,7 +80,17 @@ public class INForAllStatement extends INStatement
 
 		try
 		{
-			ValueSet values = set.eval(ctxt).setValue(ctxt);
+			Value sv = set.eval(ctxt).deref();
+			List<Value> values = null;
+
+			if (sv instanceof RangeSetValue)
+			{
+				values = ((RangeSetValue)sv).valueList();	// Created as they are read
+			}
+			else
+			{
+				values = sv.setValue(ctxt);
+			}
 
 			for (Value val: values)
 			{
@@ -106,7 +106,7 @@ public class INForIndexStatement extends INStatement
 				 value += bval)
 			{
 				Context evalContext = new Context(location, "for index", ctxt);
-				evalContext.put(var, new IntegerValue(value));
+				evalContext.put(var, IntegerValue.valueOf(value));
 				Value rv = statement.eval(evalContext);
 
 				if (!rv.isVoid())
@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.in.patterns.INMultipleBind;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.NameValuePair;
 import com.fujitsu.vdmj.values.NameValuePairList;
@@ -44,6 +45,7 @@ public class INLetBeStStatement extends INStatement
 	public final INExpression suchThat;
 	public final INStatement statement;
 	public final INMultiBindListDefinition def;
+	private final Frame frame;
 
 	public INLetBeStStatement(LexLocation location,
 		INMultipleBind bind, INExpression suchThat, INStatement statement, INMultiBindListDefinition def)
@@ -53,6 +55,9 @@ public class INLetBeStStatement extends INStatement
 		this.suchThat = suchThat;
 		this.statement = statement;
 		this.def = def;
+		this.frame = new Frame(bind.getVariableNames());
+
+		frame.resolve(suchThat, statement);
 	}
 
 	@Override
@@ -105,7 +110,7 @@ public class INLetBeStStatement extends INStatement
 
 			while (quantifiers.hasNext())
 			{
-				Context evalContext = new Context(location, "let be st statement", ctxt);
+				Context evalContext = new Context(location, "let be st statement", ctxt, frame);
 				NameValuePairList nvpl = quantifiers.next();
 				boolean matches = true;
 
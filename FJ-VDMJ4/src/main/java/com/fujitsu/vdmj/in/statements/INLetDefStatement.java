@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.FunctionValue;
 import com.fujitsu.vdmj.values.NameValuePair;
@@ -41,12 +42,16 @@ public class INLetDefStatement extends INStatement
 	private static final long serialVersionUID = 1L;
 	public final INDefinitionList localDefs;
 	public final INStatement statement;
+	private final Frame frame;
 
 	public INLetDefStatement(LexLocation location, INDefinitionList localDefs, INStatement statement)
 	{
 		super(location);
 		this.localDefs = localDefs;
 		this.statement = statement;
+		this.frame = new Frame(localDefs.getVariableNames());
+
+		frame.resolve(localDefs, statement);
 	}
 
 	@Override
@@ -80,7 +85,7 @@ public class INLetDefStatement extends INStatement
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
-		Context evalContext = new Context(location, "let statement", ctxt);
+		Context evalContext = new Context(location, "let statement", ctxt, frame);
 
 		TCNameToken sname = new TCNameToken(location, location.module, "self");
 		ObjectValue self = (ObjectValue)ctxt.check(sname);
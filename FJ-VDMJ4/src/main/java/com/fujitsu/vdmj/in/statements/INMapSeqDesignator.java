@@ -68,6 +68,13 @@ public class INMapSeqDesignator extends INStateDesignator
 		{
 			Value root = mapseq.eval(ctxt);
 			Value index = exp.eval(ctxt);
+			UpdatableValue ur = null;
+
+			if (root instanceof UpdatableValue)
+			{
+				// The map or sequence is copied if it is shared (see set)
+				ur = ((UpdatableValue)root).copyOnWrite();
+			}
 
 			if (root.isType(MapValue.class))
 			{
@@ -75,15 +82,19 @@ public class INMapSeqDesignator extends INStateDesignator
 				ValueMap map = root.mapValue(ctxt);
 				result = map.get(index);
 
-				if (result == null && root instanceof UpdatableValue)
+				if (result == null && ur != null)
 				{
 					// Assignment to a non-existent map key creates the value
 					// in order to have it updated.
 
-					UpdatableValue ur = (UpdatableValue)root;
 					result = UpdatableValue.factory(ur.listeners, mapType.to);
 					map.put(index, result);
 				}
+				else if (ur != null && !(result instanceof UpdatableValue))
+				{
+					result = ur.getUpdatableChild(result);
+					map.put(index, result);
+				}
 			}
 			else if (root.isType(SeqValue.class))
 			{
@@ -97,7 +108,6 @@ public class INMapSeqDesignator extends INStateDesignator
 						// Assignment to an index one greater than the length
 						// creates the value in order to have it updated.
 
-						UpdatableValue ur = (UpdatableValue)root;
 						seq.add(UpdatableValue.factory(ur.listeners, seqType.seqof));
 					}
 					else
@@ -107,6 +117,12 @@ public class INMapSeqDesignator extends INStateDesignator
 				}
 
 				result = seq.get(i);
+
+				if (ur != null && !(result instanceof UpdatableValue))
+				{
+					result = ur.getUpdatableChild(result);
+					seq.set(i, result);
+				}
 			}
 			else
 			{
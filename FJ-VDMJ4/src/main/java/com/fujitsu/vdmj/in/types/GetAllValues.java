@@ -197,8 +197,8 @@ public class GetAllValues
 	private static ValueList getTCBooleanType()
 	{
 		ValueList v = new ValueList();
-		v.add(new BooleanValue(true));
-		v.add(new BooleanValue(false));
+		v.add(BooleanValue.TRUE);
+		v.add(BooleanValue.FALSE);
 		return v;
 	}
 
@@ -331,7 +331,7 @@ public class GetAllValues
 	private static ValueList getTCQuoteType(TCQuoteType type)
 	{
 		ValueList v = new ValueList();
-		v.add(new QuoteValue(type.value));
+		v.add(QuoteValue.valueOf(type.value));
 		return v;
 	}
 
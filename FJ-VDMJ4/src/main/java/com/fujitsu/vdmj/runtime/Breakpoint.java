@@ -163,21 +163,30 @@ public class Breakpoint implements Serializable
 	 * context equals the out context or neither the next or out context are
 	 * set, we enter the debugger.
 	 *
+	 * This is called for every expression and statement evaluated, so until a
+	 * debugger first steps a thread (see ThreadState.setBreaks), the stepping
+	 * fields are not examined at all. Set breakpoints are Stoppoints, which
+	 * replace this object and override this method.
+	 *
 	 * @param execl The execution location.
 	 * @param ctxt The execution context.
 	 */
 	public void check(LexLocation execl, Context ctxt)
 	{
-		location.hit();
-		hits++;
-
-		ThreadState state = ctxt.threadState;
+		location.hit();		// Coverage
 
 		if (Settings.dialect != Dialect.VDM_SL)
 		{
-			state.reschedule(ctxt, execl);
+			ctxt.threadState.reschedule(ctxt, execl);
+		}
+
+		if (!ThreadState.anyStepped())
+		{
+			return;
 		}
 
+		ThreadState state = ctxt.threadState;
+
 		if (state.stepline != null)
 		{
 			if (execl.startLine != state.stepline.startLine)	// NB just line, not pos
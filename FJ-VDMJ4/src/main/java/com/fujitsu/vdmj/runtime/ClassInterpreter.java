@@ -36,6 +36,7 @@ import com.fujitsu.vdmj.in.definitions.INClassList;
 import com.fujitsu.vdmj.in.definitions.INDefinition;
 import com.fujitsu.vdmj.in.definitions.INNamedTraceDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.jit.JITCompiler;
 import com.fujitsu.vdmj.in.statements.INStatement;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
@@ -70,6 +71,8 @@ import com.fujitsu.vdmj.typechecker.NameScope;
 import com.fujitsu.vdmj.typechecker.PublicClassEnvironment;
 import com.fujitsu.vdmj.values.BUSValue;
 import com.fujitsu.vdmj.values.CPUValue;
+import com.fujitsu.vdmj.values.DTCPlan;
+import com.fujitsu.vdmj.values.MemoTable;
 import com.fujitsu.vdmj.values.NameValuePair;
 import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.NameValuePairMap;
@@ -177,6 +180,9 @@ public class ClassInterpreter extends Interpreter
 		CPUValue.init(scheduler);
 		BUSValue.init();
 		ObjectValue.init();
+		JITCompiler.init();
+		MemoTable.init(executableClasses);
+		DTCPlan.init();
 
 		logSwapIn();
 		initialContext = executableClasses.creatInitialContext();
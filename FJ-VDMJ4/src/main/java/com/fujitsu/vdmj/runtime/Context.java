@@ -24,7 +24,12 @@
 package com.fujitsu.vdmj.runtime;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.ast.lex.LexNameToken;
@@ -38,6 +43,13 @@ import com.fujitsu.vdmj.values.Value;
 
 /**
  * A class to hold runtime name/value context information.
+ *
+ * The context of a function, let, quantifier or block statement is a frame:
+ * the names of its {@link Frame} are held in an array of slots, rather than in
+ * the map, and variables that were resolved to the frame read their slot. Any
+ * other names, like "self", are held in the map as usual. The map methods see
+ * both, but the keys, values and entries of a frame are a copy, made when they
+ * are asked for, as by the debugger or getVisibleVariables.
  */
 @SuppressWarnings("serial")
 public class Context extends HashMap<TCNameToken, Value>
@@ -48,8 +60,14 @@ public class Context extends HashMap<TCNameToken, Value>
 	public final String title;
 	/** A link to a lower level context, if present. */
 	public final Context outer;
+	/** The outermost context, found when the chain is created. */
+	private final Context global;
 	/** The thread state associated with this context. */
 	public ThreadState threadState = null;
+	/** The names held in slots, if this is a frame. */
+	private Frame frame = null;
+	/** The values of the frame's names, or null if not yet bound. */
+	private Value[] slots = null;
 
 	/** Non-zero if this is a pre or postcondition call. */
 	public int prepost = 0;
@@ -74,7 +92,31 @@ public class Context extends HashMap<TCNameToken, Value>
 		if (outer != null)
 		{
 			this.threadState = outer.threadState;
+			this.global = outer.global;
 		}
+		else
+		{
+			this.global = this;
+		}
+	}
+
+	/**
+	 * Create a frame at the given location, with slots for the names given.
+	 */
+	public Context(LexLocation location, String title, Context outer, Frame frame)
+	{
+		this(location, title, outer);
+		setFrame(frame);
+	}
+
+	/**
+	 * Make this context a frame, with slots for the names given. This must be
+	 * called before any names are put.
+	 */
+	public void setFrame(Frame frame)
+	{
+		this.frame = frame;
+		this.slots = (frame == null) ? null : new Value[frame.size()];
 	}
 
 	/**
@@ -94,14 +136,7 @@ public class Context extends HashMap<TCNameToken, Value>
 	 */
 	public Context getGlobal()
 	{
-		Context op = this;
-
-		while (op.outer != null)
-		{
-			op = op.outer;
-		}
-
-		return op;
+		return global;
 	}
 
 	/**
@@ -148,15 +183,35 @@ public class Context extends HashMap<TCNameToken, Value>
 	 * because the map is driven by the names' hashCodes. The equals
 	 * method of LexNameToken makes a TypeComparator check, which is
 	 * what we need. But we try a simple super.get() first.
+	 *
+	 * Names without a type qualifier hash and compare the same way in
+	 * both directions, so if super.get() fails, the search will too. Only
+	 * qualified names are searched, which means that the usual miss, when
+	 * looking for a name in an outer context, is a single hash lookup.
 	 */
 	@Override
 	public Value get(Object name)
+	{
+		if (frame != null)
+		{
+			int slot = frame.indexOf(name);
+
+			if (slot >= 0)
+			{
+				return slots[slot];
+			}
+		}
+
+		return getMapped(name);
+	}
+
+	private Value getMapped(Object name)
 	{
 		Value rv = super.get(name);
 
-		if (rv == null)
+		if (rv == null && isQualified(name))
 		{
-    		for (TCNameToken var: keySet())
+    		for (TCNameToken var: super.keySet())
     		{
     			if (var.equals(name))
     			{
@@ -169,6 +224,153 @@ public class Context extends HashMap<TCNameToken, Value>
 		return rv;
 	}
 
+	private boolean isQualified(Object name)
+	{
+		return name instanceof TCNameToken &&
+			((TCNameToken)name).getTypeQualifier() != null;
+	}
+
+	@Override
+	public Value put(TCNameToken name, Value value)
+	{
+		if (frame != null)
+		{
+			int slot = frame.indexOf(name);
+
+			if (slot >= 0)
+			{
+				Value old = slots[slot];
+				slots[slot] = value;
+				return old;
+			}
+		}
+
+		return super.put(name, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends TCNameToken, ? extends Value> map)
+	{
+		if (frame == null)
+		{
+			super.putAll(map);
+		}
+		else
+		{
+			for (Map.Entry<? extends TCNameToken, ? extends Value> entry: map.entrySet())
+			{
+				put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public Value remove(Object name)
+	{
+		if (frame != null)
+		{
+			int slot = frame.indexOf(name);
+
+			if (slot >= 0)
+			{
+				Value old = slots[slot];
+				slots[slot] = null;
+				return old;
+			}
+		}
+
+		return super.remove(name);
+	}
+
+	@Override
+	public void clear()
+	{
+		if (frame != null)
+		{
+			Arrays.fill(slots, null);
+		}
+
+		super.clear();
+	}
+
+	@Override
+	public boolean containsKey(Object name)
+	{
+		return (frame == null) ? super.containsKey(name) : get(name) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value)
+	{
+		return (frame == null) ? super.containsValue(value) : values().contains(value);
+	}
+
+	@Override
+	public int size()
+	{
+		int size = super.size();
+
+		if (frame != null)
+		{
+			for (Value v: slots)
+			{
+				if (v != null)
+				{
+					size++;
+				}
+			}
+		}
+
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	@Override
+	public Set<TCNameToken> keySet()
+	{
+		return (frame == null) ? super.keySet() : Collections.unmodifiableSet(getNamed().keySet());
+	}
+
+	@Override
+	public Collection<Value> values()
+	{
+		return (frame == null) ? super.values() : Collections.unmodifiableCollection(getNamed().values());
+	}
+
+	@Override
+	public Set<Map.Entry<TCNameToken, Value>> entrySet()
+	{
+		return (frame == null) ? super.entrySet() : Collections.unmodifiableSet(getNamed().entrySet());
+	}
+
+	/**
+	 * A map of the names in the slots and the map of a frame.
+	 */
+	private Map<TCNameToken, Value> getNamed()
+	{
+		Map<TCNameToken, Value> named = new HashMap<TCNameToken, Value>();
+
+		for (Map.Entry<TCNameToken, Value> entry: super.entrySet())
+		{
+			named.put(entry.getKey(), entry.getValue());
+		}
+
+		for (int i=0; i<slots.length; i++)
+		{
+			if (slots[i] != null)
+			{
+				named.put(frame.getName(i), slots[i]);
+			}
+		}
+
+		return named;
+	}
+
 	/**
 	 * Get all visible names from this Context, with more visible
 	 * values overriding those below.
@@ -210,6 +412,69 @@ public class Context extends HashMap<TCNameToken, Value>
 		return v;
 	}
 
+	/**
+	 * Get the value for a name that was resolved to a slot of a frame. This
+	 * finds the same value as {@link #check(TCNameToken)}, but the Context of
+	 * the frame is recognised by its Frame, and the contexts above it are only
+	 * searched if they could hold the name. The frame may not be in the chain,
+	 * as when the variable is in a lambda body, and then this is a search by
+	 * name.
+	 */
+	public Value check(TCNameToken name, Frame target, int slot)
+	{
+		long bit = Frame.bitOf(name);
+
+		for (Context ctxt = this; ctxt != null; ctxt = ctxt.outer)
+		{
+			if (ctxt.frame == target)
+			{
+				Value v = ctxt.slots[slot];
+
+				if (v != null)
+				{
+					return v;
+				}
+			}
+			else if (!(ctxt instanceof RootContext))
+			{
+				Value v = (ctxt.frame != null && (ctxt.frame.mask & bit) == 0) ?
+					(ctxt.isMapEmpty() ? null : ctxt.getMapped(name)) : ctxt.get(name);
+
+				if (v != null)
+				{
+					return v;
+				}
+			}
+
+			if (ctxt instanceof RootContext)
+			{
+				return ctxt.check(name);	// Roots have their own rules
+			}
+		}
+
+		return null;
+	}
+
+	private boolean isMapEmpty()
+	{
+		return super.isEmpty();
+	}
+
+	/**
+	 * As {@link #check(TCNameToken, Frame, int)}, but the name must be found.
+	 */
+	public Value lookup(TCNameToken name, Frame target, int slot)
+	{
+		Value v = check(name, target, slot);
+
+		if (v == null)
+		{
+			ExceptionHandler.abort(name.getLocation(), 4034, "Name '" + name + "' not in scope", this);
+		}
+
+		return v;
+	}
+
 	/**
 	 * Locate the Context in a chain that contains a name, if any.
 	 */
@@ -35,7 +35,7 @@ public class ExceptionHandler
 		if (Settings.exceptions)
 		{
 			Console.err.println(e.getMessage());
-			throw new ExitException(new QuoteValue("RuntimeError"), e.location, e.ctxt);
+			throw new ExitException(QuoteValue.valueOf("RuntimeError"), e.location, e.ctxt);
 		}
 		else
 		{
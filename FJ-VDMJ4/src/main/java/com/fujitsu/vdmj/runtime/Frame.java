@@ -0,0 +1,214 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.runtime;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.expressions.INVariableExpression;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+
+/**
+ * The names bound by a function, let, quantifier or block statement, each of
+ * which has a slot in the Context that evaluates the construct, rather than an
+ * entry in its map. The constructor of the IN node makes its Frame, and the
+ * variables that refer to its names are resolved to the Frame and a slot when
+ * the tree is mapped from TC to IN. So evaluating one finds its Context by the
+ * Frame and reads the slot, rather than hashing the name at every level of the
+ * chain (see {@link Context#check(TCNameToken, Frame, int)}).
+ */
+public class Frame implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The fields of IN classes that can lead to a variable, by class. */
+	private static final Map<Class<?>, List<Field>> fields = new HashMap<Class<?>, List<Field>>();
+
+	private final TCNameToken[] names;
+	private final Map<TCNameToken, Integer> slots;
+
+	/** The bits of all the names, see {@link #bitOf(TCNameToken)}. */
+	public final long mask;
+
+	public Frame(TCNameList list)
+	{
+		List<TCNameToken> unique = new Vector<TCNameToken>();
+		slots = new HashMap<TCNameToken, Integer>();
+		long bits = 0;
+
+		for (TCNameToken name: list)
+		{
+			if (!slots.containsKey(name))	// Patterns can repeat a name
+			{
+				slots.put(name, unique.size());
+				unique.add(name);
+				bits |= bitOf(name);
+			}
+		}
+
+		names = unique.toArray(new TCNameToken[unique.size()]);
+		mask = bits;
+	}
+
+	public int size()
+	{
+		return names.length;
+	}
+
+	public TCNameToken getName(int slot)
+	{
+		return names[slot];
+	}
+
+	/**
+	 * The slot of a name, or -1. As with {@link Context#get(Object)}, a name
+	 * with a type qualifier is compared with each of ours if it has no exact
+	 * match.
+	 */
+	public int indexOf(Object name)
+	{
+		Integer slot = slots.get(name);
+
+		if (slot != null)
+		{
+			return slot;
+		}
+
+		if (name instanceof TCNameToken && ((TCNameToken)name).getTypeQualifier() != null)
+		{
+			for (int i=0; i<names.length; i++)
+			{
+				if (names[i].equals(name))
+				{
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * One of 64 bits for a name. A Frame whose mask does not have a name's bit
+	 * does not bind it, so a lookup can pass a Context without searching it.
+	 */
+	public static long bitOf(TCNameToken name)
+	{
+		return 1L << (name.getName().hashCode() & 63);
+	}
+
+	/**
+	 * Resolve the variables in the trees given that refer to our names. This
+	 * is called by the constructors of the IN nodes that bind the names, and
+	 * the mapper constructs the nodes within them first. So the names of any
+	 * inner frame, which hide ours, have already been resolved, and resolved
+	 * variables are left alone. Every kind of node can contain a variable, so
+	 * the trees are walked by reflection, though not into definitions that are
+	 * referenced rather than contained, like a class or a function called.
+	 */
+	public void resolve(Object... trees)
+	{
+		Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+
+		for (Object tree: trees)
+		{
+			resolve(tree, visited);
+		}
+	}
+
+	private void resolve(Object node, Map<Object, Object> visited)
+	{
+		if (node == null || visited.put(node, node) != null)
+		{
+			return;
+		}
+		else if (node instanceof INVariableExpression)
+		{
+			((INVariableExpression)node).setFrame(this);
+		}
+		else if (node instanceof List)
+		{
+			for (Object item: (List<?>)node)
+			{
+				resolve(item, visited);		// Including the definitions in a list
+			}
+		}
+		else if (node.getClass().getName().startsWith("com.fujitsu.vdmj.in."))
+		{
+			try
+			{
+				for (Field field: getFields(node.getClass()))
+				{
+					Object value = field.get(node);
+
+					if (!(value instanceof INDefinition))
+					{
+						resolve(value, visited);
+					}
+				}
+			}
+			catch (IllegalAccessException e)
+			{
+				throw new IllegalStateException("Cannot resolve names in " + node.getClass(), e);
+			}
+		}
+	}
+
+	private static List<Field> getFields(Class<?> nodeClass)
+	{
+		synchronized (fields)
+		{
+			List<Field> list = fields.get(nodeClass);
+
+			if (list == null)
+			{
+				list = new Vector<Field>();
+
+				for (Class<?> c = nodeClass; c != null; c = c.getSuperclass())
+				{
+					for (Field field: c.getDeclaredFields())
+					{
+						if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive())
+						{
+							field.setAccessible(true);
+							list.add(field);
+						}
+					}
+				}
+
+				fields.put(nodeClass, list);
+			}
+
+			return list;
+		}
+	}
+}
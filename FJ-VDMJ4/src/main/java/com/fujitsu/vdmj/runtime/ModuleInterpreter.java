@@ -34,6 +34,7 @@ import com.fujitsu.vdmj.in.INNode;
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
 import com.fujitsu.vdmj.in.definitions.INNamedTraceDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.jit.JITCompiler;
 import com.fujitsu.vdmj.in.modules.INModule;
 import com.fujitsu.vdmj.in.modules.INModuleList;
 import com.fujitsu.vdmj.in.statements.INStatement;
@@ -61,6 +62,8 @@ import com.fujitsu.vdmj.traces.CallSequence;
 import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.ModuleEnvironment;
 import com.fujitsu.vdmj.values.CPUValue;
+import com.fujitsu.vdmj.values.DTCPlan;
+import com.fujitsu.vdmj.values.MemoTable;
 import com.fujitsu.vdmj.values.Value;
 
 /**
@@ -197,6 +200,9 @@ public class ModuleInterpreter extends Interpreter
 	{
 		scheduler.init();
 		CPUValue.init(scheduler);
+		JITCompiler.init();
+		MemoTable.init(executableModules);
+		DTCPlan.init();
 		initialContext = executableModules.creatInitialContext();
 		executableModules.initialize(initialContext);
 	}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.runtime;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.values.NameValuePair;
+import com.fujitsu.vdmj.values.NameValuePairList;
+import com.fujitsu.vdmj.values.QuantifierList;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Evaluate the bindings of a quantifier or comprehension on several threads.
+ * This is only done within functions, where evaluation has no side effects,
+ * for at least parallel_threshold bindings, and when nothing is being debugged.
+ *
+ * The bindings are split into contiguous chunks, and each chunk is evaluated
+ * in order by a pool thread with its own ThreadState. The results are returned
+ * in binding order, up to the first binding that is decisive or that fails, so
+ * the outcome (including which error is raised) is the same as evaluating the
+ * bindings in order on one thread.
+ *
+ * The threads share the values of the enclosing contexts, which functions do
+ * not change, though copies of them may be made and changed on each thread
+ * (see ValueList and ValueMap).
+ */
+public class ParallelEvaluator
+{
+	private static ExecutorService pool = null;
+
+	/**
+	 * The evaluation of one binding, in a context that holds its names.
+	 */
+	public static abstract class Binding<T>
+	{
+		/** Return the result for the binding, or null if there is none. */
+		abstract public T eval(NameValuePairList nvpl, Context ctxt) throws ValueException;
+
+		/** True if no later bindings are needed after this result. */
+		public boolean isDecisive(T result)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * True if this number of bindings should be evaluated in parallel.
+	 */
+	public static boolean isWanted(long bindings, Context ctxt)
+	{
+		if (Properties.parallel_threshold <= 0 ||
+			bindings < Properties.parallel_threshold ||
+			!ctxt.threadState.isPure() ||
+			Settings.exceptions ||
+			ThreadState.anyStepped() ||
+			Thread.currentThread() instanceof Worker)	// Nested, so use this thread
+		{
+			return false;
+		}
+
+		Interpreter interpreter = Interpreter.getInstance();
+		return interpreter != null && interpreter.getBreakpoints().isEmpty();
+	}
+
+	/**
+	 * Copy the combinations of a QuantifierList, which re-uses its result.
+	 */
+	public static List<NameValuePairList> getBindings(QuantifierList quantifiers)
+	{
+		List<NameValuePairList> bindings = new Vector<NameValuePairList>();
+
+		while (quantifiers.hasNext())
+		{
+			NameValuePairList copy = new NameValuePairList();
+			copy.addAll(quantifiers.next());
+			bindings.add(copy);
+		}
+
+		return bindings;
+	}
+
+	/**
+	 * Evaluate the bindings, returning the non-null results in binding order,
+	 * ending with the first decisive result, if any.
+	 */
+	public static <T> List<T> evaluate(LexLocation location, String title,
+		List<NameValuePairList> bindings, Binding<T> binding, Context ctxt)
+		throws ValueException
+	{
+		int size = bindings.size();
+		int chunks = Math.min(size, getThreads() * 4);
+		AtomicInteger limit = new AtomicInteger(size);
+		List<Future<Chunk<T>>> futures = new Vector<Future<Chunk<T>>>(chunks);
+
+		for (int c=0; c<chunks; c++)
+		{
+			int from = (int)((long)size * c / chunks);
+			int to = (int)((long)size * (c + 1) / chunks);
+
+			futures.add(getPool().submit(
+				new Chunk<T>(location, title, bindings, from, to, binding, limit, ctxt)));
+		}
+
+		List<T> results = new Vector<T>();
+
+		for (Future<Chunk<T>> future: futures)
+		{
+			Chunk<T> chunk = null;
+
+			try
+			{
+				chunk = future.get();
+			}
+			catch (InterruptedException e)
+			{
+				throw new ContextException(4173, "Parallel evaluation interrupted", location, ctxt);
+			}
+			catch (ExecutionException e)
+			{
+				throw new RuntimeException(e.getCause());
+			}
+
+			results.addAll(chunk.results);
+
+			if (chunk.failure instanceof ValueException)
+			{
+				throw (ValueException)chunk.failure;
+			}
+			else if (chunk.failure instanceof RuntimeException)
+			{
+				throw (RuntimeException)chunk.failure;
+			}
+			else if (chunk.failure instanceof Error)
+			{
+				throw (Error)chunk.failure;
+			}
+			else if (chunk.stopped)
+			{
+				break;		// Later chunks are not needed, and stop themselves
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Add the names of a binding to a context. This returns false if the same
+	 * name is bound to different values, which means the binding does not match.
+	 */
+	public static boolean bind(Context ctxt, NameValuePairList nvpl)
+	{
+		for (NameValuePair nvp: nvpl)
+		{
+			Value v = ctxt.get(nvp.name);
+
+			if (v == null)
+			{
+				ctxt.put(nvp.name, nvp.value);
+			}
+			else if (!v.equals(nvp.value))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int getThreads()
+	{
+		return Properties.parallel_threads > 0 ?
+			Properties.parallel_threads : Runtime.getRuntime().availableProcessors();
+	}
+
+	private static synchronized ExecutorService getPool()
+	{
+		if (pool == null)
+		{
+			pool = Executors.newFixedThreadPool(getThreads(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					return new Worker(r);
+				}
+			});
+		}
+
+		return pool;
+	}
+
+	/**
+	 * The pool threads, which have the same stack size as VDM threads.
+	 */
+	private static class Worker extends Thread
+	{
+		public Worker(Runnable r)
+		{
+			super(null, r, "ParallelEvaluator", Properties.scheduler_stack_size);
+			setDaemon(true);
+		}
+	}
+
+	/**
+	 * A contiguous range of bindings, evaluated in order by one pool thread.
+	 */
+	private static class Chunk<T> implements Callable<Chunk<T>>
+	{
+		private final LexLocation location;
+		private final String title;
+		private final List<NameValuePairList> bindings;
+		private final int from;
+		private final int to;
+		private final Binding<T> binding;
+		private final AtomicInteger limit;	// The first decisive binding so far
+		private final Context ctxt;
+
+		public final List<T> results = new Vector<T>();
+		public Throwable failure = null;
+		public boolean stopped = false;
+
+		public Chunk(LexLocation location, String title, List<NameValuePairList> bindings,
+			int from, int to, Binding<T> binding, AtomicInteger limit, Context ctxt)
+		{
+			this.location = location;
+			this.title = title;
+			this.bindings = bindings;
+			this.from = from;
+			this.to = to;
+			this.binding = binding;
+			this.limit = limit;
+			this.ctxt = ctxt;
+		}
+
+		@Override
+		public Chunk<T> call()
+		{
+			Context threadContext = new Context(location, title, ctxt);
+			threadContext.setThreadState(ctxt.threadState.CPU);
+			threadContext.threadState.setAtomic(true);
+			threadContext.threadState.setPure(true);
+			Context evalContext = new Context(location, title, threadContext);
+
+			for (int i=from; i<to && i<limit.get(); i++)
+			{
+				NameValuePairList nvpl = bindings.get(i);
+				evalContext.clear();
+
+				if (!bind(evalContext, nvpl))
+				{
+					continue;
+				}
+
+				try
+				{
+					T result = binding.eval(nvpl, evalContext);
+
+					if (result != null)
+					{
+						results.add(result);
+
+						if (binding.isDecisive(result))
+						{
+							stop(i);
+							break;
+						}
+					}
+				}
+				catch (Throwable e)
+				{
+					failure = e;
+					stop(i);
+					break;
+				}
+			}
+
+			return this;
+		}
+
+		private void stop(int index)
+		{
+			stopped = true;
+			int current = limit.get();
+
+			while (index < current && !limit.compareAndSet(current, index))
+			{
+				current = limit.get();
+			}
+		}
+	}
+}
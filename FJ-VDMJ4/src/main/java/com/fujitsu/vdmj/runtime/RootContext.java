@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.runtime;
 
 import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.values.FunctionValue;
 import com.fujitsu.vdmj.values.ObjectValue;
 
 /**
@@ -36,6 +37,9 @@ public abstract class RootContext extends Context
 {
 	protected final Context freeVariables;
 
+	/** The function whose body is evaluated in this context, if it makes tail calls */
+	public FunctionValue function = null;
+
 	public RootContext(
 		LexLocation location, String title, Context freeVariables, Context outer)
 	{
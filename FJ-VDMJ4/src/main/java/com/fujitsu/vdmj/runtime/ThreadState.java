@@ -31,6 +31,11 @@ import com.fujitsu.vdmj.values.CPUValue;
 
 /**
  * A class to hold some runtime information for each thread.
+ *
+ * A ThreadState is only used by the thread that created it, including when
+ * that thread is stopped in the debugger (debug commands are executed by the
+ * stopped thread, and are passed to it via an Exchanger). So the methods here,
+ * which are called several times for every function call, are not synchronized.
  */
 
 public class ThreadState implements Serializable
@@ -46,6 +51,9 @@ public class ThreadState implements Serializable
 	public RootContext nextctxt;
 	public Context outctxt;
 
+	/** Set when any thread first steps, see Breakpoint.check */
+	private static volatile boolean stepped = false;
+
 
 	public ThreadState(CPUValue cpu)
 	{
@@ -59,15 +67,29 @@ public class ThreadState implements Serializable
 		setBreaks(null, null, null);
 	}
 
-	public synchronized void setBreaks(
+	public void setBreaks(
 		LexLocation stepline, RootContext nextctxt, Context outctxt)
 	{
 		this.stepline = stepline;
 		this.nextctxt = nextctxt;
 		this.outctxt = outctxt;
+
+		if (stepline != null)
+		{
+			stepped = true;
+		}
+	}
+
+	/**
+	 * True if any thread has ever been stepped by a debugger. Until then, no
+	 * thread has a stepline to check.
+	 */
+	public static boolean anyStepped()
+	{
+		return stepped;
 	}
 
-	public synchronized boolean isStepping()
+	public boolean isStepping()
 	{
 		return stepline != null;
 	}
@@ -88,7 +110,7 @@ public class ThreadState implements Serializable
 		}
 	}
 
-	public synchronized void setAtomic(boolean atomic)
+	public void setAtomic(boolean atomic)
 	{
 		if (atomic)
 		{
@@ -105,7 +127,7 @@ public class ThreadState implements Serializable
 	 * the outermost function call returns. Note that operations can only be called in
 	 * this mode if they are also pure.
 	 */
-	public synchronized void setPure(boolean pure)
+	public void setPure(boolean pure)
 	{
 		if (pure)
 		{
@@ -117,7 +139,7 @@ public class ThreadState implements Serializable
 		}
 	}
 	
-	public synchronized boolean isPure()
+	public boolean isPure()
 	{
 		return pure > 0;
 	}
@@ -72,6 +72,8 @@ public abstract class SchedulableThread extends Thread implements Serializable,
 		Resource resource, ObjectValue object, long priority,
 		boolean periodic, long swapInBy)
 	{
+		super(null, null, "SchedulableThread", Properties.scheduler_stack_size);	// Named by subclasses
+
 		this.resource = resource;
 		this.object = object;
 		this.periodic = periodic;
@@ -62,7 +62,7 @@ public class BUSValue extends ObjectValue
 		SetValue set = (SetValue)argvals.get(2);
 		List<CPUResource> cpulist = new Vector<CPUResource>();
 
-		for (Value v: set.values)
+		for (Value v: set.getValues())
 		{
 			CPUValue cpuv = (CPUValue)v.deref();
 			cpulist.add(cpuv.resource);
@@ -34,11 +34,20 @@ public class BooleanValue extends Value
 	private static final long serialVersionUID = 1L;
 	public final boolean value;
 
+	/** The canonical true and false values, which should be used in preference to new ones. */
+	public static final BooleanValue TRUE = new BooleanValue(true);
+	public static final BooleanValue FALSE = new BooleanValue(false);
+
 	public BooleanValue(boolean value)
 	{
 		this.value = value;
 	}
 
+	public static BooleanValue valueOf(boolean value)
+	{
+		return value ? TRUE : FALSE;
+	}
+
 	@Override
 	public boolean boolValue(Context ctxt)
 	{
@@ -48,7 +57,11 @@ public class BooleanValue extends Value
 	@Override
 	public boolean equals(Object other)
 	{
-		if (other instanceof Value)
+		if (other == this)
+		{
+			return true;
+		}
+		else if (other instanceof Value)
 		{
 			Value val = ((Value)other).deref();
 
@@ -37,11 +37,27 @@ public class CharacterValue extends Value
 	private static final long serialVersionUID = 1L;
 	public final char unicode;
 
+	/** Shared values for the Latin-1 characters. */
+	private static final CharacterValue[] cache = new CharacterValue[256];
+
+	static
+	{
+		for (int i=0; i<cache.length; i++)
+		{
+			cache[i] = new CharacterValue((char)i);
+		}
+	}
+
 	public CharacterValue(char value)
 	{
 		this.unicode = value;
 	}
 
+	public static CharacterValue valueOf(char value)
+	{
+		return value < cache.length ? cache[value] : new CharacterValue(value);
+	}
+
 	@Override
 	public char charValue(Context ctxt)
 	{
@@ -51,7 +67,11 @@ public class CharacterValue extends Value
 	@Override
 	public boolean equals(Object other)
 	{
-		if (other instanceof Value)
+		if (other == this)
+		{
+			return true;
+		}
+		else if (other instanceof Value)
 		{
 			Value val = ((Value)other).deref();
 
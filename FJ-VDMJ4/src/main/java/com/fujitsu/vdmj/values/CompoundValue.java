@@ -0,0 +1,99 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+/**
+ * The parent of the values that contain other values: sequences, sets, maps,
+ * records and tuples. Their hashCode and isImmutable methods visit every
+ * member, so the results are cached here.
+ *
+ * A value is immutable if all of its members are, unless it has been marked
+ * as mutable because it is changed in place or extended by assignment. The
+ * hash is only cached for immutable values, as the members of others can
+ * change, so no cached hash ever needs to be invalidated.
+ */
+abstract public class CompoundValue extends Value
+{
+	private static final long serialVersionUID = 1L;
+
+	private transient Boolean immutable = null;
+	private transient int hash = 0;
+
+	/**
+	 * The hashCode of the value, calculated from its members.
+	 */
+	abstract protected int deepHash();
+
+	/**
+	 * True if every member of the value is immutable.
+	 */
+	abstract protected boolean computeImmutable();
+
+	@Override
+	public int hashCode()
+	{
+		if (hash != 0)
+		{
+			return hash;
+		}
+
+		int h = deepHash();
+
+		if (isImmutable())
+		{
+			hash = h;
+		}
+
+		return h;
+	}
+
+	@Override
+	public boolean isImmutable()
+	{
+		if (immutable == null)
+		{
+			immutable = computeImmutable();
+		}
+
+		return immutable;
+	}
+
+	/**
+	 * Mark the value as mutable, because it is changed in place or extended by
+	 * assignment. This must be called before its hash is cached.
+	 */
+	protected void setMutable()
+	{
+		immutable = Boolean.FALSE;
+	}
+
+	/**
+	 * True if the hashes of both values are cached and differ, so that the
+	 * values cannot be equal.
+	 */
+	protected boolean hashDiffers(CompoundValue other)
+	{
+		return hash != 0 && other.hash != 0 && hash != other.hash;
+	}
+}
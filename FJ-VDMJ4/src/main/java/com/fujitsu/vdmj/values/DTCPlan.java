@@ -0,0 +1,292 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fujitsu.vdmj.tc.types.TCBooleanType;
+import com.fujitsu.vdmj.tc.types.TCBracketType;
+import com.fujitsu.vdmj.tc.types.TCCharacterType;
+import com.fujitsu.vdmj.tc.types.TCMapType;
+import com.fujitsu.vdmj.tc.types.TCNamedType;
+import com.fujitsu.vdmj.tc.types.TCNumericType;
+import com.fujitsu.vdmj.tc.types.TCOptionalType;
+import com.fujitsu.vdmj.tc.types.TCParameterType;
+import com.fujitsu.vdmj.tc.types.TCProductType;
+import com.fujitsu.vdmj.tc.types.TCQuoteType;
+import com.fujitsu.vdmj.tc.types.TCSeqType;
+import com.fujitsu.vdmj.tc.types.TCSetType;
+import com.fujitsu.vdmj.tc.types.TCTokenType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.tc.types.TCUnionType;
+import com.fujitsu.vdmj.tc.types.TCUnknownType;
+
+/**
+ * A plan for the dynamic type checking of values against one type. The plan
+ * decides, without throwing exceptions, whether Value.convertValueTo could
+ * possibly succeed for a value. A false answer means the conversion would
+ * certainly fail; a true answer means it has to be tried. This is used when
+ * converting to a union, so that members of the wrong kind are skipped rather
+ * than tried, which would raise and catch an exception for each one.
+ *
+ * For most value classes, the answer only depends on the class of the value,
+ * so the plan caches it per class. Quotes, records, tuples and wrapped values
+ * are decided by looking at the value itself.
+ *
+ * Plans are created once per type and shared, and the tests below mirror the
+ * convertValueTo methods of the Value classes, so these must be kept in step.
+ *
+ * The plan of a named type also remembers the last few immutable values that
+ * met its invariant, so that a value passed repeatedly to the type is not
+ * checked again. Updatable values are never remembered, as they can change;
+ * their invariants are checked by InvariantValueListeners when they do.
+ */
+public class DTCPlan
+{
+	/** The plans for the types of the current specification */
+	private static Map<TCType, DTCPlan> plans = new IdentityHashMap<TCType, DTCPlan>();
+
+	/** The number of values whose invariants are remembered, a power of two */
+	private static final int VERIFIED_SIZE = 256;
+
+	public final TCType type;
+	private final DTCPlan[] members;	// Of a union, in TCUnionType.types order
+	private final DTCPlan inner;		// Of a named, optional or bracketed type
+	private final Map<Class<?>, Boolean> decisions = new ConcurrentHashMap<Class<?>, Boolean>();
+	private final Value[] verified;		// Of a named type, by identity hash
+
+	private DTCPlan(TCType type)
+	{
+		this.type = type;
+		plans.put(type, this);		// Before members, as types can be recursive
+
+		if (type instanceof TCUnionType)
+		{
+			TCUnionType utype = (TCUnionType)type;
+			members = new DTCPlan[utype.types.size()];
+			int i = 0;
+
+			for (TCType member: utype.types)
+			{
+				members[i++] = get(member);
+			}
+
+			inner = null;
+			verified = null;
+		}
+		else if (type instanceof TCNamedType)
+		{
+			members = null;
+			inner = get(((TCNamedType)type).type);
+			verified = new Value[VERIFIED_SIZE];
+		}
+		else if (type instanceof TCOptionalType)
+		{
+			members = null;
+			inner = get(((TCOptionalType)type).type);
+			verified = null;
+		}
+		else if (type instanceof TCBracketType)
+		{
+			members = null;
+			inner = get(((TCBracketType)type).type);
+			verified = null;
+		}
+		else
+		{
+			members = null;
+			inner = null;
+			verified = null;
+		}
+	}
+
+	/**
+	 * Discard the plans, which refer to the types of the last specification
+	 * initialized.
+	 */
+	public static synchronized void init()
+	{
+		plans = new IdentityHashMap<TCType, DTCPlan>();
+	}
+
+	/**
+	 * Get the shared plan for a type, creating it if necessary.
+	 */
+	public static synchronized DTCPlan get(TCType type)
+	{
+		DTCPlan plan = plans.get(type);
+		return (plan != null) ? plan : new DTCPlan(type);
+	}
+
+	/**
+	 * The plans of the members of a union type, in the order they are tried.
+	 */
+	public DTCPlan[] getMembers()
+	{
+		return members;
+	}
+
+	/**
+	 * True if the value is known to meet the invariant of this named type.
+	 */
+	public boolean isVerified(Value value)
+	{
+		return verified[System.identityHashCode(value) & (VERIFIED_SIZE - 1)] == value;
+	}
+
+	/**
+	 * Remember that a value meets the invariant of this named type. Only
+	 * immutable values can be remembered. A value may displace another with
+	 * the same hash, which is then checked again if it is seen again.
+	 */
+	public void setVerified(Value value)
+	{
+		if (value.isImmutable())
+		{
+			verified[System.identityHashCode(value) & (VERIFIED_SIZE - 1)] = value;
+		}
+	}
+
+	/**
+	 * False if converting the value to this type would certainly fail.
+	 */
+	public boolean mayConvert(Value value)
+	{
+		return mayConvert(value, 0);
+	}
+
+	private boolean mayConvert(Value value, int depth)
+	{
+		if (depth > 20)
+		{
+			return true;	// A recursive type, so try the conversion
+		}
+
+		if (value instanceof QuoteValue ||
+			value instanceof RecordValue ||
+			value instanceof TupleValue ||
+			value instanceof ReferenceValue)
+		{
+			return decide(value, depth);
+		}
+
+		Class<?> vclass = value.getClass();
+		Boolean decision = decisions.get(vclass);
+
+		if (decision == null)
+		{
+			decision = decide(value, depth);
+			decisions.put(vclass, decision);
+		}
+
+		return decision;
+	}
+
+	private boolean decide(Value value, int depth)
+	{
+		// First, the tests made by the convertValueTo methods of the subclasses
+
+		if (value instanceof InvariantValue)
+		{
+			InvariantValue ivalue = (InvariantValue)value;
+			return type.equals(ivalue.type) || mayConvert(ivalue.value, depth + 1);
+		}
+		else if (value instanceof TransactionValue)
+		{
+			return true;
+		}
+		else if (value instanceof ReferenceValue)
+		{
+			return mayConvert(((ReferenceValue)value).value, depth + 1);
+		}
+		else if (value instanceof QuoteValue)
+		{
+			if (type instanceof TCQuoteType)
+			{
+				return ((TCQuoteType)type).value.equals(((QuoteValue)value).value);
+			}
+		}
+		else if (value instanceof RecordValue)
+		{
+			if (type.equals(((RecordValue)value).type))
+			{
+				return true;
+			}
+		}
+		else if (value instanceof TupleValue)
+		{
+			if (type instanceof TCProductType)
+			{
+				return ((TCProductType)type).types.size() == ((TupleValue)value).values.size();
+			}
+		}
+		else if (value instanceof UndefinedValue || value instanceof ParameterValue)
+		{
+			return false;
+		}
+		else if ((value instanceof BooleanValue && type instanceof TCBooleanType) ||
+				 (value instanceof CharacterValue && type instanceof TCCharacterType) ||
+				 (value instanceof NumericValue && type instanceof TCNumericType) ||
+				 (value instanceof NilValue && type instanceof TCOptionalType) ||
+				 (value instanceof TokenValue && type instanceof TCTokenType) ||
+				 (value instanceof SeqValue && type instanceof TCSeqType) ||
+				 (value instanceof SetValue && type instanceof TCSetType) ||
+				 (value instanceof MapValue && type instanceof TCMapType))
+		{
+			return true;
+		}
+		else if (!(value instanceof BooleanValue || value instanceof CharacterValue ||
+				   value instanceof NumericValue || value instanceof NilValue ||
+				   value instanceof TokenValue || value instanceof SeqValue ||
+				   value instanceof SetValue || value instanceof MapValue))
+		{
+			return true;	// Functions, operations, objects etc. are always tried
+		}
+
+		// Then the tests made by Value.convertValueTo for all values
+
+		if (members != null)
+		{
+			for (DTCPlan member: members)
+			{
+				if (member.mayConvert(value, depth + 1))
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+		else if (inner != null)
+		{
+			return inner.mayConvert(value, depth + 1);
+		}
+		else
+		{
+			return type instanceof TCParameterType || type instanceof TCUnknownType;
+		}
+	}
+}
@@ -72,6 +72,23 @@ public class FieldMap extends Vector<FieldValue>
 		return super.add(new FieldValue(k, v, comp));
 	}
 
+	/**
+	 * Replace the value of a field, keeping its position in the map.
+	 */
+	public void replace(String key, Value value)
+	{
+		for (int i=0; i<size(); i++)
+		{
+			FieldValue fv = get(i);
+
+			if (fv.name.equals(key))
+			{
+				set(i, new FieldValue(key, value, fv.comparable));
+				return;
+			}
+		}
+	}
+
 	public Value get(String key)
 	{
 		for (FieldValue fv: this)
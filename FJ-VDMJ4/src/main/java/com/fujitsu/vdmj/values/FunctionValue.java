@@ -32,10 +32,15 @@ import java.util.Set;
 import java.util.Stack;
 
 import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
 import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
 import com.fujitsu.vdmj.in.definitions.INImplicitFunctionDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.jit.CompiledExpression;
+import com.fujitsu.vdmj.in.jit.JITCompiler;
+import com.fujitsu.vdmj.in.patterns.INIdentifierPattern;
+import com.fujitsu.vdmj.in.patterns.INIgnorePattern;
 import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.in.patterns.INPatternList;
 import com.fujitsu.vdmj.in.patterns.INPatternListList;
@@ -44,6 +49,7 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.ClassContext;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
+import com.fujitsu.vdmj.runtime.Frame;
 import com.fujitsu.vdmj.runtime.ExceptionHandler;
 import com.fujitsu.vdmj.runtime.ObjectContext;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
@@ -85,6 +91,22 @@ public class FunctionValue extends Value
 	private ValueList curriedArgs = null;
 	private boolean isMeasure = false;
 
+	// Calls counted for the JITCompiler, and the compiled body, if any. The
+	// count is not synchronized, as a lost increment only delays compilation.
+	private transient int calls = 0;
+	private transient volatile CompiledExpression compiled = null;
+
+	// The table of results, if this function is memoised
+	private transient MemoTable memo = null;
+
+	// The frame of the parameter names, if the definition has one
+	private Frame frame = null;
+
+	// The parameter names, if they are all identifiers or "-" (a null name)
+	private transient TCNameToken[] paramNames = null;
+	private transient boolean paramNamesSet = false;
+	private transient String title = null;
+
 	public ObjectValue self = null;
 	public boolean isStatic = false;
 	public boolean uninstantiated = false;
@@ -149,6 +171,8 @@ public class FunctionValue extends Value
 		this.freeVariables = freeVariables;
 		this.checkInvariants = !def.isTypeInvariant;
 		this.classdef = def.classDefinition;
+		this.memo = MemoTable.get(def);
+		this.frame = def.frame;
 
 		if (Settings.measureChecks && def.measure != null)
 		{
@@ -182,6 +206,8 @@ public class FunctionValue extends Value
 		this.freeVariables = freeVariables;
 		this.checkInvariants = true;
 		this.classdef = def.classDefinition;
+		this.memo = MemoTable.get(def);
+		this.frame = def.frame;
 
 		if (Settings.measureChecks && def.measure != null)
 		{
@@ -271,293 +297,458 @@ public class FunctionValue extends Value
 			abort(3033, "Polymorphic function has not been instantiated: " + name, ctxt);
 		}
 
-		INPatternList paramPatterns = paramPatternList.get(0);
-		RootContext evalContext = newContext(from, toTitle(), ctxt, sctxt);
-
-		if (typeValues != null)
-		{
-			// Add any @T type values, for recursive polymorphic functions
-			evalContext.putAll(typeValues);
-		}
-
-		if (argValues.size() != paramPatterns.size())
-		{
-			ExceptionHandler.abort(type.location, 4052, "Wrong number of arguments passed to " + name, ctxt);
-		}
+		MemoTable.Key key = null;
 
-		Iterator<Value> valIter = argValues.iterator();
-		Iterator<TCType> typeIter = type.parameters.iterator();
-		NameValuePairMap args = new NameValuePairMap();
+		// Polymorphic and curried functions are not memoised, nor are functions
+		// with measures, since the measure checks depend on the caller.
 
-		for (INPattern p: paramPatterns)
+		if (memo != null && typeValues == null && paramPatternList.size() == 1 &&
+			measureName == null && !isMeasure)
 		{
-			Value pv = valIter.next();
-
-			if (checkInvariants)	// Don't even convert invariant arg values
-			{
-				pv = pv.convertTo(typeIter.next(), ctxt);
-			}
+			key = new MemoTable.Key(argValues);
+			Value rv = memo.lookup(key);
 
-			try
+			if (rv != null)
 			{
-				for (NameValuePair nvp: p.getNamedValues(pv, ctxt))
-				{
-					Value v = args.get(nvp.name);
+	    		if (ctxt.prepost > 0 && !rv.boolValue(ctxt))	// As below
+	    		{
+	    			ExceptionHandler.handle(new ContextException(ctxt.prepost,
+	    					ctxt.prepostMsg + name, body.getLocation(), ctxt));
+	    		}
 
-					if (v == null)
-					{
-						args.put(nvp);
-					}
-					else	// Names match, so values must also
-					{
-						if (!v.equals(nvp.value))
-						{
-							abort(4053, "Parameter patterns do not match arguments", ctxt);
-						}
-					}
-				}
-			}
-			catch (PatternMatchException e)
-			{
-				abort(e.number, e, ctxt);
+				return rv;
 			}
 		}
 
-		if (self != null)
-		{
-			evalContext.put(new TCNameToken(location, location.module, "self"), self);
-		}
-
-		evalContext.putAll(args);
+		INPatternList paramPatterns = paramPatternList.get(0);
+		int tailCalls = 0;
+		Stack<RootContext> tailContexts = null;
+		Stack<ValueList> tailArgs = null;
 
-		if (paramPatternList.size() == 1)
+		try
 		{
-			if (precondition != null && Settings.prechecks)
+			while (true)
 			{
-				// Evaluate pre/post in evalContext as it includes the type
-				// variables, if any. We disable the swapping and time (RT)
-				// as precondition checks should be "free".
+				RootContext evalContext = newContext(from, getTitle(), ctxt, sctxt);
+				evalContext.setFrame(frame);
 
-				try
+				if (key == null && Properties.tailcalls_enabled && !Settings.exceptions)
 				{
-					evalContext.threadState.setAtomic(true);
-					evalContext.setPrepost(4055, "Precondition failure: ");
-					precondition.eval(from, argValues, evalContext);
+					// Make tail calls, see below. These drop the frames of the calls
+					// from error stacks, so they are not made with -exceptions.
+					evalContext.function = this;
 				}
-				finally
+
+				if (typeValues != null)
 				{
-					evalContext.setPrepost(0, null);
-					evalContext.threadState.setAtomic(false);
+					// Add any @T type values, for recursive polymorphic functions
+					evalContext.putAll(typeValues);
 				}
-			}
 
-			Long tid = Thread.currentThread().getId();
+				if (argValues.size() != paramPatterns.size())
+				{
+					ExceptionHandler.abort(type.location, 4052, "Wrong number of arguments passed to " + name, ctxt);
+				}
 
-			if (isMeasure)
-			{
-				if (measuringThreads.contains(tid))		// We are measuring on this thread
+				if (self != null)
 				{
-    				if (!callingThreads.add(tid))		// And we've been here already
-    				{
-    					abort(4148, "Measure function is called recursively: " + name, evalContext);
-    				}
+					evalContext.put(new TCNameToken(location, location.module, "self"), self);
 				}
-			}
 
-			if (measureName != null)
-			{
-				if (measure == null)
+				TCNameToken[] names = getParamNames();
+
+				if (names != null)
 				{
-					measure = evalContext.lookup(measureName).functionValue(ctxt);
+					// Identifiers always match, so arguments are bound directly
 
-					if (typeValues != null)		// Function is polymorphic, so measure copies type args
+					for (int i=0; i<names.length; i++)
 					{
-						measure = (FunctionValue)measure.clone();
-						measure.uninstantiated = false;
-						measure.typeValues = typeValues;
+						Value pv = argValues.get(i);
+
+						if (checkInvariants)	// Don't even convert invariant arg values
+						{
+							pv = pv.convertTo(type.parameters.get(i), ctxt);
+						}
+
+						if (names[i] != null)
+						{
+							evalContext.put(names[i], pv);
+						}
 					}
+				}
+				else
+				{
+					Iterator<Value> valIter = argValues.iterator();
+					Iterator<TCType> typeIter = type.parameters.iterator();
+					NameValuePairMap args = new NameValuePairMap();
+
+					for (INPattern p: paramPatterns)
+					{
+						Value pv = valIter.next();
+
+						if (checkInvariants)	// Don't even convert invariant arg values
+						{
+							pv = pv.convertTo(typeIter.next(), ctxt);
+						}
 
-					measure.measuringThreads = Collections.synchronizedSet(new HashSet<Long>());
-					measure.callingThreads = Collections.synchronizedSet(new HashSet<Long>());
-					measure.isMeasure = true;
+						try
+						{
+							for (NameValuePair nvp: p.getNamedValues(pv, ctxt))
+							{
+								Value v = args.get(nvp.name);
+
+								if (v == null)
+								{
+									args.put(nvp);
+								}
+								else	// Names match, so values must also
+								{
+									if (!v.equals(nvp.value))
+									{
+										abort(4053, "Parameter patterns do not match arguments", ctxt);
+									}
+								}
+							}
+						}
+						catch (PatternMatchException e)
+						{
+							abort(e.number, e, ctxt);
+						}
+					}
+
+					evalContext.putAll(args);
 				}
+
+				if (paramPatternList.size() == 1)
+				{
+					if (precondition != null && Settings.prechecks)
+					{
+						// Evaluate pre/post in evalContext as it includes the type
+						// variables, if any. We disable the swapping and time (RT)
+						// as precondition checks should be "free".
+
+						try
+						{
+							evalContext.threadState.setAtomic(true);
+							evalContext.setPrepost(4055, "Precondition failure: ");
+							precondition.eval(from, argValues, evalContext);
+						}
+						finally
+						{
+							evalContext.setPrepost(0, null);
+							evalContext.threadState.setAtomic(false);
+						}
+					}
+
+					Long tid = (isMeasure || measureName != null) ?
+						Thread.currentThread().getId() : null;
+
+					if (isMeasure)
+					{
+						if (measuringThreads.contains(tid))		// We are measuring on this thread
+						{
+		    				if (!callingThreads.add(tid))		// And we've been here already
+		    				{
+		    					abort(4148, "Measure function is called recursively: " + name, evalContext);
+		    				}
+						}
+					}
+
+					if (measureName != null)
+					{
+						synchronized (this)		// Calls may be on several threads, see ParallelEvaluator
+						{
+							if (measure == null)
+							{
+								FunctionValue mf = evalContext.lookup(measureName).functionValue(ctxt);
+
+								if (typeValues != null)		// Function is polymorphic, so measure copies type args
+								{
+									mf = (FunctionValue)mf.clone();
+									mf.uninstantiated = false;
+									mf.typeValues = typeValues;
+								}
+
+								mf.measuringThreads = Collections.synchronizedSet(new HashSet<Long>());
+								mf.callingThreads = Collections.synchronizedSet(new HashSet<Long>());
+								mf.isMeasure = true;
+								measure = mf;
+							}
+						}
 				
-				// If this is a curried function, then the measure is called with all of the
-				// previously applied argument values, in addition to the argValues.
+						// If this is a curried function, then the measure is called with all of the
+						// previously applied argument values, in addition to the argValues.
 				
-				ValueList measureArgs = null;
+						ValueList measureArgs = null;
 				
-				if (curriedArgs == null)
-				{
-					measureArgs = argValues;
-				}
-				else
-				{
-					measureArgs = new ValueList();
-					measureArgs.addAll(curriedArgs);	// Previous args
-					measureArgs.addAll(argValues);		// Final args
-				}
+						if (curriedArgs == null)
+						{
+							measureArgs = argValues;
+						}
+						else
+						{
+							measureArgs = new ValueList();
+							measureArgs.addAll(curriedArgs);	// Previous args
+							measureArgs.addAll(argValues);		// Final args
+						}
 
-				// We disable the swapping and time (RT) as measure checks should be "free".
-				Value mv;
+						// We disable the swapping and time (RT) as measure checks should be "free".
+						Value mv;
 				
-				try
-				{
-					measure.measuringThreads.add(tid);
-					evalContext.threadState.setAtomic(true);
-					mv = measure.eval(measure.location, measureArgs, evalContext).deref();
-				}
-				finally
-				{
-					evalContext.threadState.setAtomic(false);
-					measure.measuringThreads.remove(tid);
-				}
+						try
+						{
+							measure.measuringThreads.add(tid);
+							evalContext.threadState.setAtomic(true);
+							mv = measure.eval(measure.location, measureArgs, evalContext).deref();
+						}
+						finally
+						{
+							evalContext.threadState.setAtomic(false);
+							measure.measuringThreads.remove(tid);
+						}
 
-				Stack<Value> stack = measureValues.get(tid);
+						Stack<Value> stack = measureValues.get(tid);
 
-				if (stack == null)
-				{
-					stack = new Stack<Value>();
-					measureValues.put(tid, stack);
-				}
+						if (stack == null)
+						{
+							stack = new Stack<Value>();
+							measureValues.put(tid, stack);
+						}
 
-				if (!stack.isEmpty())
-				{
-					Value old = stack.peek();		// Previous value
+						if (!stack.isEmpty())
+						{
+							Value old = stack.peek();		// Previous value
 
-    				if (old != null && mv.compareTo(old) >= 0)		// Not decreasing order
-    				{
-    					String message = "Measure failure: " +
-    						name + Utils.listToString("(", argValues, ", ", ")") + ", measure " +
-    						measure.name + ", current " + mv + ", previous " + old;
+		    				if (old != null && mv.compareTo(old) >= 0)		// Not decreasing order
+		    				{
+		    					String message = "Measure failure: " +
+		    						name + Utils.listToString("(", argValues, ", ", ")") + ", measure " +
+		    						measure.name + ", current " + mv + ", previous " + old;
     					
-    					measure = null;	// Re-initialise counters
-    					abort(4146, message, evalContext);
-    				}
-				}
+		    					measure = null;	// Re-initialise counters
+		    					abort(4146, message, evalContext);
+		    				}
+						}
 
-				stack.push(mv);
-			}
+						stack.push(mv);
+					}
 
-			Value rv = null;
+					Value rv = null;
 			
-			try
-			{
-				// Functions are executed atomically, so they can safely access arg object state
-				evalContext.threadState.setAtomic(true);
-				evalContext.threadState.setPure(true);
-				rv = body.eval(evalContext).convertTo(type.result, evalContext);
-			}
-			finally
-			{
-				evalContext.threadState.setAtomic(false);
-				evalContext.threadState.setPure(false);
-			}
+					try
+					{
+						// Functions are executed atomically, so they can safely access arg object state
+						evalContext.threadState.setAtomic(true);
+						evalContext.threadState.setPure(true);
+						rv = evalBody(evalContext);
 
-    		if (ctxt.prepost > 0)	// Note, caller's context is checked
-    		{
-    			if (!rv.boolValue(ctxt))
-    			{
-    				// Note that this calls getLocation to find out where the body
-    				// wants to report its location for this error - this may be an
-    				// errs clause in some circumstances.
-
-    				ExceptionHandler.handle(new ContextException(ctxt.prepost,
-    						ctxt.prepostMsg + name, body.getLocation(), evalContext));
-    			}
-    		}
+						if (!(rv instanceof TailCallValue))
+						{
+							rv = rv.convertTo(type.result, evalContext);
+						}
+					}
+					finally
+					{
+						evalContext.threadState.setAtomic(false);
+						evalContext.threadState.setPure(false);
+					}
 
-			if (postcondition != null && Settings.postchecks)
-			{
-				ValueList postArgs = new ValueList(argValues);
-				postArgs.add(rv);
+					if (rv instanceof TailCallValue)
+					{
+						// The body ends by calling this function, so we evaluate it again with
+						// the new arguments, rather than recursing. The postconditions of all
+						// the calls are checked when the last one returns.
 
-				// Evaluate pre/post in evalContext as it includes the type
-				// variables, if any. We disable the swapping and time (RT)
-				// as postcondition checks should be "free".
+						TailCallValue call = (TailCallValue)rv;
 
-				try
-				{
-					evalContext.threadState.setAtomic(true);
-					evalContext.setPrepost(4056, "Postcondition failure: ");
-					postcondition.eval(from, postArgs, evalContext);
-				}
-				finally
-				{
-					evalContext.setPrepost(0, null);
-					evalContext.threadState.setAtomic(false);
-				}
-			}
+						if (postcondition != null && Settings.postchecks)
+						{
+							if (tailContexts == null)
+							{
+								tailContexts = new Stack<RootContext>();
+								tailArgs = new Stack<ValueList>();
+							}
+
+							tailContexts.push(evalContext);
+							tailArgs.push(argValues);
+						}
 
-			if (measure != null)
-			{
-				measureValues.get(tid).pop();
-			}
+						tailCalls++;
+						from = call.location;
+						argValues = call.args;
+						continue;
+					}
 
-			if (isMeasure)
-			{
-				callingThreads.remove(tid);
-			}
+		    		if (ctxt.prepost > 0)	// Note, caller's context is checked
+		    		{
+		    			if (!rv.boolValue(ctxt))
+		    			{
+		    				// Note that this calls getLocation to find out where the body
+		    				// wants to report its location for this error - this may be an
+		    				// errs clause in some circumstances.
 
-			return rv;
-		}
-		else	// This is a curried function
-		{
-			if (type.result instanceof TCFunctionType)
-			{
-				// If a curried function has a pre/postcondition, then the
-				// result of a partial application has a pre/post condition
-				// with its free variables taken from the environment (so
-				// that parameters passed are fixed in subsequent applies).
+		    				ExceptionHandler.handle(new ContextException(ctxt.prepost,
+		    						ctxt.prepostMsg + name, body.getLocation(), evalContext));
+		    			}
+		    		}
 
-				FunctionValue newpre = null;
+					if (postcondition != null && Settings.postchecks)
+					{
+						checkPostcondition(evalContext, argValues, rv);
 
-				if (precondition != null)
-				{
-					newpre = precondition.curry(evalContext);
-				}
+						while (tailContexts != null && !tailContexts.isEmpty())
+						{
+							checkPostcondition(tailContexts.pop(), tailArgs.pop(), rv);
+						}
+					}
 
-				FunctionValue newpost = null;
+					if (measure != null)
+					{
+						Stack<Value> stack = measureValues.get(tid);
 
-				if (postcondition != null)
-				{
-					newpost = postcondition.curry(evalContext);
-				}
+						for (int i = 0; i <= tailCalls; i++)
+						{
+							stack.pop();
+						}
+					}
 
-				if (freeVariables != null)
-				{
-					evalContext.putAll(freeVariables);
+					if (isMeasure)
+					{
+						callingThreads.remove(tid);
+					}
+
+					if (key != null)
+					{
+						memo.store(key, rv);
+					}
+
+					return rv;
 				}
+				else	// This is a curried function
+				{
+					if (type.result instanceof TCFunctionType)
+					{
+						// If a curried function has a pre/postcondition, then the
+						// result of a partial application has a pre/post condition
+						// with its free variables taken from the environment (so
+						// that parameters passed are fixed in subsequent applies).
+
+						FunctionValue newpre = null;
+
+						if (precondition != null)
+						{
+							newpre = precondition.curry(evalContext);
+						}
+
+						FunctionValue newpost = null;
+
+						if (postcondition != null)
+						{
+							newpost = postcondition.curry(evalContext);
+						}
+
+						if (freeVariables != null)
+						{
+							evalContext.putAll(freeVariables);
+						}
 				
-				// Curried arguments are collected so that we can invoke any measure functions
-				// once we reach the final apply that does not return a function.
+						// Curried arguments are collected so that we can invoke any measure functions
+						// once we reach the final apply that does not return a function.
 				
-				ValueList argList = new ValueList();
+						ValueList argList = new ValueList();
 				
-				if (curriedArgs != null)
-				{
-					argList.addAll(curriedArgs);
-				}
+						if (curriedArgs != null)
+						{
+							argList.addAll(curriedArgs);
+						}
 				
-				argList.addAll(argValues);
+						argList.addAll(argValues);
 
-    			FunctionValue rv = new FunctionValue(location, "curried",
-    				(TCFunctionType)type.result,
-    				paramPatternList.subList(1, paramPatternList.size()),
-    				body, newpre, newpost, evalContext, false, argList,
-    				measureName, measureValues, classdef);
+		    			FunctionValue rv = new FunctionValue(location, "curried",
+		    				(TCFunctionType)type.result,
+		    				paramPatternList.subList(1, paramPatternList.size()),
+		    				body, newpre, newpost, evalContext, false, argList,
+		    				measureName, measureValues, classdef);
 
-    			rv.setSelf(self);
-    			rv.typeValues = typeValues;
+		    			rv.setSelf(self);
+		    			rv.typeValues = typeValues;
+
+		        		return rv;
+					}
 
-        		return rv;
+					ExceptionHandler.abort(type.location, 4057, "Curried function return type is not a function", ctxt);
+					return null;
+				}
+			}
+		}
+		catch (ValueException e)
+		{
+			if (tailCalls == 0)
+			{
+				throw e;
 			}
 
-			ExceptionHandler.abort(type.location, 4057, "Curried function return type is not a function", ctxt);
+			// Report errors in a tail call where it was made, as a recursive call would.
+			ExceptionHandler.handle(new ContextException(e, from));
 			return null;
 		}
 	}
 
+	/**
+	 * Check the postcondition of a call, which was evaluated in the context passed.
+	 */
+	private void checkPostcondition(RootContext evalContext, ValueList argValues, Value rv)
+		throws ValueException
+	{
+		ValueList postArgs = new ValueList(argValues);
+		postArgs.add(rv);
+
+		// Evaluate pre/post in evalContext as it includes the type
+		// variables, if any. We disable the swapping and time (RT)
+		// as postcondition checks should be "free".
+
+		try
+		{
+			evalContext.threadState.setAtomic(true);
+			evalContext.setPrepost(4056, "Postcondition failure: ");
+			postcondition.eval(evalContext.location, postArgs, evalContext);
+		}
+		finally
+		{
+			evalContext.setPrepost(0, null);
+			evalContext.threadState.setAtomic(false);
+		}
+	}
+
+	/**
+	 * Evaluate the body, which is compiled by the JITCompiler when the function
+	 * has been called jit_threshold times, if that property is set.
+	 */
+	private Value evalBody(Context evalContext)
+	{
+		CompiledExpression code = compiled;
+
+		if (code == null && Properties.jit_threshold > 0 && ++calls == Properties.jit_threshold)
+		{
+			code = compile();
+		}
+
+		return (code != null) ? code.eval(evalContext) : body.eval(evalContext);
+	}
+
+	/**
+	 * Compile the body once, though several threads may reach the threshold.
+	 */
+	private synchronized CompiledExpression compile()
+	{
+		if (compiled == null)
+		{
+			compiled = JITCompiler.compile(body);
+		}
+
+		return compiled;
+	}
+
 	private RootContext newContext(LexLocation from, String title, Context ctxt, Context sctxt)
 	{
 		RootContext evalContext;
@@ -693,4 +884,53 @@ public class FunctionValue extends Value
 		INPatternList paramPatterns = paramPatternList.get(0);
 		return name + Utils.listToString("(", paramPatterns, ", ", ")");
 	}
+
+	private String getTitle()
+	{
+		if (title == null)
+		{
+			title = toTitle();
+		}
+
+		return title;
+	}
+
+	/**
+	 * The parameter names, if the patterns of the first parameter list are all
+	 * distinct identifiers or "-", which always match. Otherwise null, and the
+	 * patterns have to be matched against the arguments.
+	 */
+	private TCNameToken[] getParamNames()
+	{
+		if (!paramNamesSet)
+		{
+			INPatternList paramPatterns = paramPatternList.get(0);
+			TCNameToken[] names = new TCNameToken[paramPatterns.size()];
+			Set<TCNameToken> seen = new HashSet<TCNameToken>();
+
+			for (int i=0; names != null && i<names.length; i++)
+			{
+				INPattern p = paramPatterns.get(i);
+
+				if (p instanceof INIdentifierPattern)
+				{
+					names[i] = ((INIdentifierPattern)p).name;
+
+					if (!seen.add(names[i]))
+					{
+						names = null;	// Duplicates must have equal values
+					}
+				}
+				else if (!(p instanceof INIgnorePattern))
+				{
+					names = null;
+				}
+			}
+
+			paramNames = names;
+			paramNamesSet = true;
+		}
+
+		return paramNames;
+	}
 }
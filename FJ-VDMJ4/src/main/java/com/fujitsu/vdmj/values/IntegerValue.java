@@ -23,10 +23,14 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCIntegerType;
+import com.fujitsu.vdmj.tc.types.TCNaturalOneType;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
 
@@ -35,10 +39,44 @@ public class IntegerValue extends RationalValue
 	private static final long serialVersionUID = 1L;
 	protected final long longVal;
 
+	/** Only set for values that do not fit in a long, else null */
+	protected final BigInteger bigVal;
+
+	/** Small values are shared, like java.lang.Integer */
+	protected static final int CACHE_LOW = -128;
+	protected static final int CACHE_HIGH = 1024;
+	private static final IntegerValue[] cache = new IntegerValue[CACHE_HIGH - CACHE_LOW];
+
+	static
+	{
+		for (int i=0; i<cache.length; i++)
+		{
+			cache[i] = new IntegerValue(i + CACHE_LOW);
+		}
+	}
+
 	public IntegerValue(long value)
 	{
 		super(value);
 		longVal = value;
+		bigVal = null;
+	}
+
+	public IntegerValue(BigInteger value)
+	{
+		super(value);
+		longVal = value.longValue();
+		bigVal = (value.bitLength() < 64) ? null : value;
+	}
+
+	public static IntegerValue valueOf(long value)
+	{
+		if (value >= CACHE_LOW && value < CACHE_HIGH)
+		{
+			return cache[(int)value - CACHE_LOW];
+		}
+
+		return new IntegerValue(value);
 	}
 
 	@Override
@@ -49,30 +87,85 @@ public class IntegerValue extends RationalValue
 		if (other instanceof IntegerValue)
 		{
 			IntegerValue io = (IntegerValue)other;
-			return (longVal < io.longVal ? -1 : (longVal == io.longVal ? 0 : 1));
+
+			if (bigVal == null && io.bigVal == null)
+			{
+				return (longVal < io.longVal ? -1 : (longVal == io.longVal ? 0 : 1));
+			}
+
+			return bigintValue(null).compareTo(io.bigintValue(null));
 		}
 
 		return super.compareTo(other);
 	}
 
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof Value)
+		{
+			Value val = ((Value)other).deref();
+
+			if (val instanceof IntegerValue)
+			{
+				IntegerValue io = (IntegerValue)val;
+
+				if (bigVal == null)
+				{
+					return io.bigVal == null && io.longVal == longVal;
+				}
+				else
+				{
+					return bigVal.equals(io.bigVal);
+				}
+			}
+		}
+
+		return super.equals(other);
+	}
+
 	@Override
 	public String toString()
 	{
-		return Long.toString(longVal);
+		return (bigVal == null) ? Long.toString(longVal) : bigVal.toString();
+	}
+
+	/**
+	 * True if this value is too large to hold in a long.
+	 */
+	public boolean isBig()
+	{
+		return bigVal != null;
+	}
+
+	@Override
+	public BigInteger bigintValue(Context ctxt)
+	{
+		return (bigVal == null) ? BigInteger.valueOf(longVal) : bigVal;
 	}
 
 	@Override
-	public long intValue(Context ctxt)
+	public long intValue(Context ctxt) throws ValueException
 	{
+		if (bigVal != null)
+		{
+			abort(4169, "Arithmetic overflow: " + bigVal, ctxt);
+		}
+
 		return longVal;
 	}
 
 	@Override
 	public long nat1Value(Context ctxt) throws ValueException
 	{
-		if (longVal < 1)
+		if (longVal < 1 || bigVal != null)
 		{
-			abort(4058, "Value " + longVal + " is not a nat1", ctxt);
+			if (bigVal == null || bigVal.signum() < 1)
+			{
+				abort(4058, "Value " + this + " is not a nat1", ctxt);
+			}
+
+			abort(4169, "Arithmetic overflow: " + bigVal, ctxt);
 		}
 
 		return longVal;
@@ -81,9 +174,14 @@ public class IntegerValue extends RationalValue
 	@Override
 	public long natValue(Context ctxt) throws ValueException
 	{
-		if (longVal < 0)
+		if (longVal < 0 || bigVal != null)
 		{
-			abort(4059, "Value " + longVal + " is not a nat", ctxt);
+			if (bigVal == null || bigVal.signum() < 0)
+			{
+				abort(4059, "Value " + this + " is not a nat", ctxt);
+			}
+
+			abort(4169, "Arithmetic overflow: " + bigVal, ctxt);
 		}
 
 		return longVal;
@@ -92,13 +190,13 @@ public class IntegerValue extends RationalValue
 	@Override
 	public double realValue(Context ctxt)
 	{
-		return longVal;
+		return value;
 	}
 
 	@Override
 	public int hashCode()
 	{
-		return (int)longVal;
+		return (bigVal == null) ? (int)longVal : super.hashCode();
 	}
 
 	@Override
@@ -114,6 +212,24 @@ public class IntegerValue extends RationalValue
 		{
 			return this;
 		}
+		else if (bigVal != null && to instanceof TCNaturalType)
+		{
+			if (bigVal.signum() < 0)
+			{
+				abort(4065, "Value " + bigVal + " is not a nat", ctxt);
+			}
+
+			return NumericValue.valueOf(bigVal, ctxt);
+		}
+		else if (bigVal != null && to instanceof TCNaturalOneType)
+		{
+			if (bigVal.signum() < 1)
+			{
+				abort(4064, "Value " + bigVal + " is not a nat1", ctxt);
+			}
+
+			return NumericValue.valueOf(bigVal, ctxt);
+		}
 		else
 		{
 			return super.convertValueTo(to, ctxt, done);
@@ -125,7 +241,7 @@ public class IntegerValue extends RationalValue
 	{
 		try
 		{
-			return new IntegerValue(longVal);
+			return (bigVal == null) ? new IntegerValue(longVal) : new IntegerValue(bigVal);
 		}
 		catch (Exception e)
 		{
@@ -57,6 +57,13 @@ public class InvariantValue extends ReferenceValue
 	{
 		if (invariant != null && Settings.invchecks)
 		{
+			DTCPlan plan = DTCPlan.get(type);
+
+			if (plan.isVerified(value))
+			{
+				return;		// This value has met the invariant before
+			}
+
 			// In VDM++ and VDM-RT, we do not want to do thread swaps half way
 			// through a DTC check (which can include calculating an invariant),
 			// so we set the atomic flag around the conversion. This also stops
@@ -82,6 +89,8 @@ public class InvariantValue extends ReferenceValue
 			{
 				abort(4060, "Type invariant violated for " + type.typename, ctxt);
 			}
+
+			plan.setVerified(value);
 		}
 	}
 
@@ -145,9 +154,30 @@ public class InvariantValue extends ReferenceValue
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		return new InvariantValue(type, value.getConstant(), invariant, equality, ordering);
 	}
 
+	@Override
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		// As with getUpdatable, the inner value is held in an updatable whose
+		// listeners check our invariant when any part of it changes.
+
+		Value inner = value;
+
+		if (!(inner instanceof UpdatableValue))
+		{
+			inner = UpdatableValue.factory(inner, owner.getChildListeners());
+		}
+
+		return new InvariantValue(type, inner, invariant, equality, ordering);
+	}
+
 	@Override
 	public Object clone()
 	{
@@ -233,6 +263,21 @@ public class InvariantValue extends ReferenceValue
 		return false;
 	}
 	
+	@Override
+	public int hashCode()
+	{
+		if (equality != null)
+		{
+			// A user defined equality may equate different values of the type,
+			// so the only hash consistent with equals is the type's.
+			return type.typename.hashCode();
+		}
+		else
+		{
+			return super.hashCode();
+		}
+	}
+
 	@Override
 	public boolean isOrdered()
 	{
@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Map.Entry;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCInMapType;
@@ -30,7 +32,7 @@ import com.fujitsu.vdmj.tc.types.TCMapType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
 
-public class MapValue extends Value
+public class MapValue extends CompoundValue
 {
 	private static final long serialVersionUID = 1L;
 	public final ValueMap values;
@@ -62,12 +64,19 @@ public class MapValue extends Value
 			nm.put(k, v);
 		}
 
-		return UpdatableValue.factory(new MapValue(nm), listeners);
+		MapValue umap = new MapValue(nm);
+		umap.setMutable();		// Can be extended by assignment
+		return UpdatableValue.factory(umap, listeners);
 	}
 
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		ValueMap nm = new ValueMap();
 
 		for (Value k: values.keySet())
@@ -79,6 +88,14 @@ public class MapValue extends Value
 		return new MapValue(nm);
 	}
 
+	@Override
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		MapValue copy = new MapValue(new ValueMap(values));
+		copy.setMutable();		// Changed in place by the owner
+		return copy;
+	}
+
 	public Value lookup(Value arg, Context ctxt) throws ValueException
 	{
 		Value v = values.get(arg);
@@ -98,9 +115,19 @@ public class MapValue extends Value
 		{
 			Value val = ((Value)other).deref();
 
-    		if (val instanceof MapValue)
+    		if (val == this)
+    		{
+    			return true;
+    		}
+    		else if (val instanceof MapValue)
     		{
     			MapValue ot = (MapValue)val;
+
+    			if (hashDiffers(ot))
+    			{
+    				return false;	// Both cached and different
+    			}
+
     			return values.equals(ot.values);
     		}
 		}
@@ -115,11 +142,28 @@ public class MapValue extends Value
 	}
 
 	@Override
-	public int hashCode()
+	protected int deepHash()
 	{
 		return values.hashCode();
 	}
 
+	@Override
+	protected boolean computeImmutable()
+	{
+		boolean result = true;
+
+		for (Entry<Value, Value> entry: values.entrySet())
+		{
+			if (!entry.getKey().isImmutable() || !entry.getValue().isImmutable())
+			{
+				result = false;
+				break;
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public String kind()
 	{
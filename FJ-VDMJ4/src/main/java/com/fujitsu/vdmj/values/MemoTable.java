@@ -0,0 +1,238 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.definitions.INClassDefinition;
+import com.fujitsu.vdmj.in.definitions.INClassList;
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INDefinitionList;
+import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
+import com.fujitsu.vdmj.in.definitions.INImplicitFunctionDefinition;
+import com.fujitsu.vdmj.in.modules.INModule;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+
+/**
+ * A table of the results of a function, keyed by its argument values. Tables
+ * are only created for the functions named in Settings.memoFunctions, and are
+ * shared by every FunctionValue for the same definition. The table holds at
+ * most memo_max_entries results, discarding the least recently used.
+ *
+ * A result can only be re-used if the function is pure, which is the case
+ * for VDM functions unless they are passed objects whose state changes. So
+ * memoisation is something the user has to ask for.
+ *
+ * Only the functions defined at the top level of a module or class are
+ * memoised. Local functions, defined in a let or a def, may read the
+ * variables of the function that encloses them, so their results depend on
+ * more than their arguments.
+ */
+public class MemoTable
+{
+	/** The tables of the current specification, by function definition */
+	private static Map<INDefinition, MemoTable> tables = new IdentityHashMap<INDefinition, MemoTable>();
+
+	/** The same tables, in the order the functions are defined */
+	private static List<MemoTable> ordered = new Vector<MemoTable>();
+
+	private final String name;
+	private final LinkedHashMap<Key, Value> results;
+	private long hits = 0;
+	private long misses = 0;
+
+	private MemoTable(String name)
+	{
+		this.name = name;
+
+		this.results = new LinkedHashMap<Key, Value>(16, 0.75F, true)	// Access order
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest)
+			{
+				return size() > Properties.memo_max_entries;
+			}
+		};
+	}
+
+	/**
+	 * Discard the tables, which refer to the functions of the last specification
+	 * initialized.
+	 */
+	public static synchronized void init()
+	{
+		tables = new IdentityHashMap<INDefinition, MemoTable>();
+		ordered = new Vector<MemoTable>();
+	}
+
+	/**
+	 * Discard the tables, and create new ones for the memoised functions
+	 * defined at the top level of the modules.
+	 */
+	public static synchronized void init(INModuleList modules)
+	{
+		init();
+
+		for (INModule module: modules)
+		{
+			create(module.defs);
+		}
+	}
+
+	/**
+	 * Discard the tables, and create new ones for the memoised functions
+	 * defined at the top level of the classes.
+	 */
+	public static synchronized void init(INClassList classes)
+	{
+		init();
+
+		for (INClassDefinition cdef: classes)
+		{
+			create(cdef.definitions);
+		}
+	}
+
+	private static void create(INDefinitionList defs)
+	{
+		for (INDefinition def: defs)
+		{
+			if (def instanceof INExplicitFunctionDefinition ||
+				def instanceof INImplicitFunctionDefinition)
+			{
+				TCNameToken fname = def.name;
+				String qualified = fname.getModule() + "`" + fname.getName();
+
+				if (Settings.memoFunctions.contains(qualified) ||
+					Settings.memoFunctions.contains(fname.getName()))
+				{
+					MemoTable table = new MemoTable(qualified);
+					tables.put(def, table);
+					ordered.add(table);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the table for a function definition, or null if it is not memoised.
+	 */
+	public static synchronized MemoTable get(INDefinition def)
+	{
+		return tables.get(def);
+	}
+
+	public static synchronized Collection<MemoTable> getTables()
+	{
+		return ordered;
+	}
+
+	/**
+	 * Return the result for the arguments passed, or null if there is none.
+	 */
+	public synchronized Value lookup(Key key)
+	{
+		Value result = results.get(key);
+
+		if (result == null)
+		{
+			misses++;
+		}
+		else
+		{
+			hits++;
+		}
+
+		return result;
+	}
+
+	public synchronized void store(Key key, Value result)
+	{
+		results.put(key, result.getConstant());
+	}
+
+	public synchronized void clear()
+	{
+		results.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return name + ": " + hits + " hits, " + misses + " misses, " + results.size() + " entries";
+	}
+
+	/**
+	 * The arguments of a call. The values are copied without their updatable
+	 * wrappers, so that a key does not change if the caller's state does, and
+	 * the hash is calculated once, as it may be expensive for large values.
+	 */
+	public static class Key
+	{
+		private final ValueList args;
+		private final int hash;
+
+		public Key(ValueList argValues)
+		{
+			this.args = new ValueList(argValues.size());
+
+			for (Value arg: argValues)
+			{
+				args.add(arg.getConstant());
+			}
+
+			this.hash = args.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Key)
+			{
+				Key key = (Key)other;
+				return key.hash == hash && key.args.equals(args);
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
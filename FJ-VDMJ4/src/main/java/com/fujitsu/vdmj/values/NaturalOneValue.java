@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -33,6 +35,22 @@ import com.fujitsu.vdmj.tc.types.TCTypeSet;
 public class NaturalOneValue extends NaturalValue
 {
 	private static final long serialVersionUID = 1L;
+	private static final NaturalOneValue[] cache = new NaturalOneValue[CACHE_HIGH];
+
+	static
+	{
+		try
+		{
+			for (int i=1; i<cache.length; i++)
+			{
+				cache[i] = new NaturalOneValue(i);
+			}
+		}
+		catch (Exception e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	public NaturalOneValue(long value) throws Exception
 	{
@@ -44,6 +62,37 @@ public class NaturalOneValue extends NaturalValue
 		}
 	}
 
+	public NaturalOneValue(BigInteger value) throws Exception
+	{
+		super(value);
+
+		if (value.signum() < 1)
+		{
+			throw new Exception("Value " + value + " is not a nat1");
+		}
+	}
+
+	/**
+	 * Note that this hides IntegerValue.valueOf, so it cannot throw a checked
+	 * exception like the constructor. Callers should still catch Exception.
+	 */
+	public static NaturalOneValue valueOf(long value)
+	{
+		if (value >= 1 && value < CACHE_HIGH)
+		{
+			return cache[(int)value];
+		}
+
+		try
+		{
+			return new NaturalOneValue(value);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
 	@Override
 	public String kind()
 	{
@@ -68,7 +117,7 @@ public class NaturalOneValue extends NaturalValue
 	{
 		try
 		{
-			return new NaturalOneValue(longVal);
+			return (bigVal == null) ? new NaturalOneValue(longVal) : new NaturalOneValue(bigVal);
 		}
 		catch (Exception e)
 		{
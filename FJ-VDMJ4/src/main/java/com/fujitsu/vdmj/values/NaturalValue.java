@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -33,6 +35,22 @@ import com.fujitsu.vdmj.tc.types.TCTypeSet;
 public class NaturalValue extends IntegerValue
 {
 	private static final long serialVersionUID = 1L;
+	private static final NaturalValue[] cache = new NaturalValue[CACHE_HIGH];
+
+	static
+	{
+		try
+		{
+			for (int i=0; i<cache.length; i++)
+			{
+				cache[i] = new NaturalValue(i);
+			}
+		}
+		catch (Exception e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	public NaturalValue(long value) throws Exception
 	{
@@ -44,6 +62,37 @@ public class NaturalValue extends IntegerValue
 		}
 	}
 
+	public NaturalValue(BigInteger value) throws Exception
+	{
+		super(value);
+
+		if (value.signum() < 0)
+		{
+			throw new Exception("Value " + value + " is not a nat");
+		}
+	}
+
+	/**
+	 * Note that this hides IntegerValue.valueOf, so it cannot throw a checked
+	 * exception like the constructor. Callers should still catch Exception.
+	 */
+	public static NaturalValue valueOf(long value)
+	{
+		if (value >= 0 && value < CACHE_HIGH)
+		{
+			return cache[(int)value];
+		}
+
+		try
+		{
+			return new NaturalValue(value);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
 	@Override
 	public String kind()
 	{
@@ -68,7 +117,7 @@ public class NaturalValue extends IntegerValue
 	{
 		try
 		{
-			return new NaturalValue(longVal);
+			return (bigVal == null) ? new NaturalValue(longVal) : new NaturalValue(bigVal);
 		}
 		catch (Exception e)
 		{
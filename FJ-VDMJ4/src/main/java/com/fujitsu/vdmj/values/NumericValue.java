@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCIntegerType;
@@ -74,7 +76,7 @@ public abstract class NumericValue extends Value
 		{
 			try
 			{
-				return new NaturalOneValue(iv);
+				return NaturalOneValue.valueOf(iv);
 			}
 			catch (Exception e)
 			{
@@ -86,7 +88,7 @@ public abstract class NumericValue extends Value
 		{
 			try
 			{
-				return new NaturalValue(iv);
+				return NaturalValue.valueOf(iv);
 			}
 			catch (Exception e)
 			{
@@ -94,7 +96,30 @@ public abstract class NumericValue extends Value
 			}
 		}
 
-		return new IntegerValue(iv);
+		return IntegerValue.valueOf(iv);
+	}
+
+	public static NumericValue valueOf(BigInteger iv, Context ctxt) throws ValueException
+	{
+		if (iv.bitLength() < 64)
+		{
+			return valueOf(iv.longValue(), ctxt);
+		}
+		else if (iv.signum() > 0)
+		{
+			try
+			{
+				return new NaturalOneValue(iv);
+			}
+			catch (Exception e)
+			{
+				throw new ValueException(4064, e.getMessage(), ctxt);
+			}
+		}
+		else
+		{
+			return new IntegerValue(iv);
+		}
 	}
 
 	public static boolean areIntegers(Value l, Value r)
@@ -102,6 +127,35 @@ public abstract class NumericValue extends Value
 		return (l instanceof IntegerValue && r instanceof IntegerValue);
 	}
 
+	/**
+	 * True if both values are integers that fit in a long.
+	 */
+	public static boolean areLongs(Value l, Value r)
+	{
+		return areIntegers(l, r) && !((IntegerValue)l).isBig() && !((IntegerValue)r).isBig();
+	}
+
+	/**
+	 * True if both values are integers that a double can hold exactly, which
+	 * is assumed by the older double based integer arithmetic.
+	 */
+	public static boolean areSmallIntegers(Value l, Value r)
+	{
+		return areIntegers(l, r) && isSmall(l) && isSmall(r);
+	}
+
+	public static boolean isSmall(Value v)
+	{
+		return isSmall(((NumericValue)v).value);
+	}
+
+	public static boolean isSmall(double d)
+	{
+		return d < DOUBLE_EXACT && d > -DOUBLE_EXACT;
+	}
+
+	private static final double DOUBLE_EXACT = 9007199254740992.0;	// 2^53
+
 	@Override
 	protected Value convertValueTo(TCType to, Context ctxt, TCTypeSet done) throws ValueException
 	{
@@ -129,13 +183,13 @@ public abstract class NumericValue extends Value
 		}
 		else if (to instanceof TCIntegerType)
 		{
-			return new IntegerValue(intValue(ctxt));
+			return IntegerValue.valueOf(intValue(ctxt));
 		}
 		else if (to instanceof TCNaturalType)
 		{
 			try
 			{
-				return new NaturalValue(natValue(ctxt));
+				return NaturalValue.valueOf(natValue(ctxt));
 			}
 			catch (Exception e)
 			{
@@ -146,7 +200,7 @@ public abstract class NumericValue extends Value
 		{
 			try
 			{
-				return new NaturalOneValue(nat1Value(ctxt));
+				return NaturalOneValue.valueOf(nat1Value(ctxt));
 			}
 			catch (Exception e)
 			{
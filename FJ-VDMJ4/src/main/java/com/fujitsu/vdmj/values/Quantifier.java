@@ -30,23 +30,46 @@ import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.PatternMatchException;
 
+/**
+ * One pattern of a multiple bind, with the values it ranges over. The matches
+ * of the pattern against the values are made lazily, as the QuantifierList is
+ * iterated, and kept so that they can be re-used by later combinations.
+ */
 public class Quantifier
 {
 	public final INPattern pattern;
 	public final ValueList values;
-	private List<NameValuePairList> nvlist;
+	private final List<NameValuePairList> nvlist;
+
+	private Context ctxt = null;
+	private boolean allPossibilities = false;
+	private int nextValue = 0;		// The next of values to match
 
 	public Quantifier(INPattern pattern, ValueList values)
 	{
 		this.pattern = pattern;
 		this.values = values;
-		this.nvlist = new Vector<NameValuePairList>(values.size());
+		this.nvlist = new Vector<NameValuePairList>();
 	}
 
-	public int size(Context ctxt, boolean allPossibilities)
+	public void init(Context ctxt, boolean allPossibilities)
 	{
-		for (Value value: values)
+		this.ctxt = ctxt;
+		this.allPossibilities = allPossibilities;
+		this.nextValue = 0;
+		this.nvlist.clear();
+	}
+
+	/**
+	 * Test whether there is an index'th set of named values, matching more of
+	 * the values if necessary.
+	 */
+	public boolean has(int index)
+	{
+		while (index >= nvlist.size() && nextValue < values.size())
 		{
+			Value value = values.get(nextValue++);
+
 			try
 			{
 				if (allPossibilities)
@@ -60,21 +83,15 @@ public class Quantifier
 			}
 			catch (PatternMatchException e)
 			{
-				// Should never happen
+				// Values that do not match are ignored
 			}
 		}
-		
-		return nvlist.size();
+
+		return index < nvlist.size();
 	}
 
 	public NameValuePairList get(int index)
-		throws PatternMatchException
 	{
-		if (index >= nvlist.size())		// no values
-		{
-			return new NameValuePairList();
-		}
-
 		return nvlist.get(index);
 	}
 }
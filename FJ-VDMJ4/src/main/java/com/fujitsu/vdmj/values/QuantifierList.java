@@ -26,53 +26,54 @@ package com.fujitsu.vdmj.values;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.runtime.Context;
-import com.fujitsu.vdmj.runtime.PatternMatchException;
-
 
+/**
+ * A list of Quantifiers, which iterates over the combinations of their named
+ * values. The first quantifier varies fastest. The combinations are produced
+ * on demand, so a caller that stops early (like a forall that finds a false
+ * case) does not pay for matching the rest. The list returned by next() is
+ * re-used for each combination.
+ */
 @SuppressWarnings("serial")
 public class QuantifierList extends Vector<Quantifier>
 {
 	private int count;
-	private int[] size;
 	private int[] next;
-	private NameValuePairList result = null;
+	private NameValuePairList result = new NameValuePairList();
 	private boolean done = false;
+	private boolean ready = false;		// The next[] combination is yet to be returned
 
 	public void init(Context ctxt, boolean allPossibilities)
 	{
 		count = size();
-		size = new int[count];
 		next = new int[count];
-		boolean someData = false;
 		boolean oneHasNoData = false;
 
 		for (int i=0; i<count; i++)
 		{
-			size[i] = get(i).size(ctxt, allPossibilities);
-			someData = someData || size[i] > 0;
-			oneHasNoData = oneHasNoData || size[i] == 0;
+			Quantifier q = get(i);
+			q.init(ctxt, allPossibilities);
+			oneHasNoData = oneHasNoData || !q.has(0);
 			next[i] = 0;
 		}
 
-		done = count == 0 || !someData || oneHasNoData;
+		done = count == 0 || oneHasNoData;
+		ready = !done;
 	}
 
 	private void permute()
 	{
 		for (int i=0; i<count; i++)
 		{
-			if (++next[i] < size[i])
+			if (get(i).has(++next[i]))
 			{
-				break;
+				return;
 			}
 
 			next[i] = 0;
-
-			if (i == count-1)
-			{
-				done = true;
-			}
 		}
+
+		done = true;
 	}
 
 	public NameValuePairList next()
@@ -82,28 +83,25 @@ public class QuantifierList extends Vector<Quantifier>
 
 	public boolean hasNext()
 	{
-		while (!done)
+		if (!ready && !done)
 		{
-			try
-			{
-           		result = new NameValuePairList();
+			permute();
+		}
 
-        		for (int i=0; i<count; i++)
-        		{
-        			Quantifier q = get(i);
-        			result.addAll(q.get(next[i]));
-        		}
+		if (done)
+		{
+			return false;
+		}
 
-        		permute();
-        		return true;
-			}
-			catch (PatternMatchException e)
-			{
-				permute();		// Bad matches are ignored
-			}
+		result.clear();
+
+		for (int i=0; i<count; i++)
+		{
+			result.addAll(get(i).get(next[i]));
 		}
 
-		return false;
+		ready = false;
+		return true;
 	}
 
 	public boolean finished()
@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCQuoteType;
@@ -34,11 +37,27 @@ public class QuoteValue extends Value
 	private static final long serialVersionUID = 1L;
 	public final String value;
 
+	/** Canonical values for each quote, so that most comparisons are by identity. */
+	private static final Map<String, QuoteValue> interned = new ConcurrentHashMap<String, QuoteValue>();
+
 	public QuoteValue(String value)
 	{
 		this.value = value;
 	}
 
+	public static QuoteValue valueOf(String value)
+	{
+		QuoteValue q = interned.get(value);
+
+		if (q == null)
+		{
+			q = new QuoteValue(value.intern());
+			interned.put(q.value, q);
+		}
+
+		return q;
+	}
+
 	@Override
 	public String quoteValue(Context ctxt)
 	{
@@ -48,7 +67,11 @@ public class QuoteValue extends Value
 	@Override
 	public boolean equals(Object other)
 	{
-		if (other instanceof Value)
+		if (other == this)
+		{
+			return true;
+		}
+		else if (other instanceof Value)
 		{
 			Value val = ((Value)other).deref();
 
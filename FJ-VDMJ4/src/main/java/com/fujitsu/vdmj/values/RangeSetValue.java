@@ -0,0 +1,241 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCIntegerType;
+import com.fujitsu.vdmj.tc.types.TCNaturalOneType;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
+import com.fujitsu.vdmj.tc.types.TCSetType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.tc.types.TCTypeSet;
+
+/**
+ * A set of consecutive integers, as produced by "{a,...,b}" and "inds s". The
+ * set is held as its first and last members, so membership, cardinality and
+ * equality with another range are O(1). Quantifiers and loops take the members
+ * as a packed list (see {@link #valueList()}), and the ValueSet of members is
+ * only created if some other operation needs it.
+ */
+public class RangeSetValue extends SetValue
+{
+	private static final long serialVersionUID = 1L;
+	public final long first;
+	public final long last;
+
+	/** The class of the members, which is IntegerValue or a subclass. */
+	private final Class<? extends IntegerValue> valueclass;
+
+	public RangeSetValue(long first, long last, Class<? extends IntegerValue> valueclass)
+	{
+		super();
+		this.values = null;		// Created when needed, see setValue
+		this.first = first;
+		this.last = last;
+		this.valueclass = valueclass;
+	}
+
+	public long size()
+	{
+		return (last < first) ? 0 : last - first + 1;
+	}
+
+	public boolean contains(Value v)
+	{
+		Value d = v.deref();
+
+		if (d instanceof IntegerValue && !((IntegerValue)d).isBig())
+		{
+			long i = ((IntegerValue)d).longVal;
+			return i >= first && i <= last;
+		}
+
+		return setValue(null).contains(v);
+	}
+
+	/**
+	 * The members in order, as a packed list. Ranges too large for a list
+	 * are materialised, and fail there as they always have.
+	 */
+	public ValueList valueList()
+	{
+		if (size() < Integer.MAX_VALUE)
+		{
+			return ValueList.range(first, last, valueclass);
+		}
+
+		ValueList list = new ValueList();
+		list.addAll(setValue(null));
+		return list;
+	}
+
+	@Override
+	public synchronized ValueSet setValue(Context ctxt)
+	{
+		if (values == null)
+		{
+			long size = size();
+			ValueSet set = new ValueSet((int)Math.min(size, Integer.MAX_VALUE));
+
+			for (long i=0; i<size; i++)
+			{
+				set.addNoCheck(member(first + i));
+			}
+
+			set.sort();		// Already in order, so linear
+			values = set;
+		}
+
+		return values;
+	}
+
+	private IntegerValue member(long i)
+	{
+		if (valueclass == NaturalOneValue.class)
+		{
+			return NaturalOneValue.valueOf(i);
+		}
+		else if (valueclass == NaturalValue.class)
+		{
+			return NaturalValue.valueOf(i);
+		}
+		else
+		{
+			return IntegerValue.valueOf(i);
+		}
+	}
+
+	@Override
+	public Value getUpdatable(ValueListenerList listeners)
+	{
+		setValue(null);
+		return super.getUpdatable(listeners);
+	}
+
+	@Override
+	public Value getConstant()
+	{
+		return this;
+	}
+
+	@Override
+	protected boolean computeImmutable()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof Value)
+		{
+			Value val = ((Value)other).deref();
+
+			if (val instanceof RangeSetValue)
+			{
+				RangeSetValue ot = (RangeSetValue)val;
+
+				if (size() == 0 || ot.size() == 0)
+				{
+					return size() == ot.size();
+				}
+
+				return first == ot.first && last == ot.last;
+			}
+		}
+
+		setValue(null);
+		return super.equals(other);
+	}
+
+	@Override
+	protected int deepHash()
+	{
+		// The sum of the members' hashCodes, as for ValueSet, which is the low
+		// 32 bits of the sum of the members, n * (first + last) / 2.
+
+		long n = size();
+
+		if (n == 0)
+		{
+			return 0;
+		}
+		else if (n % 2 == 0)
+		{
+			return (int)((n / 2) * (first + last));
+		}
+		else
+		{
+			return (int)(n * ((first + last) >> 1));
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		setValue(null);
+		return super.toString();
+	}
+
+	@Override
+	public ValueList permutedSets()
+	{
+		setValue(null);
+		return super.permutedSets();
+	}
+
+	@Override
+	protected Value convertValueTo(TCType to, Context ctxt, TCTypeSet done) throws ValueException
+	{
+		if (to instanceof TCSetType && size() > 0)
+		{
+			TCType setof = ((TCSetType)to).setof;
+
+			if (setof instanceof TCIntegerType)
+			{
+				return this;
+			}
+			else if (setof instanceof TCNaturalType && first >= 0)
+			{
+				return (valueclass == NaturalValue.class) ? this :
+					new RangeSetValue(first, last, NaturalValue.class);
+			}
+			else if (setof instanceof TCNaturalOneType && first >= 1)
+			{
+				return (valueclass == NaturalOneValue.class) ? this :
+					new RangeSetValue(first, last, NaturalOneValue.class);
+			}
+		}
+
+		setValue(ctxt);
+		return super.convertValueTo(to, ctxt, done);
+	}
+
+	@Override
+	public Object clone()
+	{
+		return new RangeSetValue(first, last, valueclass);
+	}
+}
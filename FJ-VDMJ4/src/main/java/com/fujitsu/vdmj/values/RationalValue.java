@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCRationalType;
@@ -43,6 +45,11 @@ public class RationalValue extends RealValue
 		super(value);
 	}
 
+	public RationalValue(BigInteger value)
+	{
+		super(value);
+	}
+
 	@Override
 	public String kind()
 	{
@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCRealType;
@@ -52,6 +54,11 @@ public class RealValue extends NumericValue
 		super(value);
 	}
 
+	public RealValue(BigInteger value)
+	{
+		super(value.doubleValue());		// Approximate for large values
+	}
+
 	@Override
 	public int compareTo(Value other)
 	{
@@ -126,6 +133,13 @@ public class RealValue extends NumericValue
 	@Override
 	public int hashCode()
 	{
+		long rounded = (long)value;
+
+		if (rounded == value)
+		{
+			return (int)rounded;	// Same as an equal IntegerValue
+		}
+
 		return new Double(value).hashCode();
 	}
 
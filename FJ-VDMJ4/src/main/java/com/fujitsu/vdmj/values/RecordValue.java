@@ -34,7 +34,7 @@ import com.fujitsu.vdmj.tc.types.TCRecordType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
 
-public class RecordValue extends Value
+public class RecordValue extends CompoundValue
 {
 	private static final long serialVersionUID = 1L;
 	public final TCRecordType type;
@@ -209,6 +209,11 @@ public class RecordValue extends Value
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		FieldMap nm = new FieldMap();
 
 		for (FieldValue fv: fieldmap)
@@ -220,6 +225,14 @@ public class RecordValue extends Value
 		return new RecordValue(type, nm, invariant, equality, ordering);
 	}
 
+	@Override
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		RecordValue copy = new RecordValue(type, new FieldMap(fieldmap), invariant, equality, ordering);
+		copy.setMutable();		// Changed in place by the owner
+		return copy;
+	}
+
 	@Override
 	public boolean equals(Object other)
 	{
@@ -227,13 +240,21 @@ public class RecordValue extends Value
 		{
 			Value val = ((Value)other).deref();
 			
-    		if (val instanceof RecordValue)
+    		if (val == this)
+    		{
+    			return true;
+    		}
+    		else if (val instanceof RecordValue)
     		{
     			RecordValue ot = (RecordValue)val;
     
     			if (ot.type.equals(type))
     			{
-    				if (equality != null)
+    				if (hashDiffers(ot))
+    				{
+    					return false;	// Both cached and different
+    				}
+    				else if (equality != null)
     				{
     					Context ctxt = Interpreter.getInstance().getInitialContext();
     					ctxt.setThreadState(null);
@@ -386,11 +407,35 @@ public class RecordValue extends Value
 	}
 
 	@Override
-	public int hashCode()
+	protected int deepHash()
 	{
+		if (equality != null)
+		{
+			// A user defined equality may equate records with different fields,
+			// so the only hash consistent with equals is the type's.
+			return type.name.hashCode();
+		}
+
 		return type.name.hashCode() + fieldmap.hashCode();
 	}
 
+	@Override
+	protected boolean computeImmutable()
+	{
+		boolean result = true;
+
+		for (FieldValue fv: fieldmap)
+		{
+			if (!fv.value.isImmutable())
+			{
+				result = false;
+				break;
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public String kind()
 	{
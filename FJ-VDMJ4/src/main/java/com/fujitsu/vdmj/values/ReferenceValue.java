@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.math.BigInteger;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCType;
@@ -86,6 +88,12 @@ abstract public class ReferenceValue extends Value
 		return value.isOrdered();
 	}
 
+	@Override
+	public boolean isImmutable()
+	{
+		return value.isImmutable();
+	}
+
 	@Override
 	public double realValue(Context ctxt) throws ValueException
 	{
@@ -98,6 +106,12 @@ abstract public class ReferenceValue extends Value
 		return value.intValue(ctxt);
 	}
 
+	@Override
+	public BigInteger bigintValue(Context ctxt) throws ValueException
+	{
+		return value.bigintValue(ctxt);
+	}
+
 	@Override
 	public long natValue(Context ctxt) throws ValueException
 	{
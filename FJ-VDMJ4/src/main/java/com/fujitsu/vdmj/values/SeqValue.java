@@ -29,12 +29,18 @@ import java.util.Formatter;
 import com.fujitsu.vdmj.ast.lex.LexStringToken;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCCharacterType;
+import com.fujitsu.vdmj.tc.types.TCIntegerType;
+import com.fujitsu.vdmj.tc.types.TCNaturalOneType;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
+import com.fujitsu.vdmj.tc.types.TCRationalType;
+import com.fujitsu.vdmj.tc.types.TCRealType;
 import com.fujitsu.vdmj.tc.types.TCSeq1Type;
 import com.fujitsu.vdmj.tc.types.TCSeqType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
 
-public class SeqValue extends Value
+public class SeqValue extends CompoundValue
 {
 	private static final long serialVersionUID = 1L;
 	public final ValueList values;
@@ -51,13 +57,7 @@ public class SeqValue extends Value
 
 	public SeqValue(String s)
 	{
-		this.values = new ValueList();
-		int len = s.length();
-
-		for (int i=0; i<len; i++)
-		{
-			this.values.add(new CharacterValue(s.charAt(i)));
-		}
+		this.values = new ValueList(s);		// Compact
 	}
 
 	public SeqValue(LexStringToken string)
@@ -108,15 +108,30 @@ public class SeqValue extends Value
 			nseq.add(v);
 		}
 
-		return UpdatableValue.factory(new SeqValue(nseq), listeners);
+		SeqValue useq = new SeqValue(nseq);
+		useq.setMutable();		// Can be extended by assignment
+		return UpdatableValue.factory(useq, listeners);
 	}
 
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		return new SeqValue(values.getConstant());
 	}
 
+	@Override
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		SeqValue copy = new SeqValue(new ValueList(values));
+		copy.setMutable();		// Changed in place by the owner
+		return copy;
+	}
+
 	public Value get(Value arg, Context ctxt) throws ValueException
 	{
 		int i = (int)arg.nat1Value(ctxt);
@@ -136,9 +151,19 @@ public class SeqValue extends Value
 		{
 			Value val = ((Value)other).deref();
 
-    		if (val instanceof SeqValue)
+    		if (val == this)
+    		{
+    			return true;
+    		}
+    		else if (val instanceof SeqValue)
     		{
     			SeqValue ot = (SeqValue)val;
+
+    			if (hashDiffers(ot))
+    			{
+    				return false;	// Both cached and different
+    			}
+
     			return values.equals(ot.values);
     		}
 		}
@@ -153,11 +178,28 @@ public class SeqValue extends Value
 	}
 
 	@Override
-	public int hashCode()
+	protected int deepHash()
 	{
 		return values.hashCode();
 	}
 
+	@Override
+	protected boolean computeImmutable()
+	{
+		boolean result = true;
+
+		for (Value v: values)
+		{
+			if (!v.isImmutable())
+			{
+				result = false;
+				break;
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public String kind()
 	{
@@ -179,6 +221,16 @@ public class SeqValue extends Value
 			}
 
 			TCSeqType seqto = (TCSeqType)to;
+
+			if (values.isString() && seqto.seqof instanceof TCCharacterType)
+			{
+				return this;	// Compact strings are all chars
+			}
+			else if (packedConversion(seqto.seqof))
+			{
+				return this;	// Packed numbers that all convert to themselves
+			}
+
 			ValueList nl = new ValueList();
 
 			for (Value v: values)
@@ -194,6 +246,36 @@ public class SeqValue extends Value
 		}
 	}
 
+	/**
+	 * True if all of the elements of a packed numeric list would convert to
+	 * themselves as the numeric type given.
+	 */
+	private boolean packedConversion(TCType seqof)
+	{
+		if (seqof instanceof TCNaturalOneType)
+		{
+			return values.allInstancesOf(NaturalOneValue.class);
+		}
+		else if (seqof instanceof TCNaturalType)
+		{
+			return values.allInstancesOf(NaturalValue.class);
+		}
+		else if (seqof instanceof TCIntegerType)
+		{
+			return values.allInstancesOf(IntegerValue.class);
+		}
+		else if (seqof instanceof TCRationalType)
+		{
+			return values.allInstancesOf(RationalValue.class);
+		}
+		else if (seqof instanceof TCRealType)
+		{
+			return values.allInstancesOf(RealValue.class);
+		}
+
+		return false;
+	}
+
 	@Override
 	public Object clone()
 	{
@@ -33,10 +33,10 @@ import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
 
 
-public class SetValue extends Value
+public class SetValue extends CompoundValue
 {
 	private static final long serialVersionUID = 1L;
-	public final ValueSet values;
+	protected ValueSet values;	// See RangeSetValue
 
 	public SetValue()
 	{
@@ -68,6 +68,15 @@ public class SetValue extends Value
 		this.values = values;
 	}
 
+	/**
+	 * The members of the set. The values field is not public, as a RangeSetValue
+	 * only creates it when needed, which this does.
+	 */
+	public ValueSet getValues()
+	{
+		return setValue(null);
+	}
+
 	@Override
 	public ValueSet setValue(Context ctxt)
 	{
@@ -98,6 +107,11 @@ public class SetValue extends Value
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		ValueSet nset = new ValueSet();
 
 		for (Value k: values)
@@ -123,10 +137,20 @@ public class SetValue extends Value
 		{
 			Value val = ((Value)other).deref();
 
-    		if (val instanceof SetValue)
+    		if (val == this)
+    		{
+    			return true;
+    		}
+    		else if (val instanceof SetValue)
     		{
     			SetValue ot = (SetValue)val;
-    			return values.equals(ot.values);
+
+    			if (hashDiffers(ot))
+    			{
+    				return false;	// Both cached and different
+    			}
+
+    			return values.equals(ot.setValue(null));
     		}
 		}
 
@@ -140,11 +164,28 @@ public class SetValue extends Value
 	}
 
 	@Override
-	public int hashCode()
+	protected int deepHash()
 	{
 		return values.hashCode();
 	}
 
+	@Override
+	protected boolean computeImmutable()
+	{
+		boolean result = true;
+
+		for (Value v: values)
+		{
+			if (!v.isImmutable())
+			{
+				result = false;
+				break;
+			}
+		}
+
+		return result;
+	}
+
 	public ValueList permutedSets()
 	{
 		List<ValueSet> psets = values.permutedSets();
@@ -23,14 +23,46 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.definitions.INStateDefinition;
+import com.fujitsu.vdmj.in.expressions.INApplyExpression;
+import com.fujitsu.vdmj.in.expressions.INBinaryExpression;
+import com.fujitsu.vdmj.in.expressions.INBooleanLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INCharLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INElseIfExpression;
 import com.fujitsu.vdmj.in.expressions.INEqualsExpression;
+import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.expressions.INExpressionList;
+import com.fujitsu.vdmj.in.expressions.INFieldExpression;
+import com.fujitsu.vdmj.in.expressions.INFieldNumberExpression;
+import com.fujitsu.vdmj.in.expressions.INIfExpression;
+import com.fujitsu.vdmj.in.expressions.INIntegerLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INIsExpression;
+import com.fujitsu.vdmj.in.expressions.INMkTypeExpression;
+import com.fujitsu.vdmj.in.expressions.INNilExpression;
+import com.fujitsu.vdmj.in.expressions.INQuoteLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INRealLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INSeqEnumExpression;
+import com.fujitsu.vdmj.in.expressions.INSetEnumExpression;
+import com.fujitsu.vdmj.in.expressions.INSetRangeExpression;
+import com.fujitsu.vdmj.in.expressions.INStringLiteralExpression;
+import com.fujitsu.vdmj.in.expressions.INSubseqExpression;
+import com.fujitsu.vdmj.in.expressions.INTupleExpression;
+import com.fujitsu.vdmj.in.expressions.INUnaryExpression;
+import com.fujitsu.vdmj.in.expressions.INVariableExpression;
+import com.fujitsu.vdmj.in.patterns.INIdentifierPattern;
+import com.fujitsu.vdmj.in.patterns.INIgnorePattern;
+import com.fujitsu.vdmj.in.patterns.INPattern;
+import com.fujitsu.vdmj.in.patterns.INRecordPattern;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ExceptionHandler;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCField;
 import com.fujitsu.vdmj.tc.types.TCRecordType;
 
@@ -42,6 +74,9 @@ public class State implements ValueListener
 
 	public boolean doInvariantChecks = true;
 
+	/** The listeners for each field, in definition order */
+	private final List<FieldListener> fieldListeners = new Vector<FieldListener>();
+
 	public State(INStateDefinition definition)
 	{
 		this.definition = definition;
@@ -49,8 +84,11 @@ public class State implements ValueListener
 
 		for (TCField f: definition.fields)
 		{
+			FieldListener listener = new FieldListener(f.tagname);
+			fieldListeners.add(listener);
+
 			fieldvalues.add(new NameValuePair(f.tagname,
-				UpdatableValue.factory(new ValueListenerList(this))));
+				UpdatableValue.factory(new ValueListenerList(listener))));
 		}
 
 		TCRecordType rt = (TCRecordType)definition.getType();
@@ -102,6 +140,7 @@ public class State implements ValueListener
 				}
 			}
 
+			setInvariantReads(globals);
 			doInvariantChecks = true;
 			changedValue(null, null, globals);
 		}
@@ -120,6 +159,168 @@ public class State implements ValueListener
 		return context;
 	}
 
+	/**
+	 * Decide which fields the state invariant reads, so that it is only checked
+	 * when one of those changes. This is only possible if the invariant has a
+	 * record pattern that names the fields, like "inv mk_S(a, -, c) == ...". The
+	 * field values are bound to their names and the invariant's getValues method
+	 * lists those it reads, as for class invariants and permission guards. For
+	 * other patterns, or if getValues may not find every value the invariant
+	 * reads, every field is considered to be read.
+	 */
+	private void setInvariantReads(Context globals)
+	{
+		if (!(definition.invPattern instanceof INRecordPattern) ||
+			!isReadComplete(definition.invExpression))
+		{
+			return;
+		}
+
+		INRecordPattern rp = (INRecordPattern)definition.invPattern;
+		Context ctxt = new Context(definition.location, "state invariant reads", globals);
+		int i = 0;
+
+		for (INPattern p: rp.plist)
+		{
+			FieldListener listener = fieldListeners.get(i++);
+
+			if (p instanceof INIdentifierPattern)
+			{
+				ctxt.put(((INIdentifierPattern)p).name, context.get(listener.field));
+				listener.read = false;
+			}
+			else if (p instanceof INIgnorePattern)
+			{
+				listener.read = false;
+			}
+		}
+
+		try
+		{
+			for (Value v: definition.invExpression.getValues(ctxt))
+			{
+				for (FieldListener listener: fieldListeners)
+				{
+					if (context.get(listener.field) == v)
+					{
+						listener.read = true;
+					}
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			for (FieldListener listener: fieldListeners)
+			{
+				listener.read = true;	// Can't tell, so check them all
+			}
+		}
+	}
+
+	/**
+	 * True if the getValues method of the expression is known to list every
+	 * value that it reads. This is only decided for the simple expressions that
+	 * make up most invariants. Others, like quantifiers, lets, cases and local
+	 * functions, read values through binds, patterns or definitions that the
+	 * getValues methods do not search.
+	 */
+	private static boolean isReadComplete(INExpression exp)
+	{
+		if (exp instanceof INVariableExpression ||
+			exp instanceof INBooleanLiteralExpression ||
+			exp instanceof INCharLiteralExpression ||
+			exp instanceof INIntegerLiteralExpression ||
+			exp instanceof INRealLiteralExpression ||
+			exp instanceof INQuoteLiteralExpression ||
+			exp instanceof INStringLiteralExpression ||
+			exp instanceof INNilExpression)
+		{
+			return true;
+		}
+		else if (exp instanceof INUnaryExpression)
+		{
+			return isReadComplete(((INUnaryExpression)exp).exp);
+		}
+		else if (exp instanceof INBinaryExpression)
+		{
+			INBinaryExpression bexp = (INBinaryExpression)exp;
+			return isReadComplete(bexp.left) && isReadComplete(bexp.right);
+		}
+		else if (exp instanceof INIfExpression)
+		{
+			INIfExpression iexp = (INIfExpression)exp;
+
+			for (INElseIfExpression elseif: iexp.elseList)
+			{
+				if (!isReadComplete(elseif.elseIfExp) || !isReadComplete(elseif.thenExp))
+				{
+					return false;
+				}
+			}
+
+			return isReadComplete(iexp.ifExp) && isReadComplete(iexp.thenExp) &&
+				isReadComplete(iexp.elseExp);
+		}
+		else if (exp instanceof INApplyExpression)
+		{
+			INApplyExpression aexp = (INApplyExpression)exp;
+			return isReadComplete(aexp.root) && isReadComplete(aexp.args);
+		}
+		else if (exp instanceof INFieldExpression)
+		{
+			return isReadComplete(((INFieldExpression)exp).object);
+		}
+		else if (exp instanceof INFieldNumberExpression)
+		{
+			return isReadComplete(((INFieldNumberExpression)exp).tuple);
+		}
+		else if (exp instanceof INIsExpression)
+		{
+			return isReadComplete(((INIsExpression)exp).test);
+		}
+		else if (exp instanceof INSetRangeExpression)
+		{
+			INSetRangeExpression rexp = (INSetRangeExpression)exp;
+			return isReadComplete(rexp.first) && isReadComplete(rexp.last);
+		}
+		else if (exp instanceof INSetEnumExpression)
+		{
+			return isReadComplete(((INSetEnumExpression)exp).members);
+		}
+		else if (exp instanceof INSeqEnumExpression)
+		{
+			return isReadComplete(((INSeqEnumExpression)exp).members);
+		}
+		else if (exp instanceof INTupleExpression)
+		{
+			return isReadComplete(((INTupleExpression)exp).args);
+		}
+		else if (exp instanceof INMkTypeExpression)
+		{
+			return isReadComplete(((INMkTypeExpression)exp).args);
+		}
+		else if (exp instanceof INSubseqExpression)
+		{
+			INSubseqExpression sexp = (INSubseqExpression)exp;
+			return isReadComplete(sexp.seq) && isReadComplete(sexp.from) && isReadComplete(sexp.to);
+		}
+
+		return false;
+	}
+
+	private static boolean isReadComplete(INExpressionList list)
+	{
+		for (INExpression exp: list)
+		{
+			if (!isReadComplete(exp))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public void changedValue(LexLocation location, Value changed, Context ctxt) throws ValueException
 	{
@@ -138,4 +339,28 @@ public class State implements ValueListener
 			}
 		}
 	}
+
+	/**
+	 * The listener for one field, which only checks the invariant if the
+	 * invariant reads the field.
+	 */
+	private class FieldListener implements ValueListener
+	{
+		public final TCNameToken field;
+		public boolean read = true;
+
+		public FieldListener(TCNameToken field)
+		{
+			this.field = field;
+		}
+
+		@Override
+		public void changedValue(LexLocation location, Value changed, Context ctxt) throws ValueException
+		{
+			if (read)
+			{
+				State.this.changedValue(location, changed, ctxt);
+			}
+		}
+	}
 }
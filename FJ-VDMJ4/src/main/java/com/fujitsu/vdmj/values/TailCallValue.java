@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.util.Utils;
+
+/**
+ * The value of a function body that ends with a call to the same function.
+ * The call is made by FunctionValue, which evaluates the body again with the
+ * new arguments rather than recursing, so these values are never seen by a
+ * specification. See INApplyExpression.
+ */
+public class TailCallValue extends Value
+{
+	private static final long serialVersionUID = 1L;
+
+	public final LexLocation location;
+	public final ValueList args;
+
+	public TailCallValue(LexLocation location, ValueList args)
+	{
+		this.location = location;
+		this.args = args;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "tail call" + Utils.listToString("(", args, ", ", ")");
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other == this;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return System.identityHashCode(this);
+	}
+
+	@Override
+	public String kind()
+	{
+		return "tail call";
+	}
+
+	@Override
+	public Object clone()
+	{
+		return new TailCallValue(location, args);
+	}
+}
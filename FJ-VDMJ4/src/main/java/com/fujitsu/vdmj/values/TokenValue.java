@@ -32,7 +32,7 @@ import com.fujitsu.vdmj.tc.types.TCTypeSet;
 public class TokenValue extends Value
 {
 	private static final long serialVersionUID = 1L;
-	private final Value value;
+	public final Value value;
 
 	public TokenValue(Value exp)
 	{
@@ -86,6 +86,12 @@ public class TransactionValue extends UpdatableValue
 		return select().convertValueTo(to, ctxt, done).getUpdatable(listeners);
 	}
 
+	@Override
+	public synchronized UpdatableValue copyOnWrite()
+	{
+		return this;	// Values are fully updatable, see set
+	}
+
 	@Override
 	public void set(LexLocation location, Value newval, Context ctxt) throws ValueException
 	{
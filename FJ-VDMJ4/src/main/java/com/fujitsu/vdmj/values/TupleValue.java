@@ -33,7 +33,7 @@ import com.fujitsu.vdmj.tc.types.TCTypeSet;
 import com.fujitsu.vdmj.util.Utils;
 
 
-public class TupleValue extends Value
+public class TupleValue extends CompoundValue
 {
 	private static final long serialVersionUID = 1L;
 	public final ValueList values;
@@ -66,6 +66,11 @@ public class TupleValue extends Value
 	@Override
 	public Value getConstant()
 	{
+		if (isImmutable())
+		{
+			return this;
+		}
+
 		ValueList ntup = new ValueList();
 
 		for (Value k: values)
@@ -77,6 +82,14 @@ public class TupleValue extends Value
 		return new TupleValue(ntup);
 	}
 
+	@Override
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		TupleValue copy = new TupleValue(new ValueList(values));
+		copy.setMutable();		// Changed in place by the owner
+		return copy;
+	}
+
 	@Override
 	public boolean equals(Object other)
 	{
@@ -84,9 +97,19 @@ public class TupleValue extends Value
 		{
 			Value val = ((Value)other).deref();
 
-    		if (val instanceof TupleValue)
+    		if (val == this)
+    		{
+    			return true;
+    		}
+    		else if (val instanceof TupleValue)
     		{
     			TupleValue ot = (TupleValue)val;
+
+    			if (hashDiffers(ot))
+    			{
+    				return false;	// Both cached and different
+    			}
+
     			return values.equals(ot.values);
     		}
 		}
@@ -132,11 +155,28 @@ public class TupleValue extends Value
 	}
 
 	@Override
-	public int hashCode()
+	protected int deepHash()
 	{
 		return values.hashCode();
 	}
 
+	@Override
+	protected boolean computeImmutable()
+	{
+		boolean result = true;
+
+		for (Value v: values)
+		{
+			if (!v.isImmutable())
+			{
+				result = false;
+				break;
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public String kind()
 	{
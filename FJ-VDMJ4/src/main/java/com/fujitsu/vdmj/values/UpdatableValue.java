@@ -46,6 +46,12 @@ public class UpdatableValue extends ReferenceValue
 	public ValueListenerList listeners;
 	protected final TCType restrictedTo;
 
+	/**
+	 * True if our value is a copy that is only referenced here, so that parts of
+	 * it can be updated in place. See copyOnWrite.
+	 */
+	private transient boolean owned = false;
+
 	public static UpdatableValue factory(Value value, ValueListenerList listeners)
 	{
 		return factory(value, listeners, null);
@@ -127,22 +133,24 @@ public class UpdatableValue extends ReferenceValue
 	protected
 	synchronized Value convertValueTo(TCType to, Context ctxt, TCTypeSet done) throws ValueException
 	{
-		return value.convertValueTo(to, ctxt, done).getUpdatable(listeners);
+		// Parts are made updatable when they are assigned, see copyOnWrite
+		return UpdatableValue.factory(value.convertValueTo(to, ctxt, done).getConstant(), listeners);
 	}
 
 	@Override
 	public void set(LexLocation location, Value newval, Context ctxt) throws ValueException
 	{
-		// Anything with structure added to an UpdateableValue has to be
-		// updatable, otherwise you can "freeze" part of the substructure
-		// such that it can't be changed. And we have to set the listeners
-		// to be "our" listeners, regardless of any it had before.
+		// The new value is held as a constant, which may be shared with other
+		// values. Parts of the structure are only made updatable (and copied)
+		// when a designator assigns to them, via copyOnWrite. So an assignment
+		// does not copy the whole value, and the listeners are always "ours",
+		// regardless of any the new value had before.
 
 		synchronized (this)
 		{
-   			value = newval.getConstant().getUpdatable(listeners);
-    		value = ((UpdatableValue)value).value;	// To avoid nested updatables
-    		
+   			value = newval.getConstant();
+   			owned = false;
+
     		if (restrictedTo != null)
     		{
 				value = value.convertTo(restrictedTo, ctxt);
@@ -158,6 +166,84 @@ public class UpdatableValue extends ReferenceValue
 		}
 	}
 
+	/**
+	 * Prepare to update part of our value in place, for a designator. The first
+	 * time this is called after a "set", the outer structure of the value is
+	 * copied, sharing its parts, since the value may be shared with others.
+	 * The updatable returned is the one that holds the structure, which is
+	 * inside any invariant wrapper.
+	 *
+	 * @return The updatable that holds the structure to update.
+	 */
+	public synchronized UpdatableValue copyOnWrite()
+	{
+		if (!owned)
+		{
+			value = value.shallowCopy(this);
+			owned = true;
+		}
+
+		if (value instanceof InvariantValue)
+		{
+			Value inner = ((InvariantValue)value).value;
+
+			if (inner instanceof UpdatableValue)
+			{
+				return ((UpdatableValue)inner).copyOnWrite();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Return an updatable for part of our structure (after copyOnWrite), which
+	 * shares its value. The caller must put this back in the structure.
+	 */
+	public UpdatableValue getUpdatableChild(Value child)
+	{
+		if (child instanceof UpdatableValue)
+		{
+			return (UpdatableValue)child;
+		}
+
+		return UpdatableValue.factory(child, getChildListeners());
+	}
+
+	/**
+	 * The listeners for the parts of our value. These are our own, plus an
+	 * invariant check of our value, if it has an invariant.
+	 */
+	protected synchronized ValueListenerList getChildListeners()
+	{
+		boolean invariant = false;
+
+		if (value instanceof RecordValue)
+		{
+			invariant = ((RecordValue)value).invariant != null;
+		}
+		else if (value instanceof InvariantValue)
+		{
+			invariant = ((InvariantValue)value).invariant != null;
+		}
+
+		if (invariant)
+		{
+			InvariantValueListener invl = new InvariantValueListener();
+			invl.setValue(this);
+			ValueListenerList list = new ValueListenerList(invl);
+
+			if (listeners != null)
+			{
+				list.addAll(listeners);
+			}
+
+			return list;
+		}
+
+		return listeners;
+	}
+
 	public void addListener(ValueListener listener)
 	{
 		if (listeners != null)
@@ -231,6 +317,12 @@ public class UpdatableValue extends ReferenceValue
 		return value.isNumeric();
 	}
 
+	@Override
+	public boolean isImmutable()
+	{
+		return false;	// Can be set, and so has no fixed hash code
+	}
+
 	@Override
 	public synchronized boolean isOrdered()
 	{
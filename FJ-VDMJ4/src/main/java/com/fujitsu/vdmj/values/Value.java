@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.values;
 
 import java.io.Serializable;
+import java.math.BigInteger;
 import java.util.Formattable;
 import java.util.FormattableFlags;
 import java.util.Formatter;
@@ -185,25 +186,31 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 	{
 		if (to instanceof TCUnionType)
 		{
-			TCUnionType uto = (TCUnionType)to;
+			// The plan skips the members that this value cannot be converted to,
+			// which would otherwise each throw an exception below.
 
-			for (TCType ut: uto.types)
+			for (DTCPlan plan: DTCPlan.get(to).getMembers())
 			{
+				TCType ut = plan.type;
+
 				if (!done.contains(ut))
 				{
-    				try
-    				{
-    					if (ut instanceof TCNamedType)	// These can "recurse"
-    					{
-    						done.add(ut);
-    					}
-    					
-    					return convertValueTo(ut, ctxt, done);
-    				}
-    				catch (ValueException e)
-    				{
-    					// Union type not applicable
-    				}
+					if (ut instanceof TCNamedType)	// These can "recurse"
+					{
+						done.add(ut);
+					}
+
+					if (plan.mayConvert(this))
+					{
+						try
+						{
+							return convertValueTo(ut, ctxt, done);
+						}
+						catch (ValueException e)
+						{
+							// Union type not applicable
+						}
+					}
 				}
 			}
 		}
@@ -300,6 +307,16 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		return isNumeric();
 	}
 
+	/**
+	 * True if this value can never change, because it neither is nor contains
+	 * an UpdatableValue. Compound values cache the hash codes of immutable
+	 * values, and use them to fail equality tests quickly.
+	 */
+	public boolean isImmutable()
+	{
+		return true;
+	}
+
 	public boolean isType(Class<? extends Value> valueclass)
 	{
 		return valueclass.isInstance(this);
@@ -346,6 +363,18 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		return this;
 	}
 
+	/**
+	 * Return a copy of this value that shares its parts, so that the copy can
+	 * be changed in place by the UpdatableValue given. Simple values are
+	 * returned as they are. See UpdatableValue.copyOnWrite.
+	 *
+	 * @return A shallow copy of this value
+	 */
+	protected Value shallowCopy(UpdatableValue owner)
+	{
+		return this;
+	}
+
 	public double realValue(Context ctxt) throws ValueException
 	{
 		abort(4089, "Can't get real value of " + kind(), ctxt);
@@ -364,6 +393,11 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		return 0;
 	}
 
+	public BigInteger bigintValue(Context ctxt) throws ValueException
+	{
+		return BigInteger.valueOf(intValue(ctxt));
+	}
+
 	public long natValue(Context ctxt) throws ValueException
 	{
 		abort(4092, "Can't get nat value of " + kind(), ctxt);
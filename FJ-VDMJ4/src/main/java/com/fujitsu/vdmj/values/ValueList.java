@@ -23,40 +23,1357 @@
 
 package com.fujitsu.vdmj.values;
 
-import java.util.Vector;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
+import com.fujitsu.vdmj.messages.InternalException;
 import com.fujitsu.vdmj.util.Utils;
 
 /**
  * A sequential list of values.
+ *
+ * The elements are held in an array which may be shared between several lists,
+ * each of which sees a window (offset and count) onto it. Copies and slices of a
+ * list share the array, so that "tl s", subsequences and copies are O(1). A list
+ * that is the last to have appended to a shared array may continue appending in
+ * place, so "s ^ [x]" is amortised O(1) too. Any other update to a shared list
+ * first copies its window (copy on write).
+ *
+ * Lists are not synchronized, but several threads may share a list that none
+ * of them change, as parallel evaluation does (see ParallelEvaluator). Copies
+ * and slices of the list made on those threads only ever mark the list shared,
+ * and appending in place to a shared array is synchronized on the array.
+ *
+ * A list made from a String holds the String rather than an array, creating
+ * CharacterValues only as elements are read. It stays compact when sliced,
+ * compared, hashed, printed or concatenated with another compact list, and is
+ * expanded to an array of values by any other update.
+ *
+ * Similarly, a long list of integers or reals can be packed into an array of
+ * longs or doubles (see {@link #pack()}). Packed lists create NumericValues
+ * only as elements are read, and stay packed while numbers of the same sort
+ * are added.
+ *
+ * A long list that would otherwise have to be copied to be changed, because
+ * its array is shared, is held as a tree instead. The tree is balanced, its
+ * nodes are never changed, and its leaves hold up to LEAF_MAX elements or a
+ * window onto an array or String that is no longer changed. So updating one
+ * element, inserting, removing, slicing and concatenating all take O(log n)
+ * time, and lists made from a tree share all of its unchanged nodes. An array
+ * list becomes a tree in O(1) time, as one leaf over its window, which is
+ * split in half as often as necessary when an element in it is updated.
  */
 
-@SuppressWarnings("serial")
-public class ValueList extends Vector<Value>
+public class ValueList extends AbstractList<Value> implements RandomAccess, Cloneable, Serializable
 {
+	private static final long serialVersionUID = 1L;
+
+	/** Lists shorter than this are not worth packing. */
+	private static final int PACK_THRESHOLD = 16;
+
+	/** Lists shorter than this are copied rather than held as trees. */
+	private static final int TREE_THRESHOLD = 64;
+
+	/** The most elements that a tree leaf copies when it is updated. */
+	private static final int LEAF_MAX = 32;
+
+	/** The numeric classes that can be packed, indexed by kind. */
+	private static final byte KIND_INT = 0;
+	private static final byte KIND_NAT = 1;
+	private static final byte KIND_NAT1 = 2;
+	private static final byte KIND_RAT = 3;
+	private static final byte KIND_REAL = 4;
+	private static final byte KIND_NONE = -1;
+
+	/**
+	 * An array of values, the first "used" of which are in use by some list.
+	 * The values are held as Value objects, or packed as long or double numbers
+	 * with a kind byte for each, which gives the class of the NumericValue.
+	 */
+	private static class Backing implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		public Value[] data;
+		public long[] longs;
+		public double[] reals;
+		public byte[] kinds;
+		public int used;
+
+		public Backing(int capacity)
+		{
+			data = new Value[capacity < 10 ? 10 : capacity];
+			used = 0;
+		}
+
+		private Backing(long[] longs, double[] reals, int capacity)
+		{
+			this.longs = longs;
+			this.reals = reals;
+			this.kinds = new byte[capacity];
+			this.used = 0;
+		}
+
+		public int capacity()
+		{
+			return kinds == null ? data.length : kinds.length;
+		}
+
+		public Value get(int i)
+		{
+			if (kinds == null)
+			{
+				return data[i];
+			}
+
+			try
+			{
+				switch (kinds[i])
+				{
+					case KIND_INT:	return IntegerValue.valueOf(longs[i]);
+					case KIND_NAT:	return NaturalValue.valueOf(longs[i]);
+					case KIND_NAT1:	return NaturalOneValue.valueOf(longs[i]);
+					case KIND_RAT:	return new RationalValue(reals[i]);
+					default:		return new RealValue(reals[i]);
+				}
+			}
+			catch (Exception e)
+			{
+				throw new InternalException(5, "Illegal packed value");
+			}
+		}
+
+		/**
+		 * True if the value can be held in this representation.
+		 */
+		public boolean accepts(Value v)
+		{
+			if (kinds == null)
+			{
+				return true;
+			}
+
+			byte kind = kindOf(v);
+			return (longs != null) ?
+				kind >= KIND_INT && kind <= KIND_NAT1 : kind >= KIND_RAT;
+		}
+
+		/**
+		 * Store a value at an index. The value must be accepted (see above).
+		 */
+		public void put(int i, Value v)
+		{
+			if (kinds == null)
+			{
+				data[i] = v;
+			}
+			else
+			{
+				byte kind = kindOf(v);
+
+				if (longs != null)
+				{
+					longs[i] = ((IntegerValue)v).longVal;
+				}
+				else
+				{
+					reals[i] = ((NumericValue)v).value;
+				}
+
+				kinds[i] = kind;
+			}
+		}
+
+		/**
+		 * Store a value after the last in use, if that is at index end and there
+		 * is room, else return false. Lists on different threads can share an
+		 * array, so the check and the store are made together.
+		 */
+		public synchronized boolean append(int end, Value v)
+		{
+			if (end != used || end == capacity())
+			{
+				return false;
+			}
+
+			put(end, v);
+			used++;
+			return true;
+		}
+
+		public void move(int from, int to, int length)
+		{
+			if (kinds == null)
+			{
+				System.arraycopy(data, from, data, to, length);
+			}
+			else
+			{
+				if (longs != null) System.arraycopy(longs, from, longs, to, length);
+				if (reals != null) System.arraycopy(reals, from, reals, to, length);
+				System.arraycopy(kinds, from, kinds, to, length);
+			}
+		}
+
+		/**
+		 * A new backing with the same representation, holding the count
+		 * elements from the offset given.
+		 */
+		public Backing copy(int offset, int count, int capacity)
+		{
+			Backing copy = null;
+
+			if (kinds == null)
+			{
+				copy = new Backing(capacity);
+				System.arraycopy(data, offset, copy.data, 0, count);
+			}
+			else
+			{
+				capacity = capacity < 10 ? 10 : capacity;
+
+				if (longs != null)
+				{
+					copy = new Backing(new long[capacity], null, capacity);
+					System.arraycopy(longs, offset, copy.longs, 0, count);
+				}
+				else
+				{
+					copy = new Backing(null, new double[capacity], capacity);
+					System.arraycopy(reals, offset, copy.reals, 0, count);
+				}
+
+				System.arraycopy(kinds, offset, copy.kinds, 0, count);
+			}
+
+			copy.used = count;
+			return copy;
+		}
+
+		/**
+		 * A new backing of Value objects, holding the count elements from the
+		 * offset given.
+		 */
+		public Backing unpack(int offset, int count, int capacity)
+		{
+			Backing copy = new Backing(capacity);
+
+			for (int i=0; i<count; i++)
+			{
+				copy.data[i] = get(offset + i);
+			}
+
+			copy.used = count;
+			return copy;
+		}
+	}
+
+	/**
+	 * A node of a tree of values. Nodes are never changed once made, so they
+	 * can be shared by any number of lists.
+	 */
+	private abstract static class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		public final int size;
+		public final int height;
+
+		protected Node(int size, int height)
+		{
+			this.size = size;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * The elements of a window onto a Backing or a String, which no list will
+	 * change. A leaf longer than LEAF_MAX has the height of the tree that it
+	 * would make if it were split in halves until each was no longer.
+	 */
+	private static class Leaf extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		public final Backing backing;
+		public final String chars;
+		public final int start;
+
+		public Leaf(Backing backing, String chars, int start, int size)
+		{
+			super(size, heightOf(size));
+			this.backing = backing;
+			this.chars = chars;
+			this.start = start;
+		}
+
+		public Leaf(Value v)
+		{
+			this(new Backing(1), null, 0, 1);
+			backing.data[0] = v;
+			backing.used = 1;
+		}
+
+		private static int heightOf(int size)
+		{
+			int height = 0;
+
+			for (long n = LEAF_MAX; n < size; n <<= 1)
+			{
+				height++;
+			}
+
+			return height;
+		}
+
+		public Value get(int i)
+		{
+			if (chars != null)
+			{
+				return CharacterValue.valueOf(chars.charAt(start + i));
+			}
+
+			return backing.get(start + i);
+		}
+	}
+
+	private static class Branch extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		public final Node left;
+		public final Node right;
+
+		public Branch(Node left, Node right)
+		{
+			super(left.size + right.size, Math.max(left.height, right.height) + 1);
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	private Backing backing;
+	private String chars;
+	private Node tree;
+	private int offset;
+	private int count;
+	private boolean shared;
+
 	public ValueList()
 	{
-		super();
+		this(10);
 	}
 
 	public ValueList(ValueList from)
 	{
-		addAll(from);
+		this(from, 0, from.count);
+	}
+
+	/**
+	 * Create a list of the elements of another between from (inclusive) and
+	 * to (exclusive), sharing the other list's elements.
+	 */
+	public ValueList(ValueList from, int start, int end)
+	{
+		if (start < 0 || end > from.count || start > end)
+		{
+			throw new IndexOutOfBoundsException("Slice " + start + " to " + end);
+		}
+
+		if (from.tree != null)
+		{
+			setTree(slice(from.tree, start, end));
+			return;
+		}
+
+		backing = from.backing;
+		chars = from.chars;
+		offset = from.offset + start;
+		count = end - start;
+		shared = true;
+
+		if (!from.shared)
+		{
+			from.shared = true;		// Only ever set by other lists, see above
+		}
 	}
 
 	public ValueList(Value v)
 	{
+		this(10);
 		add(v);
 	}
 
 	public ValueList(int n)
 	{
-		super(n);
+		backing = new Backing(n);
+		chars = null;
+		offset = 0;
+		count = 0;
+		shared = false;
+	}
+
+	/**
+	 * Create a compact list of the characters of a String.
+	 */
+	public ValueList(String s)
+	{
+		backing = null;
+		chars = s;
+		offset = 0;
+		count = s.length();
+		shared = true;
+	}
+
+	/**
+	 * Create a packed list of the integers from first to last inclusive, which
+	 * are read as values of the class given (int, nat or nat1).
+	 */
+	public static ValueList range(long first, long last, Class<? extends IntegerValue> valueclass)
+	{
+		int size = (last < first) ? 0 : (int)(last - first + 1);
+		int capacity = size < 10 ? 10 : size;
+		Backing packed = new Backing(new long[capacity], null, capacity);
+		byte kind = KIND_INT;
+
+		for (byte k = KIND_INT; k <= KIND_NAT1; k++)
+		{
+			if (classOf(k) == valueclass)
+			{
+				kind = k;
+			}
+		}
+
+		for (int i=0; i<size; i++)
+		{
+			packed.longs[i] = first + i;
+			packed.kinds[i] = kind;
+		}
+
+		packed.used = size;
+		ValueList list = new ValueList(0);
+		list.backing = packed;
+		list.count = size;
+		return list;
+	}
+
+	/**
+	 * True if this list is held compactly, as a String of characters.
+	 */
+	public boolean isString()
+	{
+		return chars != null;
+	}
+
+	/**
+	 * The characters of a compact list, or null if the list is not compact.
+	 */
+	public String getString()
+	{
+		return chars == null ? null : chars.substring(offset, offset + count);
+	}
+
+	/**
+	 * Pack a long list of integers or reals into an array of numbers, if all of
+	 * the elements are of the same sort. Lists that are shared, short, or already
+	 * packed or compact are left as they are. This is called where a sequence is
+	 * built from its elements, by enumerations and comprehensions, as it has to
+	 * look at every element.
+	 */
+	public void pack()
+	{
+		if (tree != null || chars != null || shared || backing.kinds != null || count < PACK_THRESHOLD)
+		{
+			return;
+		}
+
+		byte first = kindOf(backing.data[offset]);
+
+		if (first == KIND_NONE)
+		{
+			return;
+		}
+
+		boolean integers = (first <= KIND_NAT1);
+		int capacity = backing.data.length;
+		Backing packed = integers ?
+			new Backing(new long[capacity], null, capacity) :
+			new Backing(null, new double[capacity], capacity);
+
+		for (int i=0; i<count; i++)
+		{
+			byte kind = kindOf(backing.data[offset + i]);
+
+			if (kind == KIND_NONE || (kind <= KIND_NAT1) != integers)
+			{
+				return;		// Mixed, so leave unpacked
+			}
+
+			packed.put(i, backing.data[offset + i]);
+		}
+
+		packed.used = count;
+		backing = packed;
+		offset = 0;
+	}
+
+	/**
+	 * True if every element of a packed list is an instance of the class given.
+	 * This is always false for lists that are not packed, to avoid a search.
+	 */
+	public boolean allInstancesOf(Class<? extends Value> valueclass)
+	{
+		if (tree != null || chars != null || backing.kinds == null)
+		{
+			return false;
+		}
+
+		for (int i=0; i<count; i++)
+		{
+			if (!valueclass.isAssignableFrom(classOf(backing.kinds[offset + i])))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static byte kindOf(Value v)
+	{
+		Class<?> c = v.getClass();
+
+		if (v instanceof IntegerValue && ((IntegerValue)v).isBig())
+		{
+			return KIND_NONE;
+		}
+
+		if (c == NaturalOneValue.class) return KIND_NAT1;
+		if (c == NaturalValue.class) return KIND_NAT;
+		if (c == IntegerValue.class) return KIND_INT;
+		if (c == RealValue.class) return KIND_REAL;
+		if (c == RationalValue.class) return KIND_RAT;
+
+		return KIND_NONE;
+	}
+
+	private static Class<? extends Value> classOf(byte kind)
+	{
+		switch (kind)
+		{
+			case KIND_INT:	return IntegerValue.class;
+			case KIND_NAT:	return NaturalValue.class;
+			case KIND_NAT1:	return NaturalOneValue.class;
+			case KIND_RAT:	return RationalValue.class;
+			default:		return RealValue.class;
+		}
 	}
 
 	public boolean inbounds(int i)
 	{
-		return i >= 0 && i < size();
+		return i >= 0 && i < count;
+	}
+
+	@Override
+	public int size()
+	{
+		return count;
+	}
+
+	@Override
+	public Value get(int i)
+	{
+		if (i < 0 || i >= count)
+		{
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+
+		if (chars != null)
+		{
+			return CharacterValue.valueOf(chars.charAt(offset + i));
+		}
+		else if (tree != null)
+		{
+			return get(tree, i);
+		}
+
+		return backing.get(offset + i);
+	}
+
+	@Override
+	public Value set(int i, Value v)
+	{
+		if (i < 0 || i >= count)
+		{
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+
+		if (tree == null && count >= TREE_THRESHOLD &&
+			(chars != null || shared || offset > 0 || !backing.accepts(v)))
+		{
+			toTree();	// Rather than copy it
+		}
+
+		if (tree != null)
+		{
+			Value old = get(tree, i);
+			setTree(set(tree, i, v));
+			return old;
+		}
+
+		inflate();
+
+		if (!backing.accepts(v))
+		{
+			unpack();
+		}
+
+		unshare(count);
+		Value old = backing.get(i);
+		backing.put(i, v);
+		return old;
+	}
+
+	@Override
+	public boolean add(Value v)
+	{
+		if (tree == null && count >= TREE_THRESHOLD &&
+			(chars != null || !backing.accepts(v) || backing.used != offset + count))
+		{
+			toTree();	// Rather than copy it
+		}
+
+		if (tree != null)
+		{
+			setTree(join(tree, new Leaf(v)));
+			modCount++;
+			return true;
+		}
+
+		inflate();
+
+		if (!backing.accepts(v))
+		{
+			unpack();
+		}
+
+		if (!backing.append(offset + count, v))
+		{
+			copy(count + 1);	// Full, or someone else has appended to the backing
+			backing.put(count, v);
+			backing.used++;
+		}
+
+		count++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int i, Value v)
+	{
+		if (i < 0 || i > count)
+		{
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+
+		if (tree != null || count >= TREE_THRESHOLD)
+		{
+			toTree();	// Rather than move the elements after i
+			setTree(join(join(slice(tree, 0, i), new Leaf(v)), slice(tree, i, count)));
+			modCount++;
+			return;
+		}
+
+		inflate();
+
+		if (!backing.accepts(v))
+		{
+			unpack();
+		}
+
+		unshare(count + 1);
+		backing.move(i, i + 1, count - i);
+		backing.put(i, v);
+
+		backing.used++;
+		count++;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Value> values)
+	{
+		if (values == this)
+		{
+			values = new ValueList(this);	// A window that does not grow as we add
+		}
+
+		if (values instanceof ValueList && ((ValueList)values).chars != null)
+		{
+			ValueList other = (ValueList)values;
+
+			if (count == 0)
+			{
+				chars = other.chars;	// Share the other compact list
+				backing = null;
+				offset = other.offset;
+				count = other.count;
+				shared = true;
+				modCount++;
+				return count > 0;
+			}
+			else if (chars != null)
+			{
+				chars = getString() + other.getString();
+				offset = 0;
+				count = chars.length();
+				modCount++;
+				return true;
+			}
+		}
+		else if (count == 0 && values instanceof ValueList &&
+			((ValueList)values).tree == null && ((ValueList)values).backing.kinds != null)
+		{
+			ValueList other = (ValueList)values;
+			backing = other.backing;	// Share the other packed list
+			chars = null;
+			offset = other.offset;
+			count = other.count;
+			shared = true;
+			other.shared = true;
+			modCount++;
+			return count > 0;
+		}
+
+		if (values instanceof ValueList)
+		{
+			ValueList other = (ValueList)values;
+			boolean inPlace = tree == null && chars == null &&
+				backing.used == offset + count && other.count <= LEAF_MAX;
+
+			if (tree != null || other.tree != null ||
+				(count + other.count >= TREE_THRESHOLD && !inPlace))
+			{
+				if (other.count > 0)
+				{
+					setTree(join(toNode(), other.toNode()));
+					modCount++;
+				}
+
+				return other.count > 0;
+			}
+		}
+
+		for (Value v: values)
+		{
+			add(v);
+		}
+
+		return !values.isEmpty();
+	}
+
+	@Override
+	public Value remove(int i)
+	{
+		if (i < 0 || i >= count)
+		{
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+
+		if (tree != null || (i > 0 && count >= TREE_THRESHOLD))
+		{
+			toTree();	// Rather than move the elements after i
+			Value old = get(tree, i);
+			setTree(join(slice(tree, 0, i), slice(tree, i + 1, count)));
+			modCount++;
+			return old;
+		}
+		else if (i == 0)
+		{
+			// Just move the window along, sharing what remains
+			Value old = get(0);
+			shared = true;
+			offset++;
+			count--;
+			modCount++;
+			return old;
+		}
+
+		inflate();
+		unshare(count);
+		Value old = backing.get(i);
+		backing.move(i + 1, i, count - i - 1);
+		count--;
+
+		if (backing.kinds == null)
+		{
+			backing.data[count] = null;
+		}
+
+		backing.used--;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear()
+	{
+		backing = new Backing(10);
+		chars = null;
+		tree = null;
+		offset = 0;
+		count = 0;
+		shared = false;
+		modCount++;
+	}
+
+	/*
+	 * The methods of Vector that are not in List. ValueList used to extend Vector,
+	 * and these are kept for code that still calls them.
+	 */
+
+	public Value elementAt(int i)
+	{
+		return get(i);
+	}
+
+	public Value firstElement()
+	{
+		if (count == 0)
+		{
+			throw new NoSuchElementException();
+		}
+
+		return get(0);
+	}
+
+	public Value lastElement()
+	{
+		if (count == 0)
+		{
+			throw new NoSuchElementException();
+		}
+
+		return get(count - 1);
+	}
+
+	public void addElement(Value v)
+	{
+		add(v);
+	}
+
+	public void insertElementAt(Value v, int i)
+	{
+		add(i, v);
+	}
+
+	public void setElementAt(Value v, int i)
+	{
+		set(i, v);
+	}
+
+	public void removeElementAt(int i)
+	{
+		remove(i);
+	}
+
+	public boolean removeElement(Object v)
+	{
+		return remove(v);
+	}
+
+	public void removeAllElements()
+	{
+		clear();
+	}
+
+	public Enumeration<Value> elements()
+	{
+		return Collections.enumeration(this);
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof ValueList)
+		{
+			ValueList ol = (ValueList)other;
+
+			if (ol.backing == backing && ol.chars == chars && ol.tree == tree &&
+				ol.offset == offset && ol.count == count)
+			{
+				return true;	// Same window onto the same elements
+			}
+
+			if (ol.count != count)
+			{
+				return false;
+			}
+
+			if (tree != null || ol.tree != null)
+			{
+				Iterator<Value> ours = iterator();
+				Iterator<Value> theirs = ol.iterator();
+
+				while (ours.hasNext())
+				{
+					if (!ours.next().equals(theirs.next()))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			if (chars != null && ol.chars != null)
+			{
+				return chars.regionMatches(offset, ol.chars, ol.offset, count);
+			}
+
+			if (chars == null && ol.chars == null &&
+				backing.longs != null && ol.backing.longs != null)
+			{
+				for (int i=0; i<count; i++)
+				{
+					// IntegerValues are equal if their long values are equal
+					if (backing.longs[offset + i] != ol.backing.longs[ol.offset + i])
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			if (chars == null && ol.chars == null &&
+				backing.kinds != null && ol.backing.kinds != null)
+			{
+				for (int i=0; i<count; i++)
+				{
+					// Other NumericValues are equal if their double values are equal
+					if (numberAt(i) != ol.numberAt(i))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+		}
+
+		return super.equals(other);
+	}
+
+	private double numberAt(int i)
+	{
+		return backing.longs != null ? backing.longs[offset + i] : backing.reals[offset + i];
+	}
+
+	@Override
+	public int hashCode()
+	{
+		if (chars != null)
+		{
+			int hash = 1;	// As List.hashCode, with CharacterValue's hashes
+
+			for (int i=0; i<count; i++)
+			{
+				hash = 31 * hash + chars.charAt(offset + i);
+			}
+
+			return hash;
+		}
+		else if (tree == null && backing.longs != null)
+		{
+			int hash = 1;	// As List.hashCode, with IntegerValue's hashes
+
+			for (int i=0; i<count; i++)
+			{
+				hash = 31 * hash + (int)backing.longs[offset + i];
+			}
+
+			return hash;
+		}
+
+		return super.hashCode();
+	}
+
+	/**
+	 * Replace a compact String of characters with an array of CharacterValues,
+	 * before an update.
+	 */
+	private void inflate()
+	{
+		if (chars != null)
+		{
+			Backing copy = new Backing(count + (count >> 1) + 1);
+
+			for (int i=0; i<count; i++)
+			{
+				copy.data[i] = CharacterValue.valueOf(chars.charAt(offset + i));
+			}
+
+			copy.used = count;
+			backing = copy;
+			chars = null;
+			offset = 0;
+			shared = false;
+		}
+	}
+
+	/**
+	 * Replace a packed array of numbers with an array of NumericValues, before
+	 * an update that cannot be packed.
+	 */
+	private void unpack()
+	{
+		if (backing.kinds != null)
+		{
+			backing = backing.unpack(offset, count, count + (count >> 1) + 1);
+			offset = 0;
+			shared = false;
+		}
+	}
+
+	/**
+	 * Make sure that this list has its own backing array, with room for at
+	 * least the capacity given. Elements are copied to the start of the new
+	 * array.
+	 */
+	private void unshare(int capacity)
+	{
+		if (shared || offset > 0 || capacity > backing.capacity())
+		{
+			copy(capacity);
+		}
+	}
+
+	private void copy(int capacity)
+	{
+		backing = backing.copy(offset, count, capacity + (capacity >> 1));
+		offset = 0;
+		shared = false;
+	}
+
+	/**
+	 * Hold this list as a tree, if it is not already one. The array or String
+	 * is shared by the leaf made from it, so it is not copied.
+	 */
+	private void toTree()
+	{
+		if (tree == null)
+		{
+			setTree(toNode());
+		}
+	}
+
+	/**
+	 * A tree of this list's elements, or null if it is empty.
+	 */
+	private Node toNode()
+	{
+		if (tree != null || count == 0)
+		{
+			return tree;
+		}
+
+		shared = true;	// The leaf's window must not be changed by this list
+		return new Leaf(chars == null ? backing : null, chars, offset, count);
+	}
+
+	private void setTree(Node node)
+	{
+		if (node == null)
+		{
+			backing = new Backing(10);
+			tree = null;
+			count = 0;
+		}
+		else
+		{
+			backing = null;
+			tree = node;
+			count = node.size;
+		}
+
+		chars = null;
+		offset = 0;
+		shared = false;
+	}
+
+	private static Value get(Node node, int i)
+	{
+		while (node instanceof Branch)
+		{
+			Branch b = (Branch)node;
+
+			if (i < b.left.size)
+			{
+				node = b.left;
+			}
+			else
+			{
+				i -= b.left.size;
+				node = b.right;
+			}
+		}
+
+		return ((Leaf)node).get(i);
+	}
+
+	/**
+	 * A copy of a tree with element i replaced, sharing every node except
+	 * those on the path to it.
+	 */
+	private static Node set(Node node, int i, Value v)
+	{
+		if (node.size <= LEAF_MAX)
+		{
+			Backing copy = new Backing(node.size);
+
+			for (int j=0; j<node.size; j++)
+			{
+				copy.data[j] = (j == i) ? v : get(node, j);
+			}
+
+			copy.used = node.size;
+			return new Leaf(copy, null, 0, node.size);
+		}
+
+		Branch b = split(node);
+
+		if (i < b.left.size)
+		{
+			return new Branch(set(b.left, i, v), b.right);
+		}
+		else
+		{
+			return new Branch(b.left, set(b.right, i - b.left.size, v));
+		}
+	}
+
+	/**
+	 * A tree of the elements from start to end (exclusive). A leaf is sliced
+	 * by narrowing its window, so only the nodes along the two edges of the
+	 * slice are new.
+	 */
+	private static Node slice(Node node, int start, int end)
+	{
+		if (start == end)
+		{
+			return null;
+		}
+		else if (start == 0 && end == node.size)
+		{
+			return node;
+		}
+		else if (node instanceof Leaf)
+		{
+			Leaf leaf = (Leaf)node;
+			return new Leaf(leaf.backing, leaf.chars, leaf.start + start, end - start);
+		}
+
+		Branch b = (Branch)node;
+		int ls = b.left.size;
+
+		if (end <= ls)
+		{
+			return slice(b.left, start, end);
+		}
+		else if (start >= ls)
+		{
+			return slice(b.right, start - ls, end - ls);
+		}
+		else
+		{
+			return join(slice(b.left, start, ls), slice(b.right, 0, end - ls));
+		}
+	}
+
+	/**
+	 * The concatenation of two trees, either of which may be null. The taller
+	 * tree is descended until the shorter one can be joined to a subtree of
+	 * about the same height, and the result is rebalanced on the way back up,
+	 * so this takes time proportional to the difference in their heights.
+	 */
+	private static Node join(Node left, Node right)
+	{
+		if (left == null)
+		{
+			return right;
+		}
+		else if (right == null)
+		{
+			return left;
+		}
+		else if (left.size + right.size <= LEAF_MAX)
+		{
+			Backing copy = new Backing(left.size + right.size);
+
+			for (int i=0; i<left.size; i++)
+			{
+				copy.data[i] = get(left, i);
+			}
+
+			for (int i=0; i<right.size; i++)
+			{
+				copy.data[left.size + i] = get(right, i);
+			}
+
+			copy.used = left.size + right.size;
+			return new Leaf(copy, null, 0, copy.used);
+		}
+		else if (left.height > right.height + 1 ||
+				(left instanceof Branch && ((Branch)left).right.size + right.size <= LEAF_MAX))
+		{
+			Branch b = split(left);
+			return balance(b.left, join(b.right, right));
+		}
+		else if (right.height > left.height + 1 ||
+				(right instanceof Branch && ((Branch)right).left.size + left.size <= LEAF_MAX))
+		{
+			Branch b = split(right);
+			return balance(join(left, b.left), b.right);
+		}
+		else
+		{
+			return new Branch(left, right);
+		}
+	}
+
+	/**
+	 * A branch of two trees whose heights differ by at most two, rotated if
+	 * necessary so that the heights of its children differ by at most one.
+	 */
+	private static Node balance(Node left, Node right)
+	{
+		if (left.height > right.height + 1)
+		{
+			Branch b = split(left);
+
+			if (b.left.height >= b.right.height)
+			{
+				return new Branch(b.left, new Branch(b.right, right));
+			}
+			else
+			{
+				Branch c = split(b.right);
+				return new Branch(new Branch(b.left, c.left), new Branch(c.right, right));
+			}
+		}
+		else if (right.height > left.height + 1)
+		{
+			Branch b = split(right);
+
+			if (b.right.height >= b.left.height)
+			{
+				return new Branch(new Branch(left, b.left), b.right);
+			}
+			else
+			{
+				Branch c = split(b.left);
+				return new Branch(new Branch(left, c.left), new Branch(c.right, b.right));
+			}
+		}
+		else
+		{
+			return new Branch(left, right);
+		}
+	}
+
+	/**
+	 * A node as a branch, splitting a leaf longer than LEAF_MAX into halves.
+	 */
+	private static Branch split(Node node)
+	{
+		if (node instanceof Branch)
+		{
+			return (Branch)node;
+		}
+
+		Leaf leaf = (Leaf)node;
+		int half = leaf.size / 2;
+
+		return new Branch(
+			new Leaf(leaf.backing, leaf.chars, leaf.start, half),
+			new Leaf(leaf.backing, leaf.chars, leaf.start + half, leaf.size - half));
+	}
+
+	@Override
+	public Iterator<Value> iterator()
+	{
+		if (tree == null)
+		{
+			return super.iterator();
+		}
+
+		return new TreeIterator();
+	}
+
+	/**
+	 * An iterator over a tree that finds each leaf once, rather than each
+	 * element from the root.
+	 */
+	private class TreeIterator implements Iterator<Value>
+	{
+		private Node root = tree;
+		private Leaf leaf = null;
+		private int base = 0;	// The index of the leaf's first element
+		private int next = 0;
+
+		public boolean hasNext()
+		{
+			return root != null && next < root.size;
+		}
+
+		public Value next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			if (leaf == null || next >= base + leaf.size)
+			{
+				Node node = root;
+				base = 0;
+
+				while (node instanceof Branch)
+				{
+					Branch b = (Branch)node;
+
+					if (next - base < b.left.size)
+					{
+						node = b.left;
+					}
+					else
+					{
+						base += b.left.size;
+						node = b.right;
+					}
+				}
+
+				leaf = (Leaf)node;
+			}
+
+			return leaf.get(next++ - base);
+		}
+
+		public void remove()
+		{
+			if (next == 0)
+			{
+				throw new IllegalStateException();
+			}
+
+			ValueList.this.remove(--next);
+			root = tree;
+			leaf = null;
+		}
 	}
 
 	@Override
@@ -68,6 +1385,17 @@ public class ValueList extends Vector<Value>
 		{
 			sb.append("[]");
 		}
+		else if (chars != null)
+		{
+			sb.append("\"");
+
+			for (int i=0; i<count; i++)
+			{
+				appendChar(sb, chars.charAt(offset + i));
+			}
+
+			sb.append("\"");
+		}
 		else
 		{
 			sb.append("\"");
@@ -82,59 +1410,68 @@ public class ValueList extends Vector<Value>
     			}
 
     			CharacterValue ch = (CharacterValue)v;
+    			appendChar(sb, ch.unicode);
+    		}
 
-    			switch (ch.unicode)
-    			{
-//    				case '\n':
-//    					sb.append("\\n");
-//    					break;
+    		sb.append("\"");
+		}
 
-//    				case '\t':
-//    					sb.append("\\t");
-//    					break;
+		return sb.toString();
+	}
 
-//    				case '\'':
-//    					sb.append("\\\'");
-//    					break;
+	private void appendChar(StringBuilder sb, char unicode)
+	{
+		switch (unicode)
+		{
+//			case '\n':
+//				sb.append("\\n");
+//				break;
 
-        		    case '\r':
-    					sb.append("\\r");
-    					break;
+//			case '\t':
+//				sb.append("\\t");
+//				break;
 
-        		    case '\f':
-    					sb.append("\\f");
-    					break;
+//			case '\'':
+//				sb.append("\\\'");
+//				break;
 
-        		    case '\033':
-    					sb.append("\\e");
-    					break;
+			case '\r':
+				sb.append("\\r");
+				break;
 
-        		    case '\007':
-    					sb.append("\\a");
-    					break;
+			case '\f':
+				sb.append("\\f");
+				break;
 
-    				case '\"':
-    					sb.append("\\\"");
-    					break;
+			case '\033':
+				sb.append("\\e");
+				break;
 
-    				case '\\':
-    					sb.append("\\\\");
-    					break;
+			case '\007':
+				sb.append("\\a");
+				break;
 
-     				default:
-    					sb.append(ch.unicode);
-    			}
-    		}
+			case '\"':
+				sb.append("\\\"");
+				break;
 
-    		sb.append("\"");
-		}
+			case '\\':
+				sb.append("\\\\");
+				break;
 
-		return sb.toString();
+			default:
+				sb.append(unicode);
+		}
 	}
 
 	@Override
 	public Object clone()
 	{
+		if (tree == null && (chars != null || backing.kinds != null))
+		{
+			return new ValueList(this);		// Characters and numbers are immutable
+		}
+
 		ValueList copy = new ValueList();
 
 		for (Value v: this)
@@ -148,6 +1485,11 @@ public class ValueList extends Vector<Value>
 
 	public ValueList getConstant()
 	{
+		if (tree == null && (chars != null || backing.kinds != null))
+		{
+			return new ValueList(this);
+		}
+
 		ValueList nseq = new ValueList();
 
 		for (Value k: this)
@@ -23,10 +23,16 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
 
@@ -34,26 +40,661 @@ import com.fujitsu.vdmj.traces.PermuteArray;
 
 /**
  * A map of value/values.
+ *
+ * The map is held as a persistent hash array mapped trie. Updates replace the
+ * path from the root to the entry changed, sharing the rest of the trie with
+ * any copies of the map, so copying a map is O(1) and a put or remove on the
+ * copy is O(log n). Iteration is in insertion order, like a LinkedHashMap.
+ *
+ * Nodes created by a map are tagged with its owner token, and the map can
+ * change these in place until it is copied, which makes building a new map
+ * almost as cheap as building a HashMap.
+ *
+ * Maps are not synchronized, but several threads may share a map that none of
+ * them change, as parallel evaluation does (see ParallelEvaluator). Copies made
+ * on those threads only ever clear the map's owner, and the cached ordering of
+ * the entries is volatile, so that it is only seen once it is complete.
  */
 
-@SuppressWarnings("serial")
-public class ValueMap extends LinkedHashMap<Value, Value>
+public class ValueMap extends AbstractMap<Value, Value> implements Cloneable, Serializable
 {
+	private static final long serialVersionUID = 1L;
+
+	private Node root;
+	private int size;
+	private long nextOrder;
+	private transient volatile Entry[] ordered;
+	private transient Object owner;
+
 	public ValueMap()
 	{
-		super();
+		root = null;
+		size = 0;
+		nextOrder = 0;
 	}
 
 	public ValueMap(ValueMap from)
 	{
-		putAll(from);
+		root = from.root;		// Shared, so neither map can now change the nodes
+		size = from.size;
+		nextOrder = from.nextOrder;
+		ordered = from.ordered;
+
+		if (from.owner != null)
+		{
+			from.owner = null;	// Only ever cleared by other maps, see above
+		}
 	}
 
 	public ValueMap(Value k, Value v)
 	{
+		this();
 		put(k, v);
 	}
 
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return find(key) != null;
+	}
+
+	@Override
+	public Value get(Object key)
+	{
+		Entry e = find(key);
+		return e == null ? null : e.value;
+	}
+
+	@Override
+	public Value put(Value key, Value value)
+	{
+		if (owner == null)
+		{
+			owner = new Object();
+		}
+
+		Change change = new Change();
+		root = insert(root, 0, new Entry(hash(key), key, value, nextOrder), change, owner);
+
+		if (change.old == null)
+		{
+			size++;
+			nextOrder++;
+		}
+
+		ordered = null;
+		return change.old == null ? null : change.old.value;
+	}
+
+	@Override
+	public Value remove(Object key)
+	{
+		if (!(key instanceof Value))
+		{
+			return null;
+		}
+
+		Change change = new Change();
+		root = delete(root, 0, hash(key), key, change);
+
+		if (change.old == null)
+		{
+			return null;
+		}
+
+		size--;
+		ordered = null;
+		return change.old.value;
+	}
+
+	@Override
+	public void clear()
+	{
+		root = null;
+		size = 0;
+		ordered = null;
+	}
+
+	@Override
+	public Set<Map.Entry<Value, Value>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<Value, Value>>()
+		{
+			@Override
+			public Iterator<Map.Entry<Value, Value>> iterator()
+			{
+				return new EntryIterator(getOrdered());
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o)
+			{
+				if (o instanceof Map.Entry)
+				{
+					Map.Entry<?, ?> me = (Map.Entry<?, ?>)o;
+					Entry e = find(me.getKey());
+					return e != null && e.value.equals(me.getValue());
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The entries of the map, in insertion order. The array is cached until
+	 * the map is next changed.
+	 */
+	private Entry[] getOrdered()
+	{
+		Entry[] result = ordered;
+
+		if (result == null)
+		{
+			Entry[] entries = new Entry[size];
+			collect(root, entries, 0);
+
+			if (nextOrder <= 2L * size + 16)
+			{
+				// Few removals, so place each entry by its order number
+
+				Entry[] slots = new Entry[(int)nextOrder];
+
+				for (Entry e: entries)
+				{
+					slots[(int)e.order] = e;
+				}
+
+				int i = 0;
+
+				for (Entry e: slots)
+				{
+					if (e != null)
+					{
+						entries[i++] = e;
+					}
+				}
+			}
+			else
+			{
+    			Arrays.sort(entries, new Comparator<Entry>()
+    			{
+    				@Override
+    				public int compare(Entry a, Entry b)
+    				{
+    					return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+    				}
+    			});
+			}
+
+			ordered = entries;
+			result = entries;
+		}
+
+		return result;
+	}
+
+	private Entry find(Object key)
+	{
+		if (!(key instanceof Value))
+		{
+			return null;
+		}
+
+		int hash = hash(key);
+		Node node = root;
+		int shift = 0;
+
+		while (node != null)
+		{
+			if (node instanceof CollisionNode)
+			{
+				CollisionNode cn = (CollisionNode)node;
+
+				if (cn.hash == hash)
+				{
+					for (Entry e: cn.entries)
+					{
+						if (key.equals(e.key))
+						{
+							return e;
+						}
+					}
+				}
+
+				return null;
+			}
+
+			BitmapNode bn = (BitmapNode)node;
+			int bit = bit(hash, shift);
+
+			if ((bn.bitmap & bit) == 0)
+			{
+				return null;
+			}
+
+			Object slot = bn.slots[bn.index(bit)];
+
+			if (slot instanceof Entry)
+			{
+				Entry e = (Entry)slot;
+				return (e.hash == hash && key.equals(e.key)) ? e : null;
+			}
+
+			node = (Node)slot;
+			shift += 5;
+		}
+
+		return null;
+	}
+
+	private static int hash(Object key)
+	{
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int bit(int hash, int shift)
+	{
+		return 1 << ((hash >>> shift) & 31);
+	}
+
+	/**
+	 * Return a node with the entry added, or replacing an existing entry with
+	 * an equal key. A replaced entry keeps its key and its place in the order.
+	 * Nodes tagged with the owner given are changed in place, else they are
+	 * copied and the copies tagged.
+	 */
+	private static Node insert(Node node, int shift, Entry entry, Change change, Object owner)
+	{
+		if (node == null)
+		{
+			return new BitmapNode(bit(entry.hash, shift), new Object[] { entry }, owner);
+		}
+
+		if (node instanceof CollisionNode)
+		{
+			CollisionNode cn = (CollisionNode)node;
+
+			if (cn.hash != entry.hash)
+			{
+				BitmapNode wrapper = new BitmapNode(bit(cn.hash, shift), new Object[] { cn }, owner);
+				return insert(wrapper, shift, entry, change, owner);
+			}
+
+			for (int i=0; i<cn.entries.length; i++)
+			{
+				Entry e = cn.entries[i];
+
+				if (entry.key.equals(e.key))
+				{
+					change.old = e;
+					Entry[] copy = cn.entries.clone();
+					copy[i] = new Entry(e.hash, e.key, entry.value, e.order);
+					return new CollisionNode(cn.hash, copy);
+				}
+			}
+
+			Entry[] copy = Arrays.copyOf(cn.entries, cn.entries.length + 1);
+			copy[cn.entries.length] = entry;
+			return new CollisionNode(cn.hash, copy);
+		}
+
+		BitmapNode bn = (BitmapNode)node;
+		int bit = bit(entry.hash, shift);
+		int idx = bn.index(bit);
+
+		if ((bn.bitmap & bit) == 0)
+		{
+			Object[] slots = new Object[bn.slots.length + 1];
+			System.arraycopy(bn.slots, 0, slots, 0, idx);
+			slots[idx] = entry;
+			System.arraycopy(bn.slots, idx, slots, idx + 1, bn.slots.length - idx);
+
+			if (bn.owner == owner)
+			{
+				bn.bitmap |= bit;
+				bn.slots = slots;
+				return bn;
+			}
+
+			return new BitmapNode(bn.bitmap | bit, slots, owner);
+		}
+
+		Object slot = bn.slots[idx];
+		Object replacement = null;
+
+		if (slot instanceof Entry)
+		{
+			Entry e = (Entry)slot;
+
+			if (e.hash == entry.hash && entry.key.equals(e.key))
+			{
+				change.old = e;
+				replacement = new Entry(e.hash, e.key, entry.value, e.order);
+			}
+			else
+			{
+				replacement = pair(e, entry, shift + 5, owner);
+			}
+		}
+		else
+		{
+			replacement = insert((Node)slot, shift + 5, entry, change, owner);
+		}
+
+		if (bn.owner == owner)
+		{
+			bn.slots[idx] = replacement;
+			return bn;
+		}
+
+		Object[] slots = bn.slots.clone();
+		slots[idx] = replacement;
+		return new BitmapNode(bn.bitmap, slots, owner);
+	}
+
+	private static Node pair(Entry a, Entry b, int shift, Object owner)
+	{
+		if (a.hash == b.hash || shift >= 32)
+		{
+			return new CollisionNode(a.hash, new Entry[] { a, b });
+		}
+
+		int afrag = (a.hash >>> shift) & 31;
+		int bfrag = (b.hash >>> shift) & 31;
+
+		if (afrag == bfrag)
+		{
+			return new BitmapNode(1 << afrag, new Object[] { pair(a, b, shift + 5, owner) }, owner);
+		}
+		else if (afrag < bfrag)
+		{
+			return new BitmapNode((1 << afrag) | (1 << bfrag), new Object[] { a, b }, owner);
+		}
+		else
+		{
+			return new BitmapNode((1 << afrag) | (1 << bfrag), new Object[] { b, a }, owner);
+		}
+	}
+
+	/**
+	 * Return a new node without the key given, or null if the node would be
+	 * empty.
+	 */
+	private static Node delete(Node node, int shift, int hash, Object key, Change change)
+	{
+		if (node == null)
+		{
+			return null;
+		}
+
+		if (node instanceof CollisionNode)
+		{
+			CollisionNode cn = (CollisionNode)node;
+
+			if (cn.hash != hash)
+			{
+				return cn;
+			}
+
+			for (int i=0; i<cn.entries.length; i++)
+			{
+				if (key.equals(cn.entries[i].key))
+				{
+					change.old = cn.entries[i];
+
+					if (cn.entries.length == 1)
+					{
+						return null;
+					}
+
+					Entry[] copy = new Entry[cn.entries.length - 1];
+					System.arraycopy(cn.entries, 0, copy, 0, i);
+					System.arraycopy(cn.entries, i + 1, copy, i, copy.length - i);
+					return new CollisionNode(cn.hash, copy);
+				}
+			}
+
+			return cn;
+		}
+
+		BitmapNode bn = (BitmapNode)node;
+		int bit = bit(hash, shift);
+
+		if ((bn.bitmap & bit) == 0)
+		{
+			return bn;
+		}
+
+		int idx = bn.index(bit);
+		Object slot = bn.slots[idx];
+		Object replacement = null;
+
+		if (slot instanceof Entry)
+		{
+			Entry e = (Entry)slot;
+
+			if (e.hash != hash || !key.equals(e.key))
+			{
+				return bn;
+			}
+
+			change.old = e;
+		}
+		else
+		{
+			replacement = delete((Node)slot, shift + 5, hash, key, change);
+
+			if (replacement == slot)
+			{
+				return bn;
+			}
+		}
+
+		if (replacement != null)
+		{
+			Object[] slots = bn.slots.clone();
+			slots[idx] = replacement;
+			return new BitmapNode(bn.bitmap, slots, null);
+		}
+		else if (bn.slots.length == 1)
+		{
+			return null;
+		}
+		else
+		{
+			Object[] slots = new Object[bn.slots.length - 1];
+			System.arraycopy(bn.slots, 0, slots, 0, idx);
+			System.arraycopy(bn.slots, idx + 1, slots, idx, slots.length - idx);
+			return new BitmapNode(bn.bitmap & ~bit, slots, null);
+		}
+	}
+
+	private static int collect(Node node, Entry[] entries, int count)
+	{
+		if (node instanceof CollisionNode)
+		{
+			for (Entry e: ((CollisionNode)node).entries)
+			{
+				entries[count++] = e;
+			}
+		}
+		else if (node != null)
+		{
+			for (Object slot: ((BitmapNode)node).slots)
+			{
+				if (slot instanceof Entry)
+				{
+					entries[count++] = (Entry)slot;
+				}
+				else
+				{
+					count = collect((Node)slot, entries, count);
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/** The result of an insert or delete: the entry replaced or removed, if any. */
+	private static class Change
+	{
+		public Entry old = null;
+	}
+
+	private static abstract class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/** A trie node with up to 32 slots, each an Entry or a sub-Node. */
+	private static class BitmapNode extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		public int bitmap;
+		public Object[] slots;
+		public transient Object owner;		// The map that can change this in place
+
+		public BitmapNode(int bitmap, Object[] slots, Object owner)
+		{
+			this.bitmap = bitmap;
+			this.slots = slots;
+			this.owner = owner;
+		}
+
+		public int index(int bit)
+		{
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+	}
+
+	/** A leaf node for entries whose keys have the same hash. */
+	private static class CollisionNode extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		public final int hash;
+		public final Entry[] entries;
+
+		public CollisionNode(int hash, Entry[] entries)
+		{
+			this.hash = hash;
+			this.entries = entries;
+		}
+	}
+
+	private static class Entry implements Map.Entry<Value, Value>, Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		public final int hash;
+		public final Value key;
+		public final Value value;
+		public final long order;
+
+		public Entry(int hash, Value key, Value value, long order)
+		{
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.order = order;
+		}
+
+		@Override
+		public Value getKey()
+		{
+			return key;
+		}
+
+		@Override
+		public Value getValue()
+		{
+			return value;
+		}
+
+		@Override
+		public Value setValue(Value value)
+		{
+			throw new UnsupportedOperationException("ValueMap entries are immutable");
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Map.Entry)
+			{
+				Map.Entry<?, ?> me = (Map.Entry<?, ?>)other;
+				return key.equals(me.getKey()) && value.equals(me.getValue());
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key.hashCode() ^ value.hashCode();
+		}
+
+		@Override
+		public String toString()
+		{
+			return key + " |-> " + value;
+		}
+	}
+
+	/** Iterate over a snapshot of the entries, removing from the map itself. */
+	private class EntryIterator implements Iterator<Map.Entry<Value, Value>>
+	{
+		private final Entry[] entries;
+		private int next = 0;
+
+		public EntryIterator(Entry[] entries)
+		{
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next < entries.length;
+		}
+
+		@Override
+		public Map.Entry<Value, Value> next()
+		{
+			if (next >= entries.length)
+			{
+				throw new NoSuchElementException();
+			}
+
+			return entries[next++];
+		}
+
+		@Override
+		public void remove()
+		{
+			if (next == 0)
+			{
+				throw new IllegalStateException();
+			}
+
+			ValueMap.this.remove(entries[next - 1].key);
+		}
+	}
+
 	public boolean isInjective()
 	{
 		Set<Value> rng = new HashSet<Value>(values());
@@ -120,7 +761,7 @@ public class ValueMap extends LinkedHashMap<Value, Value>
 				for (int i=0; i<size; i++)
 				{
 					@SuppressWarnings("unchecked")
-					Entry<Value, Value> entry = (Entry<Value, Value>)entries[perm[i]];
+					Map.Entry<Value, Value> entry = (Map.Entry<Value, Value>)entries[perm[i]];
 					m.put(entry.getKey(), entry.getValue());
 				}
 
@@ -25,6 +25,7 @@ package com.fujitsu.vdmj.values;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Vector;
 
@@ -37,12 +38,21 @@ import com.fujitsu.vdmj.util.Utils;
  * it is not based on a java.util.Set<Value>, but rather a Vector<Value>. This is
  * so that the possible orderings of set values can be enumerated when
  * performing quantifiers like "a,b,c in set {{1,2,3}, {4,5,6}}".
+ *
+ * Once a set grows beyond a few members, a hash index of the members is kept
+ * alongside the Vector, so that membership tests are O(1) and hence the set
+ * operations (union, intersection, subset etc) are linear rather than O(n^2).
+ * The index is dropped by any removal and rebuilt when next needed.
  */
 
 @SuppressWarnings("serial")
 public class ValueSet extends Vector<Value>		// NB based on Vector
 {
+	/** Sets smaller than this are searched linearly, without an index. */
+	private static final int INDEX_THRESHOLD = 8;
+
 	private boolean isSorted;
+	private transient volatile HashSet<Value> index = null;
 
 	public ValueSet()
 	{
@@ -58,7 +68,8 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 
 	public ValueSet(ValueSet from)
 	{
-		addAll(from);
+		super(from.size());
+		super.addAll(from);		// No duplicates in a set
 		isSorted = from.isSorted;
 	}
 
@@ -71,10 +82,15 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 	@Override
 	public boolean equals(Object other)
 	{
+		if (other == this)
+		{
+			return true;
+		}
+
 		if (other instanceof ValueSet)
 		{
 			ValueSet os = (ValueSet)other;
-			return os.size() == size() && os.containsAll(this);
+			return os.size() == size() && containsAll(os);
 		}
 
 		return false;
@@ -93,6 +109,31 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		return hash;
 	}
 
+	@Override
+	public boolean contains(Object v)
+	{
+		if (size() < INDEX_THRESHOLD)
+		{
+			return super.contains(v);
+		}
+
+		return getIndex().contains(v);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> values)
+	{
+		for (Object v: values)
+		{
+			if (!contains(v))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public boolean add(Value v)
 	{
@@ -102,35 +143,150 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		}
 		else
 		{
-			isSorted = false;
-			return super.add(v);
+			return addNoCheck(v);
 		}
 	}
 
 	public boolean addNoCheck(Value v)
 	{
 		isSorted = false;
+
+		if (index != null)
+		{
+			index.add(v);
+		}
+
 		return super.add(v);	// Used by power set function
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends Value> values)
 	{
-		for (Value v: values)
+		if (isEmpty() && values instanceof ValueSet)
 		{
-			add(v);
+			// A copy of another set is still a set, and is still sorted if the
+			// source was sorted.
+
+			ValueSet from = (ValueSet)values;
+			super.addAll(from);
+			isSorted = from.isSorted;
+			index = null;
+		}
+		else
+		{
+			for (Value v: values)
+			{
+				add(v);
+			}
 		}
 
 		return true;
 	}
 
+	@Override
+	public boolean remove(Object v)
+	{
+		if (size() >= INDEX_THRESHOLD && !getIndex().contains(v))
+		{
+			return false;
+		}
+
+		index = null;
+		return super.remove(v);
+	}
+
+	@Override
+	public Value remove(int i)
+	{
+		index = null;
+		return super.remove(i);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> values)
+	{
+		return filter(values, false);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> values)
+	{
+		return filter(values, true);
+	}
+
+	@Override
+	public void clear()
+	{
+		index = null;
+		super.clear();
+	}
+
+	@Override
+	public Value set(int i, Value v)
+	{
+		index = null;
+		isSorted = false;
+		return super.set(i, v);
+	}
+
+	/**
+	 * Keep or remove the members of this set that are in the collection passed,
+	 * in one pass. The relative order of the members kept is unchanged, so a
+	 * sorted set remains sorted.
+	 */
+	private boolean filter(Collection<?> values, boolean retain)
+	{
+		int size = size();
+		Value[] kept = new Value[size];
+		int count = 0;
+
+		for (Value v: this)
+		{
+			if (values.contains(v) == retain)
+			{
+				kept[count++] = v;
+			}
+		}
+
+		if (count == size)
+		{
+			return false;
+		}
+
+		boolean sorted = isSorted;
+		clear();
+
+		for (int i=0; i<count; i++)
+		{
+			super.add(kept[i]);
+		}
+
+		isSorted = sorted;
+		return true;
+	}
+
+	private HashSet<Value> getIndex()
+	{
+		HashSet<Value> result = index;
+
+		if (result == null)
+		{
+			// Built before it is published, as sets can be read by parallel threads
+			result = new HashSet<Value>(size() * 2);
+			result.addAll(this);
+			index = result;
+		}
+
+		return result;
+	}
+
 	@Override
 	public String toString()
 	{
 		return Utils.listToString("{", this, ", ", "}");
 	}
 
-	public void sort()
+	public synchronized void sort()
 	{
 		if (!isSorted)
 		{
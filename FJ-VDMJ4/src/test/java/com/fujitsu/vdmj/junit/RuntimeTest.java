@@ -0,0 +1,616 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.commands.CommandReader;
+import com.fujitsu.vdmj.commands.ModuleCommandReader;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.messages.Console;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ContextException;
+import com.fujitsu.vdmj.runtime.Frame;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.runtime.StateContext;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.MemoTable;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the evaluation of specifications, particularly of the value
+ * representations and evaluation paths used to make the interpreter faster.
+ * Each test loads a specification, checks a file of assertions that must all
+ * be true, then checks expressions that must fail with a given error. Some
+ * tests use the values directly, on several threads.
+ */
+public class RuntimeTest extends TestCase
+{
+	private ModuleInterpreter interpreter = null;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.CLASSIC;
+		Settings.dialect = Dialect.VDM_SL;
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		interpreter = null;
+		Properties.parallel_threshold = 0;
+		Properties.parallel_threads = 0;
+		Properties.jit_threshold = 0;
+		Properties.tailcalls_enabled = false;
+		Settings.exceptions = false;
+		Settings.memoFunctions.clear();
+		Properties.memo_max_entries = 10000;
+	}
+
+	private void load(String resource) throws Exception
+	{
+		Console.out.println("Processing " + resource + "...");
+
+		URL rurl = getClass().getResource("/runtimetest/" + resource);
+		LexTokenReader ltr = new LexTokenReader(new File(rurl.getPath()), Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+		mr.printErrors(Console.out);
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		TypeChecker.printErrors(Console.out);
+		assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+	}
+
+	private void assertions(String resource) throws Exception
+	{
+		URL aurl = getClass().getResource("/runtimetest/" + resource);
+		CommandReader reader = new ModuleCommandReader(interpreter, "");
+		assertEquals("Execution errors", true, reader.assertFile(new File(aurl.getPath())));
+	}
+
+	private void assertError(String expression, int number) throws Exception
+	{
+		assertError(expression, number, 0);
+	}
+
+	/**
+	 * Check that an expression fails with an error, which is raised at the line
+	 * of the specification given, unless that is zero. This returns the error.
+	 */
+	private ContextException assertError(String expression, int number, int line) throws Exception
+	{
+		try
+		{
+			interpreter.execute(expression);
+			fail("Expected error " + number + " from " + expression);
+			return null;
+		}
+		catch (ContextException e)
+		{
+			assertEquals(expression, number, e.number);
+
+			if (line > 0)
+			{
+				assertEquals(expression, line, e.location.startLine);
+			}
+
+			return e;
+		}
+	}
+
+	public void testStateInvariant() throws Exception
+	{
+		load("state.vdm");
+		assertions("state.tests");
+
+		// A state invariant is only checked when a field it reads changes
+
+		interpreter.init();
+		assertError("setLo(7)", 4131);
+		interpreter.init();
+		assertError("setHi(2)", 4131);
+		interpreter.init();
+		assertError("setX(9)", 4131);
+		interpreter.init();
+		assertError("setX(0)", 4131);
+
+		interpreter.setDefaultName("B");
+		interpreter.init();
+		assertError("setA(5)", 4131);
+		interpreter.init();
+		assertError("setB(1)", 4131);
+
+		// Changes to parts of fields, and an invariant that uses a quantifier
+
+		load("fields.vdm");
+		assertions("fields.tests");
+		interpreter.init();
+		assertError("setLo(6)", 4131);
+		interpreter.init();
+		assertError("setM(1, 6)", 4131);
+		interpreter.init();
+		interpreter.execute("addS(3)");
+		interpreter.execute("addS(4)");
+		interpreter.execute("addS(5)");
+		assertError("addS(6)", 4131);
+
+		// An invariant that calls a function with some of the fields
+
+		load("calls.vdm");
+		assertions("calls.tests");
+		interpreter.init();
+		assertError("setA(1, 5)", 4131);
+		interpreter.init();
+		assertError("setB(2)", 4131);
+	}
+
+	public void testPackedSequences() throws Exception
+	{
+		load("packed.vdm");
+		assertions("packed.tests");
+
+		assertError("ints(20)(21)", 4083);
+		assertError("(tl ints(20))(20)", 4083);
+		assertError("asNat1(zeros(20))", 4064);
+	}
+
+	/**
+	 * The number of stack frames of a function in an error's context.
+	 */
+	private int frames(String expression, String function) throws Exception
+	{
+		try
+		{
+			interpreter.execute(expression);
+			fail("Expected error from " + expression);
+			return 0;
+		}
+		catch (ContextException e)
+		{
+			int count = 0;
+
+			for (Context c = e.ctxt; c != null; c = c.outer)
+			{
+				if (c.title.startsWith(function + "("))
+				{
+					count++;
+				}
+			}
+
+			return count;
+		}
+	}
+
+	public void testTailCalls() throws Exception
+	{
+		load("tailcall.vdm");
+		assertions("tailcall.tests");
+		assertEquals("Frames", 4, frames("erx(3)", "erx"));
+
+		Properties.tailcalls_enabled = true;
+		assertions("tailcall.tests");
+		assertEquals("count(100000, 0)", "100000", interpreter.execute("count(100000, 0)").toString());
+		assertEquals("Frames", 1, frames("erx(3)", "erx"));
+		assertError("bounded(10)", 4055);
+		assertError("wrong(10, 0)", 4056);
+		assertError("up(0)", 4146);
+
+		// Errors have the frames of every call with -exceptions
+
+		Settings.exceptions = true;
+		assertEquals("Frames", 4, frames("erx(3)", "erx"));
+	}
+
+	public void testParallelEvaluation() throws Exception
+	{
+		Properties.parallel_threshold = 2;
+		Properties.parallel_threads = 4;
+		Properties.jit_threshold = 5;
+		load("parallel.vdm");
+
+		// Repeated, as the threads only sometimes share an append
+
+		for (int i=0; i<10; i++)
+		{
+			assertions("parallel.tests");
+		}
+
+		// The error raised is the first in binding order
+
+		assertError("failing([1, 2], N)", 4134);
+	}
+
+	public void testSharedValues() throws Exception
+	{
+		final int THREADS = 4;
+		final int ROUNDS = 20000;
+		final ValueList[] list = new ValueList[1];
+		final ValueMap[] map = new ValueMap[1];
+		final AtomicInteger failures = new AtomicInteger(0);
+
+		// Each round, the threads copy and update a new list and map together
+
+		final CyclicBarrier barrier = new CyclicBarrier(THREADS, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				list[0] = new ValueList();
+				map[0] = new ValueMap();
+
+				for (int i=0; i<20; i++)
+				{
+					list[0].add(IntegerValue.valueOf(i));
+					map[0].put(IntegerValue.valueOf(i), IntegerValue.valueOf(i));
+				}
+			}
+		});
+
+		Thread[] threads = new Thread[THREADS];
+
+		for (int t=0; t<THREADS; t++)
+		{
+			final Value id = IntegerValue.valueOf(100 + t);
+
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int r=0; r<ROUNDS; r++)
+						{
+							barrier.await();
+
+							ValueList lcopy = new ValueList(list[0]);
+							lcopy.add(id);
+
+							if (lcopy.size() != 21 || !lcopy.get(20).equals(id))
+							{
+								failures.incrementAndGet();
+							}
+
+							ValueMap mcopy = new ValueMap(map[0]);
+							mcopy.put(id, id);
+							long expected = 0;
+
+							for (Map.Entry<Value, Value> e: map[0].entrySet())
+							{
+								if (!e.getKey().equals(IntegerValue.valueOf(expected++)))
+								{
+									failures.incrementAndGet();
+								}
+							}
+
+							if (mcopy.size() != 21 || map[0].containsKey(id))
+							{
+								failures.incrementAndGet();
+							}
+						}
+					}
+					catch (Exception e)
+					{
+						failures.incrementAndGet();
+					}
+				}
+			};
+
+			threads[t].start();
+		}
+
+		for (Thread thread: threads)
+		{
+			thread.join();
+		}
+
+		assertEquals("Failures", 0, failures.get());
+	}
+
+	public void testSharedSequences() throws Exception
+	{
+		load("seq.vdm");
+		assertions("seq.tests");
+
+		assertError("(tl [1, 2, 3])(3)", 4083);
+		assertError("([1, 2, 3, 4, 5](2, ..., 4))(4)", 4083);
+		assertError("hd tl [1]", 4010);
+		assertError("tl tl [1]", 4033);
+	}
+
+	public void testHashTrieMaps() throws Exception
+	{
+		load("map.vdm");
+		assertions("map.tests");
+
+		assertError("{1 |-> 1} munion {1 |-> 2}", 4021);
+		assertError("merge {{1 |-> 1}, {1 |-> 2}}", 4021);
+		assertError("squares(3)(4)", 4061);
+		assertError("colliding(3)(2)", 4061);
+		assertError("inverse {1 |-> 1, 2 |-> 1}", 4012);
+	}
+
+	public void testCompactStrings() throws Exception
+	{
+		load("string.vdm");
+		assertions("string.tests");
+
+		assertError("\"hello\"(6)", 4083);
+		assertError("(tl \"hello\")(5)", 4083);
+		assertError("hd tl \"a\"", 4010);
+		assertError("let \"x\" ^ r = \"hello\" in r", 4109);
+	}
+
+	public void testRangeSets() throws Exception
+	{
+		load("range.vdm");
+		assertions("range.tests");
+
+		assertError("asNat1({0, ..., 5})", 4064);
+		assertError("let i in set {1, ..., 0} in i", 4015);
+		assertError("let i in set {1, ..., 5} be st i > 5 in i", 4015);
+		assertError("{1, ..., nil}", 4089);
+	}
+
+	public void testNumericOperators() throws Exception
+	{
+		load("numeric.vdm");
+		assertions("numeric.tests");
+
+		assertError("idiv(1, 0)", 4134);
+		assertError("idiv(MAX + 1, 0)", 4134);
+		assertError("imod(1, 0)", 4134);
+		assertError("irem(1, 0)", 4134);
+		assertError("divide(1, 0)", 4134);
+		assertError("posplus(0, 1)", 4060);
+		assertError("raise(3, 100000000)", 4169);
+		assertError("raise(3, 2000000000)", 4169);
+
+		// The same nodes again, after they have seen every sort of operand
+		assertions("numeric.tests");
+	}
+
+	public void testCompiledFunctions() throws Exception
+	{
+		Properties.jit_threshold = 2;
+		load("jit.vdm");
+
+		// Interpreted first, then each function is compiled by its second call
+
+		for (int i=0; i<3; i++)
+		{
+			assertions("jit.tests");
+			assertError("name(3)", 4004, 27);
+			assertError("first([1], 2)", 4083, 39);
+			assertError("lookup({|->}, 1)", 4061, 42);
+			assertError("ratio(0, 0)", 4134, 45);
+			assertError("halves(3)", 4055, 49);
+		}
+
+		// Errors in compiled bodies are raised by the generated classes
+
+		ContextException e = assertError("ratio(0, 0)", 4134, 45);
+		boolean compiled = false;
+
+		for (StackTraceElement frame: e.getStackTrace())
+		{
+			compiled = compiled || frame.getClassName().startsWith("com.fujitsu.vdmj.in.jit.CompiledExpression");
+		}
+
+		assertTrue("Compiled", compiled);
+	}
+
+	public void testMemoisedFunctions() throws Exception
+	{
+		Settings.memoFunctions.add("fib");
+		Settings.memoFunctions.add("A`upto");
+		Settings.memoFunctions.add("recip");
+		Settings.memoFunctions.add("total");
+		Settings.memoFunctions.add("h");
+		load("memo.vdm");
+		assertions("memo.tests");
+		assertEquals("A`fib: 32 hits, 32 misses, 32 entries", getMemoTable("A`fib").toString());
+
+		// Errors are not remembered, so are raised again
+
+		assertError("recip(0)", 4134);
+		assertError("recip(0)", 4134);
+		assertError("recip(1)", 4055);
+		assertError("recip(1)", 4055);
+
+		// Only the results used most recently are kept
+
+		Properties.memo_max_entries = 5;
+		interpreter.init();
+		assertions("memo.tests");
+		assertEquals("A`fib: 32 hits, 32 misses, 5 entries", getMemoTable("A`fib").toString());
+	}
+
+	private MemoTable getMemoTable(String name)
+	{
+		for (MemoTable table: MemoTable.getTables())
+		{
+			if (table.toString().startsWith(name + ":"))
+			{
+				return table;
+			}
+		}
+
+		fail("No memo table for " + name);
+		return null;
+	}
+
+
+	public void testUnionConversion() throws Exception
+	{
+		load("dtc.vdm");
+		assertions("dtc.tests");
+
+		assertError("toU(mk_S(1))", 4087);
+		assertError("toV(11)", 4087);
+		assertError("vid(11)", 4087);
+		assertError("toV([1])", 4087);
+		assertError("toV([2, 3])", 4087);
+
+		// The same conversions again, after values of each class have failed
+		assertions("dtc.tests");
+	}
+
+
+	public void testRepeatedInvariants() throws Exception
+	{
+		load("inv.vdm");
+		assertions("inv.tests");
+
+		// A value that met one invariant is still checked against another
+
+		assertError("small(E)", 4060);
+		assertError("even(3)", 4060);
+		assertError("evens([1])", 4060);
+		assertError("evens([2, 4, 6, 8])", 4060);
+		assertError("make(2, 1)", 4079);
+		assertError("make(2, 1)", 4079);
+
+		// Values that change are checked again, though they met it before
+
+		assertError("breakCopy()", 4079);
+		assertError("setA(2)", 4079);
+		interpreter.init();
+		interpreter.execute("append(6)");
+		assertError("append(8)", 4060);
+		assertEquals("[2, 4, 6]", interpreter.execute("e").toString());
+
+		interpreter.init();
+		assertions("inv.tests");
+	}
+
+
+	public void testQuantifiers() throws Exception
+	{
+		load("quant.vdm");
+		assertions("quant.tests");
+
+		assertError("allPos({5})", 4134);
+		assertError("anyNeg({5})", 4134);
+		assertError("exists x in set S & 1 / (x - 1) > 0", 4134);
+		assertError("first(S, 6)", 4014);
+		assertError("iota x in set S & x > 3", 4013);
+		assertError("let x in set S be st x > 5 in x", 4015);
+		assertError("adder(S, 5)", 4015);
+
+		// The same expressions again, after bindings have been abandoned
+		assertions("quant.tests");
+	}
+
+	public void testCasesDispatch() throws Exception
+	{
+		load("cases.vdm");
+		assertions("cases.tests");
+
+		// Values with no key in the table, or a key that no alternative matches
+
+		assertError("kind(5)", 4004);
+		assertError("kind('b')", 4004);
+		assertError("kind(\"B\")", 4004);
+		assertError("kind([4])", 4004);
+		assertError("colour(<A>)", 4004);
+
+		assertions("cases.tests");
+	}
+
+	public void testSlotFrames() throws Exception
+	{
+		load("frames.vdm");
+		assertions("frames.tests");
+
+		assertError("checked(10)", 4055);
+
+		// The names of a frame's slots are seen by the debugger as a Map
+
+		LexLocation location = new LexLocation();
+		TCNameToken x = new TCNameToken(location, "A", "x");
+		TCNameToken y = new TCNameToken(location, "A", "y");
+		TCNameToken z = new TCNameToken(location, "A", "z");
+		Frame frame = new Frame(new TCNameList(x));
+		int slot = frame.indexOf(x);
+
+		Context root = new StateContext(location, "root");
+		root.put(z, new IntegerValue(3));
+		Context ctxt = new Context(location, "frame", root, frame);
+		assertTrue(ctxt.isEmpty());
+
+		ctxt.put(x, new IntegerValue(1));
+		ctxt.put(y, new IntegerValue(2));
+		assertEquals(2, ctxt.size());
+		assertEquals(new IntegerValue(1), ctxt.get(x));
+		assertTrue(ctxt.keySet().contains(x));
+		assertTrue(ctxt.keySet().contains(y));
+		assertEquals(3, ctxt.getVisibleVariables().size());
+
+		assertEquals(new IntegerValue(1), ctxt.check(x, frame, slot));
+		assertEquals(new IntegerValue(3), ctxt.check(z, new Frame(new TCNameList(z)), 0));
+		assertEquals(new IntegerValue(1), new Context(location, "inner", ctxt).check(x, frame, slot));
+
+		ctxt.clear();
+		assertTrue(ctxt.isEmpty());
+		assertNull(ctxt.check(x, frame, slot));
+	}
+}
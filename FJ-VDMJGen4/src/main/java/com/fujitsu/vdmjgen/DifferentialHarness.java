@@ -0,0 +1,361 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fujitsu.vdmj.runtime.ContextException;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.tc.types.TCField;
+import com.fujitsu.vdmj.values.BooleanValue;
+import com.fujitsu.vdmj.values.CharacterValue;
+import com.fujitsu.vdmj.values.FieldValue;
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.MapValue;
+import com.fujitsu.vdmj.values.NilValue;
+import com.fujitsu.vdmj.values.QuoteValue;
+import com.fujitsu.vdmj.values.RealValue;
+import com.fujitsu.vdmj.values.RecordValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.SetValue;
+import com.fujitsu.vdmj.values.TokenValue;
+import com.fujitsu.vdmj.values.TupleValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmjgen.runtime.Quote;
+import com.fujitsu.vdmjgen.runtime.RecordType;
+import com.fujitsu.vdmjgen.runtime.Token;
+import com.fujitsu.vdmjgen.runtime.Tuple;
+import com.fujitsu.vdmjgen.runtime.VDM;
+import com.fujitsu.vdmjgen.runtime.VDMException;
+import com.fujitsu.vdmjgen.runtime.VDMMap;
+import com.fujitsu.vdmjgen.runtime.VDMSeq;
+import com.fujitsu.vdmjgen.runtime.VDMSet;
+
+/**
+ * The parent of the harness classes generated for each module. A harness
+ * evaluates function calls with the ModuleInterpreter and with the generated
+ * code, and checks that they agree. Calls agree if they produce equal values,
+ * or if they both raise an error with the same number.
+ */
+abstract public class DifferentialHarness
+{
+	private final String module;
+	private ModuleInterpreter interpreter = null;
+	private int passed = 0;
+	private int failed = 0;
+	private int skipped = 0;
+
+	protected DifferentialHarness(String module)
+	{
+		this.module = module;
+	}
+
+	/**
+	 * Call a generated function by name.
+	 */
+	abstract protected Object invoke(String name, Object... args);
+
+	/**
+	 * Load the specification that the code was generated from.
+	 */
+	public void load(List<File> files) throws Exception
+	{
+		interpreter = new Specification(files).getInterpreter();
+		interpreter.setDefaultName(module);
+	}
+
+	/**
+	 * Evaluate a call, like "f(1, 2)", both ways, returning true if the
+	 * results agree. Calls whose result is a function, or which reach a
+	 * construct that the generator does not support, are skipped.
+	 */
+	public boolean check(String call) throws Exception
+	{
+		int open = call.indexOf('(');
+
+		if (open < 0 || !call.endsWith(")"))
+		{
+			throw new IllegalArgumentException("Expecting a call like f(args): " + call);
+		}
+
+		String name = call.substring(0, open).trim();
+		Object[] args = null;
+
+		try
+		{
+			SeqValue argList = (SeqValue)interpreter.execute("[" + call.substring(open + 1, call.length() - 1) + "]");
+			args = new Object[argList.values.size()];
+
+			for (int i=0; i<args.length; i++)
+			{
+				args[i] = convert(argList.values.get(i));
+			}
+		}
+		catch (ContextException e)
+		{
+			return skip(call, "invalid arguments, error " + e.number);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return skip(call, e.getMessage());
+		}
+
+		String expected = null;
+		String actual = null;
+		Object expectedValue = null;
+		Object actualValue = null;
+
+		try
+		{
+			expectedValue = convert(interpreter.execute(call));
+			expected = VDM.toString(expectedValue);
+		}
+		catch (ContextException e)
+		{
+			expected = "Error " + e.number;
+		}
+		catch (IllegalArgumentException e)
+		{
+			return skip(call, e.getMessage());
+		}
+
+		try
+		{
+			actualValue = invoke(name, args);
+			actual = VDM.toString(actualValue);
+		}
+		catch (ExceptionInInitializerError e)
+		{
+			if (!(e.getCause() instanceof VDMException))
+			{
+				throw e;
+			}
+
+			actual = "Error " + ((VDMException)e.getCause()).number;
+		}
+		catch (VDMException e)
+		{
+			if (e.number == 0)		// Not supported by the generator
+			{
+				return skip(call, e.getMessage());
+			}
+
+			actual = "Error " + e.number;
+		}
+		catch (StackOverflowError e)
+		{
+			actual = "Error stack overflow";
+		}
+
+		boolean agree = expected.startsWith("Error ") ?
+			expected.equals(actual) : VDM.equals(expectedValue, actualValue) && !actual.startsWith("Error ");
+
+		if (agree)
+		{
+			System.out.println("PASS " + call + " = " + actual);
+			passed++;
+		}
+		else
+		{
+			System.out.println("FAIL " + call + " = " + actual + ", expected " + expected);
+			failed++;
+		}
+
+		return agree;
+	}
+
+	/**
+	 * Run the harness with command line arguments: the specification files,
+	 * then optional "-e <call>" arguments. If there are no calls, the
+	 * default calls are checked. Returns true if all checks agree.
+	 */
+	public boolean run(String[] args, String[] defaultCalls) throws Exception
+	{
+		List<File> files = new ArrayList<File>();
+		List<String> calls = new ArrayList<String>();
+
+		for (int i=0; i<args.length; i++)
+		{
+			if (args[i].equals("-e") && i < args.length - 1)
+			{
+				calls.add(args[++i]);
+			}
+			else
+			{
+				files.add(new File(args[i]));
+			}
+		}
+
+		if (files.isEmpty())
+		{
+			System.err.println("Usage: <harness> <VDM-SL files> [-e <call>]*");
+			return false;
+		}
+
+		if (calls.isEmpty())
+		{
+			for (String call: defaultCalls)
+			{
+				calls.add(call);
+			}
+		}
+
+		load(files);
+
+		for (String call: calls)
+		{
+			check(call);
+		}
+
+		System.out.println("Passed " + passed + ", failed " + failed + ", skipped " + skipped);
+		return failed == 0;
+	}
+
+	public int getFailed()
+	{
+		return failed;
+	}
+
+	public int getPassed()
+	{
+		return passed;
+	}
+
+	private boolean skip(String call, String reason)
+	{
+		System.out.println("SKIP " + call + " (" + reason + ")");
+		skipped++;
+		return true;
+	}
+
+	/**
+	 * Convert an interpreter Value into the runtime representation used by the
+	 * generated code.
+	 */
+	public static Object convert(Value value)
+	{
+		value = value.deref();
+
+		if (value instanceof NilValue)
+		{
+			return null;
+		}
+		else if (value instanceof BooleanValue)
+		{
+			return Boolean.valueOf(((BooleanValue)value).value);
+		}
+		else if (value instanceof IntegerValue)
+		{
+			return VDM.integer(((IntegerValue)value).bigintValue(null));
+		}
+		else if (value instanceof RealValue)
+		{
+			return VDM.real(((RealValue)value).value);
+		}
+		else if (value instanceof CharacterValue)
+		{
+			return Character.valueOf(((CharacterValue)value).unicode);
+		}
+		else if (value instanceof QuoteValue)
+		{
+			return Quote.valueOf(((QuoteValue)value).value);
+		}
+		else if (value instanceof TokenValue)
+		{
+			return new Token(convert(((TokenValue)value).value));
+		}
+		else if (value instanceof SeqValue)
+		{
+			VDMSeq.Builder builder = new VDMSeq.Builder();
+
+			for (Value v: ((SeqValue)value).values)
+			{
+				builder.add(convert(v));
+			}
+
+			return builder.build();
+		}
+		else if (value instanceof SetValue)
+		{
+			VDMSet.Builder builder = new VDMSet.Builder();
+
+			for (Value v: ((SetValue)value).setValue(null))
+			{
+				builder.add(convert(v));
+			}
+
+			return builder.build();
+		}
+		else if (value instanceof MapValue)
+		{
+			VDMMap.Builder builder = new VDMMap.Builder(4017);
+
+			for (Map.Entry<Value, Value> entry: ((MapValue)value).values.entrySet())
+			{
+				builder.put(convert(entry.getKey()), convert(entry.getValue()));
+			}
+
+			return builder.build();
+		}
+		else if (value instanceof TupleValue)
+		{
+			List<Value> values = ((TupleValue)value).values;
+			Object[] fields = new Object[values.size()];
+
+			for (int i=0; i<fields.length; i++)
+			{
+				fields[i] = convert(values.get(i));
+			}
+
+			return new Tuple(fields);
+		}
+		else if (value instanceof RecordValue)
+		{
+			RecordValue rv = (RecordValue)value;
+			String[] names = new String[rv.type.fields.size()];
+			Object[] fields = new Object[names.length];
+			int i = 0;
+
+			for (TCField f: rv.type.fields)
+			{
+				names[i++] = f.tag;
+			}
+
+			i = 0;
+
+			for (FieldValue fv: rv.fieldmap)
+			{
+				fields[i++] = convert(fv.value);
+			}
+
+			RecordType type = new RecordType(rv.type.name.getModule(), rv.type.name.getName(), names);
+			return type.make(fields);
+		}
+
+		throw new IllegalArgumentException("cannot compare " + value.kind() + " values");
+	}
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCExplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCImplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCImportedDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCRenamedDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCTypeDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCValueDefinition;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+
+/**
+ * Generate Java source from a type checked list of VDM-SL modules. Each module
+ * produces a class with a static method per function, a static field per value
+ * and a type descriptor per type definition. Each module also produces a
+ * harness class that compares the generated code with the interpreter.
+ * Constructs that cannot be generated produce warnings, and code that raises
+ * an error if it is reached.
+ */
+public class JavaGenerator
+{
+	private static final Set<String> RESERVED = new HashSet<String>(Arrays.asList(
+		"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
+		"const", "continue", "default", "do", "double", "else", "enum", "extends", "false",
+		"final", "finally", "float", "for", "goto", "if", "implements", "import",
+		"instanceof", "int", "interface", "long", "native", "new", "null", "package",
+		"private", "protected", "public", "return", "short", "static", "strictfp", "super",
+		"switch", "synchronized", "this", "throw", "throws", "transient", "true", "try",
+		"void", "volatile", "while",
+		"Boolean", "Character", "Long", "Object", "String", "Iterable",
+		"Func", "NamedType", "Pattern", "Quote", "Record", "RecordType", "Token", "Tuple",
+		"Type", "VDM", "VDMException", "VDMMap", "VDMSeq", "VDMSet"));
+
+	private final TCModuleList modules;
+	private final String packageName;
+	private final List<String> warnings = new ArrayList<String>();
+	private final Set<String> classNames = new HashSet<String>();
+
+	/** The names visible in each module, including imports */
+	private final Map<String, Map<String, TCDefinition>> globals =
+		new HashMap<String, Map<String, TCDefinition>>();
+
+	public JavaGenerator(TCModuleList modules, String packageName)
+	{
+		this.modules = modules;
+		this.packageName = packageName;
+
+		for (TCModule m: modules)
+		{
+			classNames.add(className(m.name.getName()));
+		}
+
+		for (TCModule m: modules)
+		{
+			Map<String, TCDefinition> names = new HashMap<String, TCDefinition>();
+
+			for (TCDefinition def: m.defs)
+			{
+				addGlobal(names, def);
+			}
+
+			if (m.importdefs != null)
+			{
+				for (TCDefinition def: m.importdefs)
+				{
+					TCDefinition actual = def;
+
+					while (true)
+					{
+						if (actual instanceof TCImportedDefinition)
+						{
+							actual = ((TCImportedDefinition)actual).def;
+						}
+						else if (actual instanceof TCRenamedDefinition)
+						{
+							actual = ((TCRenamedDefinition)actual).def;
+						}
+						else
+						{
+							break;
+						}
+					}
+
+					if (actual instanceof TCValueDefinition)
+					{
+						addGlobal(names, actual);
+					}
+					else if (def.name != null)
+					{
+						names.put(def.name.getName(), actual);
+					}
+				}
+			}
+
+			globals.put(m.name.getName(), names);
+		}
+	}
+
+	private void addGlobal(Map<String, TCDefinition> names, TCDefinition def)
+	{
+		if (def instanceof TCValueDefinition)
+		{
+			for (TCNameToken var: def.getVariableNames())
+			{
+				names.put(var.getName(), def);
+			}
+		}
+		else if (def instanceof TCTypeDefinition)
+		{
+			TCTypeDefinition tdef = (TCTypeDefinition)def;
+			names.put(def.name.getName(), def);
+
+			if (tdef.invdef != null)
+			{
+				names.put(tdef.invdef.name.getName(), tdef.invdef);
+			}
+		}
+		else if (def instanceof TCExplicitFunctionDefinition)
+		{
+			TCExplicitFunctionDefinition fdef = (TCExplicitFunctionDefinition)def;
+			names.put(def.name.getName(), def);
+			if (fdef.predef != null) names.put(fdef.predef.name.getName(), fdef.predef);
+			if (fdef.postdef != null) names.put(fdef.postdef.name.getName(), fdef.postdef);
+		}
+		else if (def instanceof TCImplicitFunctionDefinition)
+		{
+			TCImplicitFunctionDefinition fdef = (TCImplicitFunctionDefinition)def;
+			names.put(def.name.getName(), def);
+			if (fdef.predef != null) names.put(fdef.predef.name.getName(), fdef.predef);
+			if (fdef.postdef != null) names.put(fdef.postdef.name.getName(), fdef.postdef);
+		}
+	}
+
+	/**
+	 * Generate the Java source for every module, and a harness class for each.
+	 * The result maps simple class names to their source.
+	 */
+	public Map<String, String> generate()
+	{
+		Map<String, String> result = new LinkedHashMap<String, String>();
+
+		for (TCModule m: modules)
+		{
+			ModuleGenerator mg = new ModuleGenerator(this, m);
+			String source = mg.generate(packageName);
+			result.put(mg.getClassName(), source);
+			result.put(mg.getClassName() + "Harness", harness(m, mg));
+		}
+
+		return result;
+	}
+
+	public List<String> getWarnings()
+	{
+		return warnings;
+	}
+
+	private String harness(TCModule m, ModuleGenerator mg)
+	{
+		String name = mg.getClassName();
+		Writer w = new Writer(0);
+
+		if (packageName != null)
+		{
+			w.line("package " + packageName + ";");
+			w.blank();
+		}
+
+		w.line("import com.fujitsu.vdmjgen.DifferentialHarness;");
+		w.blank();
+		w.line("/**");
+		w.line(" * Generated by VDMJGen to compare " + name + " with the interpreter.");
+		w.line(" */");
+		w.open("public class " + name + "Harness extends DifferentialHarness");
+		w.line("public static final String[] CALLS =");
+		w.open(null);
+
+		for (String call: mg.getSamples())
+		{
+			w.line(ModuleGenerator.quote(call) + ",");
+		}
+
+		w.close("};");
+		w.blank();
+		w.line("public " + name + "Harness()");
+		w.open(null);
+		w.line("super(" + ModuleGenerator.quote(m.name.getName()) + ");");
+		w.close();
+		w.blank();
+		w.line("@Override");
+		w.line("protected Object invoke(String name, Object... args)");
+		w.open(null);
+		w.line("return " + name + ".invoke(name, args);");
+		w.close();
+		w.blank();
+		w.line("public static void main(String[] args) throws Exception");
+		w.open(null);
+		w.line("System.exit(new " + name + "Harness().run(args, CALLS) ? 0 : 1);");
+		w.close();
+		w.close();
+
+		return w.toString();
+	}
+
+	/**
+	 * Find a global definition visible in a module, including its imports.
+	 * Names qualified by another module, like A`x, are found in module A.
+	 */
+	TCDefinition findGlobal(TCModule from, TCNameToken name)
+	{
+		String module = name.getModule().length() > 0 ? name.getModule() : from.name.getName();
+		Map<String, TCDefinition> names = globals.get(module);
+		return (names == null) ? null : names.get(name.getName());
+	}
+
+	String className(String module)
+	{
+		String name = sanitise(module);
+		return RESERVED.contains(name) ? name + "_" : name;
+	}
+
+	String javaName(String vdmName)
+	{
+		String name = sanitise(vdmName);
+		return RESERVED.contains(name) || classNames.contains(name) ? name + "_" : name;
+	}
+
+	private String sanitise(String name)
+	{
+		return name.replace("'", "$q");
+	}
+
+	void warning(LexLocation location, String message)
+	{
+		warnings.add("Warning: " + message + " " + location);
+	}
+}
@@ -0,0 +1,2123 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCExplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCImplicitFunctionDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCLocalDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCTypeDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCValueDefinition;
+import com.fujitsu.vdmj.tc.expressions.*;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.patterns.*;
+import com.fujitsu.vdmj.tc.types.*;
+
+/**
+ * Generate the Java class for one VDM-SL module. Every VDM value is a Java
+ * Object (see com.fujitsu.vdmjgen.runtime.VDM), and every VDM expression is
+ * generated as a Java expression. Expressions that bind names, like let and
+ * cases, are generated as private static helper methods whose parameters are
+ * the local names in scope at the point of use.
+ */
+class ModuleGenerator
+{
+	private final JavaGenerator generator;
+	private final TCModule module;
+	private final String className;
+
+	/** The sections of the class, written in this order */
+	private final Writer typeFields = new Writer(1);
+	private final Writer constants = new Writer(1);
+	private final Writer typeDefines = new Writer(2);
+	private final Writer valueFields = new Writer(1);
+	private final Writer valueInits = new Writer(2);
+	private final Writer functions = new Writer(1);
+	private final Writer helpers = new Writer(1);
+	private final Writer dispatch = new Writer(2);
+
+	private final Map<String, String> constantNames = new HashMap<String, String>();
+	private final List<String> samples = new ArrayList<String>();
+	private int counter = 0;
+
+	/** The local names in scope, as {vdmName, javaName} pairs */
+	private final List<String[]> scope = new ArrayList<String[]>();
+
+	public ModuleGenerator(JavaGenerator generator, TCModule module)
+	{
+		this.generator = generator;
+		this.module = module;
+		this.className = generator.className(module.name.getName());
+	}
+
+	public String getClassName()
+	{
+		return className;
+	}
+
+	/**
+	 * Sample calls of the module's functions, for the differential harness.
+	 */
+	public List<String> getSamples()
+	{
+		return samples;
+	}
+
+	public String generate(String packageName)
+	{
+		for (TCDefinition def: module.defs)
+		{
+			if (def instanceof TCTypeDefinition)
+			{
+				typeDefinition((TCTypeDefinition)def);
+			}
+		}
+
+		for (TCDefinition def: module.defs)
+		{
+			if (def instanceof TCValueDefinition)
+			{
+				valueDefinition((TCValueDefinition)def);
+			}
+			else if (def instanceof TCExplicitFunctionDefinition)
+			{
+				explicitFunction((TCExplicitFunctionDefinition)def, true);
+			}
+			else if (def instanceof TCImplicitFunctionDefinition)
+			{
+				implicitFunction((TCImplicitFunctionDefinition)def);
+			}
+			else if (!(def instanceof TCTypeDefinition))
+			{
+				warning(def.location, "definition of " + def.name + " is not supported, and is omitted");
+			}
+		}
+
+		Writer w = new Writer(0);
+
+		if (packageName != null)
+		{
+			w.line("package " + packageName + ";");
+			w.blank();
+		}
+
+		w.line("import com.fujitsu.vdmjgen.runtime.*;");
+		w.blank();
+		w.line("/**");
+		w.line(" * Generated by VDMJGen from VDM-SL module " + module.name.getName() + ".");
+		w.line(" */");
+		w.line("@SuppressWarnings(\"unused\")");
+		w.open("public class " + className);
+		w.line("private " + className + "()");
+		w.line("{");
+		w.line("\t// Static methods only");
+		w.line("}");
+		section(w, typeFields);
+		section(w, constants);
+		staticBlock(w, typeDefines);
+		section(w, valueFields);
+		staticBlock(w, valueInits);
+		w.append(functions);
+
+		w.blank();
+		w.line("/**");
+		w.line(" * Call a function by name, as used by the differential harness.");
+		w.line(" */");
+		w.open("public static Object invoke(String name, Object... args)");
+		w.append(dispatch);
+		w.line("throw new VDMException(4034, \"Name not in scope: \" + name);");
+		w.close();
+		w.append(helpers);
+		w.close();
+
+		return w.toString();
+	}
+
+	private void section(Writer w, Writer section)
+	{
+		if (section.toString().length() > 0)
+		{
+			w.blank();
+			w.append(section);
+		}
+	}
+
+	private void staticBlock(Writer w, Writer statements)
+	{
+		if (statements.toString().length() > 0)
+		{
+			w.blank();
+			w.line("static");
+			w.open(null);
+			w.append(statements);
+			w.close();
+		}
+	}
+
+	/*
+	 * Definitions.
+	 */
+
+	private void typeDefinition(TCTypeDefinition def)
+	{
+		TCType type = def.type;
+		String field = typeField(def.name.getModule(), def.name.getName());
+		String inv = "null";
+
+		if (def.eqdef != null || def.orddef != null)
+		{
+			warning(def.location, "eq and ord clauses of " + def.name + " are ignored");
+		}
+
+		if (def.invdef != null)
+		{
+			explicitFunction(def.invdef, false);
+			inv = funcConstant(def.invdef.name.getModule(), def.invdef.name.getName(), 1);
+		}
+
+		if (type instanceof TCRecordType)
+		{
+			TCRecordType rtype = (TCRecordType)type;
+			StringBuilder names = new StringBuilder();
+			StringBuilder types = new StringBuilder();
+			String sep = "";
+
+			for (TCField f: rtype.fields)
+			{
+				names.append(", " + quote(f.tag));
+				types.append(sep + typeExp(f.type));
+				sep = ", ";
+			}
+
+			typeFields.line("public static final RecordType " + field + " = new RecordType(" +
+				quote(def.name.getModule()) + ", " + quote(def.name.getName()) + names + ");");
+			typeDefines.line(field + ".define(new Type[] {" + types + "}, " + inv + ");");
+		}
+		else if (type instanceof TCNamedType)
+		{
+			TCNamedType ntype = (TCNamedType)type;
+			typeFields.line("public static final NamedType " + field + " = new NamedType(" +
+				quote(def.name.getName()) + ");");
+			typeDefines.line(field + ".define(" + typeExp(ntype.type) + ", " + inv + ");");
+		}
+	}
+
+	private void valueDefinition(TCValueDefinition def)
+	{
+		String value = exp(def.exp);
+
+		if (def.type != null)
+		{
+			value = check(def.type, value);
+		}
+
+		if (def.pattern instanceof TCIdentifierPattern)
+		{
+			String name = generator.javaName(((TCIdentifierPattern)def.pattern).name.getName());
+			valueFields.line("public static final Object " + name + ";");
+			valueInits.line(name + " = " + value + ";");
+		}
+		else
+		{
+			List<TCNameToken> ids = new ArrayList<TCNameToken>();
+			String pattern = pattern(def.pattern, ids);
+			String slots = temp("$s");
+
+			for (TCNameToken id: ids)
+			{
+				valueFields.line("public static final Object " + generator.javaName(id.getName()) + ";");
+			}
+
+			valueInits.line("final Object[] " + slots + " = new Object[" + ids.size() + "];");
+			valueInits.line(pattern + ".bind(" + value + ", " + slots + ");");
+
+			for (int i=0; i<ids.size(); i++)
+			{
+				valueInits.line(generator.javaName(ids.get(i).getName()) + " = " + slots + "[" + i + "];");
+			}
+		}
+	}
+
+	private void explicitFunction(TCExplicitFunctionDefinition def, boolean sample)
+	{
+		if (def.predef != null)
+		{
+			explicitFunction(def.predef, false);
+		}
+
+		if (def.postdef != null)
+		{
+			explicitFunction(def.postdef, false);
+		}
+
+		String name = generator.javaName(def.name.getName());
+		TCPatternList params = def.paramPatternList.get(0);
+		List<TCType> ptypes = def.type.parameters;
+		Writer w = new Writer(1);
+
+		String[] args = new String[params.size()];
+		scope.clear();
+
+		for (int i=0; i<args.length; i++)
+		{
+			TCPattern p = params.get(i);
+
+			if (p instanceof TCIdentifierPattern)
+			{
+				args[i] = push(((TCIdentifierPattern)p).name.getName());
+			}
+			else
+			{
+				args[i] = "$" + (i + 1);
+			}
+		}
+
+		w.blank();
+		w.open("public static Object " + name + "(" + join(args, "final Object ", ", ") + ")");
+
+		if (def.paramPatternList.size() > 1)
+		{
+			warning(def.location, "curried function " + def.name + " is not supported");
+			w.line("throw new VDMException(0, " + quote("Curried function not supported: " + def.name) + ");");
+			w.close();
+			functions.append(w);
+			return;
+		}
+
+		if (!def.isTypeInvariant)	// Invariant parameters are checked by the type
+		{
+			for (int i=0; i<args.length; i++)
+			{
+				String check = check(ptypes.get(i), args[i]);
+
+				if (!check.equals(args[i]))
+				{
+					w.line(check + ";");
+				}
+			}
+		}
+
+		for (int i=0; i<args.length; i++)
+		{
+			if (!(params.get(i) instanceof TCIdentifierPattern))
+			{
+				bind(w, params.get(i), args[i]);
+			}
+		}
+
+		if (def.predef != null)
+		{
+			w.open("if (!VDM.bool(" + call(def.predef, args) + "))");
+			w.line("throw new VDMException(4055, " + quote("Precondition failure: " + def.predef.name.getName()) + ");");
+			w.close();
+		}
+
+		String body = check(def.type.result, exp(def.body));
+
+		if (def.postdef != null)
+		{
+			String[] pargs = new String[args.length + 1];
+			System.arraycopy(args, 0, pargs, 0, args.length);
+			pargs[args.length] = "$r";
+
+			w.line("final Object $r = " + body + ";");
+			w.open("if (!VDM.bool(" + call(def.postdef, pargs) + "))");
+			w.line("throw new VDMException(4056, " + quote("Postcondition failure: " + def.postdef.name.getName()) + ");");
+			w.close();
+			w.line("return $r;");
+		}
+		else
+		{
+			w.line("return " + body + ";");
+		}
+
+		w.close();
+		functions.append(w);
+		scope.clear();
+
+		dispatch(def.name.getName(), name, args.length);
+
+		if (sample && def.typeParams == null)
+		{
+			sample(def.name.getName(), ptypes);
+		}
+	}
+
+	private void implicitFunction(TCImplicitFunctionDefinition def)
+	{
+		if (def.predef != null)
+		{
+			explicitFunction(def.predef, false);
+		}
+
+		if (def.postdef != null)
+		{
+			explicitFunction(def.postdef, false);
+		}
+
+		String name = generator.javaName(def.name.getName());
+		String[] args = new String[def.type.parameters.size()];
+
+		for (int i=0; i<args.length; i++)
+		{
+			args[i] = "$" + (i + 1);
+		}
+
+		Writer w = new Writer(1);
+		w.blank();
+		w.open("public static Object " + name + "(" + join(args, "final Object ", ", ") + ")");
+
+		if (def.body == null)
+		{
+			w.line("throw new VDMException(4051, " + quote("Cannot apply implicit function: " + def.name.getName()) + ");");
+		}
+		else
+		{
+			warning(def.location, "implicit function " + def.name + " with a body is not supported");
+			w.line("throw new VDMException(0, " + quote("Not supported: " + def.name) + ");");
+		}
+
+		w.close();
+		functions.append(w);
+		dispatch(def.name.getName(), name, args.length);
+	}
+
+	private void dispatch(String vdmName, String javaName, int arity)
+	{
+		String[] args = new String[arity];
+
+		for (int i=0; i<arity; i++)
+		{
+			args[i] = "args[" + i + "]";
+		}
+
+		dispatch.open("if (name.equals(" + quote(vdmName) + ") && args.length == " + arity + ")");
+		dispatch.line("return " + javaName + "(" + join(args, "", ", ") + ");");
+		dispatch.close();
+		dispatch.blank();
+	}
+
+	/*
+	 * Expressions. Each method returns a Java expression of type Object.
+	 */
+
+	private String exp(TCExpression exp)
+	{
+		if (exp instanceof TCBooleanLiteralExpression)
+		{
+			return ((TCBooleanLiteralExpression)exp).value.value ? "Boolean.TRUE" : "Boolean.FALSE";
+		}
+
+		String test = booleanTest(exp);
+
+		if (test != null)
+		{
+			return "Boolean.valueOf(" + test + ")";
+		}
+		else if (exp instanceof TCIntegerLiteralExpression)
+		{
+			long value = ((TCIntegerLiteralExpression)exp).value.value;
+			return constant("Object", value + "L");
+		}
+		else if (exp instanceof TCRealLiteralExpression)
+		{
+			double value = ((TCRealLiteralExpression)exp).value.value;
+			return constant("Object", "VDM.real(" + value + ")");
+		}
+		else if (exp instanceof TCCharLiteralExpression)
+		{
+			char value = ((TCCharLiteralExpression)exp).value.unicode;
+			return constant("Object", "Character.valueOf((char)" + (int)value + ")");
+		}
+		else if (exp instanceof TCStringLiteralExpression)
+		{
+			String value = ((TCStringLiteralExpression)exp).value.value;
+			return constant("VDMSeq", "VDMSeq.string(" + quote(value) + ")");
+		}
+		else if (exp instanceof TCQuoteLiteralExpression)
+		{
+			String value = ((TCQuoteLiteralExpression)exp).type.value;
+			return constant("Quote", "Quote.valueOf(" + quote(value) + ")");
+		}
+		else if (exp instanceof TCNilExpression)
+		{
+			return "null";
+		}
+		else if (exp instanceof TCVariableExpression)
+		{
+			return variable((TCVariableExpression)exp);
+		}
+		else if (exp instanceof TCFuncInstantiationExpression)
+		{
+			return exp(((TCFuncInstantiationExpression)exp).function);	// Types are not checked
+		}
+		else if (exp instanceof TCApplyExpression)
+		{
+			return apply((TCApplyExpression)exp);
+		}
+		else if (exp instanceof TCUnaryExpression)
+		{
+			return unary((TCUnaryExpression)exp);
+		}
+		else if (exp instanceof TCElementsExpression)
+		{
+			return "VDM.seq(" + exp(((TCElementsExpression)exp).exp) + ").elems()";
+		}
+		else if (exp instanceof TCBinaryExpression)
+		{
+			return binary((TCBinaryExpression)exp);
+		}
+		else if (exp instanceof TCIfExpression)
+		{
+			TCIfExpression ife = (TCIfExpression)exp;
+			StringBuilder sb = new StringBuilder();
+			sb.append("(" + test(ife.ifExp) + " ? " + exp(ife.thenExp) + " : ");
+			int count = 1;
+
+			for (TCElseIfExpression elseif: ife.elseList)
+			{
+				sb.append(test(elseif.elseIfExp) + " ? " + exp(elseif.thenExp) + " : ");
+				count++;
+			}
+
+			sb.append(exp(ife.elseExp) + ")");
+			return count == 1 ? sb.toString() : "(" + sb + ")";
+		}
+		else if (exp instanceof TCCasesExpression)
+		{
+			return cases((TCCasesExpression)exp);
+		}
+		else if (exp instanceof TCLetDefExpression)		// Includes def
+		{
+			return let((TCLetDefExpression)exp);
+		}
+		else if (exp instanceof TCLetBeStExpression)
+		{
+			return letBeSt((TCLetBeStExpression)exp);
+		}
+		else if (exp instanceof TCForAllExpression)
+		{
+			TCForAllExpression e = (TCForAllExpression)exp;
+			return quantifier("forall", e.bindList, e.predicate);
+		}
+		else if (exp instanceof TCExistsExpression)
+		{
+			TCExistsExpression e = (TCExistsExpression)exp;
+			return quantifier("exists", e.bindList, e.predicate);
+		}
+		else if (exp instanceof TCExists1Expression)
+		{
+			TCExists1Expression e = (TCExists1Expression)exp;
+			return unique("exists1", e.bind, e.predicate);
+		}
+		else if (exp instanceof TCIotaExpression)
+		{
+			TCIotaExpression e = (TCIotaExpression)exp;
+			return unique("iota", e.bind, e.predicate);
+		}
+		else if (exp instanceof TCSetEnumExpression)
+		{
+			TCExpressionList members = ((TCSetEnumExpression)exp).members;
+			return members.isEmpty() ? "VDMSet.EMPTY" : "VDMSet.of(" + list(members) + ")";
+		}
+		else if (exp instanceof TCSetRangeExpression)
+		{
+			TCSetRangeExpression e = (TCSetRangeExpression)exp;
+			return "VDMSet.range(" + exp(e.first) + ", " + exp(e.last) + ")";
+		}
+		else if (exp instanceof TCSeqEnumExpression)
+		{
+			TCExpressionList members = ((TCSeqEnumExpression)exp).members;
+			return members.isEmpty() ? "VDMSeq.EMPTY" : "VDMSeq.of(" + list(members) + ")";
+		}
+		else if (exp instanceof TCMapEnumExpression)
+		{
+			TCMapletExpressionList members = ((TCMapEnumExpression)exp).members;
+
+			if (members.isEmpty())
+			{
+				return "VDMMap.EMPTY";
+			}
+
+			StringBuilder sb = new StringBuilder("new VDMMap.Builder(4017)");
+
+			for (TCMapletExpression m: members)
+			{
+				sb.append(".put(" + exp(m.left) + ", " + exp(m.right) + ")");
+			}
+
+			return sb + ".build()";
+		}
+		else if (exp instanceof TCSetCompExpression || exp instanceof TCSeqCompExpression ||
+				 exp instanceof TCMapCompExpression)
+		{
+			return comprehension(exp);
+		}
+		else if (exp instanceof TCTupleExpression)
+		{
+			return "new Tuple(" + list(((TCTupleExpression)exp).args) + ")";
+		}
+		else if (exp instanceof TCMkTypeExpression)
+		{
+			TCMkTypeExpression e = (TCMkTypeExpression)exp;
+			return recordType(e.typename, e.location) + ".make(" + list(e.args) + ")";
+		}
+		else if (exp instanceof TCMkBasicExpression)
+		{
+			TCMkBasicExpression e = (TCMkBasicExpression)exp;
+			return "new Token(" + exp(e.arg) + ")";
+		}
+		else if (exp instanceof TCFieldExpression)
+		{
+			TCFieldExpression e = (TCFieldExpression)exp;
+			return "VDM.record(" + exp(e.object) + ").field(" + quote(e.field.getName()) + ")";
+		}
+		else if (exp instanceof TCFieldNumberExpression)
+		{
+			TCFieldNumberExpression e = (TCFieldNumberExpression)exp;
+			return "VDM.tuple(" + exp(e.tuple) + ").field(" + e.field.value + ")";
+		}
+		else if (exp instanceof TCMuExpression)
+		{
+			TCMuExpression e = (TCMuExpression)exp;
+			StringBuilder sb = new StringBuilder();
+
+			for (TCRecordModifier rm: e.modifiers)
+			{
+				sb.append(", " + quote(rm.tag.getName()) + ", " + exp(rm.value));
+			}
+
+			return "VDM.record(" + exp(e.record) + ").modify(" + sb.substring(2) + ")";
+		}
+		else if (exp instanceof TCSubseqExpression)
+		{
+			TCSubseqExpression e = (TCSubseqExpression)exp;
+			return "VDM.seq(" + exp(e.seq) + ").subseq(" + exp(e.from) + ", " + exp(e.to) + ")";
+		}
+		else if (exp instanceof TCNarrowExpression)
+		{
+			TCNarrowExpression e = (TCNarrowExpression)exp;
+			String type = (e.basictype != null) ? typeExp(e.basictype) : namedType(e.typename, e.location);
+			return type + ".check(" + exp(e.test) + ")";
+		}
+		else if (exp instanceof TCLambdaExpression)
+		{
+			return lambda((TCLambdaExpression)exp);
+		}
+		else if (exp instanceof TCNotYetSpecifiedExpression)
+		{
+			return "VDM.unsupported(4024, \"'not yet specified' expression reached\")";
+		}
+
+		return unsupported(exp.location, exp.getClass().getSimpleName().substring(2));
+	}
+
+	/**
+	 * Return a Java boolean expression for a VDM condition.
+	 */
+	private String test(TCExpression exp)
+	{
+		String test = booleanTest(exp);
+		return (test != null) ? test : "VDM.bool(" + exp(exp) + ")";
+	}
+
+	/**
+	 * Return a Java boolean expression for the boolean operators, or null for
+	 * other expressions. The logical operators short circuit, as in VDMJ.
+	 */
+	private String booleanTest(TCExpression exp)
+	{
+		if (exp instanceof TCBooleanLiteralExpression)
+		{
+			return ((TCBooleanLiteralExpression)exp).value.value ? "true" : "false";
+		}
+		else if (exp instanceof TCNotExpression)
+		{
+			return "!" + paren(test(((TCNotExpression)exp).exp));
+		}
+		else if (exp instanceof TCIsExpression)
+		{
+			TCIsExpression e = (TCIsExpression)exp;
+			String type = (e.basictype != null) ? typeExp(e.basictype) : namedType(e.typename, e.location);
+			return type + ".is(" + exp(e.test) + ")";
+		}
+		else if (!(exp instanceof TCBinaryExpression))
+		{
+			return null;
+		}
+
+		TCBinaryExpression bexp = (TCBinaryExpression)exp;
+
+		if (exp instanceof TCAndExpression)
+		{
+			return "(" + test(bexp.left) + " && " + test(bexp.right) + ")";
+		}
+		else if (exp instanceof TCOrExpression)
+		{
+			return "(" + test(bexp.left) + " || " + test(bexp.right) + ")";
+		}
+		else if (exp instanceof TCImpliesExpression)
+		{
+			return "(" + paren("!" + paren(test(bexp.left))) + " || " + test(bexp.right) + ")";
+		}
+		else if (exp instanceof TCEquivalentExpression)
+		{
+			return "(" + test(bexp.left) + " == " + test(bexp.right) + ")";
+		}
+
+		String op = null;
+
+		if (exp instanceof TCLessExpression)				op = "<";
+		else if (exp instanceof TCLessEqualExpression)		op = "<=";
+		else if (exp instanceof TCGreaterExpression)		op = ">";
+		else if (exp instanceof TCGreaterEqualExpression)	op = ">=";
+
+		if (op != null)
+		{
+			return "VDM.compareNumbers(" + exp(bexp.left) + ", " + exp(bexp.right) + ") " + op + " 0";
+		}
+
+		String l = null;
+		String r = null;
+
+		if (exp instanceof TCEqualsExpression || exp instanceof TCNotEqualExpression ||
+			exp instanceof TCInSetExpression || exp instanceof TCNotInSetExpression ||
+			exp instanceof TCSubsetExpression || exp instanceof TCProperSubsetExpression)
+		{
+			l = exp(bexp.left);
+			r = exp(bexp.right);
+		}
+
+		if (exp instanceof TCEqualsExpression)			return "VDM.equals(" + l + ", " + r + ")";
+		if (exp instanceof TCNotEqualExpression)		return "!VDM.equals(" + l + ", " + r + ")";
+		if (exp instanceof TCInSetExpression)			return "VDM.inSet(" + l + ", " + r + ")";
+		if (exp instanceof TCNotInSetExpression)		return "!VDM.inSet(" + l + ", " + r + ")";
+		if (exp instanceof TCSubsetExpression)			return "VDM.set(" + l + ").subset(VDM.set(" + r + "))";
+		if (exp instanceof TCProperSubsetExpression)	return "VDM.set(" + l + ").psubset(VDM.set(" + r + "))";
+
+		return null;
+	}
+
+	/**
+	 * Bracket a boolean expression that is not a simple call or name.
+	 */
+	private String paren(String test)
+	{
+		int depth = 0;
+		boolean quoted = false;
+
+		for (int i=0; i<test.length(); i++)
+		{
+			char c = test.charAt(i);
+
+			if (quoted)
+			{
+				if (c == '\\') i++;
+				else if (c == '"') quoted = false;
+			}
+			else if (c == '"') quoted = true;
+			else if (c == '(') depth++;
+			else if (c == ')') depth--;
+			else if (c == ' ' && depth == 0) return "(" + test + ")";
+		}
+
+		return test;
+	}
+
+	private String unary(TCUnaryExpression exp)
+	{
+		String arg = exp(exp.exp);
+
+		if (exp instanceof TCUnaryMinusExpression)		return "VDM.negate(" + arg + ")";
+		if (exp instanceof TCUnaryPlusExpression)		return arg;
+		if (exp instanceof TCAbsoluteExpression)		return "VDM.abs(" + arg + ")";
+		if (exp instanceof TCFloorExpression)			return "VDM.floor(" + arg + ")";
+		if (exp instanceof TCCardinalityExpression)		return "Long.valueOf(VDM.set(" + arg + ").size())";
+		if (exp instanceof TCLenExpression)				return "Long.valueOf(VDM.seq(" + arg + ").size())";
+		if (exp instanceof TCHeadExpression)			return "VDM.seq(" + arg + ").head()";
+		if (exp instanceof TCTailExpression)			return "VDM.seq(" + arg + ").tail()";
+		if (exp instanceof TCIndicesExpression)			return "VDM.seq(" + arg + ").inds()";
+		if (exp instanceof TCReverseExpression)			return "VDM.seq(" + arg + ").reverse()";
+		if (exp instanceof TCDistConcatExpression)		return "VDM.seq(" + arg + ").conc()";
+		if (exp instanceof TCMapDomainExpression)		return "VDM.map(" + arg + ").dom()";
+		if (exp instanceof TCMapRangeExpression)		return "VDM.map(" + arg + ").rng()";
+		if (exp instanceof TCMapInverseExpression)		return "VDM.map(" + arg + ").inverse()";
+		if (exp instanceof TCDistUnionExpression)		return "VDM.set(" + arg + ").dunion()";
+		if (exp instanceof TCDistIntersectExpression)	return "VDM.set(" + arg + ").dinter()";
+		if (exp instanceof TCDistMergeExpression)		return "VDMMap.merge(VDM.set(" + arg + "))";
+		if (exp instanceof TCPowerSetExpression)		return "VDM.set(" + arg + ").power()";
+
+		return unsupported(exp.location, exp.getClass().getSimpleName().substring(2));
+	}
+
+	private String binary(TCBinaryExpression exp)
+	{
+		String l = exp(exp.left);
+		String r = exp(exp.right);
+
+		if (exp instanceof TCPlusExpression)			return "VDM.add(" + l + ", " + r + ")";
+		if (exp instanceof TCSubtractExpression)		return "VDM.subtract(" + l + ", " + r + ")";
+		if (exp instanceof TCTimesExpression)			return "VDM.multiply(" + l + ", " + r + ")";
+		if (exp instanceof TCDivideExpression)			return "VDM.divide(" + l + ", " + r + ")";
+		if (exp instanceof TCDivExpression)				return "VDM.div(" + l + ", " + r + ")";
+		if (exp instanceof TCRemExpression)				return "VDM.rem(" + l + ", " + r + ")";
+		if (exp instanceof TCModExpression)				return "VDM.mod(" + l + ", " + r + ")";
+		if (exp instanceof TCStarStarExpression)		return "VDM.power(" + l + ", " + r + ")";
+		if (exp instanceof TCSetUnionExpression)		return "VDM.set(" + l + ").union(VDM.set(" + r + "))";
+		if (exp instanceof TCSetIntersectExpression)	return "VDM.set(" + l + ").inter(VDM.set(" + r + "))";
+		if (exp instanceof TCSetDifferenceExpression)	return "VDM.set(" + l + ").difference(VDM.set(" + r + "))";
+		if (exp instanceof TCSeqConcatExpression)		return "VDM.seq(" + l + ").concat(VDM.seq(" + r + "))";
+		if (exp instanceof TCPlusPlusExpression)		return "VDM.override(" + l + ", " + r + ")";
+		if (exp instanceof TCMapUnionExpression)		return "VDM.map(" + l + ").munion(VDM.map(" + r + "))";
+		if (exp instanceof TCDomainResToExpression)		return "VDM.domResTo(" + l + ", " + r + ")";
+		if (exp instanceof TCDomainResByExpression)		return "VDM.domResBy(" + l + ", " + r + ")";
+		if (exp instanceof TCRangeResToExpression)		return "VDM.map(" + l + ").rngResTo(VDM.set(" + r + "))";
+		if (exp instanceof TCRangeResByExpression)		return "VDM.map(" + l + ").rngResBy(VDM.set(" + r + "))";
+		if (exp instanceof TCCompExpression)			return "VDM.compose(" + l + ", " + r + ")";
+
+		return unsupported(exp.location, exp.getClass().getSimpleName().substring(2));
+	}
+
+	private String variable(TCVariableExpression exp)
+	{
+		TCNameToken name = exp.name;
+
+		if (isLocal(name))
+		{
+			String local = lookup(name.getName());
+
+			if (local != null)
+			{
+				return local;
+			}
+		}
+
+		TCDefinition def = generator.findGlobal(module, name);
+
+		if (def instanceof TCValueDefinition || def instanceof TCLocalDefinition)
+		{
+			String module = (def instanceof TCLocalDefinition) ? def.name.getModule() : moduleOf(def, name);
+			String id = (def instanceof TCLocalDefinition) ? def.name.getName() : name.getName();
+			return qualify(module, generator.javaName(id));
+		}
+		else if (def instanceof TCExplicitFunctionDefinition || def instanceof TCImplicitFunctionDefinition)
+		{
+			int arity = def.getType().getFunction().parameters.size();
+			return funcConstant(def.name.getModule(), def.name.getName(), arity);
+		}
+
+		return unsupported(exp.location, "reference to " + name);
+	}
+
+	private String apply(TCApplyExpression exp)
+	{
+		TCExpression root = exp.root;
+
+		if (root instanceof TCFuncInstantiationExpression)
+		{
+			root = ((TCFuncInstantiationExpression)root).function;
+		}
+
+		if (root instanceof TCVariableExpression)
+		{
+			TCNameToken name = ((TCVariableExpression)root).name;
+
+			if (!isLocal(name) || lookup(name.getName()) == null)
+			{
+				TCDefinition def = generator.findGlobal(module, name);
+
+				if (def instanceof TCExplicitFunctionDefinition || def instanceof TCImplicitFunctionDefinition)
+				{
+					if (def.getType().getFunction().parameters.size() == exp.args.size())
+					{
+						return qualify(def.name.getModule(), generator.javaName(def.name.getName())) +
+							"(" + list(exp.args) + ")";
+					}
+				}
+			}
+		}
+
+		String args = list(exp.args);
+		return "VDM.apply(" + exp(exp.root) + (args.length() > 0 ? ", " + args : "") + ")";
+	}
+
+	private String cases(TCCasesExpression exp)
+	{
+		String[] params = scopeNames();
+		int mark = scope.size();
+		String helper = helperName("cases");
+		Writer w = new Writer(1);
+		w.blank();
+		w.open("private static Object " + helper + "(" + join(params, "final Object ", ", ") + ")");
+		String value = temp("$v");
+		w.line("final Object " + value + " = " + exp(exp.exp) + ";");
+
+		for (TCCaseAlternative alt: exp.cases)
+		{
+			w.blank();
+			match(w, alt.pattern, value);
+			w.line("return " + exp(alt.result) + ";");
+			w.close();
+			reset(mark);
+		}
+
+		w.blank();
+
+		if (exp.others != null)
+		{
+			w.line("return " + exp(exp.others) + ";");
+		}
+		else
+		{
+			w.line("throw new VDMException(4004, \"No cases apply for \" + VDM.toString(" + value + "));");
+		}
+
+		w.close();
+		helpers.append(w);
+		return helper + "(" + join(params, "", ", ") + ")";
+	}
+
+	private String let(TCLetDefExpression exp)
+	{
+		String[] params = scopeNames();
+		int mark = scope.size();
+		String helper = helperName("let");
+		Writer w = new Writer(1);
+		w.blank();
+		w.open("private static Object " + helper + "(" + join(params, "final Object ", ", ") + ")");
+
+		for (TCDefinition def: exp.localDefs)
+		{
+			if (def instanceof TCValueDefinition)
+			{
+				TCValueDefinition vdef = (TCValueDefinition)def;
+				String value = exp(vdef.exp);
+
+				if (vdef.type != null)
+				{
+					value = check(vdef.type, value);
+				}
+
+				bind(w, vdef.pattern, value);
+			}
+			else
+			{
+				w.line("VDM.unsupported(0, " + quote("Local definition of " + def.name) + ");");
+				warning(def.location, "local definition of " + def.name + " is not supported");
+			}
+		}
+
+		w.line("return " + exp(exp.expression) + ";");
+		w.close();
+		helpers.append(w);
+		reset(mark);
+		return helper + "(" + join(params, "", ", ") + ")";
+	}
+
+	private String letBeSt(final TCLetBeStExpression exp)
+	{
+		return loops("letbest", bindList(exp.bind), new Body()
+		{
+			@Override
+			public void before(Writer w)
+			{
+				// Nothing
+			}
+
+			@Override
+			public void inner(Writer w)
+			{
+				if (exp.suchThat != null)
+				{
+					w.open("if (" + test(exp.suchThat) + ")");
+					w.line("return " + exp(exp.value) + ";");
+					w.close();
+				}
+				else
+				{
+					w.line("return " + exp(exp.value) + ";");
+				}
+			}
+
+			@Override
+			public void after(Writer w)
+			{
+				w.line("throw new VDMException(4015, \"Let be st found no applicable bindings\");");
+			}
+		});
+	}
+
+	private String quantifier(final String kind, TCMultipleBindList bindList, final TCExpression predicate)
+	{
+		final boolean forall = kind.equals("forall");
+
+		return loops(kind, bindList(bindList), new Body()
+		{
+			@Override
+			public void before(Writer w)
+			{
+				// Nothing
+			}
+
+			@Override
+			public void inner(Writer w)
+			{
+				w.open("if (" + (forall ? "!" + paren(test(predicate)) : test(predicate)) + ")");
+				w.line("return Boolean." + (forall ? "FALSE" : "TRUE") + ";");
+				w.close();
+			}
+
+			@Override
+			public void after(Writer w)
+			{
+				w.line("return Boolean." + (forall ? "TRUE" : "FALSE") + ";");
+			}
+		});
+	}
+
+	private String unique(final String kind, TCBind bind, final TCExpression predicate)
+	{
+		final boolean iota = kind.equals("iota");
+		final String count = temp("$c");
+		final String result = temp("$r");
+		final List<String> names = new ArrayList<String>();
+
+		return loops(kind, bindList(bind), new Body()
+		{
+			@Override
+			public void before(Writer w)
+			{
+				w.line("int " + count + " = 0;");
+
+				if (iota)
+				{
+					w.line("Object " + result + " = null;");
+				}
+			}
+
+			@Override
+			public void inner(Writer w)
+			{
+				w.open("if (" + test(predicate) + ")");
+
+				if (iota)
+				{
+					w.open("if (++" + count + " > 1)");
+					w.line("throw new VDMException(4013, \"Iota selects more than one result\");");
+					w.close();
+					w.blank();
+					w.line(result + " = " + names.get(0) + ";");
+				}
+				else
+				{
+					w.open("if (++" + count + " > 1)");
+					w.line("return Boolean.FALSE;");
+					w.close();
+				}
+
+				w.close();
+			}
+
+			@Override
+			public void after(Writer w)
+			{
+				if (iota)
+				{
+					w.open("if (" + count + " == 0)");
+					w.line("throw new VDMException(4014, \"Iota does not select a result\");");
+					w.close();
+					w.blank();
+					w.line("return " + result + ";");
+				}
+				else
+				{
+					w.line("return Boolean.valueOf(" + count + " == 1);");
+				}
+			}
+		}, names);
+	}
+
+	private String comprehension(TCExpression exp)
+	{
+		final String result = temp("$r");
+		List<Binding> binds = null;
+		final String type;
+		final String build;
+		final TCExpression predicate;
+		final TCExpression first;
+		final TCMapletExpression maplet;
+
+		if (exp instanceof TCSetCompExpression)
+		{
+			TCSetCompExpression e = (TCSetCompExpression)exp;
+			binds = bindList(e.bindings);
+			type = "VDMSet.Builder";
+			build = "new VDMSet.Builder()";
+			predicate = e.predicate;
+			first = e.first;
+			maplet = null;
+		}
+		else if (exp instanceof TCSeqCompExpression)
+		{
+			TCSeqCompExpression e = (TCSeqCompExpression)exp;
+			binds = bindList(e.bind);
+			type = "VDMSeq.Builder";
+			build = "new VDMSeq.Builder()";
+			predicate = e.predicate;
+			first = e.first;
+			maplet = null;
+		}
+		else
+		{
+			TCMapCompExpression e = (TCMapCompExpression)exp;
+			binds = bindList(e.bindings);
+			type = "VDMMap.Builder";
+			build = "new VDMMap.Builder(4016)";
+			predicate = e.predicate;
+			first = null;
+			maplet = e.first;
+		}
+
+		return loops("comp", binds, new Body()
+		{
+			@Override
+			public void before(Writer w)
+			{
+				w.line("final " + type + " " + result + " = " + build + ";");
+			}
+
+			@Override
+			public void inner(Writer w)
+			{
+				String add = (maplet != null) ?
+					result + ".put(" + exp(maplet.left) + ", " + exp(maplet.right) + ");" :
+					result + ".add(" + exp(first) + ");";
+
+				if (predicate != null)
+				{
+					w.open("if (" + test(predicate) + ")");
+					w.line(add);
+					w.close();
+				}
+				else
+				{
+					w.line(add);
+				}
+			}
+
+			@Override
+			public void after(Writer w)
+			{
+				w.line("return " + result + ".build();");
+			}
+		});
+	}
+
+	private String lambda(TCLambdaExpression exp)
+	{
+		String[] params = scopeNames();
+		int mark = scope.size();
+		String helper = helperName("lambda");
+		String args = temp("$a");
+		Writer w = new Writer(1);
+		w.blank();
+		w.open("private static Func " + helper + "(" + join(params, "final Object ", ", ") + ")");
+		w.line("return new Func(\"lambda\")");
+		w.line("{");
+		w.line("\t@Override");
+		w.open("\tpublic Object apply(Object... " + args + ")");
+		int i = 0;
+
+		for (TCTypeBind bind: exp.bindList)
+		{
+			bind(w, bind.pattern, check(bind.type, args + "[" + i++ + "]"));
+		}
+
+		w.line("return " + exp(exp.expression) + ";");
+		w.close("\t}");
+		w.line("};");
+		w.close();
+		helpers.append(w);
+		reset(mark);
+		return helper + "(" + join(params, "", ", ") + ")";
+	}
+
+	/*
+	 * Loops over set and sequence bindings, for quantifiers and comprehensions.
+	 */
+
+	private static class Binding
+	{
+		public final TCPattern pattern;
+		public final TCExpression values;
+		public final boolean isSet;
+
+		public Binding(TCPattern pattern, TCExpression values, boolean isSet)
+		{
+			this.pattern = pattern;
+			this.values = values;
+			this.isSet = isSet;
+		}
+	}
+
+	private abstract static class Body
+	{
+		abstract public void before(Writer w);
+		abstract public void inner(Writer w);
+		abstract public void after(Writer w);
+	}
+
+	private List<Binding> bindList(TCMultipleBindList bindList)
+	{
+		List<Binding> list = new ArrayList<Binding>();
+
+		for (TCMultipleBind mb: bindList)
+		{
+			list.addAll(bindList(mb));
+		}
+
+		return list;
+	}
+
+	private List<Binding> bindList(TCMultipleBind mb)
+	{
+		List<Binding> list = new ArrayList<Binding>();
+
+		for (TCPattern p: mb.plist)
+		{
+			if (mb instanceof TCMultipleSetBind)
+			{
+				list.add(new Binding(p, ((TCMultipleSetBind)mb).set, true));
+			}
+			else if (mb instanceof TCMultipleSeqBind)
+			{
+				list.add(new Binding(p, ((TCMultipleSeqBind)mb).sequence, false));
+			}
+			else
+			{
+				list.add(new Binding(p, null, false));
+			}
+		}
+
+		return list;
+	}
+
+	private List<Binding> bindList(TCBind bind)
+	{
+		List<Binding> list = new ArrayList<Binding>();
+
+		if (bind instanceof TCSetBind)
+		{
+			list.add(new Binding(bind.pattern, ((TCSetBind)bind).set, true));
+		}
+		else if (bind instanceof TCSeqBind)
+		{
+			list.add(new Binding(bind.pattern, ((TCSeqBind)bind).sequence, false));
+		}
+		else
+		{
+			list.add(new Binding(bind.pattern, null, false));
+		}
+
+		return list;
+	}
+
+	private String loops(String kind, List<Binding> binds, Body body)
+	{
+		return loops(kind, binds, body, new ArrayList<String>());
+	}
+
+	/**
+	 * Generate a helper that evaluates the collections of the bindings, then
+	 * loops over every combination of their values that match the patterns.
+	 * The Java names of the first binding's identifiers are added to names.
+	 */
+	private String loops(String kind, List<Binding> binds, Body body, List<String> names)
+	{
+		String[] params = scopeNames();
+		int mark = scope.size();
+		String helper = helperName(kind);
+		Writer w = new Writer(1);
+		w.blank();
+		w.open("private static Object " + helper + "(" + join(params, "final Object ", ", ") + ")");
+		String[] values = new String[binds.size()];
+
+		for (int i=0; i<values.length; i++)
+		{
+			Binding b = binds.get(i);
+			values[i] = temp("$b");
+
+			if (b.values == null)
+			{
+				warning(b.pattern.location, "type bindings are not supported");
+				w.line("final Iterable<Object> " + values[i] + " = (VDMSet)VDM.unsupported(0, \"Type binding\");");
+			}
+			else if (b.isSet)
+			{
+				w.line("final VDMSet " + values[i] + " = VDM.set(" + exp(b.values) + ");");
+			}
+			else
+			{
+				w.line("final VDMSeq " + values[i] + " = VDM.seq(" + exp(b.values) + ");");
+			}
+		}
+
+		body.before(w);
+		w.blank();
+
+		for (int i=0; i<values.length; i++)
+		{
+			String element = temp("$e");
+			w.open("for (Object " + element + ": " + values[i] + ")");
+			int before = scope.size();
+			match(w, binds.get(i).pattern, element);
+
+			if (i == 0)
+			{
+				for (int n=before; n<scope.size(); n++)
+				{
+					names.add(scope.get(n)[1]);
+				}
+			}
+		}
+
+		body.inner(w);
+
+		for (int i=0; i<values.length; i++)
+		{
+			w.close();		// match
+			w.close();		// for
+		}
+
+		w.blank();
+		body.after(w);
+		w.close();
+		helpers.append(w);
+		reset(mark);
+		return helper + "(" + join(params, "", ", ") + ")";
+	}
+
+	/*
+	 * Patterns.
+	 */
+
+	/**
+	 * Write statements that bind a pattern to a value, raising an error if it
+	 * does not match. The identifiers are added to the scope.
+	 */
+	private void bind(Writer w, TCPattern p, String value)
+	{
+		if (p instanceof TCIdentifierPattern)
+		{
+			String name = push(((TCIdentifierPattern)p).name.getName());
+			w.line("final Object " + name + " = " + value + ";");
+		}
+		else if (p instanceof TCIgnorePattern)
+		{
+			w.line("final Object " + temp("$x") + " = " + value + ";");
+		}
+		else
+		{
+			List<TCNameToken> ids = new ArrayList<TCNameToken>();
+			String pattern = pattern(p, ids);
+			String slots = temp("$s");
+			w.line("final Object[] " + slots + " = new Object[" + ids.size() + "];");
+			w.line(pattern + ".bind(" + value + ", " + slots + ");");
+
+			for (int i=0; i<ids.size(); i++)
+			{
+				w.line("final Object " + push(ids.get(i).getName()) + " = " + slots + "[" + i + "];");
+			}
+		}
+	}
+
+	/**
+	 * Write the opening of a block that is only executed if the pattern matches
+	 * the value. The caller closes the block, and resets the scope.
+	 */
+	private void match(Writer w, TCPattern p, String value)
+	{
+		if (p instanceof TCIdentifierPattern)
+		{
+			w.open(null);
+			String name = push(((TCIdentifierPattern)p).name.getName());
+			w.line("final Object " + name + " = " + value + ";");
+		}
+		else if (p instanceof TCIgnorePattern)
+		{
+			w.open(null);
+		}
+		else
+		{
+			List<TCNameToken> ids = new ArrayList<TCNameToken>();
+			String pattern = pattern(p, ids);
+			String slots = temp("$s");
+			w.line("final Object[] " + slots + " = new Object[" + ids.size() + "];");
+			w.blank();
+			w.open("if (" + pattern + ".match(" + value + ", " + slots + "))");
+
+			for (int i=0; i<ids.size(); i++)
+			{
+				w.line("final Object " + push(ids.get(i).getName()) + " = " + slots + "[" + i + "];");
+			}
+		}
+	}
+
+	/**
+	 * Return a Java expression for a runtime Pattern, allocating a slot for each
+	 * distinct identifier in ids. Patterns that do not contain expressions are
+	 * constants.
+	 */
+	private String pattern(TCPattern p, List<TCNameToken> ids)
+	{
+		StringBuilder sb = new StringBuilder();
+		boolean constant = pattern(p, ids, sb);
+		return constant ? constant("Pattern", sb.toString()) : sb.toString();
+	}
+
+	private boolean pattern(TCPattern p, List<TCNameToken> ids, StringBuilder sb)
+	{
+		boolean constant = true;
+
+		if (p instanceof TCIdentifierPattern)
+		{
+			TCNameToken name = ((TCIdentifierPattern)p).name;
+			int slot = -1;
+
+			for (int i=0; i<ids.size(); i++)
+			{
+				if (ids.get(i).getName().equals(name.getName()))
+				{
+					slot = i;
+				}
+			}
+
+			if (slot < 0)
+			{
+				slot = ids.size();
+				ids.add(name);
+			}
+
+			sb.append("Pattern.id(" + slot + ")");
+		}
+		else if (p instanceof TCIgnorePattern)
+		{
+			sb.append("Pattern.ignore()");
+		}
+		else if (p instanceof TCIntegerPattern)
+		{
+			sb.append("Pattern.value(" + ((TCIntegerPattern)p).value.value + "L)");
+		}
+		else if (p instanceof TCRealPattern)
+		{
+			sb.append("Pattern.value(VDM.real(" + ((TCRealPattern)p).value.value + "))");
+		}
+		else if (p instanceof TCBooleanPattern)
+		{
+			sb.append("Pattern.value(" + (((TCBooleanPattern)p).value.value ? "Boolean.TRUE" : "Boolean.FALSE") + ")");
+		}
+		else if (p instanceof TCCharacterPattern)
+		{
+			sb.append("Pattern.value(Character.valueOf((char)" + (int)((TCCharacterPattern)p).value.unicode + "))");
+		}
+		else if (p instanceof TCStringPattern)
+		{
+			sb.append("Pattern.value(VDMSeq.string(" + quote(((TCStringPattern)p).value.value) + "))");
+		}
+		else if (p instanceof TCQuotePattern)
+		{
+			sb.append("Pattern.value(Quote.valueOf(" + quote(((TCQuotePattern)p).value.value) + "))");
+		}
+		else if (p instanceof TCNilPattern)
+		{
+			sb.append("Pattern.value(null)");
+		}
+		else if (p instanceof TCExpressionPattern)
+		{
+			sb.append("Pattern.value(" + exp(((TCExpressionPattern)p).exp) + ")");
+			constant = false;
+		}
+		else if (p instanceof TCTuplePattern)
+		{
+			sb.append("Pattern.tuple(");
+			constant = patternList(((TCTuplePattern)p).plist, ids, sb);
+			sb.append(")");
+		}
+		else if (p instanceof TCRecordPattern)
+		{
+			TCRecordPattern rp = (TCRecordPattern)p;
+			sb.append("Pattern.record(" + recordType(rp.typename, rp.location));
+
+			if (!rp.plist.isEmpty())
+			{
+				sb.append(", ");
+				constant = patternList(rp.plist, ids, sb);
+			}
+
+			sb.append(")");
+		}
+		else if (p instanceof TCSeqPattern)
+		{
+			sb.append("Pattern.seq(");
+			constant = patternList(((TCSeqPattern)p).plist, ids, sb);
+			sb.append(")");
+		}
+		else if (p instanceof TCConcatenationPattern)
+		{
+			TCConcatenationPattern cp = (TCConcatenationPattern)p;
+			sb.append("Pattern.concat(");
+			constant = pattern(cp.left, ids, sb);
+			sb.append(", ");
+			constant = pattern(cp.right, ids, sb) && constant;
+			sb.append(")");
+		}
+		else
+		{
+			warning(p.location, p.getClass().getSimpleName().substring(2) + " is not supported");
+			sb.append("((Pattern)VDM.unsupported(0, " + quote("Pattern " + p) + "))");
+			constant = false;
+		}
+
+		return constant;
+	}
+
+	private boolean patternList(TCPatternList plist, List<TCNameToken> ids, StringBuilder sb)
+	{
+		boolean constant = true;
+		String sep = "";
+
+		for (TCPattern p: plist)
+		{
+			sb.append(sep);
+			constant = pattern(p, ids, sb) && constant;
+			sep = ", ";
+		}
+
+		return constant;
+	}
+
+	/*
+	 * Types.
+	 */
+
+	/**
+	 * Return a Java expression that checks that a value is of a type.
+	 */
+	private String check(TCType type, String value)
+	{
+		String t = typeExp(type);
+		return t.equals("Type.ANY") ? value : t + ".check(" + value + ")";
+	}
+
+	/**
+	 * Return a Java expression for the runtime Type descriptor of a type.
+	 */
+	private String typeExp(TCType type)
+	{
+		if (type instanceof TCBracketType)
+		{
+			return typeExp(((TCBracketType)type).type);
+		}
+		else if (type instanceof TCBooleanType)		return "Type.BOOL";
+		else if (type instanceof TCNaturalOneType)	return "Type.NAT1";
+		else if (type instanceof TCNaturalType)		return "Type.NAT";
+		else if (type instanceof TCIntegerType)		return "Type.INT";
+		else if (type instanceof TCRationalType)	return "Type.RAT";
+		else if (type instanceof TCRealType)		return "Type.REAL";
+		else if (type instanceof TCCharacterType)	return "Type.CHAR";
+		else if (type instanceof TCTokenType)		return "Type.TOKEN";
+		else if (type instanceof TCNamedType)
+		{
+			TCNameToken name = ((TCNamedType)type).typename;
+			return qualify(name.getModule(), typeField(name.getModule(), name.getName()));
+		}
+		else if (type instanceof TCRecordType)
+		{
+			TCNameToken name = ((TCRecordType)type).name;
+			return qualify(name.getModule(), typeField(name.getModule(), name.getName()));
+		}
+
+		String exp = null;
+
+		if (type instanceof TCQuoteType)
+		{
+			exp = "Type.quote(" + quote(((TCQuoteType)type).value) + ")";
+		}
+		else if (type instanceof TCOptionalType)
+		{
+			exp = "Type.optional(" + typeExp(((TCOptionalType)type).type) + ")";
+		}
+		else if (type instanceof TCUnionType)
+		{
+			StringBuilder sb = new StringBuilder();
+			String sep = "";
+
+			for (TCType t: ((TCUnionType)type).types)
+			{
+				sb.append(sep + typeExp(t));
+				sep = ", ";
+			}
+
+			exp = "Type.union(" + sb + ")";
+		}
+		else if (type instanceof TCProductType)
+		{
+			StringBuilder sb = new StringBuilder();
+			String sep = "";
+
+			for (TCType t: ((TCProductType)type).types)
+			{
+				sb.append(sep + typeExp(t));
+				sep = ", ";
+			}
+
+			exp = "Type.product(" + sb + ")";
+		}
+		else if (type instanceof TCSeqType)
+		{
+			String kind = (type instanceof TCSeq1Type) ? "seq1" : "seq";
+			exp = "Type." + kind + "(" + typeExp(((TCSeqType)type).seqof) + ")";
+		}
+		else if (type instanceof TCSetType)
+		{
+			String kind = (type instanceof TCSet1Type) ? "set1" : "set";
+			exp = "Type." + kind + "(" + typeExp(((TCSetType)type).setof) + ")";
+		}
+		else if (type instanceof TCMapType)
+		{
+			TCMapType mtype = (TCMapType)type;
+			String kind = (type instanceof TCInMapType) ? "inmap" : "map";
+			exp = "Type." + kind + "(" + typeExp(mtype.from) + ", " + typeExp(mtype.to) + ")";
+		}
+		else if (type instanceof TCFunctionType)
+		{
+			exp = "Type.function(" + quote(type.toString()) + ")";
+		}
+		else
+		{
+			return "Type.ANY";		// Type parameters, unknown etc.
+		}
+
+		return constant("Type", exp);
+	}
+
+	private String namedType(TCNameToken typename, LexLocation location)
+	{
+		TCDefinition def = generator.findGlobal(module, typename);
+
+		if (def instanceof TCTypeDefinition)
+		{
+			TCNameToken name = def.name;
+			return qualify(name.getModule(), typeField(name.getModule(), name.getName()));
+		}
+
+		return "((Type)" + unsupported(location, "type " + typename) + ")";
+	}
+
+	private String recordType(TCNameToken typename, LexLocation location)
+	{
+		TCDefinition def = generator.findGlobal(module, typename);
+
+		if (def instanceof TCTypeDefinition && ((TCTypeDefinition)def).type instanceof TCRecordType)
+		{
+			TCNameToken name = def.name;
+			return qualify(name.getModule(), typeField(name.getModule(), name.getName()));
+		}
+
+		return "((RecordType)" + unsupported(location, "record type " + typename) + ")";
+	}
+
+	private String typeField(String module, String name)
+	{
+		return "T_" + generator.javaName(name);
+	}
+
+	/*
+	 * Harness samples.
+	 */
+
+	private void sample(String name, List<TCType> ptypes)
+	{
+		List<List<String>> values = new ArrayList<List<String>>();
+		int count = 1;
+
+		for (TCType type: ptypes)
+		{
+			List<String> sv = samples(type, 0);
+
+			if (sv == null || sv.isEmpty())
+			{
+				return;		// Can't make samples for this function
+			}
+
+			values.add(sv);
+			count = Math.max(count, sv.size());
+		}
+
+		for (int i=0; i<count; i++)
+		{
+			StringBuilder sb = new StringBuilder();
+			String sep = "";
+
+			for (int p=0; p<values.size(); p++)
+			{
+				List<String> sv = values.get(p);
+				sb.append(sep + sv.get((i + p) % sv.size()));
+				sep = ", ";
+			}
+
+			samples.add(name + "(" + sb + ")");
+
+			if (values.isEmpty())
+			{
+				break;
+			}
+		}
+	}
+
+	private List<String> samples(TCType type, int depth)
+	{
+		List<String> list = new ArrayList<String>();
+
+		if (depth > 2)
+		{
+			return null;
+		}
+		else if (type instanceof TCBracketType)
+		{
+			return samples(((TCBracketType)type).type, depth);
+		}
+		else if (type instanceof TCBooleanType)
+		{
+			list.add("true");
+			list.add("false");
+		}
+		else if (type instanceof TCNaturalOneType)
+		{
+			add(list, "1", "2", "3", "7");
+		}
+		else if (type instanceof TCNaturalType)
+		{
+			add(list, "0", "1", "2", "5");
+		}
+		else if (type instanceof TCIntegerType)
+		{
+			add(list, "-3", "0", "1", "4");
+		}
+		else if (type instanceof TCRealType || type instanceof TCRationalType)
+		{
+			add(list, "-1.5", "0", "2.25", "3");
+		}
+		else if (type instanceof TCCharacterType)
+		{
+			add(list, "'a'", "'Z'", "'0'");
+		}
+		else if (type instanceof TCQuoteType)
+		{
+			list.add("<" + ((TCQuoteType)type).value + ">");
+		}
+		else if (type instanceof TCTokenType)
+		{
+			add(list, "mk_token(1)", "mk_token(\"x\")");
+		}
+		else if (type instanceof TCOptionalType)
+		{
+			List<String> sv = samples(((TCOptionalType)type).type, depth + 1);
+			list.add("nil");
+
+			if (sv != null)
+			{
+				list.addAll(sv);
+			}
+		}
+		else if (type instanceof TCUnionType)
+		{
+			for (TCType t: ((TCUnionType)type).types)
+			{
+				List<String> sv = samples(t, depth + 1);
+
+				if (sv != null)
+				{
+					list.addAll(sv);
+				}
+			}
+		}
+		else if (type instanceof TCNamedType)
+		{
+			return samples(((TCNamedType)type).type, depth + 1);
+		}
+		else if (type instanceof TCSeqType)
+		{
+			TCType of = ((TCSeqType)type).seqof;
+
+			if (of instanceof TCCharacterType)
+			{
+				if (!(type instanceof TCSeq1Type)) list.add("\"\"");
+				add(list, "\"abc\"", "\"hello\"");
+			}
+			else
+			{
+				List<String> sv = samples(of, depth + 1);
+
+				if (sv == null || sv.isEmpty())
+				{
+					return null;
+				}
+
+				if (!(type instanceof TCSeq1Type)) list.add("[]");
+				list.add("[" + sv.get(0) + "]");
+				list.add("[" + sv.get(sv.size() - 1) + ", " + sv.get(0) + "]");
+			}
+		}
+		else if (type instanceof TCSetType)
+		{
+			List<String> sv = samples(((TCSetType)type).setof, depth + 1);
+
+			if (sv == null || sv.isEmpty())
+			{
+				return null;
+			}
+
+			if (!(type instanceof TCSet1Type)) list.add("{}");
+			list.add("{" + sv.get(0) + "}");
+			list.add("{" + sv.get(0) + ", " + sv.get(sv.size() - 1) + "}");
+		}
+		else if (type instanceof TCMapType)
+		{
+			TCMapType mtype = (TCMapType)type;
+			List<String> from = samples(mtype.from, depth + 1);
+			List<String> to = samples(mtype.to, depth + 1);
+
+			if (from == null || from.isEmpty() || to == null || to.isEmpty())
+			{
+				return null;
+			}
+
+			list.add("{|->}");
+			list.add("{" + from.get(0) + " |-> " + to.get(to.size() - 1) + "}");
+		}
+		else if (type instanceof TCProductType)
+		{
+			List<List<String>> fields = new ArrayList<List<String>>();
+
+			for (TCType t: ((TCProductType)type).types)
+			{
+				List<String> sv = samples(t, depth + 1);
+
+				if (sv == null || sv.isEmpty())
+				{
+					return null;
+				}
+
+				fields.add(sv);
+			}
+
+			for (int i=0; i<2; i++)
+			{
+				StringBuilder sb = new StringBuilder();
+				String sep = "";
+
+				for (List<String> sv: fields)
+				{
+					sb.append(sep + sv.get(i % sv.size()));
+					sep = ", ";
+				}
+
+				list.add("mk_(" + sb + ")");
+			}
+		}
+		else if (type instanceof TCRecordType)
+		{
+			TCRecordType rtype = (TCRecordType)type;
+			StringBuilder sb = new StringBuilder();
+			String sep = "";
+
+			for (TCField f: rtype.fields)
+			{
+				List<String> sv = samples(f.type, depth + 1);
+
+				if (sv == null || sv.isEmpty())
+				{
+					return null;
+				}
+
+				sb.append(sep + sv.get(0));
+				sep = ", ";
+			}
+
+			TCNameToken name = rtype.name;
+			String mk = name.getModule().equals(module.name.getName()) ?
+				name.getName() : name.getModule() + "`" + name.getName();
+			list.add("mk_" + mk + "(" + sb + ")");
+		}
+		else
+		{
+			return null;
+		}
+
+		return list;
+	}
+
+	private void add(List<String> list, String... values)
+	{
+		for (String v: values)
+		{
+			list.add(v);
+		}
+	}
+
+	/*
+	 * Utilities.
+	 */
+
+	private String call(TCExplicitFunctionDefinition def, String[] args)
+	{
+		return generator.javaName(def.name.getName()) + "(" + join(args, "", ", ") + ")";
+	}
+
+	private String list(TCExpressionList list)
+	{
+		StringBuilder sb = new StringBuilder();
+		String sep = "";
+
+		for (TCExpression e: list)
+		{
+			sb.append(sep + exp(e));
+			sep = ", ";
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Return the name of a static final field holding a constant value, which
+	 * is defined the first time it is used.
+	 */
+	private String constant(String type, String value)
+	{
+		String name = constantNames.get(value);
+
+		if (name == null)
+		{
+			name = (type.equals("Type") ? "T" : type.equals("Pattern") ? "P" : "C") + "$" + (++counter);
+			constants.line("private static final " + type + " " + name + " = " + value + ";");
+			constantNames.put(value, name);
+		}
+
+		return name;
+	}
+
+	/**
+	 * Return the name of a constant Func that calls a function.
+	 */
+	private String funcConstant(String module, String vdmName, int arity)
+	{
+		String target = qualify(module, generator.javaName(vdmName));
+		String key = "Func:" + target;
+		String name = constantNames.get(key);
+
+		if (name == null)
+		{
+			name = "F$" + (++counter);
+			String[] args = new String[arity];
+
+			for (int i=0; i<arity; i++)
+			{
+				args[i] = "args[" + i + "]";
+			}
+
+			constants.line("private static final Func " + name + " = new Func(" + quote(vdmName) + ")");
+			constants.line("{");
+			constants.line("\t@Override");
+			constants.line("\tpublic Object apply(Object... args)");
+			constants.line("\t{");
+			constants.line("\t\treturn " + target + "(" + join(args, "", ", ") + ");");
+			constants.line("\t}");
+			constants.line("};");
+			constantNames.put(key, name);
+		}
+
+		return name;
+	}
+
+	private String qualify(String module, String member)
+	{
+		if (module.equals(this.module.name.getName()))
+		{
+			return member;
+		}
+
+		return generator.className(module) + "." + member;
+	}
+
+	private String moduleOf(TCDefinition def, TCNameToken name)
+	{
+		if (def.location != null && def.location.module != null)
+		{
+			return def.location.module;
+		}
+
+		return name.getModule();
+	}
+
+	private String helperName(String kind)
+	{
+		return kind + "$" + (++counter);
+	}
+
+	private String temp(String prefix)
+	{
+		return prefix + (++counter);
+	}
+
+	/**
+	 * Add a local name to the scope, returning a Java name that is unique in
+	 * the scope.
+	 */
+	private String push(String vdmName)
+	{
+		String base = generator.javaName(vdmName);
+		String name = base;
+		int n = 0;
+
+		while (isJavaLocal(name))
+		{
+			name = base + "$" + (++n);
+		}
+
+		scope.add(new String[] { vdmName, name });
+		return name;
+	}
+
+	private boolean isJavaLocal(String name)
+	{
+		for (String[] pair: scope)
+		{
+			if (pair[1].equals(name))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Names may be local if they are qualified by the current module. Note
+	 * that the type checker makes most names explicit.
+	 */
+	private boolean isLocal(TCNameToken name)
+	{
+		return name.getModule().equals(module.name.getName());
+	}
+
+	private String lookup(String vdmName)
+	{
+		for (int i = scope.size() - 1; i >= 0; i--)
+		{
+			if (scope.get(i)[0].equals(vdmName))
+			{
+				return scope.get(i)[1];
+			}
+		}
+
+		return null;
+	}
+
+	private String[] scopeNames()
+	{
+		String[] names = new String[scope.size()];
+
+		for (int i=0; i<names.length; i++)
+		{
+			names[i] = scope.get(i)[1];
+		}
+
+		return names;
+	}
+
+	private void reset(int mark)
+	{
+		while (scope.size() > mark)
+		{
+			scope.remove(scope.size() - 1);
+		}
+	}
+
+	private String unsupported(LexLocation location, String what)
+	{
+		warning(location, what + " is not supported");
+		return "VDM.unsupported(0, " + quote(what + " is not supported") + ")";
+	}
+
+	private void warning(LexLocation location, String message)
+	{
+		generator.warning(location, message);
+	}
+
+	private static String join(String[] items, String prefix, String separator)
+	{
+		StringBuilder sb = new StringBuilder();
+		String sep = "";
+
+		for (String item: items)
+		{
+			sb.append(sep + prefix + item);
+			sep = separator;
+		}
+
+		return sb.toString();
+	}
+
+	static String quote(String s)
+	{
+		StringBuilder sb = new StringBuilder("\"");
+
+		for (char c: s.toCharArray())
+		{
+			if (c == '"' || c == '\\')
+			{
+				sb.append('\\');
+				sb.append(c);
+			}
+			else if (c < ' ' || c > '~')
+			{
+				sb.append(String.format("\\u%04x", (int)c));
+			}
+			else
+			{
+				sb.append(c);
+			}
+		}
+
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.messages.VDMMessage;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+/**
+ * Parse and type check a VDM-SL specification, for the generator and the
+ * differential harness.
+ */
+public class Specification
+{
+	private final TCModuleList checkedModules;
+
+	public Specification(List<File> files) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+		ASTModuleList parsedModules = new ASTModuleList();
+		String charset = Charset.defaultCharset().name();
+
+		for (File file: files)
+		{
+			LexTokenReader lexer = new LexTokenReader(file, Settings.dialect, charset);
+			ModuleReader reader = new ModuleReader(lexer);
+			parsedModules.addAll(reader.readModules());
+
+			if (reader.getErrorCount() > 0)
+			{
+				printMessages(reader.getErrors());
+				throw new Exception("Syntax errors in " + file);
+			}
+		}
+
+		checkedModules = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsedModules);
+		TypeChecker checker = new ModuleTypeChecker(checkedModules);
+		checker.typeCheck();
+
+		if (ModuleTypeChecker.getErrorCount() > 0)
+		{
+			printMessages(ModuleTypeChecker.getErrors());
+			throw new Exception("Type errors in specification");
+		}
+	}
+
+	public TCModuleList getModules()
+	{
+		return checkedModules;
+	}
+
+	/**
+	 * Create and initialize an interpreter for the specification.
+	 */
+	public ModuleInterpreter getInterpreter() throws Exception
+	{
+		INModuleList executableModules = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checkedModules);
+		ModuleInterpreter interpreter = new ModuleInterpreter(executableModules, checkedModules);
+		interpreter.init();
+		return interpreter;
+	}
+
+	private void printMessages(List<? extends VDMMessage> messages)
+	{
+		for (VDMMessage message: messages)
+		{
+			System.err.println(message);
+		}
+	}
+}
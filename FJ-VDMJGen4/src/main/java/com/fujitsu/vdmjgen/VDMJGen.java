@@ -0,0 +1,112 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The command line entry point for the generator:
+ *
+ * VDMJGen [-o <output dir>] [-p <package>] <VDM-SL files>
+ */
+public class VDMJGen
+{
+	public static void main(String[] args) throws Exception
+	{
+		File outdir = new File(".");
+		String packageName = null;
+		List<File> files = new ArrayList<File>();
+
+		for (int i=0; i<args.length; i++)
+		{
+			if (args[i].equals("-o") && i < args.length - 1)
+			{
+				outdir = new File(args[++i]);
+			}
+			else if (args[i].equals("-p") && i < args.length - 1)
+			{
+				packageName = args[++i];
+			}
+			else if (args[i].startsWith("-"))
+			{
+				usage("Unknown option " + args[i]);
+			}
+			else
+			{
+				files.add(new File(args[i]));
+			}
+		}
+
+		if (files.isEmpty())
+		{
+			usage("No VDM-SL files");
+		}
+
+		Specification spec = new Specification(files);
+		JavaGenerator generator = new JavaGenerator(spec.getModules(), packageName);
+		Map<String, String> classes = generator.generate();
+
+		for (String warning: generator.getWarnings())
+		{
+			System.err.println(warning);
+		}
+
+		write(outdir, packageName, classes);
+		System.out.println("Generated " + classes.size() + " classes in " + outdir);
+	}
+
+	/**
+	 * Write generated classes to their package directory below a root.
+	 */
+	public static List<File> write(File root, String packageName, Map<String, String> classes) throws Exception
+	{
+		File dir = (packageName == null) ? root : new File(root, packageName.replace('.', File.separatorChar));
+		List<File> written = new ArrayList<File>();
+		dir.mkdirs();
+
+		for (Map.Entry<String, String> entry: classes.entrySet())
+		{
+			File file = new File(dir, entry.getKey() + ".java");
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+			out.print(entry.getValue());
+			out.close();
+			written.add(file);
+		}
+
+		return written;
+	}
+
+	private static void usage(String message)
+	{
+		System.err.println(message);
+		System.err.println("Usage: VDMJGen [-o <output dir>] [-p <package>] <VDM-SL files>");
+		System.exit(1);
+	}
+}
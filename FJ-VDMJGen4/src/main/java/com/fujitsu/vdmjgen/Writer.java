@@ -0,0 +1,99 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+/**
+ * A simple buffer for indented lines of generated Java.
+ */
+class Writer
+{
+	private final StringBuilder sb = new StringBuilder();
+	private int indent;
+
+	public Writer(int indent)
+	{
+		this.indent = indent;
+	}
+
+	public void line(String text)
+	{
+		if (text.length() > 0)
+		{
+			for (int i=0; i<indent; i++)
+			{
+				sb.append('\t');
+			}
+
+			sb.append(text);
+		}
+
+		sb.append('\n');
+	}
+
+	public void blank()
+	{
+		line("");
+	}
+
+	public void open(String header)
+	{
+		if (header != null)
+		{
+			line(header);
+		}
+
+		line("{");
+		indent++;
+	}
+
+	public void close()
+	{
+		close("}");
+	}
+
+	public void close(String text)
+	{
+		indent--;
+		line(text);
+	}
+
+	/**
+	 * Append the text of another Writer, which has its own indentation.
+	 */
+	public void append(Writer other)
+	{
+		sb.append(other.sb);
+	}
+
+	public int getIndent()
+	{
+		return indent;
+	}
+
+	@Override
+	public String toString()
+	{
+		return sb.toString();
+	}
+}
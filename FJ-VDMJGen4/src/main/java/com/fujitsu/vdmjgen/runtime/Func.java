@@ -0,0 +1,46 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+/**
+ * A VDM function value, such as a lambda expression or a function that is
+ * passed as an argument. Generated code creates anonymous subclasses.
+ */
+abstract public class Func
+{
+	private final String name;
+
+	protected Func(String name)
+	{
+		this.name = name;
+	}
+
+	abstract public Object apply(Object... args);
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
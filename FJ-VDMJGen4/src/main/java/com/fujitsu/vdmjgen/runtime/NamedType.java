@@ -0,0 +1,72 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+/**
+ * A runtime descriptor for a named VDM type, like "T = nat inv t == t &lt; 10".
+ * The base type and invariant are defined after construction, so that named
+ * types can refer to each other recursively.
+ */
+public class NamedType extends Type
+{
+	public final String name;
+	private Type base = ANY;
+	private Func invariant = null;
+
+	public NamedType(String name)
+	{
+		this.name = name;
+	}
+
+	public void define(Type base, Func invariant)
+	{
+		this.base = base;
+		this.invariant = invariant;
+	}
+
+	@Override
+	public boolean is(Object value)
+	{
+		return base.is(value) && (invariant == null || VDM.bool(invariant.apply(value)));
+	}
+
+	@Override
+	public Object check(Object value)
+	{
+		base.check(value);
+
+		if (invariant != null && !VDM.bool(invariant.apply(value)))
+		{
+			throw new VDMException(4060, "Type invariant violated for " + name);
+		}
+
+		return value;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
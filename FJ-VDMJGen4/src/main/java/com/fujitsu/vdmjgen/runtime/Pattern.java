@@ -0,0 +1,415 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A VDM pattern, which matches a value and binds its identifiers to slots in
+ * an array. Generated code allocates one slot per identifier in the pattern.
+ * Like the interpreter, a pattern may match a value in several ways (eg. a ^ b)
+ * and the first successful match is used.
+ */
+abstract public class Pattern
+{
+	/** A slot that has no value yet, distinct from nil */
+	private static final Object UNBOUND = new Object();
+
+	/** The length of a sequence pattern that can match any length */
+	protected static final int ANY = -1;
+
+	private final int error;
+	private final String message;
+
+	protected Pattern(int error, String message)
+	{
+		this.error = error;
+		this.message = message;
+	}
+
+	/**
+	 * Match a value, setting the slots if the match succeeds.
+	 */
+	public boolean match(Object value, Object[] slots)
+	{
+		Arrays.fill(slots, UNBOUND);
+		List<Object[]> all = matches(value, slots);
+
+		if (all.isEmpty())
+		{
+			return false;
+		}
+
+		System.arraycopy(all.get(0), 0, slots, 0, slots.length);
+		return true;
+	}
+
+	/**
+	 * Match a value, setting the slots, or raise an error if it does not match.
+	 */
+	public void bind(Object value, Object[] slots)
+	{
+		if (!match(value, slots))
+		{
+			throw new VDMException(error, message);
+		}
+	}
+
+	/**
+	 * Return every way of extending the slots passed to match the value. The
+	 * slots passed are not changed.
+	 */
+	abstract protected List<Object[]> matches(Object value, Object[] slots);
+
+	/**
+	 * The fixed length of sequence value that this pattern matches, or ANY.
+	 */
+	protected int length()
+	{
+		return ANY;
+	}
+
+	public static Pattern id(int slot)
+	{
+		return new Identifier(slot);
+	}
+
+	public static Pattern ignore()
+	{
+		return new Ignore();
+	}
+
+	public static Pattern value(Object value)
+	{
+		return new Literal(value);
+	}
+
+	public static Pattern tuple(Pattern... plist)
+	{
+		return new TuplePattern(plist);
+	}
+
+	public static Pattern record(RecordType type, Pattern... plist)
+	{
+		return new RecordPattern(type, plist);
+	}
+
+	public static Pattern seq(Pattern... plist)
+	{
+		return new SeqPattern(plist);
+	}
+
+	public static Pattern concat(Pattern left, Pattern right)
+	{
+		return new ConcatPattern(left, right);
+	}
+
+	/**
+	 * Match a list of values to a list of patterns, all of which must match.
+	 */
+	private static List<Object[]> matchAll(Pattern[] plist, Object[] values, Object[] slots)
+	{
+		List<Object[]> states = Collections.singletonList(slots);
+
+		for (int i=0; i<plist.length && !states.isEmpty(); i++)
+		{
+			List<Object[]> next = new ArrayList<Object[]>();
+
+			for (Object[] state: states)
+			{
+				next.addAll(plist[i].matches(values[i], state));
+			}
+
+			states = next;
+		}
+
+		return states;
+	}
+
+	private static class Identifier extends Pattern
+	{
+		private final int slot;
+
+		public Identifier(int slot)
+		{
+			super(4087, "Pattern match failed");
+			this.slot = slot;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			if (slots[slot] == UNBOUND)
+			{
+				Object[] result = slots.clone();
+				result[slot] = value;
+				return Collections.singletonList(result);
+			}
+			else if (VDM.equals(slots[slot], value))
+			{
+				return Collections.singletonList(slots);
+			}
+
+			return Collections.emptyList();
+		}
+	}
+
+	private static class Ignore extends Pattern
+	{
+		public Ignore()
+		{
+			super(4087, "Pattern match failed");
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			return Collections.singletonList(slots);
+		}
+	}
+
+	private static class Literal extends Pattern
+	{
+		private final Object value;
+
+		public Literal(Object value)
+		{
+			super(4110, "Expression pattern match failed");
+			this.value = value;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object v, Object[] slots)
+		{
+			if (VDM.equals(value, v))
+			{
+				return Collections.singletonList(slots);
+			}
+
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected int length()
+		{
+			return (value instanceof VDMSeq) ? ((VDMSeq)value).size() : ANY;
+		}
+	}
+
+	private static class TuplePattern extends Pattern
+	{
+		private final Pattern[] plist;
+
+		public TuplePattern(Pattern[] plist)
+		{
+			super(4123, "Values do not match tuple pattern");
+			this.plist = plist;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			if (value instanceof Tuple)
+			{
+				Tuple tuple = (Tuple)value;
+
+				if (tuple.size() == plist.length)
+				{
+					Object[] values = new Object[plist.length];
+
+					for (int i=0; i<values.length; i++)
+					{
+						values[i] = tuple.field(i + 1);
+					}
+
+					return matchAll(plist, values, slots);
+				}
+			}
+
+			return Collections.emptyList();
+		}
+	}
+
+	private static class RecordPattern extends Pattern
+	{
+		private final RecordType type;
+		private final Pattern[] plist;
+
+		public RecordPattern(RecordType type, Pattern[] plist)
+		{
+			super(4116, "Values do not match record pattern");
+			this.type = type;
+			this.plist = plist;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			if (value instanceof Record)
+			{
+				Record record = (Record)value;
+
+				if (record.type.equals(type))
+				{
+					Object[] values = new Object[plist.length];
+
+					for (int i=0; i<values.length; i++)
+					{
+						values[i] = record.field(i);
+					}
+
+					return matchAll(plist, values, slots);
+				}
+			}
+
+			return Collections.emptyList();
+		}
+	}
+
+	private static class SeqPattern extends Pattern
+	{
+		private final Pattern[] plist;
+
+		public SeqPattern(Pattern[] plist)
+		{
+			super(4118, "Values do not match sequence pattern");
+			this.plist = plist;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			if (value instanceof VDMSeq)
+			{
+				VDMSeq seq = (VDMSeq)value;
+
+				if (seq.size() == plist.length)
+				{
+					Object[] values = new Object[plist.length];
+
+					for (int i=0; i<values.length; i++)
+					{
+						values[i] = seq.get(i);
+					}
+
+					return matchAll(plist, values, slots);
+				}
+			}
+
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected int length()
+		{
+			return plist.length;
+		}
+	}
+
+	private static class ConcatPattern extends Pattern
+	{
+		private final Pattern left;
+		private final Pattern right;
+
+		public ConcatPattern(Pattern left, Pattern right)
+		{
+			super(4109, "Values do not match concatenation pattern");
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		protected List<Object[]> matches(Object value, Object[] slots)
+		{
+			if (!(value instanceof VDMSeq))
+			{
+				return Collections.emptyList();
+			}
+
+			VDMSeq seq = (VDMSeq)value;
+			int llen = left.length();
+			int rlen = right.length();
+			int size = seq.size();
+			List<Integer> leftSizes = new ArrayList<Integer>();
+
+			// The splits are tried in the same order as the interpreter
+
+			if (llen == ANY && rlen == ANY)
+			{
+				if (size > 0)
+				{
+					int half = (size % 2 == 1) ? size/2 + 1 : size/2;
+					if (half > 0) leftSizes.add(half);
+
+					for (int delta=1; half - delta > 0; delta++)
+					{
+						leftSizes.add(half + delta);
+						leftSizes.add(half - delta);
+					}
+
+					if (size % 2 == 0) leftSizes.add(size);
+					leftSizes.add(0);
+				}
+			}
+			else if (llen == ANY)
+			{
+				if (rlen <= size) leftSizes.add(size - rlen);
+			}
+			else if (rlen == ANY)
+			{
+				if (llen <= size) leftSizes.add(llen);
+			}
+			else if (llen + rlen == size)
+			{
+				leftSizes.add(llen);
+			}
+
+			List<Object[]> results = new ArrayList<Object[]>();
+
+			for (int lsize: leftSizes)
+			{
+				VDMSeq head = seq.subseq(1L, (long)lsize);
+				VDMSeq tail = seq.subseq((long)lsize + 1, (long)size);
+
+				for (Object[] state: left.matches(head, slots))
+				{
+					results.addAll(right.matches(tail, state));
+				}
+			}
+
+			return results;
+		}
+
+		@Override
+		protected int length()
+		{
+			int llen = left.length();
+			int rlen = right.length();
+			return (llen == ANY || rlen == ANY) ? ANY : llen + rlen;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A VDM quote value, like &lt;RED&gt;. Quotes are interned, so that equal quotes
+ * are the same object.
+ */
+public final class Quote implements Comparable<Quote>
+{
+	private static final Map<String, Quote> quotes = new HashMap<String, Quote>();
+	public final String name;
+
+	private Quote(String name)
+	{
+		this.name = name;
+	}
+
+	public static synchronized Quote valueOf(String name)
+	{
+		Quote q = quotes.get(name);
+
+		if (q == null)
+		{
+			q = new Quote(name);
+			quotes.put(name, q);
+		}
+
+		return q;
+	}
+
+	public int compareTo(Quote other)
+	{
+		return name.compareTo(other.name);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "<" + name + ">";
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.Arrays;
+
+/**
+ * An immutable VDM record value. These are created by RecordType.make, which
+ * checks the field types and invariant, as mk_R does.
+ */
+public final class Record
+{
+	public final RecordType type;
+	private final Object[] values;
+
+	Record(RecordType type, Object[] values)
+	{
+		this.type = type;
+		this.values = values;
+	}
+
+	public Object field(int index)
+	{
+		return values[index];
+	}
+
+	public Object field(String name)
+	{
+		return values[type.indexOf(name)];
+	}
+
+	/**
+	 * Return a copy of this record with some fields changed, as mu(r, ...).
+	 * The arguments are alternately field names and values.
+	 */
+	public Record modify(Object... changes)
+	{
+		Object[] copy = values.clone();
+
+		for (int i=0; i<changes.length; i += 2)
+		{
+			copy[type.indexOf((String)changes[i])] = changes[i + 1];
+		}
+
+		return type.make(copy);
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof Record)
+		{
+			Record ro = (Record)other;
+			return ro.type.equals(type) && Arrays.equals(values, ro.values);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return type.hashCode() + Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "mk_" + type.name + "(" + VDM.toString(values) + ")";
+	}
+}
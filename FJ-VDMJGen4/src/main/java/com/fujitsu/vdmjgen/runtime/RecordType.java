@@ -0,0 +1,150 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.Arrays;
+
+/**
+ * A runtime descriptor for a VDM record type, like "R :: a:nat b:bool". Two
+ * record types are the same if they have the same qualified name. The field
+ * types and invariant are defined after construction, so that record types
+ * can refer to each other recursively.
+ */
+public class RecordType extends Type
+{
+	public final String module;
+	public final String name;
+	private final String[] fields;
+	private Type[] types;
+	private Func invariant = null;
+
+	public RecordType(String module, String name, String... fields)
+	{
+		this.module = module;
+		this.name = name;
+		this.fields = fields;
+		this.types = new Type[fields.length];
+		Arrays.fill(types, ANY);
+	}
+
+	public void define(Type[] types, Func invariant)
+	{
+		this.types = types;
+		this.invariant = invariant;
+	}
+
+	/**
+	 * Create a record value, as mk_R(values).
+	 */
+	public Record make(Object... values)
+	{
+		if (values.length != fields.length)
+		{
+			throw new VDMException(4078, "Wrong number of fields for " + name);
+		}
+
+		for (int i=0; i<values.length; i++)
+		{
+			types[i].check(values[i]);
+		}
+
+		Record record = new Record(this, values);
+
+		if (invariant != null && !VDM.bool(invariant.apply(record)))
+		{
+			throw new VDMException(4079, "Type invariant violated by mk_" + name + " arguments");
+		}
+
+		return record;
+	}
+
+	public int fieldCount()
+	{
+		return fields.length;
+	}
+
+	/**
+	 * The index of a field within the record, numbered from zero.
+	 */
+	public int indexOf(String field)
+	{
+		for (int i=0; i<fields.length; i++)
+		{
+			if (fields[i].equals(field))
+			{
+				return i;
+			}
+		}
+
+		throw new VDMException(4006, "Type " + name + " has no field " + field);
+	}
+
+	@Override
+	public boolean is(Object value)
+	{
+		if (value instanceof Record)
+		{
+			Record record = (Record)value;
+
+			if (record.type.equals(this))
+			{
+				for (int i=0; i<fields.length; i++)
+				{
+					if (!types[i].is(record.field(i)))
+					{
+						return false;
+					}
+				}
+
+				return invariant == null || VDM.bool(invariant.apply(value));
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof RecordType)
+		{
+			RecordType rt = (RecordType)other;
+			return rt.name.equals(name) && rt.module.equals(module);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.Arrays;
+
+/**
+ * An immutable VDM tuple value, created by mk_(a, b, ...).
+ */
+public final class Tuple
+{
+	private final Object[] values;
+
+	public Tuple(Object... values)
+	{
+		this.values = values;
+	}
+
+	public int size()
+	{
+		return values.length;
+	}
+
+	/**
+	 * Return a field of the tuple, numbered from 1 as for t.#n.
+	 */
+	public Object field(int n)
+	{
+		if (n < 1 || n > values.length)
+		{
+			throw new VDMException(4007, "No such field in tuple: #" + n);
+		}
+
+		return values[n - 1];
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof Tuple && Arrays.equals(values, ((Tuple)other).values);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "mk_(" + VDM.toString(values) + ")";
+	}
+}
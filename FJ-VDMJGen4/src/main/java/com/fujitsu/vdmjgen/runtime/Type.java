@@ -0,0 +1,442 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * A runtime descriptor for a VDM type. Generated code uses these to check the
+ * arguments and results of functions, and to implement is_ expressions, in the
+ * same places that the interpreter converts a value to a type.
+ */
+abstract public class Type
+{
+	public static final Type BOOL = new Basic("bool");
+	public static final Type NAT1 = new Basic("nat1");
+	public static final Type NAT = new Basic("nat");
+	public static final Type INT = new Basic("int");
+	public static final Type RAT = new Basic("rat");
+	public static final Type REAL = new Basic("real");
+	public static final Type CHAR = new Basic("char");
+	public static final Type TOKEN = new Basic("token");
+	public static final Type ANY = new Basic("?");
+
+	/**
+	 * True if the value is a member of the type, including any invariants.
+	 */
+	abstract public boolean is(Object value);
+
+	/**
+	 * Return the value if it is a member of the type, else raise an error.
+	 */
+	public Object check(Object value)
+	{
+		if (!is(value))
+		{
+			throw new VDMException(4087,
+				"Cannot convert " + VDM.toString(value) + " (" + VDM.kind(value) + ") to " + this);
+		}
+
+		return value;
+	}
+
+	public static Type quote(String name)
+	{
+		return new QuoteType(Quote.valueOf(name));
+	}
+
+	public static Type optional(Type type)
+	{
+		return new Optional(type);
+	}
+
+	public static Type union(Type... types)
+	{
+		return new Union(types);
+	}
+
+	public static Type product(Type... types)
+	{
+		return new Product(types);
+	}
+
+	public static Type seq(Type of)
+	{
+		return new SeqType(of, false);
+	}
+
+	public static Type seq1(Type of)
+	{
+		return new SeqType(of, true);
+	}
+
+	public static Type set(Type of)
+	{
+		return new SetType(of, false);
+	}
+
+	public static Type set1(Type of)
+	{
+		return new SetType(of, true);
+	}
+
+	public static Type map(Type from, Type to)
+	{
+		return new MapType(from, to, false);
+	}
+
+	public static Type inmap(Type from, Type to)
+	{
+		return new MapType(from, to, true);
+	}
+
+	public static Type function(String signature)
+	{
+		return new FunctionType(signature);
+	}
+
+	private static class Basic extends Type
+	{
+		private final String name;
+
+		public Basic(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			if (this == ANY)
+			{
+				return true;
+			}
+			else if (this == BOOL)
+			{
+				return value instanceof Boolean;
+			}
+			else if (this == CHAR)
+			{
+				return value instanceof Character;
+			}
+			else if (this == TOKEN)
+			{
+				return value instanceof Token;
+			}
+			else if (this == REAL || this == RAT)
+			{
+				return value instanceof Number;
+			}
+			else if (value instanceof Long)
+			{
+				long v = (Long)value;
+				return this == INT || (this == NAT ? v >= 0 : v > 0);
+			}
+			else if (value instanceof BigInteger)
+			{
+				int sign = ((BigInteger)value).signum();
+				return this == INT || (this == NAT ? sign >= 0 : sign > 0);
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	private static class QuoteType extends Type
+	{
+		private final Quote quote;
+
+		public QuoteType(Quote quote)
+		{
+			this.quote = quote;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			return value == quote;
+		}
+
+		@Override
+		public String toString()
+		{
+			return quote.toString();
+		}
+	}
+
+	private static class Optional extends Type
+	{
+		private final Type type;
+
+		public Optional(Type type)
+		{
+			this.type = type;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			return value == null || type.is(value);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[" + type + "]";
+		}
+	}
+
+	private static class Union extends Type
+	{
+		private final Type[] types;
+
+		public Union(Type[] types)
+		{
+			this.types = types;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			for (Type t: types)
+			{
+				if (t.is(value))
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "(" + VDM.toString(types, " | ") + ")";
+		}
+	}
+
+	private static class Product extends Type
+	{
+		private final Type[] types;
+
+		public Product(Type[] types)
+		{
+			this.types = types;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			if (value instanceof Tuple)
+			{
+				Tuple tuple = (Tuple)value;
+
+				if (tuple.size() == types.length)
+				{
+					for (int i=0; i<types.length; i++)
+					{
+						if (!types[i].is(tuple.field(i + 1)))
+						{
+							return false;
+						}
+					}
+
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "(" + VDM.toString(types, " * ") + ")";
+		}
+	}
+
+	private static class SeqType extends Type
+	{
+		private final Type of;
+		private final boolean nonEmpty;
+
+		public SeqType(Type of, boolean nonEmpty)
+		{
+			this.of = of;
+			this.nonEmpty = nonEmpty;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			if (value instanceof VDMSeq)
+			{
+				VDMSeq seq = (VDMSeq)value;
+
+				if (nonEmpty && seq.isEmpty())
+				{
+					return false;
+				}
+
+				for (Object v: seq)
+				{
+					if (!of.is(v))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return (nonEmpty ? "seq1 of " : "seq of ") + of;
+		}
+	}
+
+	private static class SetType extends Type
+	{
+		private final Type of;
+		private final boolean nonEmpty;
+
+		public SetType(Type of, boolean nonEmpty)
+		{
+			this.of = of;
+			this.nonEmpty = nonEmpty;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			if (value instanceof VDMSet)
+			{
+				VDMSet set = (VDMSet)value;
+
+				if (nonEmpty && set.isEmpty())
+				{
+					return false;
+				}
+
+				for (Object v: set)
+				{
+					if (!of.is(v))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return (nonEmpty ? "set1 of " : "set of ") + of;
+		}
+	}
+
+	private static class MapType extends Type
+	{
+		private final Type from;
+		private final Type to;
+		private final boolean injective;
+
+		public MapType(Type from, Type to, boolean injective)
+		{
+			this.from = from;
+			this.to = to;
+			this.injective = injective;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			if (value instanceof VDMMap)
+			{
+				VDMMap map = (VDMMap)value;
+
+				if (injective && map.rng().size() != map.size())
+				{
+					return false;
+				}
+
+				for (Map.Entry<Object, Object> e: map.entries())
+				{
+					if (!from.is(e.getKey()) || !to.is(e.getValue()))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public String toString()
+		{
+			return (injective ? "inmap " : "map ") + from + " to " + to;
+		}
+	}
+
+	private static class FunctionType extends Type
+	{
+		private final String signature;
+
+		public FunctionType(String signature)
+		{
+			this.signature = signature;
+		}
+
+		@Override
+		public boolean is(Object value)
+		{
+			return value instanceof Func;	// Parameter types are checked by the function
+		}
+
+		@Override
+		public String toString()
+		{
+			return signature;
+		}
+	}
+}
@@ -0,0 +1,793 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Static operations on the values of generated code. VDM values are held as
+ * plain Objects, as follows:
+ *
+ * <pre>
+ * bool            Boolean
+ * nat, int etc.   Long, or BigInteger if the value does not fit in a Long
+ * real, rat       Double, for values that are not integral
+ * char            Character
+ * nil             null
+ * quote           Quote
+ * token           Token
+ * seq, set, map   VDMSeq, VDMSet, VDMMap
+ * tuple, record   Tuple, Record
+ * function        Func
+ * </pre>
+ *
+ * Numeric results are always normalised to this form, as the interpreter's
+ * NumericValue.valueOf methods do, so that equal numbers are equal objects.
+ */
+public class VDM
+{
+	private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+	/**
+	 * A total order over all values, used to keep sets and maps sorted.
+	 */
+	public static final Comparator<Object> ORDER = new Comparator<Object>()
+	{
+		public int compare(Object a, Object b)
+		{
+			return VDM.compare(a, b);
+		}
+	};
+
+	private VDM()
+	{
+		// Static methods only
+	}
+
+	/**
+	 * Normalise a real, as NumericValue.valueOf(double).
+	 */
+	public static Object real(double d)
+	{
+		if (Double.isInfinite(d) || Double.isNaN(d))
+		{
+			throw new VDMException(4134, "Infinite or NaN trouble");
+		}
+
+		long rounded = Math.round(d);
+
+		if (rounded != d)
+		{
+			return d;
+		}
+
+		return rounded;
+	}
+
+	/**
+	 * Normalise an integer, as NumericValue.valueOf(BigInteger).
+	 */
+	public static Object integer(BigInteger b)
+	{
+		if (b.compareTo(LONG_MIN) >= 0 && b.compareTo(LONG_MAX) <= 0)
+		{
+			return b.longValue();
+		}
+
+		return b;
+	}
+
+	public static boolean bool(Object v)
+	{
+		if (v instanceof Boolean)
+		{
+			return (Boolean)v;
+		}
+
+		throw new VDMException(4094, "Can't get bool value of " + kind(v));
+	}
+
+	public static double realValue(Object v)
+	{
+		if (v instanceof Number)
+		{
+			return ((Number)v).doubleValue();
+		}
+
+		throw new VDMException(4089, "Can't get real value of " + kind(v));
+	}
+
+	public static long intValue(Object v)
+	{
+		if (v instanceof Long)
+		{
+			return (Long)v;
+		}
+		else if (v instanceof BigInteger)
+		{
+			throw new VDMException(4169, "Arithmetic overflow: " + v);
+		}
+		else if (v instanceof Double)
+		{
+			throw new VDMException(4075, "Value " + v + " is not an integer");
+		}
+
+		throw new VDMException(4091, "Can't get int value of " + kind(v));
+	}
+
+	private static BigInteger bigValue(Object v)
+	{
+		if (v instanceof Long)
+		{
+			return BigInteger.valueOf((Long)v);
+		}
+		else if (v instanceof BigInteger)
+		{
+			return (BigInteger)v;
+		}
+
+		intValue(v);	// Raises the error
+		return null;
+	}
+
+	private static boolean isInteger(Object v)
+	{
+		return v instanceof Long || v instanceof BigInteger;
+	}
+
+	public static Object add(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long x = (Long)l;
+			long y = (Long)r;
+			long sum = x + y;
+
+			if (((x ^ sum) & (y ^ sum)) >= 0)
+			{
+				return sum;
+			}
+		}
+
+		if (isInteger(l) && isInteger(r))
+		{
+			return integer(bigValue(l).add(bigValue(r)));
+		}
+
+		return real(realValue(l) + realValue(r));
+	}
+
+	public static Object subtract(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long x = (Long)l;
+			long y = (Long)r;
+			long diff = x - y;
+
+			if (((x ^ y) & (x ^ diff)) >= 0)
+			{
+				return diff;
+			}
+		}
+
+		if (isInteger(l) && isInteger(r))
+		{
+			return integer(bigValue(l).subtract(bigValue(r)));
+		}
+
+		return real(realValue(l) - realValue(r));
+	}
+
+	public static Object multiply(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long x = (Long)l;
+			long y = (Long)r;
+			long prod = x * y;
+			long ax = Math.abs(x);
+			long ay = Math.abs(y);
+
+			if (((ax | ay) >>> 31 == 0) ||
+				((y == 0 || prod / y == x) && !(x == Long.MIN_VALUE && y == -1)))
+			{
+				return prod;
+			}
+		}
+
+		if (isInteger(l) && isInteger(r))
+		{
+			return integer(bigValue(l).multiply(bigValue(r)));
+		}
+
+		return real(realValue(l) * realValue(r));
+	}
+
+	public static Object divide(Object l, Object r)
+	{
+		return real(realValue(l) / realValue(r));
+	}
+
+	public static Object div(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long x = (Long)l;
+			long y = (Long)r;
+
+			if (y != 0 && !(x == Long.MIN_VALUE && y == -1))
+			{
+				return x / y;	// Truncates, as div
+			}
+		}
+
+		BigInteger y = bigValue(r);
+
+		if (y.signum() == 0)
+		{
+			throw new VDMException(4134, "Infinite or NaN trouble");
+		}
+
+		return integer(bigValue(l).divide(y));
+	}
+
+	public static Object rem(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long y = (Long)r;
+
+			if (y != 0)
+			{
+				return (Long)l % y;
+			}
+		}
+
+		BigInteger y = bigValue(r);
+
+		if (y.signum() == 0)
+		{
+			throw new VDMException(4134, "Infinite or NaN trouble");
+		}
+
+		return integer(bigValue(l).remainder(y));
+	}
+
+	public static Object mod(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long y = (Long)r;
+
+			if (y != 0)
+			{
+				long mod = (Long)l % y;		// Takes the sign of l, so adjust to the sign of r
+
+				if (mod != 0 && (mod < 0) != (y < 0))
+				{
+					mod = mod + y;
+				}
+
+				return mod;
+			}
+		}
+
+		BigInteger y = bigValue(r);
+
+		if (y.signum() == 0)
+		{
+			throw new VDMException(4134, "Infinite or NaN trouble");
+		}
+
+		BigInteger mod = bigValue(l).remainder(y);
+
+		if (mod.signum() != 0 && mod.signum() != y.signum())
+		{
+			mod = mod.add(y);
+		}
+
+		return integer(mod);
+	}
+
+	/**
+	 * The ** operator, which raises numbers to a power or iterates maps and
+	 * functions.
+	 */
+	public static Object power(Object l, final Object r)
+	{
+		if (l instanceof VDMMap)
+		{
+			return ((VDMMap)l).iterate(intValue(r));
+		}
+		else if (l instanceof Func)
+		{
+			final Func f = (Func)l;
+			final long n = intValue(r);
+
+			return new Func(f + " ** " + n)
+			{
+				@Override
+				public Object apply(Object... args)
+				{
+					Object result = args[0];
+
+					for (long i=0; i<n; i++)
+					{
+						result = f.apply(result);
+					}
+
+					return result;
+				}
+			};
+		}
+		else if (l instanceof Number)
+		{
+			double ld = realValue(l);
+			double rd = realValue(r);
+			double result = Math.pow(ld, rd);
+
+			if (isInteger(l) && isInteger(r) && rd >= 0 && rd <= Integer.MAX_VALUE &&
+				!(result < 9007199254740992.0 && result > -9007199254740992.0))
+			{
+				return integer(bigValue(l).pow((int)rd));
+			}
+
+			return real(result);
+		}
+
+		throw new VDMException(4031, "First arg of '**' must be a map, function or number");
+	}
+
+	public static Object negate(Object v)
+	{
+		if (v instanceof Long && (Long)v != Long.MIN_VALUE)
+		{
+			return -(Long)v;
+		}
+		else if (isInteger(v))
+		{
+			return integer(bigValue(v).negate());
+		}
+
+		return real(-realValue(v));
+	}
+
+	public static Object abs(Object v)
+	{
+		if (v instanceof Long && (Long)v != Long.MIN_VALUE)
+		{
+			return Math.abs((Long)v);
+		}
+		else if (isInteger(v))
+		{
+			return integer(bigValue(v).abs());
+		}
+
+		return real(Math.abs(realValue(v)));
+	}
+
+	public static Object floor(Object v)
+	{
+		if (isInteger(v))
+		{
+			return v;
+		}
+
+		return real(Math.floor(realValue(v)));
+	}
+
+	/**
+	 * Compare two numbers, as the numeric relational operators do.
+	 */
+	public static int compareNumbers(Object l, Object r)
+	{
+		if (l instanceof Long && r instanceof Long)
+		{
+			long x = (Long)l;
+			long y = (Long)r;
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+		else if (isInteger(l) && isInteger(r))
+		{
+			return bigValue(l).compareTo(bigValue(r));
+		}
+
+		double x = realValue(l);
+		double y = realValue(r);
+		return x < y ? -1 : (x == y ? 0 : 1);
+	}
+
+	public static boolean equals(Object l, Object r)
+	{
+		return (l == null) ? r == null : l.equals(r);
+	}
+
+	public static int hashCode(Object v)
+	{
+		return (v == null) ? 0 : v.hashCode();
+	}
+
+	public static VDMSeq seq(Object v)
+	{
+		if (v instanceof VDMSeq)
+		{
+			return (VDMSeq)v;
+		}
+
+		throw new VDMException(4099, "Can't get sequence value of " + kind(v));
+	}
+
+	public static VDMSet set(Object v)
+	{
+		if (v instanceof VDMSet)
+		{
+			return (VDMSet)v;
+		}
+
+		throw new VDMException(4100, "Can't get set value of " + kind(v));
+	}
+
+	public static VDMMap map(Object v)
+	{
+		if (v instanceof VDMMap)
+		{
+			return (VDMMap)v;
+		}
+
+		throw new VDMException(4102, "Can't get map value of " + kind(v));
+	}
+
+	public static Tuple tuple(Object v)
+	{
+		if (v instanceof Tuple)
+		{
+			return (Tuple)v;
+		}
+
+		throw new VDMException(4096, "Can't get tuple value of " + kind(v));
+	}
+
+	public static Record record(Object v)
+	{
+		if (v instanceof Record)
+		{
+			return (Record)v;
+		}
+
+		throw new VDMException(4097, "Can't get record value of " + kind(v));
+	}
+
+	public static Func func(Object v)
+	{
+		if (v instanceof Func)
+		{
+			return (Func)v;
+		}
+
+		throw new VDMException(4103, "Can't get function value of " + kind(v));
+	}
+
+	/**
+	 * Apply a sequence, map or function value to its arguments.
+	 */
+	public static Object apply(Object root, Object... args)
+	{
+		if (root instanceof VDMSeq)
+		{
+			return ((VDMSeq)root).index(args[0]);
+		}
+		else if (root instanceof VDMMap)
+		{
+			return ((VDMMap)root).get(args[0]);
+		}
+		else if (root instanceof Func)
+		{
+			return ((Func)root).apply(args);
+		}
+
+		throw new VDMException(4003, "Value " + toString(root) + " cannot be applied");
+	}
+
+	/**
+	 * The ++ operator, which overrides maps or sequences.
+	 */
+	public static Object override(Object l, Object r)
+	{
+		if (l instanceof VDMSeq)
+		{
+			return ((VDMSeq)l).modify(map(r));
+		}
+
+		return map(l).override(map(r));
+	}
+
+	/**
+	 * The comp operator, which composes maps or functions.
+	 */
+	public static Object compose(Object l, Object r)
+	{
+		if (l instanceof VDMMap)
+		{
+			return ((VDMMap)l).compose(map(r));
+		}
+
+		final Func f1 = func(l);
+		final Func f2 = func(r);
+
+		return new Func(f1 + " comp " + f2)
+		{
+			@Override
+			public Object apply(Object... args)
+			{
+				return f1.apply(f2.apply(args));
+			}
+		};
+	}
+
+	/**
+	 * The "in set" operator.
+	 */
+	public static boolean inSet(Object value, Object set)
+	{
+		return set(set).contains(value);
+	}
+
+	/**
+	 * The <: operator. The arguments are evaluated left to right, so this is
+	 * not generated as a method call on the map.
+	 */
+	public static VDMMap domResTo(Object set, Object map)
+	{
+		return map(map).domResTo(set(set));
+	}
+
+	/**
+	 * The <-: operator.
+	 */
+	public static VDMMap domResBy(Object set, Object map)
+	{
+		return map(map).domResBy(set(set));
+	}
+
+	/**
+	 * Raise an error for a construct that cannot be generated, or which
+	 * cannot be evaluated, like "is not yet specified". This returns Object
+	 * so that it can be used in place of any expression.
+	 */
+	public static Object unsupported(int number, String message)
+	{
+		throw new VDMException(number, message);
+	}
+
+	/**
+	 * A total order over all values. Numbers are ordered numerically, and
+	 * other values of the same kind by their contents.
+	 */
+	public static int compare(Object a, Object b)
+	{
+		if (a == b)
+		{
+			return 0;
+		}
+
+		int ka = rank(a);
+		int kb = rank(b);
+
+		if (ka != kb)
+		{
+			return ka - kb;
+		}
+
+		switch (ka)
+		{
+			case 1:
+				return ((Boolean)a).compareTo((Boolean)b);
+
+			case 2:
+				return compareNumbers(a, b);
+
+			case 3:
+				return ((Character)a).compareTo((Character)b);
+
+			case 4:
+				return ((Quote)a).compareTo((Quote)b);
+
+			case 5:
+				return compare(((Token)a).value, ((Token)b).value);
+
+			case 6:
+				return compareAll(((VDMSeq)a).iterator(), ((VDMSeq)b).iterator());
+
+			case 7:
+			{
+				VDMSet sa = (VDMSet)a;
+				VDMSet sb = (VDMSet)b;
+				int diff = sa.size() - sb.size();
+				return diff != 0 ? diff : compareAll(sa.iterator(), sb.iterator());
+			}
+
+			case 8:
+			{
+				VDMMap ma = (VDMMap)a;
+				VDMMap mb = (VDMMap)b;
+				int diff = ma.size() - mb.size();
+
+				if (diff != 0)
+				{
+					return diff;
+				}
+
+				Iterator<Map.Entry<Object, Object>> ia = ma.entries().iterator();
+				Iterator<Map.Entry<Object, Object>> ib = mb.entries().iterator();
+
+				while (ia.hasNext())
+				{
+					Map.Entry<Object, Object> ea = ia.next();
+					Map.Entry<Object, Object> eb = ib.next();
+					int c = compare(ea.getKey(), eb.getKey());
+
+					if (c == 0)
+					{
+						c = compare(ea.getValue(), eb.getValue());
+					}
+
+					if (c != 0)
+					{
+						return c;
+					}
+				}
+
+				return 0;
+			}
+
+			case 9:
+			{
+				Tuple ta = (Tuple)a;
+				Tuple tb = (Tuple)b;
+				int diff = ta.size() - tb.size();
+
+				for (int i=1; diff == 0 && i <= ta.size(); i++)
+				{
+					diff = compare(ta.field(i), tb.field(i));
+				}
+
+				return diff;
+			}
+
+			case 10:
+			{
+				Record ra = (Record)a;
+				Record rb = (Record)b;
+				int diff = (ra.type.module + "`" + ra.type.name).compareTo(rb.type.module + "`" + rb.type.name);
+
+				for (int i=0; diff == 0 && i < ra.type.fieldCount(); i++)
+				{
+					diff = compare(ra.field(i), rb.field(i));
+				}
+
+				return diff;
+			}
+
+			default:
+			{
+				int diff = a.toString().compareTo(b.toString());
+				return diff != 0 ? diff : System.identityHashCode(a) - System.identityHashCode(b);
+			}
+		}
+	}
+
+	private static int compareAll(Iterator<Object> ia, Iterator<Object> ib)
+	{
+		while (ia.hasNext() && ib.hasNext())
+		{
+			int c = compare(ia.next(), ib.next());
+
+			if (c != 0)
+			{
+				return c;
+			}
+		}
+
+		return ia.hasNext() ? 1 : (ib.hasNext() ? -1 : 0);
+	}
+
+	private static int rank(Object v)
+	{
+		if (v == null)					return 0;
+		else if (v instanceof Boolean)	return 1;
+		else if (v instanceof Number)	return 2;
+		else if (v instanceof Character)return 3;
+		else if (v instanceof Quote)	return 4;
+		else if (v instanceof Token)	return 5;
+		else if (v instanceof VDMSeq)	return 6;
+		else if (v instanceof VDMSet)	return 7;
+		else if (v instanceof VDMMap)	return 8;
+		else if (v instanceof Tuple)	return 9;
+		else if (v instanceof Record)	return 10;
+		else							return 11;
+	}
+
+	/**
+	 * The informal kind of a value, as used in error messages.
+	 */
+	public static String kind(Object v)
+	{
+		if (v == null)					return "nil";
+		else if (v instanceof Boolean)	return "bool";
+		else if (v instanceof Double)	return "real";
+		else if (v instanceof Number)	return "int";
+		else if (v instanceof Character)return "char";
+		else if (v instanceof Quote)	return "quote";
+		else if (v instanceof Token)	return "token";
+		else if (v instanceof VDMSeq)	return "seq";
+		else if (v instanceof VDMSet)	return "set";
+		else if (v instanceof VDMMap)	return "map";
+		else if (v instanceof Tuple)	return "tuple";
+		else if (v instanceof Record)	return ((Record)v).type.name;
+		else if (v instanceof Func)		return "function";
+		else							return v.getClass().getSimpleName();
+	}
+
+	/**
+	 * A value in VDM syntax.
+	 */
+	public static String toString(Object v)
+	{
+		if (v == null)
+		{
+			return "nil";
+		}
+		else if (v instanceof Character)
+		{
+			return "'" + v + "'";
+		}
+
+		return v.toString();
+	}
+
+	public static String toString(Object[] values)
+	{
+		return toString(values, ", ");
+	}
+
+	public static String toString(Object[] values, String separator)
+	{
+		StringBuilder sb = new StringBuilder();
+		String sep = "";
+
+		for (Object v: values)
+		{
+			sb.append(sep);
+			sb.append(toString(v));
+			sep = separator;
+		}
+
+		return sb.toString();
+	}
+}
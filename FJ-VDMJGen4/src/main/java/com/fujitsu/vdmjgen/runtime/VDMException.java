@@ -0,0 +1,46 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+/**
+ * A runtime error raised by generated code. The numbers are the same as those
+ * raised by the VDMJ interpreter for the same error, where there is one.
+ */
+public class VDMException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+	public final int number;
+
+	public VDMException(int number, String message)
+	{
+		super(message);
+		this.number = number;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Error " + number + ": " + getMessage();
+	}
+}
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An immutable VDM map. Operations that change a map return a new one. The
+ * keys are kept in VDM.ORDER, like the sets of the runtime.
+ */
+public final class VDMMap
+{
+	public static final VDMMap EMPTY = new VDMMap(new TreeMap<Object, Object>(VDM.ORDER));
+	private final SortedMap<Object, Object> values;
+
+	private VDMMap(SortedMap<Object, Object> values)
+	{
+		this.values = values;
+	}
+
+	public int size()
+	{
+		return values.size();
+	}
+
+	public Set<Map.Entry<Object, Object>> entries()
+	{
+		return Collections.unmodifiableMap(values).entrySet();
+	}
+
+	public boolean containsKey(Object key)
+	{
+		return values.containsKey(key);
+	}
+
+	/**
+	 * Apply the map to a key, as m(k).
+	 */
+	public Object get(Object key)
+	{
+		Object value = values.get(key);
+
+		if (value == null && !values.containsKey(key))
+		{
+			throw new VDMException(4061, "No such key value in map: " + VDM.toString(key));
+		}
+
+		return value;
+	}
+
+	public VDMSet dom()
+	{
+		return VDMSet.of(values.keySet().toArray());
+	}
+
+	public VDMSet rng()
+	{
+		return VDMSet.of(values.values().toArray());
+	}
+
+	/**
+	 * The map union m1 munion m2, where common keys must map to equal values.
+	 */
+	public VDMMap munion(VDMMap other)
+	{
+		Builder result = new Builder(4021);
+		result.putAll(this);
+		result.putAll(other);
+		return result.build();
+	}
+
+	/**
+	 * The map override m1 ++ m2.
+	 */
+	public VDMMap override(VDMMap other)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(values);
+		result.putAll(other.values);
+		return new VDMMap(result);
+	}
+
+	public VDMMap domResTo(VDMSet set)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			if (set.contains(e.getKey()))
+			{
+				result.put(e.getKey(), e.getValue());
+			}
+		}
+
+		return new VDMMap(result);
+	}
+
+	public VDMMap domResBy(VDMSet set)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			if (!set.contains(e.getKey()))
+			{
+				result.put(e.getKey(), e.getValue());
+			}
+		}
+
+		return new VDMMap(result);
+	}
+
+	public VDMMap rngResTo(VDMSet set)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			if (set.contains(e.getValue()))
+			{
+				result.put(e.getKey(), e.getValue());
+			}
+		}
+
+		return new VDMMap(result);
+	}
+
+	public VDMMap rngResBy(VDMSet set)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			if (!set.contains(e.getValue()))
+			{
+				result.put(e.getKey(), e.getValue());
+			}
+		}
+
+		return new VDMMap(result);
+	}
+
+	/**
+	 * The inverse map, inverse m, which must be injective.
+	 */
+	public VDMMap inverse()
+	{
+		Builder result = new Builder(4012);
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			if (result.map.containsKey(e.getValue()))
+			{
+				throw new VDMException(4012, "Cannot invert non-injective map");
+			}
+
+			result.put(e.getValue(), e.getKey());
+		}
+
+		return result.build();
+	}
+
+	/**
+	 * The map composition, this comp other.
+	 */
+	public VDMMap compose(VDMMap other)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Map.Entry<Object, Object> e: other.values.entrySet())
+		{
+			if (!values.containsKey(e.getValue()))
+			{
+				throw new VDMException(4162, "The RHS range is not a subset of the LHS domain");
+			}
+
+			result.put(e.getKey(), values.get(e.getValue()));
+		}
+
+		return new VDMMap(result);
+	}
+
+	/**
+	 * The map iteration, m ** n.
+	 */
+	public VDMMap iterate(long n)
+	{
+		TreeMap<Object, Object> result = new TreeMap<Object, Object>(VDM.ORDER);
+
+		for (Object k: values.keySet())
+		{
+			Object r = k;
+
+			for (long i=0; i<n; i++)
+			{
+				if (!values.containsKey(r))
+				{
+					throw new VDMException(4133, "Map range is not a subset of its domain: " + VDM.toString(k));
+				}
+
+				r = values.get(r);
+			}
+
+			result.put(k, r);
+		}
+
+		return new VDMMap(result);
+	}
+
+	/**
+	 * The distributed merge of a set of maps, as merge s.
+	 */
+	public static VDMMap merge(VDMSet maps)
+	{
+		Builder result = new Builder(4021);
+
+		for (Object m: maps)
+		{
+			result.putAll(VDM.map(m));
+		}
+
+		return result.build();
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof VDMMap && values.equals(((VDMMap)other).values);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return values.hashCode();
+	}
+
+	@Override
+	public String toString()
+	{
+		if (values.isEmpty())
+		{
+			return "{|->}";
+		}
+
+		StringBuilder sb = new StringBuilder();
+		String sep = "";
+
+		for (Map.Entry<Object, Object> e: values.entrySet())
+		{
+			sb.append(sep);
+			sb.append(VDM.toString(e.getKey()));
+			sb.append(" |-> ");
+			sb.append(VDM.toString(e.getValue()));
+			sep = ", ";
+		}
+
+		return "{" + sb + "}";
+	}
+
+	/**
+	 * Build a map by adding maplets, as a map enumeration or comprehension does.
+	 * Adding a key twice with different values raises the error number given.
+	 */
+	public static class Builder
+	{
+		private final TreeMap<Object, Object> map = new TreeMap<Object, Object>(VDM.ORDER);
+		private final int error;
+
+		public Builder(int error)
+		{
+			this.error = error;
+		}
+
+		public Builder put(Object key, Object value)
+		{
+			if (map.containsKey(key) && !VDM.equals(map.get(key), value))
+			{
+				throw new VDMException(error, "Duplicate map keys have different values: " + VDM.toString(key));
+			}
+
+			map.put(key, value);
+			return this;
+		}
+
+		public Builder putAll(VDMMap other)
+		{
+			for (Map.Entry<Object, Object> e: other.values.entrySet())
+			{
+				put(e.getKey(), e.getValue());
+			}
+
+			return this;
+		}
+
+		public VDMMap build()
+		{
+			return map.isEmpty() ? EMPTY : new VDMMap(map);
+		}
+	}
+}
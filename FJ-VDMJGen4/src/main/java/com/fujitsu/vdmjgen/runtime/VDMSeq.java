@@ -0,0 +1,283 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable VDM sequence. Operations that change a sequence return a new
+ * one. Strings are sequences of Character.
+ */
+public final class VDMSeq implements Iterable<Object>
+{
+	public static final VDMSeq EMPTY = new VDMSeq(new Object[0]);
+	private final Object[] values;
+
+	private VDMSeq(Object[] values)
+	{
+		this.values = values;
+	}
+
+	public static VDMSeq of(Object... values)
+	{
+		return values.length == 0 ? EMPTY : new VDMSeq(values.clone());
+	}
+
+	public static VDMSeq string(String s)
+	{
+		Object[] chars = new Object[s.length()];
+
+		for (int i=0; i<chars.length; i++)
+		{
+			chars[i] = s.charAt(i);
+		}
+
+		return new VDMSeq(chars);
+	}
+
+	public int size()
+	{
+		return values.length;
+	}
+
+	public boolean isEmpty()
+	{
+		return values.length == 0;
+	}
+
+	/**
+	 * Get an element, indexed from zero.
+	 */
+	public Object get(int index)
+	{
+		return values[index];
+	}
+
+	/**
+	 * Apply the sequence to an index, as s(n), indexed from one.
+	 */
+	public Object index(Object arg)
+	{
+		if (arg instanceof Long)
+		{
+			long n = (Long)arg;
+
+			if (n >= 1 && n <= values.length)
+			{
+				return values[(int)n - 1];
+			}
+		}
+
+		throw new VDMException(4083, "Sequence index out of range: " + VDM.toString(arg));
+	}
+
+	public Object head()
+	{
+		if (values.length == 0)
+		{
+			throw new VDMException(4010, "Cannot take head of empty sequence");
+		}
+
+		return values[0];
+	}
+
+	public VDMSeq tail()
+	{
+		if (values.length == 0)
+		{
+			throw new VDMException(4033, "Tail sequence is empty");
+		}
+
+		return new VDMSeq(Arrays.asList(values).subList(1, values.length).toArray());
+	}
+
+	public VDMSeq concat(VDMSeq other)
+	{
+		if (other.values.length == 0)
+		{
+			return this;
+		}
+		else if (values.length == 0)
+		{
+			return other;
+		}
+
+		Object[] both = new Object[values.length + other.values.length];
+		System.arraycopy(values, 0, both, 0, values.length);
+		System.arraycopy(other.values, 0, both, values.length, other.values.length);
+		return new VDMSeq(both);
+	}
+
+	public VDMSeq reverse()
+	{
+		List<Object> list = new ArrayList<Object>(Arrays.asList(values));
+		Collections.reverse(list);
+		return new VDMSeq(list.toArray());
+	}
+
+	public VDMSet elems()
+	{
+		return VDMSet.of(values);
+	}
+
+	public VDMSet inds()
+	{
+		VDMSet.Builder inds = new VDMSet.Builder();
+
+		for (long i=1; i<=values.length; i++)
+		{
+			inds.add(i);
+		}
+
+		return inds.build();
+	}
+
+	/**
+	 * The subsequence s(from, ..., to), which is empty if the bounds do not
+	 * overlap the sequence.
+	 */
+	public VDMSeq subseq(Object from, Object to)
+	{
+		long fi = (long)Math.ceil(VDM.realValue(from));
+		long ti = (long)Math.floor(VDM.realValue(to));
+
+		if (fi < 1)
+		{
+			fi = 1;
+		}
+
+		if (ti > values.length)
+		{
+			ti = values.length;
+		}
+
+		if (fi > ti)
+		{
+			return EMPTY;
+		}
+
+		return new VDMSeq(Arrays.asList(values).subList((int)fi - 1, (int)ti).toArray());
+	}
+
+	/**
+	 * Override elements of the sequence, as s ++ m.
+	 */
+	public VDMSeq modify(VDMMap map)
+	{
+		Object[] copy = values.clone();
+
+		for (Map.Entry<Object, Object> e: map.entries())
+		{
+			Object key = e.getKey();
+
+			if (!(key instanceof Long) || (Long)key < 1 || (Long)key > values.length)
+			{
+				throw new VDMException(4025, "Map key not within sequence index range: " + VDM.toString(key));
+			}
+
+			copy[(int)(long)(Long)key - 1] = e.getValue();
+		}
+
+		return new VDMSeq(copy);
+	}
+
+	/**
+	 * The distributed concatenation of a sequence of sequences, as conc s.
+	 */
+	public VDMSeq conc()
+	{
+		VDMSeq result = EMPTY;
+
+		for (Object s: values)
+		{
+			result = result.concat(VDM.seq(s));
+		}
+
+		return result;
+	}
+
+	public Iterator<Object> iterator()
+	{
+		return Collections.unmodifiableList(Arrays.asList(values)).iterator();
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof VDMSeq && Arrays.equals(values, ((VDMSeq)other).values);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(values);
+	}
+
+	@Override
+	public String toString()
+	{
+		if (values.length > 0)
+		{
+			StringBuilder sb = new StringBuilder();
+
+			for (Object v: values)
+			{
+				if (!(v instanceof Character))
+				{
+					return "[" + VDM.toString(values) + "]";
+				}
+
+				sb.append((char)(Character)v);
+			}
+
+			return "\"" + sb + "\"";
+		}
+
+		return "[]";
+	}
+
+	/**
+	 * Build a sequence by appending elements, as a sequence comprehension does.
+	 */
+	public static class Builder
+	{
+		private final List<Object> list = new ArrayList<Object>();
+
+		public Builder add(Object value)
+		{
+			list.add(value);
+			return this;
+		}
+
+		public VDMSeq build()
+		{
+			return list.isEmpty() ? EMPTY : new VDMSeq(list.toArray());
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen.runtime;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An immutable VDM set. Operations that change a set return a new one. The
+ * members are kept in VDM.ORDER, so that iteration is deterministic, like the
+ * sorted sets of the interpreter.
+ */
+public final class VDMSet implements Iterable<Object>
+{
+	public static final VDMSet EMPTY = new VDMSet(new TreeSet<Object>(VDM.ORDER));
+	private final SortedSet<Object> values;
+
+	private VDMSet(SortedSet<Object> values)
+	{
+		this.values = values;
+	}
+
+	public static VDMSet of(Object... values)
+	{
+		Builder set = new Builder();
+
+		for (Object v: values)
+		{
+			set.add(v);
+		}
+
+		return set.build();
+	}
+
+	/**
+	 * The set {from, ..., to}, which is empty if to &lt; from.
+	 */
+	public static VDMSet range(Object from, Object to)
+	{
+		long fi = (long)Math.ceil(VDM.realValue(from));
+		long ti = (long)Math.floor(VDM.realValue(to));
+		Builder set = new Builder();
+
+		for (long i=fi; i<=ti; i++)
+		{
+			set.add(i);
+		}
+
+		return set.build();
+	}
+
+	public int size()
+	{
+		return values.size();
+	}
+
+	public boolean isEmpty()
+	{
+		return values.isEmpty();
+	}
+
+	public boolean contains(Object value)
+	{
+		return values.contains(value);
+	}
+
+	public VDMSet union(VDMSet other)
+	{
+		if (other.values.isEmpty())
+		{
+			return this;
+		}
+
+		TreeSet<Object> result = new TreeSet<Object>(values);
+		result.addAll(other.values);
+		return new VDMSet(result);
+	}
+
+	public VDMSet inter(VDMSet other)
+	{
+		TreeSet<Object> result = new TreeSet<Object>(values);
+		result.retainAll(other.values);
+		return new VDMSet(result);
+	}
+
+	public VDMSet difference(VDMSet other)
+	{
+		TreeSet<Object> result = new TreeSet<Object>(values);
+		result.removeAll(other.values);
+		return new VDMSet(result);
+	}
+
+	public boolean subset(VDMSet other)
+	{
+		return other.values.containsAll(values);
+	}
+
+	public boolean psubset(VDMSet other)
+	{
+		return values.size() < other.values.size() && other.values.containsAll(values);
+	}
+
+	public VDMSet power()
+	{
+		if (values.size() > 30)
+		{
+			throw new VDMException(4174, "Cannot evaluate power set of size " + values.size());
+		}
+
+		Builder result = new Builder();
+		Object[] members = values.toArray();
+
+		for (long mask=0; mask < (1L << members.length); mask++)
+		{
+			Builder subset = new Builder();
+
+			for (int i=0; i<members.length; i++)
+			{
+				if ((mask & (1L << i)) != 0)
+				{
+					subset.add(members[i]);
+				}
+			}
+
+			result.add(subset.build());
+		}
+
+		return result.build();
+	}
+
+	/**
+	 * The distributed union of a set of sets, as dunion s.
+	 */
+	public VDMSet dunion()
+	{
+		TreeSet<Object> result = new TreeSet<Object>(VDM.ORDER);
+
+		for (Object s: values)
+		{
+			result.addAll(VDM.set(s).values);
+		}
+
+		return new VDMSet(result);
+	}
+
+	/**
+	 * The distributed intersection of a set of sets, as dinter s.
+	 */
+	public VDMSet dinter()
+	{
+		if (values.isEmpty())
+		{
+			throw new VDMException(4151, "Cannot take dinter of empty set");
+		}
+
+		TreeSet<Object> result = null;
+
+		for (Object s: values)
+		{
+			if (result == null)
+			{
+				result = new TreeSet<Object>(VDM.set(s).values);
+			}
+			else
+			{
+				result.retainAll(VDM.set(s).values);
+			}
+		}
+
+		return new VDMSet(result);
+	}
+
+	public Iterator<Object> iterator()
+	{
+		return Collections.unmodifiableSet(values).iterator();
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof VDMSet && values.equals(((VDMSet)other).values);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return values.hashCode();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "{" + VDM.toString(values.toArray()) + "}";
+	}
+
+	/**
+	 * Build a set by adding members, as a set comprehension does.
+	 */
+	public static class Builder
+	{
+		private final TreeSet<Object> set = new TreeSet<Object>(VDM.ORDER);
+
+		public Builder add(Object value)
+		{
+			set.add(value);
+			return this;
+		}
+
+		public VDMSet build()
+		{
+			return set.isEmpty() ? EMPTY : new VDMSet(set);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2016 Fujitsu Services Ltd.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmjgen;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+public class GeneratorTest extends TestCase
+{
+	private static final String PACKAGE = "vdmjgen.test";
+
+	private List<File> spec;
+	private File outdir;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		URL rurl = getClass().getResource("/oracle.vdmsl");
+		spec = new ArrayList<File>();
+		spec.add(new File(rurl.getPath()));
+
+		outdir = File.createTempFile("vdmjgen", "");
+		outdir.delete();
+		outdir.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		delete(outdir);
+		super.tearDown();
+	}
+
+	private void delete(File file)
+	{
+		if (file.isDirectory())
+		{
+			for (File f: file.listFiles())
+			{
+				delete(f);
+			}
+		}
+
+		file.delete();
+	}
+
+	private ClassLoader generate() throws Exception
+	{
+		JavaGenerator generator = new JavaGenerator(new Specification(spec).getModules(), PACKAGE);
+		Map<String, String> classes = generator.generate();
+		assertTrue("Unexpected warnings: " + generator.getWarnings(), generator.getWarnings().isEmpty());
+
+		List<File> files = VDMJGen.write(outdir, PACKAGE, classes);
+		List<String> args = new ArrayList<String>();
+		args.add("-nowarn");
+		args.add("-cp");
+		args.add(System.getProperty("java.class.path"));
+		args.add("-d");
+		args.add(outdir.getPath());
+
+		for (File file: files)
+		{
+			args.add(file.getPath());
+		}
+
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("Tests require a JDK", javac);
+		assertEquals("Generated code does not compile", 0, javac.run(null, null, null, args.toArray(new String[0])));
+
+		return new URLClassLoader(new URL[] { outdir.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	private DifferentialHarness harness(ClassLoader loader, String module) throws Exception
+	{
+		Class<?> hclass = loader.loadClass(PACKAGE + "." + module + "Harness");
+		DifferentialHarness harness = (DifferentialHarness)hclass.getDeclaredConstructor().newInstance();
+		harness.load(spec);
+		return harness;
+	}
+
+	private void check(DifferentialHarness harness, String... calls) throws Exception
+	{
+		for (String call: calls)
+		{
+			assertTrue(call, harness.check(call));
+		}
+	}
+
+	public void testSampleCalls() throws Exception
+	{
+		ClassLoader loader = generate();
+
+		for (String module: new String[] { "Shapes", "Oracle" })
+		{
+			DifferentialHarness harness = harness(loader, module);
+			String[] calls = (String[])harness.getClass().getField("CALLS").get(null);
+			assertTrue(calls.length > 0);
+			check(harness, calls);
+		}
+	}
+
+	public void testOracle() throws Exception
+	{
+		DifferentialHarness harness = harness(generate(), "Oracle");
+
+		check(harness,
+			"fact(20)", "fact(25)", "fib(15)", "safeDiv(7, -2)", "safeDiv(1, 0)",
+			"ops(-7, 3)", "ops(7, -3)", "average([1, 2.5, 4])", "rev(\"hello\")",
+			"squares(12)", "evens([1, 2, 3, 4, 6])", "table(5)", "hasPair({1, 3, 7, 9})",
+			"uniqueMax({3, 3, 1})", "smallest({5, 3, 9})", "swap(1, 2)", "moved(4)",
+			"describe(<GREEN>)", "halve(8)", "halve(7)", "apply2(5)", "bigPower(70)",
+			"bigPower(10)", "headOf([])", "onlyEven(3)", "pred(1)", "inRange(-11)",
+			"maps({1 |-> 2, 2 |-> 3}, {3 |-> 1})", "setOps({1, 2}, {2, 3})");
+
+		assertEquals(0, harness.getFailed());
+	}
+}